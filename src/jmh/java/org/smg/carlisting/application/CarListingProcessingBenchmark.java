@@ -0,0 +1,170 @@
+package org.smg.carlisting.application;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.BulkIndexResult;
+import org.smg.carlisting.domain.repository.CarListingFacets;
+import org.smg.carlisting.domain.repository.CarListingPage;
+import org.smg.carlisting.domain.repository.CarListingRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Benchmark of {@link CarListingService#processCarListing(CarListingEvent)} without Elasticsearch.
+ * <p>
+ * The service runs against a map backed {@link CarListingRepository}, so the benchmark
+ * measures the work of the service itself: the dispatch by event type, the metrics and the
+ * search cache invalidation. The cache is filled with searches before the run, so every write
+ * has to check the cached criteria. {@code processBatch} measures the coalescing batch path
+ * for comparison.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CarListingProcessingBenchmark {
+
+    private static final int EVENT_COUNT = 1024;
+    private static final int LISTING_COUNT = 256;
+    private static final int CACHED_SEARCHES = 100;
+    private static final int BATCH_SIZE = 128;
+    private static final String[] MAKES = {"Peugeot", "Volkswagen", "BMW", "Mercedes-Benz", "Audi", "Skoda", "Toyota"};
+    private static final String[] MODELS = {"308", "Golf", "320d", "C 200", "A4 Avant", "Octavia", "Corolla"};
+    private static final String[] COLORS = {"black", "white", "silver", "blue", "red", "grey"};
+    private static final EventType[] EVENT_TYPES = {EventType.CREATE, EventType.UPDATE, EventType.UPDATE, EventType.DELETE};
+
+    private CarListingService carListingService;
+    private CarListingEvent[] events;
+    private List<CarListingEvent> batch;
+    private int index;
+
+    @Setup
+    public void setup() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SearchResultCache searchResultCache = new SearchResultCache(10_000, DataSize.ofBytes(0),
+                Duration.ofMinutes(10), Duration.ZERO, Duration.ZERO, DataSize.ofBytes(0), null, meterRegistry);
+        carListingService = new CarListingService(new MapCarListingRepository(), new CarListingEventCoalescer(meterRegistry),
+                searchResultCache, new FacetCache(10_000, Duration.ofMinutes(10), meterRegistry),
+                new CarListingVersionTracker(LISTING_COUNT), meterRegistry, Optional.empty());
+
+        Random random = new Random(42);
+        events = new CarListingEvent[EVENT_COUNT];
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            double minPrice = 5000 + random.nextInt(60000);
+            CarListing carListing = new CarListing(String.valueOf(random.nextInt(LISTING_COUNT)),
+                    MAKES[random.nextInt(MAKES.length)], MODELS[random.nextInt(MODELS.length)], 2000 + random.nextInt(24),
+                    minPrice, minPrice + random.nextInt(5000), COLORS[random.nextInt(COLORS.length)]);
+            events[i] = new CarListingEvent(String.valueOf(i), EVENT_TYPES[random.nextInt(EVENT_TYPES.length)], carListing);
+        }
+        batch = List.of(events).subList(0, BATCH_SIZE);
+
+        for (int i = 0; i < CACHED_SEARCHES; i++) {
+            CarListingSearchCriteria criteria = new CarListingSearchCriteria();
+            criteria.setMake(MAKES[i % MAKES.length]);
+            criteria.setYear(2000 + i % 24);
+            searchResultCache.get(SearchCacheKey.of(criteria, Pageable.ofSize(20)), key -> List.of());
+        }
+    }
+
+    @Benchmark
+    public boolean processCarListing() {
+        index = (index + 1) & (EVENT_COUNT - 1);
+        return carListingService.processCarListing(events[index]);
+    }
+
+    @Benchmark
+    public BulkIndexResult processBatch() {
+        return carListingService.processCarListings(batch);
+    }
+
+    /**
+     * Keeps the latest state per car listing id in a map, searches are not benchmarked.
+     */
+    private static final class MapCarListingRepository implements CarListingRepository {
+
+        private final Map<String, CarListing> carListings = new ConcurrentHashMap<>();
+
+        @Override
+        public List<CarListing> searchCarListings(CarListingSearchCriteria searchCriteria, Pageable pageable) {
+            return List.of();
+        }
+
+        @Override
+        public CompletableFuture<List<CarListing>> searchCarListingsAsync(CarListingSearchCriteria searchCriteria,
+                                                                         Pageable pageable) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+
+        @Override
+        public CarListingPage searchCarListingsAfter(CarListingSearchCriteria searchCriteria, Sort sort, int size,
+                                                     List<Object> searchAfter) {
+            return new CarListingPage(List.of(), null);
+        }
+
+        @Override
+        public CarListingFacets searchCarListingFacets(CarListingSearchCriteria searchCriteria) {
+            return CarListingFacets.empty();
+        }
+
+        @Override
+        public long exportCarListings(CarListingSearchCriteria searchCriteria, Consumer<List<CarListing>> pageConsumer) {
+            return 0;
+        }
+
+        @Override
+        public boolean createOrUpdateElasticsearchIndex(CarListing carListing, Long version) {
+            carListings.put(carListing.getId(), carListing);
+            return true;
+        }
+
+        @Override
+        public boolean deleteFromElasticsearchIndex(String carListingId, Long version) {
+            carListings.remove(carListingId);
+            return true;
+        }
+
+        @Override
+        public BulkIndexResult bulkUpdateElasticsearchIndex(List<CarListingEvent> carListingEvents) {
+            return bulkUpdateElasticsearchIndex(carListingEvents, null);
+        }
+
+        @Override
+        public BulkIndexResult bulkUpdateElasticsearchIndex(List<CarListingEvent> carListingEvents, String indexName) {
+            for (CarListingEvent carListingEvent : carListingEvents) {
+                if (carListingEvent.getEventType() == EventType.DELETE) {
+                    deleteFromElasticsearchIndex(carListingEvent.getCarListing().getId(), carListingEvent.getVersion());
+                } else {
+                    createOrUpdateElasticsearchIndex(carListingEvent.getCarListing(), carListingEvent.getVersion());
+                }
+            }
+            return new BulkIndexResult(carListingEvents.size(), List.of());
+        }
+    }
+}
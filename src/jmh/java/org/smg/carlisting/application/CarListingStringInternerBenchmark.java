@@ -0,0 +1,116 @@
+package org.smg.carlisting.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+import org.smg.carlisting.domain.model.CarListing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the interning of make, model and color on the ingest and caching path.
+ * <p>
+ * The setup builds {@value #CACHED_HITS} car listings parsed from JSON, as they arrive
+ * from Kafka or Elasticsearch, and measures the retained heap of the list with and without
+ * {@link CarListingStringInterner} with JOL. {@code parseAndIntern} reports both as the
+ * secondary results {@code parsedRetainedBytes} and {@code internedRetainedBytes}.
+ * {@code parse} and {@code parseAndIntern} measure what interning adds to every parsed
+ * car listing.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CarListingStringInternerBenchmark {
+
+    private static final int CACHED_HITS = 100_000;
+    private static final int PAYLOAD_COUNT = 1024;
+    private static final String[] MAKES = {"Peugeot", "Volkswagen", "BMW", "Mercedes-Benz", "Audi", "Skoda", "Toyota"};
+    private static final String[] MODELS = {"308", "Golf", "320d", "C 200", "A4 Avant", "Octavia", "Corolla"};
+    private static final String[] COLORS = {"black", "white", "silver", "blue", "red", "grey"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[][] payloads;
+    private int index;
+    private long parsedRetainedBytes;
+    private long internedRetainedBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        payloads = new byte[PAYLOAD_COUNT][];
+        for (int i = 0; i < PAYLOAD_COUNT; i++) {
+            double minPrice = 5000 + random.nextInt(60000);
+            CarListing carListing = new CarListing(UUID.randomUUID().toString(), MAKES[random.nextInt(MAKES.length)],
+                    MODELS[random.nextInt(MODELS.length)], 2000 + random.nextInt(24), minPrice,
+                    minPrice + random.nextInt(5000), COLORS[random.nextInt(COLORS.length)]);
+            payloads[i] = objectMapper.writeValueAsBytes(carListing);
+        }
+
+        List<CarListing> parsed = parseHits();
+        List<CarListing> interned = CarListingStringInterner.internAll(parseHits());
+        parsedRetainedBytes = GraphLayout.parseInstance(parsed).totalSize();
+        internedRetainedBytes = GraphLayout.parseInstance(interned).totalSize();
+    }
+
+    @Benchmark
+    public CarListing parse() throws IOException {
+        return objectMapper.readValue(nextPayload(), CarListing.class);
+    }
+
+    @Benchmark
+    public CarListing parseAndIntern(RetainedHeap retainedHeap) throws IOException {
+        CarListing carListing = objectMapper.readValue(nextPayload(), CarListing.class);
+        CarListingStringInterner.intern(carListing);
+        return carListing;
+    }
+
+    private List<CarListing> parseHits() throws IOException {
+        List<CarListing> carListings = new ArrayList<>(CACHED_HITS);
+        for (int i = 0; i < CACHED_HITS; i++) {
+            carListings.add(objectMapper.readValue(payloads[i % PAYLOAD_COUNT], CarListing.class));
+        }
+        return carListings;
+    }
+
+    private byte[] nextPayload() {
+        index = (index + 1) & (PAYLOAD_COUNT - 1);
+        return payloads[index];
+    }
+
+    /**
+     * Reports the retained heap of the cached hits with and without interning with the results.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RetainedHeap {
+
+        public long parsedRetainedBytes;
+        public long internedRetainedBytes;
+
+        @Setup(Level.Iteration)
+        public void setup(CarListingStringInternerBenchmark benchmark) {
+            parsedRetainedBytes = benchmark.parsedRetainedBytes;
+            internedRetainedBytes = benchmark.internedRetainedBytes;
+        }
+    }
+}
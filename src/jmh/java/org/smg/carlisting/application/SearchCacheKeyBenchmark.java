@@ -0,0 +1,69 @@
+package org.smg.carlisting.application;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the cache key work done on every car listing search.
+ * <p>
+ * {@code criteriaHashCode} hashes the Lombok generated {@link CarListingSearchCriteria#hashCode()}
+ * alone. {@code buildKeyAndHash} builds the canonical {@link SearchCacheKey}, which normalizes
+ * the text criteria and renders the sort, and hashes it, which is what a cache lookup costs
+ * before Caffeine is involved. {@code keyEquals} compares two equal keys built separately.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchCacheKeyBenchmark {
+
+    private CarListingSearchCriteria criteria;
+    private Pageable pageable;
+    private SearchCacheKey key;
+    private SearchCacheKey equalKey;
+
+    @Setup
+    public void setup() {
+        criteria = new CarListingSearchCriteria();
+        criteria.setMake(" Peugeot ");
+        criteria.setModel("308");
+        criteria.setMinYear(2015);
+        criteria.setMinPrice(10000.0);
+        criteria.setMaxPrice(12000.0);
+        criteria.setColor("Black");
+        pageable = PageRequest.of(2, 20, Sort.by(Sort.Direction.DESC, "year"));
+        key = SearchCacheKey.of(criteria, pageable);
+        equalKey = SearchCacheKey.of(criteria, pageable);
+    }
+
+    @Benchmark
+    public int criteriaHashCode() {
+        return criteria.hashCode();
+    }
+
+    @Benchmark
+    public int buildKeyAndHash() {
+        return SearchCacheKey.of(criteria, pageable).hashCode();
+    }
+
+    @Benchmark
+    public boolean keyEquals() {
+        return key.equals(equalKey);
+    }
+}
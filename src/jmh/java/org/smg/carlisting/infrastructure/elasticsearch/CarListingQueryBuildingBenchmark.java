@@ -0,0 +1,61 @@
+package org.smg.carlisting.infrastructure.elasticsearch;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.smg.carlisting.application.CarListingSearchCriteria;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of building the Elasticsearch query with
+ * {@link ElasticCarListingRepository#getQueryCriteria(CarListingSearchCriteria)}.
+ * <p>
+ * Unlike {@link CarListingSearchQueryBenchmark} it needs no Elasticsearch, it measures the
+ * client side cost of turning the criteria into the query object for searches using no
+ * criteria, only text criteria, only range criteria or all of them.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CarListingQueryBuildingBenchmark {
+
+    @Param({"none", "text", "range", "all"})
+    private String criteriaSet;
+
+    private CarListingSearchCriteria criteria;
+
+    @Setup
+    public void setup() {
+        criteria = new CarListingSearchCriteria();
+        if (criteriaSet.equals("text") || criteriaSet.equals("all")) {
+            criteria.setMake("Peugeot");
+            criteria.setModel("308");
+            criteria.setColor("black");
+        }
+        if (criteriaSet.equals("range") || criteriaSet.equals("all")) {
+            criteria.setMinYear(2015);
+            criteria.setMaxYear(2020);
+            criteria.setMinPrice(10000.0);
+            criteria.setMaxPrice(12000.0);
+        }
+    }
+
+    @Benchmark
+    public Query getQueryCriteria() {
+        return ElasticCarListingRepository.getQueryCriteria(criteria);
+    }
+}
@@ -0,0 +1,149 @@
+package org.smg.carlisting.infrastructure.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.QueryBuilders;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.smg.carlisting.application.CarListingSearchCriteria;
+import org.smg.carlisting.domain.model.CarListing;
+import org.testcontainers.elasticsearch.ElasticsearchContainer;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.smg.carlisting.common.Constants.COLOR;
+import static org.smg.carlisting.common.Constants.MAKE;
+import static org.smg.carlisting.common.Constants.MAX_PRICE;
+import static org.smg.carlisting.common.Constants.MIN_PRICE;
+import static org.smg.carlisting.common.Constants.MODEL;
+import static org.smg.carlisting.common.Constants.YEAR;
+
+/**
+ * Benchmark of car listing searches against a local Elasticsearch test container.
+ * <p>
+ * The container is seeded with generated car listings once per trial. {@code scoredMatchQuery}
+ * runs the former query, which put every criterion into {@code must} match clauses, and
+ * {@code filterRangeQuery} runs the query built by
+ * {@link ElasticCarListingRepository#getQueryCriteria(CarListingSearchCriteria)}. Both search
+ * with the same criteria, but the former query matches prices on equality and therefore
+ * returns fewer hits than the overlapping range.
+ * </p>
+ * <p>
+ * Docker has to be available to run this benchmark.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CarListingSearchQueryBenchmark {
+
+    private static final String ELASTICSEARCH_IMAGE = "docker.elastic.co/elasticsearch/elasticsearch:8.11.1";
+    private static final String INDEX = "car_listings_benchmark";
+    private static final int LISTING_COUNT = 200_000;
+    private static final int BULK_SIZE = 5_000;
+    private static final String[] MAKES = {"Peugeot", "Volkswagen", "BMW", "Mercedes-Benz", "Audi", "Skoda", "Toyota"};
+    private static final String[] MODELS = {"308", "Golf", "320d", "C 200", "A4 Avant", "Octavia", "Corolla"};
+    private static final String[] COLORS = {"black", "white", "silver", "blue", "red", "grey"};
+
+    private ElasticsearchContainer container;
+    private RestClient restClient;
+    private ElasticsearchClient client;
+    private Query scoredMatchQuery;
+    private Query filterRangeQuery;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        container = new ElasticsearchContainer(ELASTICSEARCH_IMAGE)
+                .withEnv("xpack.security.enabled", "false")
+                .withEnv("ES_JAVA_OPTS", "-Xms1g -Xmx1g");
+        container.start();
+        restClient = RestClient.builder(HttpHost.create(container.getHttpHostAddress())).build();
+        client = new ElasticsearchClient(new RestClientTransport(restClient, new JacksonJsonpMapper()));
+        seedIndex();
+
+        CarListingSearchCriteria criteria = new CarListingSearchCriteria();
+        criteria.setMake("Volkswagen");
+        criteria.setYear(2015);
+        criteria.setMinPrice(10000.0);
+        criteria.setMaxPrice(20000.0);
+        scoredMatchQuery = getScoredMatchQuery(criteria);
+        filterRangeQuery = ElasticCarListingRepository.getQueryCriteria(criteria);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        restClient.close();
+        container.stop();
+    }
+
+    @Benchmark
+    public SearchResponse<CarListing> scoredMatchQuery() throws IOException {
+        return search(scoredMatchQuery);
+    }
+
+    @Benchmark
+    public SearchResponse<CarListing> filterRangeQuery() throws IOException {
+        return search(filterRangeQuery);
+    }
+
+    private SearchResponse<CarListing> search(Query query) throws IOException {
+        return client.search(search -> search.index(INDEX).query(query).size(20), CarListing.class);
+    }
+
+    private void seedIndex() throws IOException {
+        client.indices().create(create -> create.index(INDEX)
+                .mappings(mappings -> mappings
+                        .properties(MAKE, property -> property.text(text -> text))
+                        .properties(MODEL, property -> property.text(text -> text))
+                        .properties(COLOR, property -> property.text(text -> text))
+                        .properties(YEAR, property -> property.integer(integer -> integer))
+                        .properties(MIN_PRICE, property -> property.double_(number -> number))
+                        .properties(MAX_PRICE, property -> property.double_(number -> number))));
+
+        Random random = new Random(42);
+        for (int offset = 0; offset < LISTING_COUNT; offset += BULK_SIZE) {
+            BulkRequest.Builder bulkRequest = new BulkRequest.Builder();
+            for (int i = offset; i < offset + BULK_SIZE; i++) {
+                double minPrice = 1000 + random.nextInt(50) * 1000;
+                CarListing carListing = new CarListing(String.valueOf(i), MAKES[random.nextInt(MAKES.length)],
+                        MODELS[random.nextInt(MODELS.length)], 2000 + random.nextInt(24), minPrice,
+                        minPrice + random.nextInt(5) * 1000, COLORS[random.nextInt(COLORS.length)]);
+                bulkRequest.operations(operation -> operation
+                        .index(index -> index.index(INDEX).id(carListing.getId()).document(carListing)));
+            }
+            client.bulk(bulkRequest.build());
+        }
+        client.indices().refresh(refresh -> refresh.index(INDEX));
+    }
+
+    private static Query getScoredMatchQuery(CarListingSearchCriteria searchCriteria) {
+        BoolQuery.Builder queryBuilder = QueryBuilders.bool();
+        queryBuilder.must(QueryBuilders.match(query -> query.field(MAKE).query(searchCriteria.getMake())));
+        queryBuilder.must(QueryBuilders.match(query -> query.field(YEAR).query(searchCriteria.getYear())));
+        queryBuilder.must(QueryBuilders.match(query -> query.field(MIN_PRICE).query(searchCriteria.getMinPrice())));
+        queryBuilder.must(QueryBuilders.match(query -> query.field(MAX_PRICE).query(searchCriteria.getMaxPrice())));
+        return queryBuilder.build()._toQuery();
+    }
+}
@@ -0,0 +1,137 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.smg.carlisting.common.Constants.CONTENT_TYPE_AVRO;
+import static org.smg.carlisting.common.Constants.HEADER_CONTENT_TYPE;
+
+/**
+ * Benchmark of the deserialization of car listing events from Kafka record payloads.
+ * <p>
+ * {@code stringAndNewObjectMapper} reproduces the former consumer path: the payload is
+ * decoded into a {@code String} by {@link StringDeserializer} and parsed by an
+ * {@code ObjectMapper} created for every record. {@code sharedObjectReader} parses the raw
+ * bytes with the {@link CarListingEventDeserializer}. {@code avroBinary} decodes the same
+ * events in the Avro binary encoding, selected by the {@code content-type} header. The
+ * {@code gc} profiler is enabled in {@code build.gradle}, so the report includes the
+ * allocation rate per operation.
+ * </p>
+ * <p>
+ * {@code avroBinary} also reports the average payload size per event of both formats as
+ * the secondary results {@code jsonBytesPerEvent} and {@code avroBytesPerEvent}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CarListingEventDeserializationBenchmark {
+
+    private static final String TOPIC = "car-listing-topic";
+    private static final int PAYLOAD_COUNT = 1024;
+    private static final String[] MAKES = {"Peugeot", "Volkswagen", "BMW", "Mercedes-Benz", "Audi", "Skoda", "Toyota"};
+    private static final String[] MODELS = {"308", "Golf", "320d", "C 200", "A4 Avant", "Octavia", "Corolla"};
+    private static final String[] COLORS = {"black", "white", "silver", "blue", "red", "grey"};
+    private static final EventType[] EVENT_TYPES = {EventType.CREATE, EventType.UPDATE, EventType.UPDATE, EventType.DELETE};
+
+    private final StringDeserializer stringDeserializer = new StringDeserializer();
+    private final CarListingEventDeserializer carListingEventDeserializer = new CarListingEventDeserializer(new SimpleMeterRegistry());
+    private final Headers avroHeaders = new RecordHeaders()
+            .add(HEADER_CONTENT_TYPE, CONTENT_TYPE_AVRO.getBytes(StandardCharsets.UTF_8));
+    private byte[][] payloads;
+    private byte[][] avroPayloads;
+    private long jsonBytesPerEvent;
+    private long avroBytesPerEvent;
+    private int index;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        CarListingEventAvroCodec avroCodec = new CarListingEventAvroCodec();
+        Random random = new Random(42);
+        payloads = new byte[PAYLOAD_COUNT][];
+        avroPayloads = new byte[PAYLOAD_COUNT][];
+        long jsonBytes = 0;
+        long avroBytes = 0;
+        for (int i = 0; i < PAYLOAD_COUNT; i++) {
+            double minPrice = 5000 + random.nextInt(60000);
+            CarListing carListing = new CarListing(UUID.randomUUID().toString(), MAKES[random.nextInt(MAKES.length)],
+                    MODELS[random.nextInt(MODELS.length)], 2000 + random.nextInt(24), minPrice,
+                    minPrice + random.nextInt(5000), COLORS[random.nextInt(COLORS.length)]);
+            CarListingEvent event = new CarListingEvent(UUID.randomUUID().toString(),
+                    EVENT_TYPES[random.nextInt(EVENT_TYPES.length)], carListing, (long) i);
+            payloads[i] = objectMapper.writeValueAsBytes(event);
+            avroPayloads[i] = avroCodec.encode(event);
+            jsonBytes += payloads[i].length;
+            avroBytes += avroPayloads[i].length;
+        }
+        jsonBytesPerEvent = jsonBytes / PAYLOAD_COUNT;
+        avroBytesPerEvent = avroBytes / PAYLOAD_COUNT;
+    }
+
+    @Benchmark
+    public CarListingEvent stringAndNewObjectMapper() throws JsonProcessingException {
+        String value = stringDeserializer.deserialize(TOPIC, nextPayload());
+        return new ObjectMapper().readValue(value, CarListingEvent.class);
+    }
+
+    @Benchmark
+    public CarListingEvent sharedObjectReader() {
+        return carListingEventDeserializer.deserialize(TOPIC, nextPayload());
+    }
+
+    @Benchmark
+    public CarListingEvent avroBinary(PayloadSize payloadSize) {
+        index = (index + 1) & (PAYLOAD_COUNT - 1);
+        return carListingEventDeserializer.deserialize(TOPIC, avroHeaders, avroPayloads[index]);
+    }
+
+    private byte[] nextPayload() {
+        index = (index + 1) & (PAYLOAD_COUNT - 1);
+        return payloads[index];
+    }
+
+    /**
+     * Reports the average payload size per event of both formats with the results.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+
+        public long jsonBytesPerEvent;
+        public long avroBytesPerEvent;
+
+        @Setup(Level.Iteration)
+        public void setup(CarListingEventDeserializationBenchmark benchmark) {
+            jsonBytesPerEvent = benchmark.jsonBytesPerEvent;
+            avroBytesPerEvent = benchmark.avroBytesPerEvent;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.smg.carlisting.application;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.smg.carlisting.domain.exception.InvalidCursorException;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Continuation token of a cursor based car listing search.
+ * <p>
+ * The cursor carries the sort of the search and the sort values of the last returned hit.
+ * It is handed to clients as URL safe Base64 of its JSON form, so they treat it as opaque
+ * and cannot change the sort in the middle of a traversal.
+ * </p>
+ *
+ * @param sort        The sort orders of the search, as {@code property,DIRECTION}.
+ * @param searchAfter The sort values of the last returned hit.
+ */
+public record CarListingCursor(List<String> sort, List<Object> searchAfter) {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectWriter CURSOR_WRITER = OBJECT_MAPPER.writerFor(Map.class);
+    private static final ObjectReader CURSOR_READER = OBJECT_MAPPER.readerFor(new TypeReference<Map<String, List<Object>>>() {
+    });
+    private static final String SORT = "sort";
+    private static final String SEARCH_AFTER = "searchAfter";
+
+    /**
+     * Creates the cursor continuing the given sort after the given sort values.
+     *
+     * @param sort        The sort of the search.
+     * @param searchAfter The sort values of the last returned hit.
+     * @return The cursor.
+     */
+    public static CarListingCursor of(Sort sort, List<Object> searchAfter) {
+        List<String> orders = sort.stream()
+                .map(order -> order.getProperty() + "," + order.getDirection())
+                .toList();
+        return new CarListingCursor(orders, searchAfter);
+    }
+
+    /**
+     * Decodes a continuation token received from a client.
+     *
+     * @param token The opaque token.
+     * @return The decoded cursor.
+     * @throws InvalidCursorException if the token is not a cursor issued by this service.
+     */
+    public static CarListingCursor decode(String token) {
+        try {
+            Map<String, List<Object>> cursor = CURSOR_READER.readValue(Base64.getUrlDecoder().decode(token));
+            List<Object> sort = cursor.get(SORT);
+            List<Object> searchAfter = cursor.get(SEARCH_AFTER);
+            if (sort == null || searchAfter == null || sort.size() != searchAfter.size()) {
+                throw new InvalidCursorException("Invalid cursor: " + token);
+            }
+
+            return new CarListingCursor(sort.stream().map(String::valueOf).toList(), searchAfter);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new InvalidCursorException("Invalid cursor: " + token);
+        }
+    }
+
+    /**
+     * Encodes the cursor into the opaque token returned to clients.
+     *
+     * @return The token.
+     */
+    public String encode() {
+        try {
+            byte[] json = CURSOR_WRITER.writeValueAsBytes(Map.of(SORT, sort, SEARCH_AFTER, searchAfter));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cursor cannot be encoded", e);
+        }
+    }
+
+    /**
+     * Rebuilds the sort of the search the cursor continues.
+     *
+     * @return The sort.
+     * @throws InvalidCursorException if a sort order is malformed.
+     */
+    public Sort toSort() {
+        try {
+            return Sort.by(sort.stream()
+                    .map(order -> {
+                        int separator = order.lastIndexOf(',');
+                        return new Sort.Order(Sort.Direction.fromString(order.substring(separator + 1)),
+                                order.substring(0, separator));
+                    })
+                    .toList());
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Invalid cursor sort: " + sort);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.smg.carlisting.application;
+
+import org.smg.carlisting.domain.model.CarListing;
+
+import java.util.List;
+
+/**
+ * One page of a cursor based car listing search.
+ *
+ * @param carListings The car listings of the page.
+ * @param nextCursor  The token continuing after this page, null on the last page.
+ */
+public record CarListingCursorPage(List<CarListing> carListings, String nextCursor) {
+}
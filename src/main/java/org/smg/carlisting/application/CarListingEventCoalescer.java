@@ -0,0 +1,94 @@
+package org.smg.carlisting.application;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.smg.carlisting.common.Constants.EVENT_TYPE_UNKNOWN;
+import static org.smg.carlisting.common.Constants.METRIC_COALESCER_DROPPED;
+import static org.smg.carlisting.common.Constants.METRIC_COALESCER_RECEIVED;
+import static org.smg.carlisting.common.Constants.TAG_EVENT_TYPE;
+
+/**
+ * Coalesces car listing events of a batch by car listing id, last write wins.
+ * <p>
+ * Every event carries the complete state of a car listing, so only the last
+ * CREATE, UPDATE or DELETE of an id within a batch has to reach the data store.
+ * Superseded events are dropped and counted per event type, events without one under
+ * {@code unknown}. The remaining events
+ * are ordered by the position of their last occurrence, so the relative order of
+ * the final writes is kept.
+ * </p>
+ */
+@Component
+public class CarListingEventCoalescer {
+
+    private final Counter receivedCounter;
+    private final Map<EventType, Counter> droppedCounters = new EnumMap<>(EventType.class);
+    private final Counter unknownDroppedCounter;
+
+    public CarListingEventCoalescer(MeterRegistry meterRegistry) {
+        this.receivedCounter = Counter.builder(METRIC_COALESCER_RECEIVED)
+                .description("Car listing events received by the coalescer")
+                .register(meterRegistry);
+        for (EventType eventType : EventType.values()) {
+            droppedCounters.put(eventType, droppedCounter(meterRegistry, eventType.name()));
+        }
+        this.unknownDroppedCounter = droppedCounter(meterRegistry, EVENT_TYPE_UNKNOWN);
+    }
+
+    private static Counter droppedCounter(MeterRegistry meterRegistry, String eventType) {
+        return Counter.builder(METRIC_COALESCER_DROPPED)
+                .description("Car listing events dropped because a later event of the same id superseded them")
+                .tag(TAG_EVENT_TYPE, eventType)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Keeps only the final event per car listing id of the given batch.
+     * <p>
+     * Events without a car listing id cannot be attributed to a listing and are
+     * passed through unchanged.
+     * </p>
+     *
+     * @param carListingEvents The car listing events of a batch, in consumption order.
+     * @return The final event per car listing id, ordered by their last occurrence.
+     */
+    public List<CarListingEvent> coalesce(List<CarListingEvent> carListingEvents) {
+        receivedCounter.increment(carListingEvents.size());
+        Map<Object, CarListingEvent> latestEvents = new LinkedHashMap<>();
+        for (CarListingEvent carListingEvent : carListingEvents) {
+            Object key = carListingEvent.carListingId();
+            if (key == null) {
+                key = new Object();
+            }
+
+            // Removing before putting moves the id to the position of its latest event
+            CarListingEvent superseded = latestEvents.remove(key);
+            if (superseded != null) {
+                droppedCounters.getOrDefault(superseded.getEventType(), unknownDroppedCounter).increment();
+            }
+            latestEvents.put(key, carListingEvent);
+        }
+
+        return new ArrayList<>(latestEvents.values());
+    }
+
+    /**
+     * Returns the total number of events dropped by the coalescer since startup.
+     *
+     * @return The number of superseded events that were not written.
+     */
+    public long getDroppedCount() {
+        return (long) (droppedCounters.values().stream().mapToDouble(Counter::count).sum()
+                + unknownDroppedCounter.count());
+    }
+}
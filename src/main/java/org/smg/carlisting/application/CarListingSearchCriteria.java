@@ -11,6 +11,11 @@ import org.smg.carlisting.domain.validator.CarListingYear;
  * such as make, model, year, price range, and color. It is typically used to
  * filter and fetch relevant car listings based on user preferences or search inputs.
  * </p>
+ * <p>
+ * The year can be searched exactly with {@code year} or as a range with {@code minYear}
+ * and {@code maxYear}. {@code minPrice} and {@code maxPrice} describe the price range the
+ * user is looking for, a car listing matches when its own price range overlaps it.
+ * </p>
  */
 @Data
 public class CarListingSearchCriteria {
@@ -21,6 +26,12 @@ public class CarListingSearchCriteria {
     @CarListingYear
     private Integer year;
 
+    @CarListingYear
+    private Integer minYear;
+
+    @CarListingYear
+    private Integer maxYear;
+
     @Positive
     private Double minPrice;
 
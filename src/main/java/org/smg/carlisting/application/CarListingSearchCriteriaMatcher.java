@@ -0,0 +1,130 @@
+package org.smg.carlisting.application;
+
+import org.smg.carlisting.domain.model.CarListing;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Decides whether a car listing could be a hit of a search.
+ * <p>
+ * The decision mirrors the query sent to Elasticsearch: text criteria match when the
+ * criteria and the listing share at least one token, the year matches exactly or within
+ * its range, and the price range of the listing has to overlap the searched one.
+ * Attributes that the listing does not carry, such as the fields of a DELETE event that
+ * only holds an id, are treated as matching, so the answer errs on the side of a match.
+ * </p>
+ * <p>
+ * Callers that check many searches against many listings tokenize both sides once into
+ * {@link TextTokens} and use {@link #couldMatch(CarListingSearchCriteria, TextTokens, CarListing, TextTokens)}.
+ * </p>
+ */
+public final class CarListingSearchCriteriaMatcher {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private CarListingSearchCriteriaMatcher() {
+    }
+
+    /**
+     * Tells whether the given car listing could be returned by a search with the given criteria.
+     *
+     * @param criteria   The search criteria.
+     * @param carListing The car listing to be checked.
+     * @return true if the car listing could match, false if it certainly does not.
+     */
+    public static boolean couldMatch(CarListingSearchCriteria criteria, CarListing carListing) {
+        return couldMatch(criteria, TextTokens.of(criteria), carListing, TextTokens.of(carListing));
+    }
+
+    /**
+     * Tells whether the given car listing could be returned by a search with the given
+     * criteria, using text tokens computed beforehand.
+     *
+     * @param criteria         The search criteria.
+     * @param criteriaTokens   The tokens of the text criteria.
+     * @param carListing       The car listing to be checked.
+     * @param carListingTokens The tokens of the text of the car listing.
+     * @return true if the car listing could match, false if it certainly does not.
+     */
+    public static boolean couldMatch(CarListingSearchCriteria criteria, TextTokens criteriaTokens,
+                                     CarListing carListing, TextTokens carListingTokens) {
+        return couldMatchText(criteriaTokens.make(), carListingTokens.make())
+                && couldMatchText(criteriaTokens.model(), carListingTokens.model())
+                && couldMatchText(criteriaTokens.color(), carListingTokens.color())
+                && couldMatchYear(criteria, carListing.getYear())
+                && couldMatchPrice(criteria, carListing);
+    }
+
+    /**
+     * Tells whether a text criterion matches a text value the way a {@code match} query
+     * does, i.e. whether both share at least one lower-cased token.
+     *
+     * @param criteria The searched text.
+     * @param value    The text of the car listing.
+     * @return true if both share a token.
+     */
+    public static boolean sharesToken(String criteria, String value) {
+        return !Collections.disjoint(tokenize(criteria), tokenize(value));
+    }
+
+    private static boolean couldMatchText(Set<String> criteria, Set<String> value) {
+        if (criteria == null || value == null) {
+            return true;
+        }
+
+        return !Collections.disjoint(criteria, value);
+    }
+
+    private static boolean couldMatchYear(CarListingSearchCriteria criteria, int year) {
+        if (year == 0) {
+            return true;
+        }
+
+        return (criteria.getYear() == null || criteria.getYear() == year)
+                && (criteria.getMinYear() == null || criteria.getMinYear() <= year)
+                && (criteria.getMaxYear() == null || criteria.getMaxYear() >= year);
+    }
+
+    private static boolean couldMatchPrice(CarListingSearchCriteria criteria, CarListing carListing) {
+        if (carListing.getMinPrice() == 0 && carListing.getMaxPrice() == 0) {
+            return true;
+        }
+
+        return (criteria.getMinPrice() == null || carListing.getMaxPrice() >= criteria.getMinPrice())
+                && (criteria.getMaxPrice() == null || carListing.getMinPrice() <= criteria.getMaxPrice());
+    }
+
+    private static Set<String> tokenize(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        return Arrays.stream(TOKEN_SEPARATOR.split(value.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * The lower-cased tokens of the make, model and color of a search or a car listing.
+     * A null set stands for an absent value, which matches anything.
+     *
+     * @param make  The tokens of the make.
+     * @param model The tokens of the model.
+     * @param color The tokens of the color.
+     */
+    public record TextTokens(Set<String> make, Set<String> model, Set<String> color) {
+
+        public static TextTokens of(CarListingSearchCriteria criteria) {
+            return new TextTokens(tokenize(criteria.getMake()), tokenize(criteria.getModel()), tokenize(criteria.getColor()));
+        }
+
+        public static TextTokens of(CarListing carListing) {
+            return new TextTokens(tokenize(carListing.getMake()), tokenize(carListing.getModel()), tokenize(carListing.getColor()));
+        }
+    }
+}
@@ -1,16 +1,43 @@
 package org.smg.carlisting.application;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
 import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.BulkIndexFailure;
+import org.smg.carlisting.domain.repository.BulkIndexResult;
+import org.smg.carlisting.domain.repository.CarListingFacets;
+import org.smg.carlisting.domain.repository.CarListingPage;
 import org.smg.carlisting.domain.repository.CarListingRepository;
-import org.springframework.cache.annotation.Cacheable;
+import org.smg.carlisting.domain.repository.CarListingWriteBuffer;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
-import static org.smg.carlisting.common.Constants.CACHE_NAME;
+import static org.smg.carlisting.common.Constants.EVENT_TYPE_UNKNOWN;
+import static org.smg.carlisting.common.Constants.ID;
+import static org.smg.carlisting.common.Constants.MAX_CURSOR_PAGE_SIZE;
+import static org.smg.carlisting.common.Constants.METRIC_EVENTS;
+import static org.smg.carlisting.common.Constants.METRIC_EVENTS_STALE;
+import static org.smg.carlisting.common.Constants.METRIC_PROCESS;
+import static org.smg.carlisting.common.Constants.METRIC_PROCESS_BULK;
+import static org.smg.carlisting.common.Constants.MISSING_CAR_LISTING_ID;
+import static org.smg.carlisting.common.Constants.STATUS_REJECTED;
+import static org.smg.carlisting.common.Constants.TAG_DETECTED;
+import static org.smg.carlisting.common.Constants.TAG_EVENT_TYPE;
 
 /**
  * Service for handling operations related to car listings.
@@ -19,12 +46,39 @@ import static org.smg.carlisting.common.Constants.CACHE_NAME;
  * the data access layer, specifically handling operations related to searching
  * car listings in Elasticsearch.
  * </p>
+ * <p>
+ * Received events are counted per event type, and the time to process a single event
+ * or a batch, including the Elasticsearch write, is recorded.
+ * </p>
+ * <p>
+ * When a write buffer is configured, events whose write failed with a retryable error
+ * are appended to it and reported as processed, so the consumer moves on while
+ * Elasticsearch is unavailable. As long as the buffer is not empty, all events go into
+ * it, so a car listing is never written ahead of an older buffered state. Buffered
+ * events are applied to the local replica of the repository right away, so searches
+ * answered from it during the outage are not limited to the state before it. The buffer
+ * is drained with {@link #writeBufferedCarListings(List)}.
+ * </p>
+ * <p>
+ * Events whose car listing was already written with the same or a newer version are
+ * stale. They are dropped before they reach the data store and reported as processed.
+ * </p>
  */
 @Service
 @Slf4j
 public class CarListingService {
 
     private final CarListingRepository carListingRepository;
+    private final CarListingEventCoalescer carListingEventCoalescer;
+    private final SearchResultCache searchResultCache;
+    private final FacetCache facetCache;
+    private final CarListingVersionTracker carListingVersionTracker;
+    private final CarListingWriteBuffer carListingWriteBuffer;
+    private final Map<EventType, Counter> eventCounters = new EnumMap<>(EventType.class);
+    private final Map<EventType, Timer> processTimers = new EnumMap<>(EventType.class);
+    private final Counter unknownEventCounter;
+    private final Timer bulkProcessTimer;
+    private final Counter staleCounter;
 
     /**
      * Constructs a new CarListingService with the specified CarListingRepository.
@@ -34,34 +88,333 @@ public class CarListingService {
      * for the service to interact with the underlying data store and perform CRUD operations.
      * </p>
      *
-     * @param carListingRepository The CarListingRepository used for data access operations on car listings.
+     * @param carListingRepository     The CarListingRepository used for data access operations on car listings.
+     * @param carListingEventCoalescer The coalescer that drops superseded events of a batch.
+     * @param searchResultCache        The cache of search results invalidated by written events.
+     * @param facetCache               The cache of facet counts, expiring after a short time.
+     * @param carListingVersionTracker The highest written version per car listing.
+     * @param meterRegistry            The registry of the event counters and processing timers.
+     * @param carListingWriteBuffer    The buffer of events written later, if write-behind is enabled.
      */
-    public CarListingService(CarListingRepository carListingRepository) {
+    public CarListingService(CarListingRepository carListingRepository, CarListingEventCoalescer carListingEventCoalescer,
+                             SearchResultCache searchResultCache, FacetCache facetCache,
+                             CarListingVersionTracker carListingVersionTracker, MeterRegistry meterRegistry,
+                             Optional<CarListingWriteBuffer> carListingWriteBuffer) {
         this.carListingRepository = carListingRepository;
+        this.carListingEventCoalescer = carListingEventCoalescer;
+        this.searchResultCache = searchResultCache;
+        this.facetCache = facetCache;
+        this.carListingVersionTracker = carListingVersionTracker;
+        this.carListingWriteBuffer = carListingWriteBuffer.orElse(null);
+        for (EventType eventType : EventType.values()) {
+            eventCounters.put(eventType, Counter.builder(METRIC_EVENTS)
+                    .description("Car listing events received for processing")
+                    .tag(TAG_EVENT_TYPE, eventType.name())
+                    .register(meterRegistry));
+            processTimers.put(eventType, Timer.builder(METRIC_PROCESS)
+                    .description("Time to process a single car listing event, including the Elasticsearch write")
+                    .tag(TAG_EVENT_TYPE, eventType.name())
+                    .register(meterRegistry));
+        }
+        this.unknownEventCounter = Counter.builder(METRIC_EVENTS)
+                .description("Car listing events received for processing")
+                .tag(TAG_EVENT_TYPE, EVENT_TYPE_UNKNOWN)
+                .register(meterRegistry);
+        this.bulkProcessTimer = Timer.builder(METRIC_PROCESS_BULK)
+                .description("Time to process a batch of car listing events, including the bulk write")
+                .register(meterRegistry);
+        this.staleCounter = Counter.builder(METRIC_EVENTS_STALE)
+                .description("Car listing events dropped because a newer version was already written")
+                .tag(TAG_DETECTED, "local")
+                .register(meterRegistry);
     }
 
     /**
      * Processes the given CarListingEvent based on its event type.
      * <p>
      * Depending on the type of event (CREATE, UPDATE, DELETE), this method will
-     * perform the necessary operations on the Elasticsearch index.
+     * perform the necessary operations on the Elasticsearch index. The result tells
+     * the caller whether the event may be acknowledged. A successful write invalidates
+     * the cached searches the car listing could affect.
      * </p>
      *
      * @param carListingEvent The car listing event to be processed.
+     * @return true if the event was applied, buffered or needs no write, false if the write failed.
      */
-    public void processCarListing(CarListingEvent carListingEvent) {
+    public boolean processCarListing(CarListingEvent carListingEvent) {
+        EventType eventType = carListingEvent.getEventType();
+        if (eventType == null) {
+            unknownEventCounter.increment();
+            log.info("Received an event without event type, id: {}", carListingEvent.getId());
+            return true;
+        }
+
+        eventCounters.get(eventType).increment();
+        if (carListingVersionTracker.isStale(carListingEvent)) {
+            staleCounter.increment();
+            log.debug("Dropping stale {} event for id: {} with version {}", eventType,
+                    carListingEvent.getCarListing().getId(), carListingEvent.getVersion());
+            return true;
+        }
+        return processTimers.get(eventType).record(() -> applyCarListing(carListingEvent));
+    }
+
+    private boolean applyCarListing(CarListingEvent carListingEvent) {
+        if (isBuffering()) {
+            return bufferCarListings(List.of(carListingEvent));
+        }
+
+        boolean written;
         switch (carListingEvent.getEventType()) {
             case CREATE, UPDATE:
-                carListingRepository.createOrUpdateElasticsearchIndex(carListingEvent.getCarListing());
+                written = carListingRepository.createOrUpdateElasticsearchIndex(carListingEvent.getCarListing(),
+                        carListingEvent.getVersion());
                 break;
             case DELETE:
-                carListingRepository.deleteFromElasticsearchIndex(carListingEvent.getCarListing().getId());
+                written = carListingRepository.deleteFromElasticsearchIndex(carListingEvent.getCarListing().getId(),
+                        carListingEvent.getVersion());
                 break;
             default:
                 //In case we decide to insert another Event Type (e.g. OTHER or UNKNOWN)
                 log.info("Received an unknown event type: " + carListingEvent.getEventType());
-                break;
+                return true;
+        }
+
+        if (written) {
+            carListingVersionTracker.advance(carListingEvent);
+            searchResultCache.invalidate(List.of(carListingEvent.getCarListing()));
+        } else if (carListingWriteBuffer != null) {
+            log.warn("Buffering {} event for id: {} until Elasticsearch accepts writes again",
+                    carListingEvent.getEventType(), carListingEvent.getCarListing().getId());
+            return bufferCarListings(List.of(carListingEvent));
+        }
+        return written;
+    }
+
+    /**
+     * Processes a batch of CarListingEvents with a single bulk write.
+     * <p>
+     * The batch is coalesced first, so only the final event per car listing id is
+     * written, and the remaining events are applied in order. Events that the data store rejects
+     * are logged one by one and returned in the result, the rest of the batch is not
+     * affected by them. Events without a car listing id never reach the data store and
+     * are returned as rejected failures without id. Events without event type are counted
+     * and skipped as in {@link #processCarListing(CarListingEvent)}, they count as successful.
+     * </p>
+     *
+     * @param carListingEvents The car listing events to be processed, in consumption order.
+     * @return The outcome of the bulk write, including the failures per car listing.
+     */
+    public BulkIndexResult processCarListings(List<CarListingEvent> carListingEvents) {
+        carListingEvents.stream()
+                .map(CarListingEvent::getEventType)
+                .forEach(eventType -> eventCounters.getOrDefault(eventType, unknownEventCounter).increment());
+        List<CarListingEvent> typedEvents = withEventType(carListingEvents);
+        List<CarListingEvent> identifiedEvents = withCarListingId(typedEvents);
+        BulkIndexResult bulkIndexResult = bulkProcessTimer.record(() -> applyCarListings(identifiedEvents));
+        return withSkippedEvents(withRejectedEvents(bulkIndexResult, typedEvents, identifiedEvents),
+                carListingEvents.size() - typedEvents.size());
+    }
+
+    private BulkIndexResult applyCarListings(List<CarListingEvent> carListingEvents) {
+        List<CarListingEvent> currentEvents = carListingEvents.stream()
+                .filter(carListingEvent -> !carListingVersionTracker.isStale(carListingEvent))
+                .toList();
+        int stale = carListingEvents.size() - currentEvents.size();
+        staleCounter.increment(stale);
+        if (currentEvents.isEmpty()) {
+            return new BulkIndexResult(stale, List.of());
+        }
+        BulkIndexResult bulkIndexResult = applyCurrentCarListings(currentEvents);
+        return stale == 0
+                ? bulkIndexResult
+                : new BulkIndexResult(bulkIndexResult.getSuccessful() + stale, bulkIndexResult.getFailures());
+    }
+
+    private BulkIndexResult applyCurrentCarListings(List<CarListingEvent> carListingEvents) {
+        List<CarListingEvent> coalescedEvents = carListingEventCoalescer.coalesce(carListingEvents);
+        if (isBuffering()) {
+            return bufferCarListings(coalescedEvents)
+                    ? new BulkIndexResult(coalescedEvents.size(), List.of())
+                    : new BulkIndexResult(0, unbufferedFailures(coalescedEvents));
+        }
+
+        BulkIndexResult bulkIndexResult = writeCarListings(coalescedEvents);
+        if (carListingWriteBuffer == null || !bulkIndexResult.hasFailures()) {
+            return bulkIndexResult;
+        }
+
+        Set<String> retryableIds = bulkIndexResult.getFailures().stream()
+                .filter(BulkIndexFailure::isRetryable)
+                .map(BulkIndexFailure::getCarListingId)
+                .collect(Collectors.toSet());
+        List<CarListingEvent> retryableEvents = coalescedEvents.stream()
+                .filter(carListingEvent -> retryableIds.contains(carListingEvent.carListingId()))
+                .toList();
+        if (retryableEvents.isEmpty() || !bufferCarListings(retryableEvents)) {
+            return bulkIndexResult;
+        }
+
+        log.warn("Buffering {} car listings until Elasticsearch accepts writes again", retryableEvents.size());
+        return new BulkIndexResult(bulkIndexResult.getSuccessful() + retryableEvents.size(),
+                bulkIndexResult.getFailures().stream()
+                        .filter(failure -> !failure.isRetryable())
+                        .toList());
+    }
+
+    /**
+     * Writes car listings that were held back by the write buffer.
+     * <p>
+     * The events are written with a single bulk request like {@link #processCarListings(List)},
+     * but never go back into the buffer. The caller removes the written car listings from
+     * the buffer and keeps the ones that failed with a retryable error.
+     * </p>
+     *
+     * @param carListingEvents The buffered car listing events, at most one per car listing.
+     * @return The outcome of the bulk write, including the failures per car listing.
+     */
+    public BulkIndexResult writeBufferedCarListings(List<CarListingEvent> carListingEvents) {
+        return bulkProcessTimer.record(() -> writeCarListings(carListingEvents));
+    }
+
+    private BulkIndexResult writeCarListings(List<CarListingEvent> carListingEvents) {
+        BulkIndexResult bulkIndexResult = carListingRepository.bulkUpdateElasticsearchIndex(carListingEvents);
+        bulkIndexResult.getFailures().forEach(failure ->
+                log.error("Executing {} event in bulk failed for id: {}, status: {}, reason: {}", failure.getEventType(),
+                        failure.getCarListingId(), failure.getStatus(), failure.getReason()));
+
+        Set<String> failedIds = bulkIndexResult.getFailures().stream()
+                .map(BulkIndexFailure::getCarListingId)
+                .collect(Collectors.toSet());
+        List<CarListingEvent> writtenEvents = carListingEvents.stream()
+                .filter(carListingEvent -> !failedIds.contains(carListingEvent.carListingId()))
+                .toList();
+        writtenEvents.forEach(carListingVersionTracker::advance);
+        searchResultCache.invalidate(writtenEvents.stream()
+                .map(CarListingEvent::getCarListing)
+                .toList());
+
+        return bulkIndexResult;
+    }
+
+    /**
+     * Appends events to the write buffer and applies the appended ones to the replica,
+     * invalidating the cached searches they could affect.
+     */
+    private boolean bufferCarListings(List<CarListingEvent> carListingEvents) {
+        if (!carListingWriteBuffer.append(carListingEvents)) {
+            return false;
+        }
+
+        carListingRepository.writeReplica(carListingEvents);
+        searchResultCache.invalidate(carListingEvents.stream()
+                .map(CarListingEvent::getCarListing)
+                .toList());
+        return true;
+    }
+
+    private boolean isBuffering() {
+        return carListingWriteBuffer != null && !carListingWriteBuffer.isEmpty();
+    }
+
+    private static List<BulkIndexFailure> unbufferedFailures(List<CarListingEvent> carListingEvents) {
+        return carListingEvents.stream()
+                .map(carListingEvent -> new BulkIndexFailure(carListingEvent.carListingId(),
+                        carListingEvent.getEventType(), 0, "Write-behind buffer is not writable"))
+                .toList();
+    }
+
+    /**
+     * Writes a batch of replayed CarListingEvents into an index that is being rebuilt.
+     * <p>
+     * The batch is coalesced and written with a single bulk request like
+     * {@link #processCarListings(List)}, but into the given index instead of the alias.
+     * Events without a car listing id are returned as rejected failures without id.
+     * The search cache is left alone, the rebuilt index is not searched until the alias
+     * is moved to it.
+     * </p>
+     *
+     * @param carListingEvents The replayed car listing events, in topic order.
+     * @param indexName        The index being rebuilt.
+     * @return The outcome of the bulk write, including the failures per car listing.
+     */
+    public BulkIndexResult rebuildCarListings(List<CarListingEvent> carListingEvents, String indexName) {
+        List<CarListingEvent> typedEvents = withEventType(carListingEvents);
+        List<CarListingEvent> identifiedEvents = withCarListingId(typedEvents);
+        List<CarListingEvent> coalescedEvents = carListingEventCoalescer.coalesce(identifiedEvents);
+        BulkIndexResult bulkIndexResult = coalescedEvents.isEmpty()
+                ? new BulkIndexResult(0, List.of())
+                : carListingRepository.bulkUpdateElasticsearchIndex(coalescedEvents, indexName);
+        bulkIndexResult.getFailures().forEach(failure ->
+                log.error("Rebuilding {} failed for id: {}, status: {}, reason: {}", indexName,
+                        failure.getCarListingId(), failure.getStatus(), failure.getReason()));
+        return withSkippedEvents(withRejectedEvents(bulkIndexResult, typedEvents, identifiedEvents),
+                carListingEvents.size() - typedEvents.size());
+    }
+
+    /**
+     * Leaves out the events without event type, which would otherwise be written as an
+     * index operation by the bulk request.
+     */
+    private static List<CarListingEvent> withEventType(List<CarListingEvent> carListingEvents) {
+        if (carListingEvents.stream().allMatch(carListingEvent -> carListingEvent.getEventType() != null)) {
+            return carListingEvents;
+        }
+
+        return carListingEvents.stream()
+                .filter(carListingEvent -> {
+                    if (carListingEvent.getEventType() == null) {
+                        log.info("Received an event without event type, id: {}", carListingEvent.getId());
+                        return false;
+                    }
+                    return true;
+                })
+                .toList();
+    }
+
+    private static BulkIndexResult withSkippedEvents(BulkIndexResult bulkIndexResult, int skipped) {
+        return skipped == 0
+                ? bulkIndexResult
+                : new BulkIndexResult(bulkIndexResult.getSuccessful() + skipped, bulkIndexResult.getFailures());
+    }
+
+    private static List<CarListingEvent> withCarListingId(List<CarListingEvent> carListingEvents) {
+        return carListingEvents.stream().allMatch(carListingEvent -> carListingEvent.carListingId() != null)
+                ? carListingEvents
+                : carListingEvents.stream()
+                        .filter(carListingEvent -> carListingEvent.carListingId() != null)
+                        .toList();
+    }
+
+    /**
+     * Adds a rejected failure without id for every event that was left out of the write
+     * because it has no car listing id.
+     */
+    private static BulkIndexResult withRejectedEvents(BulkIndexResult bulkIndexResult, List<CarListingEvent> carListingEvents,
+                                                      List<CarListingEvent> identifiedEvents) {
+        if (identifiedEvents.size() == carListingEvents.size()) {
+            return bulkIndexResult;
         }
+
+        List<BulkIndexFailure> failures = new ArrayList<>(bulkIndexResult.getFailures());
+        carListingEvents.stream()
+                .filter(carListingEvent -> carListingEvent.carListingId() == null)
+                .forEach(carListingEvent -> {
+                    log.error("Rejecting {} event {} without car listing id", carListingEvent.getEventType(),
+                            carListingEvent.getId());
+                    failures.add(new BulkIndexFailure(null, carListingEvent.getEventType(), STATUS_REJECTED,
+                            MISSING_CAR_LISTING_ID));
+                });
+        return new BulkIndexResult(bulkIndexResult.getSuccessful(), failures);
+    }
+
+    /**
+     * Drops all cached search results and facet counts, after the alias was moved to a
+     * rebuilt index.
+     */
+    public void invalidateSearchResults() {
+        searchResultCache.invalidateAll();
+        facetCache.invalidateAll();
     }
 
     /**
@@ -69,7 +422,7 @@ public class CarListingService {
      * <p>
      * This method queries Elasticsearch using the provided search criteria. It supports pagination
      * and sorting as per the pageable parameter. In case of Elasticsearch index not found, it logs
-     * an error and returns an empty list.
+     * an error and returns an empty list. Results are cached under the canonical key of the search.
      * </p>
      *
      * @param query    The criteria used for searching car listings.
@@ -77,8 +430,96 @@ public class CarListingService {
      * @return A list of CarListing objects that match the search criteria. Returns an empty list
      * if the Elasticsearch index does not exist or other issues occur during query execution.
      */
-    @Cacheable(value = CACHE_NAME)
     public List<CarListing> searchCarListings(CarListingSearchCriteria query, Pageable pageable) {
-        return carListingRepository.searchCarListings(query, pageable);
+        return searchResultCache.get(SearchCacheKey.of(query, pageable),
+                key -> carListingRepository.searchCarListings(query, pageable));
+    }
+
+    /**
+     * Searches for car listings like {@link #searchCarListings(CarListingSearchCriteria, Pageable)},
+     * without blocking the calling thread.
+     * <p>
+     * Results share the cache of the blocking search, so a hit completes at once and
+     * concurrent misses of the same search wait for a single request to the data store.
+     * </p>
+     *
+     * @param query    The criteria used for searching car listings.
+     * @param pageable The pagination and sorting information.
+     * @return The future car listings matching the search criteria.
+     */
+    public CompletableFuture<List<CarListing>> searchCarListingsAsync(CarListingSearchCriteria query, Pageable pageable) {
+        return searchResultCache.getAsync(SearchCacheKey.of(query, pageable),
+                key -> carListingRepository.searchCarListingsAsync(query, pageable));
+    }
+
+    /**
+     * Counts the car listings matching the search criteria per make, model, color, year
+     * and price range.
+     * <p>
+     * The counts are meant for the filters shown next to every search result, so they are
+     * cached under the canonical key of the criteria and may lag behind the latest writes
+     * by the expiry of the facet cache.
+     * </p>
+     *
+     * @param query The criteria used for searching car listings.
+     * @return The facet counts of the matching car listings.
+     */
+    public CarListingFacets getCarListingFacets(CarListingSearchCriteria query) {
+        return facetCache.get(SearchCacheKey.of(query, null), key -> carListingRepository.searchCarListingFacets(query));
+    }
+
+    /**
+     * Walks all car listings matching the search criteria and hands them to the consumer
+     * page by page.
+     * <p>
+     * Unlike the searches, the export is not cached and holds only one page at a time, so
+     * its memory does not grow with the number of matching car listings. The pages are
+     * throttled by the data store to protect it from full catalog walks.
+     * </p>
+     *
+     * @param query        The criteria used for selecting car listings.
+     * @param pageConsumer The consumer of every page, called on the calling thread.
+     * @return The number of exported car listings.
+     */
+    public long exportCarListings(CarListingSearchCriteria query, Consumer<List<CarListing>> pageConsumer) {
+        return carListingRepository.exportCarListings(query, pageConsumer);
+    }
+
+    /**
+     * Searches for car listings page by page with {@code search_after}.
+     * <p>
+     * Unlike offset pagination, every page costs the same no matter how deep it is, and the
+     * traversal is not limited by {@code max_result_window}. The sort is completed with the
+     * car listing id as tiebreaker, so hits with equal sort values are neither skipped nor
+     * repeated. The first page uses the given sort; following pages take the sort from the
+     * cursor and ignore the given one. Cursor pages are not cached, every crawler requests
+     * each page only once.
+     * </p>
+     *
+     * @param query  The criteria used for searching car listings.
+     * @param sort   The sort of the first page.
+     * @param size   The page size, capped at {@value org.smg.carlisting.common.Constants#MAX_CURSOR_PAGE_SIZE}.
+     * @param cursor The token returned with the previous page, or null for the first page.
+     * @return The car listings of the page and the token of the next one.
+     */
+    public CarListingCursorPage searchCarListings(CarListingSearchCriteria query, Sort sort, int size, String cursor) {
+        CarListingCursor carListingCursor = cursor == null ? null : CarListingCursor.decode(cursor);
+        Sort searchSort = withTiebreaker(carListingCursor == null ? sort : carListingCursor.toSort());
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+
+        CarListingPage carListingPage = carListingRepository.searchCarListingsAfter(query, searchSort, pageSize,
+                carListingCursor == null ? null : carListingCursor.searchAfter());
+        String nextCursor = carListingPage.hasNext()
+                ? CarListingCursor.of(searchSort, carListingPage.getSearchAfter()).encode()
+                : null;
+        return new CarListingCursorPage(carListingPage.getCarListings(), nextCursor);
+    }
+
+    private static Sort withTiebreaker(Sort sort) {
+        if (sort.getOrderFor(ID) != null) {
+            return sort;
+        }
+
+        return sort.and(Sort.by(ID));
     }
 }
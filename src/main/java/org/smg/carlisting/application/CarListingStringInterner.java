@@ -0,0 +1,92 @@
+package org.smg.carlisting.application;
+
+import org.smg.carlisting.domain.model.CarListing;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.smg.carlisting.common.Constants.MAX_INTERNED_STRINGS;
+
+/**
+ * Shares one instance of every distinct make, model and color of the car listings held
+ * in memory.
+ * <p>
+ * There are only a few hundred distinct makes and colors, yet every deserialized event
+ * and every search hit carries its own copies, which then stay in the search result
+ * cache. Values are trimmed and looked up case-insensitively, so {@code " bmw"} and
+ * {@code "BMW"} both become the spelling that was seen first.
+ * </p>
+ * <p>
+ * The dictionary holds at most {@value org.smg.carlisting.common.Constants#MAX_INTERNED_STRINGS}
+ * values and is never evicted, since the vocabulary is small and stable. Once it is full,
+ * new values are only trimmed and keep their own instance. Kafka creates the
+ * deserializers itself, so the dictionary is shared by the whole JVM instead of being a
+ * bean.
+ * </p>
+ */
+public final class CarListingStringInterner {
+
+    private static final Map<String, String> VALUES = new ConcurrentHashMap<>();
+
+    private CarListingStringInterner() {
+    }
+
+    /**
+     * Returns the shared instance of a make, model or color.
+     *
+     * @param value The value to intern.
+     * @return The trimmed value in its canonical spelling, or null for null.
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        String trimmed = value.strip();
+        String key = trimmed.toLowerCase(Locale.ROOT);
+        String interned = VALUES.get(key);
+        if (interned != null) {
+            return interned;
+        }
+        if (VALUES.size() >= MAX_INTERNED_STRINGS) {
+            return trimmed;
+        }
+
+        interned = VALUES.putIfAbsent(key, trimmed);
+        return interned != null ? interned : trimmed;
+    }
+
+    /**
+     * Replaces the make, model and color of a car listing with their shared instances.
+     *
+     * @param carListing The car listing to update, may be null.
+     */
+    public static void intern(CarListing carListing) {
+        if (carListing == null) {
+            return;
+        }
+
+        carListing.setMake(intern(carListing.getMake()));
+        carListing.setModel(intern(carListing.getModel()));
+        carListing.setColor(intern(carListing.getColor()));
+    }
+
+    /**
+     * Replaces the make, model and color of car listings with their shared instances.
+     *
+     * @param carListings The car listings to update, may be null.
+     * @return The same car listings.
+     */
+    public static <T extends Collection<CarListing>> T internAll(T carListings) {
+        if (carListings != null) {
+            carListings.forEach(CarListingStringInterner::intern);
+        }
+        return carListings;
+    }
+
+    static int size() {
+        return VALUES.size();
+    }
+}
@@ -0,0 +1,61 @@
+package org.smg.carlisting.application;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the highest version written per car listing id, to drop stale events early.
+ * <p>
+ * An event is stale when a newer or the same version of its car listing was already
+ * written, e.g. a retried or replayed event, or one redelivered after a rebalance.
+ * Dropping it here saves the round trip to the data store, which rejects stale versions
+ * as well. The map is bounded; once an id is evicted its events are no longer dropped
+ * locally, only by the data store.
+ * </p>
+ */
+@Component
+public class CarListingVersionTracker {
+
+    private final Cache<String, Long> highWaterMarks;
+
+    public CarListingVersionTracker(@Value("${car-listing.versions.maximum-size:1000000}") long maximumSize) {
+        this.highWaterMarks = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Tells whether a newer or the same version of the car listing was already written.
+     *
+     * @param carListingEvent The event to check.
+     * @return true if the event is stale, false if it is newer or has no version.
+     */
+    public boolean isStale(CarListingEvent carListingEvent) {
+        String id = carListingEvent.carListingId();
+        if (carListingEvent.getVersion() == null || id == null) {
+            return false;
+        }
+
+        Long highWaterMark = highWaterMarks.getIfPresent(id);
+        return highWaterMark != null && carListingEvent.getVersion() <= highWaterMark;
+    }
+
+    /**
+     * Records that the version of an event was written.
+     *
+     * @param carListingEvent The written event.
+     */
+    public void advance(CarListingEvent carListingEvent) {
+        String id = carListingEvent.carListingId();
+        if (carListingEvent.getVersion() != null && id != null) {
+            highWaterMarks.asMap().merge(id, carListingEvent.getVersion(), Math::max);
+        }
+    }
+
+    public long size() {
+        return highWaterMarks.estimatedSize();
+    }
+}
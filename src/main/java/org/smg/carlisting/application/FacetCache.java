@@ -0,0 +1,71 @@
+package org.smg.carlisting.application;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.smg.carlisting.domain.repository.CarListingFacets;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import static org.smg.carlisting.common.Constants.FACET_CACHE_NAME;
+
+/**
+ * Cache of car listing facet counts keyed by the canonical {@link SearchCacheKey} of the
+ * criteria.
+ * <p>
+ * Unlike the {@link SearchResultCache}, entries are not invalidated by ingested car
+ * listings. Almost every write can change the counts of the searches without criteria,
+ * which are the most requested ones, so they would hardly ever be served from the cache
+ * while events are consumed. Counts shown next to the filters may be a little behind, so
+ * entries simply expire after a short time instead.
+ * </p>
+ * <p>
+ * Hits, misses, evictions and the size of the cache are published as {@code cache.*}
+ * metrics with the cache name {@code carListingFacets}.
+ * </p>
+ */
+@Component
+public class FacetCache {
+
+    private final Cache<SearchCacheKey, CarListingFacets> cache;
+
+    public FacetCache(@Value("${car-listing.facet-cache.maximum-size:10000}") long maximumSize,
+                      @Value("${car-listing.facet-cache.expire-after-write:30s}") Duration expireAfterWrite,
+                      MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, FACET_CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached facet counts of a search or loads and caches them.
+     * <p>
+     * Concurrent misses of the same key wait for a single load.
+     * </p>
+     *
+     * @param key    The canonical key of the search criteria.
+     * @param loader The function that counts the facets on a cache miss.
+     * @return The facet counts of the search.
+     */
+    public CarListingFacets get(SearchCacheKey key, Function<SearchCacheKey, CarListingFacets> loader) {
+        return cache.get(key, loader);
+    }
+
+    /**
+     * Drops all cached facet counts, used when the alias is moved to a rebuilt index.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+}
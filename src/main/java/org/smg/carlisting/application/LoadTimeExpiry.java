@@ -0,0 +1,59 @@
+package org.smg.carlisting.application;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.util.function.ToLongFunction;
+
+/**
+ * Expires a cached search a fixed time after its hits were loaded from Elasticsearch.
+ * <p>
+ * The load time is read from the cached value, so a page keeps its original deadline
+ * when it moves between the heap and the off-heap tier, and a replaced page gets the
+ * deadline of its new load. Reads do not extend the deadline.
+ * </p>
+ *
+ * @param <V> The type of the cached values.
+ */
+class LoadTimeExpiry<V> implements Expiry<SearchCacheKey, V> {
+
+    private final long expireAfterLoadNanos;
+    private final ToLongFunction<V> loadedAt;
+
+    /**
+     * @param expireAfterLoad The time after which a search expires once its hits were loaded.
+     * @param loadedAt        Gives the {@link System#nanoTime()} at which the hits of a value were loaded.
+     */
+    LoadTimeExpiry(Duration expireAfterLoad, ToLongFunction<V> loadedAt) {
+        this.expireAfterLoadNanos = expireAfterLoad.toNanos();
+        this.loadedAt = loadedAt;
+    }
+
+    /**
+     * @param value The cached value.
+     * @param now   The current {@link System#nanoTime()}.
+     * @return true if the value is older than the expiry time.
+     */
+    boolean hasExpired(V value, long now) {
+        return remainingNanos(value, now) == 0;
+    }
+
+    @Override
+    public long expireAfterCreate(SearchCacheKey key, V value, long currentTime) {
+        return remainingNanos(value, currentTime);
+    }
+
+    @Override
+    public long expireAfterUpdate(SearchCacheKey key, V value, long currentTime, long currentDuration) {
+        return remainingNanos(value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(SearchCacheKey key, V value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+
+    private long remainingNanos(V value, long now) {
+        return Math.max(0, loadedAt.applyAsLong(value) + expireAfterLoadNanos - now);
+    }
+}
@@ -0,0 +1,136 @@
+package org.smg.carlisting.application;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.smg.carlisting.common.Constants.OFF_HEAP_CACHE_NAME;
+
+/**
+ * Second tier of the search result cache, holding pages evicted from the heap.
+ * <p>
+ * Every page is encoded by {@link SearchResultPageCodec} into its own direct
+ * {@link ByteBuffer}, so the hits live outside of the heap and are not traced by the
+ * garbage collector. The pages are weighed by their encoded size and the least recently
+ * used ones are evicted once the capacity is reached. The memory of an evicted page is
+ * freed when its buffer is collected, so {@code -XX:MaxDirectMemorySize} must leave room
+ * above the capacity.
+ * </p>
+ * <p>
+ * Invalidation must not decode a page to tell whether it holds a car listing, so the
+ * hash codes of the ids of a page are kept on the heap, a few bytes per hit. A hash
+ * collision only removes a page that did not need to be removed.
+ * </p>
+ * <p>
+ * A page keeps the time its hits were loaded from Elasticsearch and expires relative to
+ * it, so moving a page between the tiers never extends its life.
+ * </p>
+ */
+class OffHeapSearchResultStore {
+
+    private final Cache<SearchCacheKey, Page> pages;
+    private final LoadTimeExpiry<Page> expiry;
+
+    /**
+     * @param capacity         The maximum number of encoded bytes.
+     * @param expireAfterWrite The time after which a page expires once its hits were loaded.
+     * @param onRemoval        Called with the key of every page that leaves the store.
+     * @param meterRegistry    The registry of the cache metrics.
+     */
+    OffHeapSearchResultStore(long capacity, Duration expireAfterWrite, Consumer<SearchCacheKey> onRemoval,
+                             MeterRegistry meterRegistry) {
+        this.expiry = new LoadTimeExpiry<>(expireAfterWrite, Page::loadedAt);
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(capacity)
+                .weigher((SearchCacheKey key, Page page) -> page.data().capacity())
+                .expireAfter(expiry)
+                .recordStats()
+                .removalListener((SearchCacheKey key, Page page, RemovalCause cause) -> {
+                    if (key != null) {
+                        onRemoval.accept(key);
+                    }
+                })
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, OFF_HEAP_CACHE_NAME);
+    }
+
+    /**
+     * Stores the hits of a search evicted from the heap tier.
+     *
+     * @param key  The key of the search.
+     * @param page The hits of the search and the time they were loaded.
+     */
+    void put(SearchCacheKey key, SearchResultCache.CachedPage page) {
+        int[] idHashes = page.hits().stream()
+                .mapToInt(hit -> hit.getId() != null ? hit.getId().hashCode() : 0)
+                .sorted()
+                .toArray();
+        pages.put(key, new Page(SearchResultPageCodec.encode(page.hits()), idHashes, page.loadedAt()));
+    }
+
+    /**
+     * Removes the page of a search, to move it back to the heap tier.
+     *
+     * @param key The key of the search.
+     * @return The decoded hits with their original load time, or null if the page is not
+     * stored or has expired.
+     */
+    SearchResultCache.CachedPage take(SearchCacheKey key) {
+        Page page = pages.asMap().remove(key);
+        if (page == null || expiry.hasExpired(page, System.nanoTime())) {
+            return null;
+        }
+
+        return new SearchResultCache.CachedPage(SearchResultPageCodec.decode(page.data()), page.loadedAt());
+    }
+
+    /**
+     * Tells whether the page of a search may hold one of the ids, without decoding it and
+     * without counting as an access.
+     *
+     * @param key The key of the search.
+     * @param ids The ids of the written car listings.
+     * @return true if the page is stored and holds an id with the same hash code.
+     */
+    boolean holdsAny(SearchCacheKey key, Set<String> ids) {
+        Page page = pages.policy().getIfPresentQuietly(key);
+        return page != null && ids.stream()
+                .anyMatch(id -> Arrays.binarySearch(page.idHashes(), id.hashCode()) >= 0);
+    }
+
+    boolean contains(SearchCacheKey key) {
+        return pages.asMap().containsKey(key);
+    }
+
+    void invalidate(SearchCacheKey key) {
+        pages.invalidate(key);
+    }
+
+    void invalidateAll() {
+        pages.invalidateAll();
+    }
+
+    long size() {
+        return pages.estimatedSize();
+    }
+
+    /**
+     * @return The encoded bytes of the stored pages.
+     */
+    long weightedSize() {
+        return pages.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    private record Page(ByteBuffer data, int[] idHashes, long loadedAt) {
+    }
+}
@@ -0,0 +1,88 @@
+package org.smg.carlisting.application;
+
+import org.smg.carlisting.application.CarListingSearchCriteriaMatcher.TextTokens;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Canonical cache key of a car listing search.
+ * <p>
+ * Text criteria are trimmed and lower-cased, because Elasticsearch analyzes them the same
+ * way and returns the same hits regardless of their casing. Blank text criteria are
+ * treated as absent. Pagination and sort are folded in, so every cached page has its own
+ * key. The criteria held by the key are a normalized copy and are never modified.
+ * </p>
+ * <p>
+ * The text criteria are tokenized once when the key is built, so invalidation does not
+ * tokenize them again for every written car listing. The tokens are derived from the
+ * criteria and take no part in equality.
+ * </p>
+ *
+ * @param criteria       The normalized search criteria.
+ * @param criteriaTokens The tokens of the normalized text criteria.
+ * @param page           The requested page number, -1 for unpaged searches.
+ * @param size           The requested page size, -1 for unpaged searches.
+ * @param sort           The canonical representation of the requested sort.
+ */
+public record SearchCacheKey(CarListingSearchCriteria criteria, TextTokens criteriaTokens, int page, int size, String sort) {
+
+    /**
+     * Builds the canonical key for the given search.
+     *
+     * @param searchCriteria The search criteria as received, may be null.
+     * @param pageable       The pagination and sorting information, may be null.
+     * @return The canonical key of the search.
+     */
+    public static SearchCacheKey of(CarListingSearchCriteria searchCriteria, Pageable pageable) {
+        CarListingSearchCriteria normalized = new CarListingSearchCriteria();
+        if (searchCriteria != null) {
+            normalized.setMake(normalize(searchCriteria.getMake()));
+            normalized.setModel(normalize(searchCriteria.getModel()));
+            normalized.setYear(searchCriteria.getYear());
+            normalized.setMinYear(searchCriteria.getMinYear());
+            normalized.setMaxYear(searchCriteria.getMaxYear());
+            normalized.setMinPrice(searchCriteria.getMinPrice());
+            normalized.setMaxPrice(searchCriteria.getMaxPrice());
+            normalized.setColor(normalize(searchCriteria.getColor()));
+        }
+
+        TextTokens tokens = TextTokens.of(normalized);
+        if (pageable == null || pageable.isUnpaged()) {
+            return new SearchCacheKey(normalized, tokens, -1, -1, pageable == null ? "UNSORTED" : pageable.getSort().toString());
+        }
+
+        return new SearchCacheKey(normalized, tokens, pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort().toString());
+    }
+
+    /**
+     * @return The key of the same criteria and sort without pagination, shared by all
+     * pages of the search.
+     */
+    public SearchCacheKey query() {
+        return page == -1 && size == -1 ? this : new SearchCacheKey(criteria, criteriaTokens, -1, -1, sort);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof SearchCacheKey key
+                && page == key.page
+                && size == key.size
+                && criteria.equals(key.criteria)
+                && sort.equals(key.sort);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(criteria, page, size, sort);
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,550 @@
+package org.smg.carlisting.application;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.smg.carlisting.application.CarListingSearchCriteriaMatcher.TextTokens;
+import org.smg.carlisting.domain.model.CarListing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.smg.carlisting.common.Constants.CACHE_NAME;
+import static org.smg.carlisting.common.Constants.METRIC_SEARCH_COALESCED;
+import static org.smg.carlisting.common.Constants.METRIC_SEARCH_REFRESHED;
+
+/**
+ * Cache of car listing search results keyed by the canonical {@link SearchCacheKey}.
+ * <p>
+ * Ingested car listings invalidate only the cached searches they could affect: every
+ * page of the searches whose criteria could match the new or the previous state of a
+ * listing. The previous state covers a listing that no longer matches after an update,
+ * which shifts the hits of all later pages of the search. It is the state this cache last
+ * saw written, or else cached as a hit. For a listing whose previous state is not known,
+ * the pages that hold it and all pages past the first are removed, since only those can
+ * depend on it.
+ * </p>
+ * <p>
+ * The cached pages are indexed by their {@link SearchCacheKey#query() query}, so the
+ * criteria are checked once per search rather than once per page, and all pages of a
+ * search are removed without scanning the cache.
+ * </p>
+ * <p>
+ * Elasticsearch makes a write visible to searches only after the next index refresh.
+ * A search that runs between the write and the refresh caches the old hits again, so
+ * the invalidation is repeated once the refresh interval has passed. The repeated
+ * invalidations are debounced: the writes of an invalidation delay window are
+ * invalidated together by a single scheduled pass.
+ * </p>
+ * <p>
+ * Identical searches that miss at the same time run only once: the first one installs a
+ * future for its key and runs the search on its own thread, the others wait for that
+ * future instead of querying Elasticsearch as well. Searches that are requested while
+ * their entry is about to expire are reloaded in the background, and the cached hits
+ * are served until the reload replaces them, so hot searches do not all miss at once
+ * when their entry expires.
+ * </p>
+ * <p>
+ * The make, model and color of cached hits are replaced with the shared instances of
+ * {@link CarListingStringInterner}, so a large number of cached pages holds each distinct
+ * value once.
+ * </p>
+ * <p>
+ * With {@code car-listing.search-cache.maximum-weight} set, entries are weighed by the
+ * encoded size of their hits and the cache is bounded by that byte budget, so pages of
+ * 1000 hits take their share of it and pages of 10 hits do not waste it. Otherwise the
+ * cache is bounded by the number of entries.
+ * </p>
+ * <p>
+ * With {@code car-listing.search-cache.off-heap.capacity} set, pages evicted for size
+ * move to an {@link OffHeapSearchResultStore} outside of the heap instead of being
+ * dropped, and move back on their next hit. Invalidation covers both tiers.
+ * </p>
+ * <p>
+ * Every page keeps the time its hits were loaded from Elasticsearch and expires
+ * {@code car-listing.search-cache.expire-after-write} after it in both tiers, so a page
+ * that moves off the heap and back is not served longer than one that stayed.
+ * </p>
+ * <p>
+ * Hits, misses, evictions and the size of the cache are published as {@code cache.*}
+ * metrics with the cache name {@code carListings}, those of the off-heap tier with
+ * {@code carListingsOffHeap}. Searches that waited for an identical one are counted as
+ * {@code car.listing.search.coalesced}, background reloads as
+ * {@code car.listing.search.refreshed}.
+ * </p>
+ */
+@Component
+@Slf4j
+public class SearchResultCache {
+
+    private static final Executor REFRESH_EXECUTOR =
+            task -> Thread.ofVirtual().name("car-listing-search-refresh").start(task);
+    private static final long KNOWN_LISTINGS_MAXIMUM_SIZE = 100_000;
+
+    private final AsyncCache<SearchCacheKey, CachedPage> cache;
+    private final Duration invalidationDelay;
+    private final Duration refreshAfterWrite;
+    private final TaskScheduler taskScheduler;
+    private final OffHeapSearchResultStore offHeapStore;
+    private final Map<SearchCacheKey, Set<SearchCacheKey>> pagesByQuery = new ConcurrentHashMap<>();
+    private final Cache<String, CarListing> knownListings = Caffeine.newBuilder()
+            .maximumSize(KNOWN_LISTINGS_MAXIMUM_SIZE)
+            .build();
+    private final Set<SearchCacheKey> refreshingKeys = ConcurrentHashMap.newKeySet();
+    private final Queue<PendingInvalidation> pendingInvalidations = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean invalidationScheduled = new AtomicBoolean();
+    private final Counter coalescedCounter;
+    private final Counter refreshedCounter;
+
+    public SearchResultCache(@Value("${car-listing.search-cache.maximum-size:10000}") long maximumSize,
+                             @Value("${car-listing.search-cache.maximum-weight:0}") DataSize maximumWeight,
+                             @Value("${car-listing.search-cache.expire-after-write:1m}") Duration expireAfterWrite,
+                             @Value("${car-listing.search-cache.refresh-after-write:45s}") Duration refreshAfterWrite,
+                             @Value("${car-listing.search-cache.invalidation-delay:1s}") Duration invalidationDelay,
+                             @Value("${car-listing.search-cache.off-heap.capacity:0}") DataSize offHeapCapacity,
+                             TaskScheduler taskScheduler, MeterRegistry meterRegistry) {
+        this.offHeapStore = offHeapCapacity.toBytes() > 0
+                ? new OffHeapSearchResultStore(offHeapCapacity.toBytes(), expireAfterWrite, this::unregister, meterRegistry)
+                : null;
+        Caffeine<SearchCacheKey, CachedPage> builder = Caffeine.newBuilder()
+                .expireAfter(new LoadTimeExpiry<>(expireAfterWrite, CachedPage::loadedAt))
+                .recordStats()
+                .removalListener(this::onRemoval);
+        if (maximumWeight.toBytes() > 0) {
+            builder.maximumWeight(maximumWeight.toBytes())
+                    .weigher((SearchCacheKey key, CachedPage page) -> SearchResultPageCodec.estimateSize(page.hits()));
+        } else {
+            builder.maximumSize(maximumSize);
+        }
+        this.cache = builder.buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+        this.invalidationDelay = invalidationDelay;
+        this.refreshAfterWrite = refreshAfterWrite;
+        this.taskScheduler = taskScheduler;
+        this.coalescedCounter = Counter.builder(METRIC_SEARCH_COALESCED)
+                .description("Searches that waited for an identical search in flight instead of querying Elasticsearch")
+                .register(meterRegistry);
+        this.refreshedCounter = Counter.builder(METRIC_SEARCH_REFRESHED)
+                .description("Cached searches reloaded in the background before they expired")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached hits of a search or loads and caches them.
+     * <p>
+     * Concurrent misses of the same key share a single load, which runs on the thread of
+     * the first caller. If the load fails, every waiting caller gets its exception and the
+     * key is not cached. A hit on an entry older than the refresh threshold starts a
+     * background reload and returns the cached hits.
+     * </p>
+     *
+     * @param key    The canonical key of the search.
+     * @param loader The function that runs the search on a cache miss.
+     * @return The hits of the search.
+     */
+    public List<CarListing> get(SearchCacheKey key, Function<SearchCacheKey, List<CarListing>> loader) {
+        CompletableFuture<CachedPage> flight = new CompletableFuture<>();
+        CompletableFuture<CachedPage> cached = cache.get(key, (cacheKey, executor) -> flight);
+        if (cached == flight) {
+            register(key);
+            try {
+                CachedPage demoted = takeOffHeap(key);
+                flight.complete(demoted != null ? demoted : load(loader.apply(key)));
+            } catch (Throwable ex) {
+                flight.completeExceptionally(ex);
+                throw ex;
+            }
+        } else if (!cached.isDone()) {
+            coalescedCounter.increment();
+        } else {
+            refreshIfExpiring(key, cached,
+                    () -> CompletableFuture.supplyAsync(() -> loader.apply(key), REFRESH_EXECUTOR));
+        }
+
+        return join(cached).hits();
+    }
+
+    /**
+     * Returns the cached hits of a search or loads and caches them without blocking.
+     * <p>
+     * It shares the entries, the coalescing of concurrent misses and the refresh-ahead of
+     * {@link #get(SearchCacheKey, Function)}, but the load is an asynchronous search and
+     * the caller is never blocked. Every caller gets its own future derived from the
+     * shared one, so cancelling it does not affect the other callers.
+     * </p>
+     *
+     * @param key    The canonical key of the search.
+     * @param loader The function that starts the search on a cache miss.
+     * @return The future hits of the search.
+     */
+    public CompletableFuture<List<CarListing>> getAsync(SearchCacheKey key,
+                                                        Function<SearchCacheKey, CompletableFuture<List<CarListing>>> loader) {
+        CompletableFuture<CachedPage> flight = new CompletableFuture<>();
+        CompletableFuture<CachedPage> cached = cache.get(key, (cacheKey, executor) -> flight);
+        if (cached == flight) {
+            register(key);
+            CachedPage demoted = takeOffHeap(key);
+            if (demoted != null) {
+                flight.complete(demoted);
+                return cached.thenApply(CachedPage::hits);
+            }
+            try {
+                loader.apply(key).whenComplete((hits, ex) -> {
+                    if (ex != null) {
+                        flight.completeExceptionally(ex);
+                    } else {
+                        flight.complete(load(hits));
+                    }
+                });
+            } catch (RuntimeException ex) {
+                flight.completeExceptionally(ex);
+            }
+        } else if (!cached.isDone()) {
+            coalescedCounter.increment();
+        } else {
+            refreshIfExpiring(key, cached, () -> loader.apply(key));
+        }
+
+        return cached.thenApply(CachedPage::hits);
+    }
+
+    /**
+     * Invalidates the cached searches that the given car listings could affect, now and
+     * again after the configured invalidation delay.
+     *
+     * @param carListings The car listings that were written or deleted.
+     */
+    public void invalidate(Collection<CarListing> carListings) {
+        if (carListings.isEmpty()) {
+            return;
+        }
+
+        Invalidation invalidation = Invalidation.of(carListings, knownListings);
+        carListings.stream()
+                .filter(carListing -> carListing.getId() != null)
+                .forEach(carListing -> knownListings.put(carListing.getId(), carListing));
+        invalidateNow(invalidation);
+        if (!invalidationDelay.isZero()) {
+            Instant due = Instant.now().plus(invalidationDelay);
+            pendingInvalidations.add(new PendingInvalidation(invalidation, due));
+            if (invalidationScheduled.compareAndSet(false, true)) {
+                taskScheduler.schedule(this::invalidatePending, due);
+            }
+        }
+    }
+
+    /**
+     * Invalidates every cached search, used when the alias is moved to a rebuilt index.
+     */
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+        if (offHeapStore != null) {
+            offHeapStore.invalidateAll();
+        }
+        pagesByQuery.clear();
+        knownListings.invalidateAll();
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    /**
+     * @return The number of searches held by the off-heap tier, 0 if it is disabled.
+     */
+    public long offHeapSize() {
+        return offHeapStore != null ? offHeapStore.size() : 0;
+    }
+
+    /**
+     * @return The number of searches whose pages are indexed.
+     */
+    int indexedQueries() {
+        return pagesByQuery.size();
+    }
+
+    Cache<SearchCacheKey, CachedPage> getCache() {
+        return cache.synchronous();
+    }
+
+    /**
+     * Moves the hits of a search evicted for size to the off-heap tier. Invalidated,
+     * replaced and expired entries are not kept.
+     */
+    private void onRemoval(SearchCacheKey key, CachedPage page, RemovalCause cause) {
+        if (key == null) {
+            return;
+        }
+        if (offHeapStore != null && cause == RemovalCause.SIZE && page != null) {
+            offHeapStore.put(key, page);
+        } else {
+            unregister(key);
+        }
+    }
+
+    /**
+     * Caches the hits of a search and remembers the state of every hit whose state was not
+     * written since, as previous state of its next write.
+     */
+    private CachedPage load(List<CarListing> hits) {
+        CachedPage page = CachedPage.loaded(hits);
+        page.hits().stream()
+                .filter(hit -> hit.getId() != null)
+                .forEach(hit -> knownListings.asMap().putIfAbsent(hit.getId(), hit));
+        return page;
+    }
+
+    private void register(SearchCacheKey key) {
+        pagesByQuery.compute(key.query(), (query, pages) -> {
+            Set<SearchCacheKey> registered = pages != null ? pages : ConcurrentHashMap.newKeySet();
+            registered.add(key);
+            return registered;
+        });
+    }
+
+    /**
+     * Drops a page from the index once it left both tiers. A page that was cached again
+     * meanwhile stays indexed.
+     */
+    private void unregister(SearchCacheKey key) {
+        pagesByQuery.computeIfPresent(key.query(), (query, pages) -> {
+            if (!cache.asMap().containsKey(key) && (offHeapStore == null || !offHeapStore.contains(key))) {
+                pages.remove(key);
+            }
+            return pages.isEmpty() ? null : pages;
+        });
+    }
+
+    private CachedPage takeOffHeap(SearchCacheKey key) {
+        return offHeapStore != null ? offHeapStore.take(key) : null;
+    }
+
+    /**
+     * Reloads a cached search in the background once its entry is older than the refresh
+     * threshold. The reloaded hits replace the entry only if it was neither invalidated
+     * nor replaced meanwhile, and at most one reload runs per key.
+     */
+    private void refreshIfExpiring(SearchCacheKey key, CompletableFuture<CachedPage> cached,
+                                   Supplier<CompletableFuture<List<CarListing>>> reload) {
+        if (refreshAfterWrite.isZero() || cached.isCompletedExceptionally()) {
+            return;
+        }
+
+        Duration age = Duration.ofNanos(System.nanoTime() - cached.join().loadedAt());
+        if (age.compareTo(refreshAfterWrite) < 0 || !refreshingKeys.add(key)) {
+            return;
+        }
+
+        CompletableFuture<List<CarListing>> reloaded;
+        try {
+            reloaded = reload.get();
+        } catch (RuntimeException ex) {
+            reloaded = CompletableFuture.failedFuture(ex);
+        }
+        reloaded.whenComplete((hits, ex) -> {
+            try {
+                if (ex != null) {
+                    log.warn("Refreshing a cached search failed, it expires as usual: {}", ex.getLocalizedMessage());
+                } else if (hits != null && cache.asMap().replace(key, cached,
+                        CompletableFuture.completedFuture(load(hits)))) {
+                    refreshedCounter.increment();
+                }
+            } finally {
+                refreshingKeys.remove(key);
+            }
+        });
+    }
+
+    private static CachedPage join(CompletableFuture<CachedPage> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Runs the repeated invalidation of all pending writes whose delay has passed, and
+     * schedules one more pass an invalidation delay later for the writes that arrived
+     * meanwhile. At most one pass is scheduled at a time.
+     */
+    private void invalidatePending() {
+        Instant now = Instant.now();
+        Invalidation due = null;
+        PendingInvalidation pending;
+        while ((pending = pendingInvalidations.peek()) != null && !pending.due().isAfter(now)) {
+            pendingInvalidations.poll();
+            due = due == null ? pending.invalidation() : due.merge(pending.invalidation());
+        }
+
+        try {
+            if (due != null) {
+                invalidateNow(due);
+            }
+        } finally {
+            invalidationScheduled.set(false);
+            if (!pendingInvalidations.isEmpty() && invalidationScheduled.compareAndSet(false, true)) {
+                taskScheduler.schedule(this::invalidatePending, Instant.now().plus(invalidationDelay));
+            }
+        }
+    }
+
+    /**
+     * Removes the cached searches the car listings could affect. Searches still in flight
+     * have no hits yet and are removed if their criteria could match, the repeated
+     * invalidation catches the rest once they completed.
+     * <p>
+     * The states of the listings were tokenized once when the invalidation was built, the
+     * criteria of the searches when their key was built. The criteria of every search are
+     * checked once. The hits of a page are only looked at for listings whose previous state
+     * is not known.
+     * </p>
+     */
+    private void invalidateNow(Invalidation invalidation) {
+        int removed = 0;
+        for (Map.Entry<SearchCacheKey, Set<SearchCacheKey>> entry : pagesByQuery.entrySet()) {
+            SearchCacheKey query = entry.getKey();
+            if (couldMatch(query, invalidation.states())) {
+                removed += removeQuery(query);
+            } else if (!invalidation.unknownIds().isEmpty()) {
+                removed += removeUnknownDependents(query, entry.getValue(), invalidation.unknownIds());
+            }
+        }
+        log.debug("Invalidated {} cached searches for {} car listing states", removed, invalidation.states().size());
+    }
+
+    private int removeQuery(SearchCacheKey query) {
+        Set<SearchCacheKey> pages = pagesByQuery.remove(query);
+        if (pages == null) {
+            return 0;
+        }
+
+        pages.forEach(this::removePage);
+        return pages.size();
+    }
+
+    /**
+     * Removes the pages of a search that may depend on listings whose previous state is
+     * not known: all of them if a page holds one of the listings, otherwise every page past
+     * the first, which a listing that left the search from an uncached page shifts.
+     */
+    private int removeUnknownDependents(SearchCacheKey query, Set<SearchCacheKey> pages, Set<String> unknownIds) {
+        if (pages.stream().anyMatch(key -> holdsAny(key, unknownIds))) {
+            return removeQuery(query);
+        }
+
+        List<SearchCacheKey> laterPages = pages.stream()
+                .filter(key -> key.page() > 0)
+                .toList();
+        laterPages.forEach(key -> {
+            removePage(key);
+            unregister(key);
+        });
+        return laterPages.size();
+    }
+
+    private boolean holdsAny(SearchCacheKey key, Set<String> ids) {
+        CompletableFuture<CachedPage> cached = cache.asMap().get(key);
+        if (cached != null && cached.isDone() && !cached.isCompletedExceptionally()
+                && cached.join().hits().stream().anyMatch(hit -> ids.contains(hit.getId()))) {
+            return true;
+        }
+        return offHeapStore != null && offHeapStore.holdsAny(key, ids);
+    }
+
+    private void removePage(SearchCacheKey key) {
+        cache.synchronous().invalidate(key);
+        if (offHeapStore != null) {
+            offHeapStore.invalidate(key);
+        }
+    }
+
+    private static boolean couldMatch(SearchCacheKey key, List<WrittenListing> states) {
+        return states.stream().anyMatch(listing -> CarListingSearchCriteriaMatcher.couldMatch(
+                key.criteria(), key.criteriaTokens(), listing.carListing(), listing.tokens()));
+    }
+
+    /**
+     * The interned hits of a search and the {@link System#nanoTime()} at which they were
+     * loaded from Elasticsearch.
+     *
+     * @param hits     The hits of the search.
+     * @param loadedAt The time the hits were loaded.
+     */
+    record CachedPage(List<CarListing> hits, long loadedAt) {
+
+        static CachedPage loaded(List<CarListing> hits) {
+            return new CachedPage(CarListingStringInterner.internAll(hits), System.nanoTime());
+        }
+    }
+
+    private record WrittenListing(CarListing carListing, TextTokens tokens) {
+
+        static WrittenListing of(CarListing carListing) {
+            return new WrittenListing(carListing, TextTokens.of(carListing));
+        }
+    }
+
+    /**
+     * The tokenized new and known previous states of written car listings, and the ids of
+     * the listings whose previous state is not known.
+     */
+    private record Invalidation(List<WrittenListing> states, Set<String> unknownIds) {
+
+        static Invalidation of(Collection<CarListing> carListings, Cache<String, CarListing> knownListings) {
+            List<WrittenListing> states = new ArrayList<>();
+            Set<String> unknownIds = new HashSet<>();
+            for (CarListing carListing : carListings) {
+                states.add(WrittenListing.of(carListing));
+                if (carListing.getId() == null) {
+                    continue;
+                }
+                CarListing previous = knownListings.getIfPresent(carListing.getId());
+                if (previous == null) {
+                    unknownIds.add(carListing.getId());
+                } else if (!previous.equals(carListing)) {
+                    states.add(WrittenListing.of(previous));
+                }
+            }
+            return new Invalidation(List.copyOf(states), Set.copyOf(unknownIds));
+        }
+
+        Invalidation merge(Invalidation other) {
+            List<WrittenListing> mergedStates = new ArrayList<>(states);
+            mergedStates.addAll(other.states());
+            Set<String> mergedUnknownIds = new HashSet<>(unknownIds);
+            mergedUnknownIds.addAll(other.unknownIds());
+            return new Invalidation(mergedStates, mergedUnknownIds);
+        }
+    }
+
+    private record PendingInvalidation(Invalidation invalidation, Instant due) {
+    }
+}
@@ -0,0 +1,120 @@
+package org.smg.carlisting.application;
+
+import org.smg.carlisting.domain.model.CarListing;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary form of a page of cached search hits.
+ * <p>
+ * A page is the number of hits followed by every hit as its id, make, model and color,
+ * each a length-prefixed UTF-8 string with length -1 for null, its year and its price
+ * range. The form has no field names and no per-object headers, so it is also the
+ * measure of the weight of a page in the search result cache.
+ * </p>
+ */
+final class SearchResultPageCodec {
+
+    private static final int FIXED_BYTES_PER_HIT = 4 * Integer.BYTES + Integer.BYTES + 2 * Double.BYTES;
+
+    private SearchResultPageCodec() {
+    }
+
+    /**
+     * Estimates the encoded size of a page without encoding it, counting one byte per
+     * character, which is exact for the ASCII values of car listings.
+     *
+     * @param hits The hits of the page.
+     * @return The estimated number of bytes.
+     */
+    static int estimateSize(List<CarListing> hits) {
+        long size = Integer.BYTES;
+        for (CarListing hit : hits) {
+            size += FIXED_BYTES_PER_HIT + length(hit.getId()) + length(hit.getMake()) + length(hit.getModel())
+                    + length(hit.getColor());
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    /**
+     * Encodes a page into a direct buffer, outside of the heap.
+     *
+     * @param hits The hits of the page.
+     * @return The encoded page, positioned at its start.
+     */
+    static ByteBuffer encode(List<CarListing> hits) {
+        List<byte[]> strings = new ArrayList<>(hits.size() * 4);
+        int size = Integer.BYTES + hits.size() * FIXED_BYTES_PER_HIT;
+        for (CarListing hit : hits) {
+            size += add(strings, hit.getId()) + add(strings, hit.getMake()) + add(strings, hit.getModel())
+                    + add(strings, hit.getColor());
+        }
+
+        ByteBuffer page = ByteBuffer.allocateDirect(size);
+        page.putInt(hits.size());
+        int string = 0;
+        for (CarListing hit : hits) {
+            putString(page, strings.get(string++));
+            putString(page, strings.get(string++));
+            putString(page, strings.get(string++));
+            putString(page, strings.get(string++));
+            page.putInt(hit.getYear());
+            page.putDouble(hit.getMinPrice());
+            page.putDouble(hit.getMaxPrice());
+        }
+        return page.flip();
+    }
+
+    /**
+     * Decodes a page. Make, model and color are interned, like those of hits loaded from
+     * Elasticsearch.
+     *
+     * @param page The encoded page, which is not modified.
+     * @return The hits of the page.
+     */
+    static List<CarListing> decode(ByteBuffer page) {
+        ByteBuffer data = page.duplicate();
+        int count = data.getInt();
+        List<CarListing> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = getString(data);
+            String make = CarListingStringInterner.intern(getString(data));
+            String model = CarListingStringInterner.intern(getString(data));
+            String color = CarListingStringInterner.intern(getString(data));
+            hits.add(new CarListing(id, make, model, data.getInt(), data.getDouble(), data.getDouble(), color));
+        }
+        return hits;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private static int add(List<byte[]> strings, String value) {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+        strings.add(bytes);
+        return bytes != null ? bytes.length : 0;
+    }
+
+    private static void putString(ByteBuffer page, byte[] value) {
+        if (value == null) {
+            page.putInt(-1);
+        } else {
+            page.putInt(value.length).put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer data) {
+        int length = data.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -12,12 +12,89 @@ public class Constants {
     public static final String MAKE = "make";
     public static final String MODEL = "model";
     public static final String YEAR = "year";
+    public static final String MIN_YEAR = "minYear";
+    public static final String MAX_YEAR = "maxYear";
     public static final String MIN_PRICE = "minPrice";
     public static final String MAX_PRICE = "maxPrice";
     public static final String COLOR = "color";
+    public static final String ID = "id";
+    public static final String KEYWORD = "keyword";
+    public static final String LOWERCASE_NORMALIZER = "lowercase_normalizer";
+    public static final String CAR_LISTINGS_INDEX = "car_listings";
+    public static final int MAX_CURSOR_PAGE_SIZE = 1000;
     public static final String CACHE_NAME = "carListings";
+    public static final String OFF_HEAP_CACHE_NAME = "carListingsOffHeap";
+    public static final String FACET_CACHE_NAME = "carListingFacets";
+    public static final String INDEXED_DOCUMENT_CACHE_NAME = "carListingDocuments";
+    public static final int MAX_FACET_VALUES = 50;
+    public static final int MAX_INTERNED_STRINGS = 10000;
+    public static final String EVENT_TYPE_UNKNOWN = "unknown";
+    public static final String MISSING_CAR_LISTING_ID = "Event has no car listing id";
+    public static final int STATUS_REJECTED = 400;
+    public static final double FACET_PRICE_INTERVAL = 5000;
     public static final String ELASTICSEARCH_CIRCUIT_BREAKER = "elasticsearchCircuitBreaker";
+    public static final String EXPORT_RATE_LIMITER = "carListingExport";
+    public static final String SEARCH_TIME_LIMITER = "elasticsearchSearch";
     public static final String MESSAGE_EXCEPTION_ELASTICSEARCH = "Error during communication to Elasticsearch {}";
     public static final String CIRCUIT_BREAKER_IS_OPEN = "Circuit breaker is open: {}";
+    public static final String CAR_LISTING_TOPIC = "car-listing-topic";
+    public static final String CAR_LISTING_GROUP = "car-listing-group";
+    public static final String CAR_LISTING_RETRY_TOPIC_PREFIX = "car-listing-topic-retry-";
+    public static final String CAR_LISTING_RETRY_TOPIC_PATTERN = "car-listing-topic-retry-\\d+";
+    public static final String CAR_LISTING_RETRY_GROUP = "car-listing-retry-group";
+    public static final String CAR_LISTING_DLT = "car-listing-topic-dlt";
+    public static final String CAR_LISTING_DLT_REPLAY_GROUP = "car-listing-dlt-replay";
+    public static final String HEADER_RETRY_ATTEMPT = "car-listing-retry-attempt";
+    public static final String HEADER_RETRY_DUE = "car-listing-retry-due";
+    public static final String HEADER_CONTENT_TYPE = "content-type";
+    public static final String CONTENT_TYPE_AVRO = "application/avro";
+    public static final String CAR_LISTING_EVENT_SCHEMA = "avro/car_listing_event_v1.avsc";
+    public static final String CONSUMER_MODE_PROPERTY = "car-listing.consumer.mode";
+    public static final String CONSUMER_MODE_RECORD = "record";
+    public static final String CONSUMER_MODE_BATCH = "batch";
+    public static final String CONSUMER_MODE_PARALLEL = "parallel";
+    public static final String REBUILD_ENABLED_PROPERTY = "car-listing.rebuild.enabled";
+    public static final String CAR_LISTING_REBUILD_GROUP = "car-listing-rebuild";
+    public static final String LOCAL_INDEX_ENABLED_PROPERTY = "car-listing.local-index.enabled";
+    public static final String WRITE_BEHIND_ENABLED_PROPERTY = "car-listing.write-behind.enabled";
+    public static final String METRIC_COALESCER_RECEIVED = "car.listing.coalescer.received";
+    public static final String METRIC_COALESCER_DROPPED = "car.listing.coalescer.dropped";
+    public static final String METRIC_ENGINE_IN_FLIGHT = "car.listing.engine.in.flight";
+    public static final String METRIC_ENGINE_PAUSES = "car.listing.engine.pauses";
+    public static final String METRIC_REBUILD_EVENTS_READ = "car.listing.rebuild.events.read";
+    public static final String METRIC_REBUILD_DOCUMENTS_WRITTEN = "car.listing.rebuild.documents.written";
+    public static final String METRIC_REBUILD_REMAINING = "car.listing.rebuild.remaining";
+    public static final String METRIC_DESERIALIZE = "car.listing.deserialize";
+    public static final String METRIC_EVENTS = "car.listing.events";
+    public static final String METRIC_EVENTS_STALE = "car.listing.events.stale";
+    public static final String METRIC_PROCESS = "car.listing.process";
+    public static final String METRIC_PROCESS_BULK = "car.listing.process.bulk";
+    public static final String METRIC_INDEX = "car.listing.index";
+    public static final String METRIC_BULK_SIZE = "car.listing.bulk.size";
+    public static final String METRIC_INDEX_UNCHANGED = "car.listing.index.unchanged";
+    public static final String METRIC_INDEXING_BULK_SIZE = "car.listing.indexing.bulk.size";
+    public static final String METRIC_INDEXING_CONCURRENCY = "car.listing.indexing.concurrency";
+    public static final String METRIC_INDEXING_IN_FLIGHT = "car.listing.indexing.in.flight";
+    public static final String METRIC_INDEXING_BACKING_OFF = "car.listing.indexing.backing.off";
+    public static final String METRIC_INDEXING_BACKOFFS = "car.listing.indexing.backoffs";
+    public static final String METRIC_SEARCH = "car.listing.search";
+    public static final String METRIC_LOCAL_INDEX_SIZE = "car.listing.local.index.size";
+    public static final String METRIC_SEARCH_FALLBACK = "car.listing.search.fallback";
+    public static final String METRIC_SEARCH_COALESCED = "car.listing.search.coalesced";
+    public static final String METRIC_SEARCH_REFRESHED = "car.listing.search.refreshed";
+    public static final String METRIC_WRITE_BEHIND_SIZE = "car.listing.write.behind.size";
+    public static final String METRIC_WRITE_BEHIND_APPENDED = "car.listing.write.behind.appended";
+    public static final String METRIC_WRITE_BEHIND_DRAINED = "car.listing.write.behind.drained";
+    public static final String METRIC_RETRY_PUBLISHED = "car.listing.retry.published";
+    public static final String METRIC_DLT_REPLAYED = "car.listing.dlt.replayed";
+    public static final String TAG_EVENT_TYPE = "eventType";
+    public static final String TAG_OPERATION = "operation";
+    public static final String TAG_OUTCOME = "outcome";
+    public static final String TAG_CRITERIA = "criteria";
+    public static final String TAG_PAGINATION = "pagination";
+    public static final String TAG_TOPIC = "topic";
+    public static final String TAG_DETECTED = "detected";
+    public static final String TAG_REASON = "reason";
+    public static final String TAG_FORMAT = "format";
 
 }
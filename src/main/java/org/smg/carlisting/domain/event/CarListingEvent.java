@@ -12,6 +12,12 @@ import org.smg.carlisting.domain.model.CarListing;
  * such as creation, update, or deletion. It includes information about the
  * event type and the car listing involved in the event.
  * </p>
+ * <p>
+ * The version orders the events of a car listing, a higher version is a newer state.
+ * Producers may set it; otherwise the consumer assigns the offset of the record on the
+ * car listing topic, which grows with every event of the same key. Events without a
+ * version are written unconditionally.
+ * </p>
  */
 @Data
 @AllArgsConstructor
@@ -20,4 +26,16 @@ public class CarListingEvent {
     private String id;
     private EventType eventType;
     private CarListing carListing;
+    private Long version;
+
+    public CarListingEvent(String id, EventType eventType, CarListing carListing) {
+        this(id, eventType, carListing, null);
+    }
+
+    /**
+     * @return The id of the car listing, null if the event carries no car listing or it has no id.
+     */
+    public String carListingId() {
+        return carListing != null ? carListing.getId() : null;
+    }
 }
@@ -0,0 +1,28 @@
+package org.smg.carlisting.domain.exception;
+
+import lombok.Data;
+import org.smg.carlisting.domain.model.CarListing;
+
+import java.util.List;
+
+/**
+ * This class represents the response structure for cursor based car listing queries.
+ * <p>
+ * Next to the 'valid' flag, the 'data' field with the {@link CarListing} objects of the
+ * page and the 'error' field, it holds the 'nextCursor' continuation token. The token is
+ * sent back unchanged to fetch the following page, it is null on the last page.
+ */
+@Data
+public class CarListingCursorResponse {
+    private boolean valid;
+    private List<CarListing> data;
+    private String nextCursor;
+    private String error;
+
+    public CarListingCursorResponse(boolean valid, List<CarListing> data, String nextCursor, String error) {
+        this.valid = valid;
+        this.data = data;
+        this.nextCursor = nextCursor;
+        this.error = error;
+    }
+}
@@ -20,4 +20,13 @@ public class CarListingExceptionHandler {
                         null,
                         ex.getMessage()));
     }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<CarListingResponse> handleInvalidCursorException(InvalidCursorException ex) {
+        return ResponseEntity.badRequest()
+                .body(new CarListingResponse(
+                        false,
+                        null,
+                        ex.getMessage()));
+    }
 }
@@ -0,0 +1,24 @@
+package org.smg.carlisting.domain.exception;
+
+import lombok.Data;
+import org.smg.carlisting.domain.repository.CarListingFacets;
+
+/**
+ * This class represents the response structure for car listing facet queries.
+ * <p>
+ * Next to the 'valid' flag and the 'error' field, the 'data' field holds the
+ * {@link CarListingFacets} with the counts per make, model, color, year and price range
+ * of the car listings matching the search criteria.
+ */
+@Data
+public class CarListingFacetsResponse {
+    private boolean valid;
+    private CarListingFacets data;
+    private String error;
+
+    public CarListingFacetsResponse(boolean valid, CarListingFacets data, String error) {
+        this.valid = valid;
+        this.data = data;
+        this.error = error;
+    }
+}
@@ -0,0 +1,22 @@
+package org.smg.carlisting.domain.exception;
+
+import lombok.Data;
+
+/**
+ * This class represents the response structure for dead-letter replays.
+ * <p>
+ * Next to the 'valid' flag and the 'error' field, it holds the number of records that
+ * were published to the car listing topic again.
+ */
+@Data
+public class CarListingReplayResponse {
+    private boolean valid;
+    private int replayed;
+    private String error;
+
+    public CarListingReplayResponse(boolean valid, int replayed, String error) {
+        this.valid = valid;
+        this.replayed = replayed;
+        this.error = error;
+    }
+}
@@ -0,0 +1,14 @@
+package org.smg.carlisting.domain.exception;
+
+/**
+ * Custom exception class that represents a malformed search cursor.
+ * This exception is thrown when a continuation token sent by a client
+ * cannot be decoded, typically because it was modified or truncated.
+ * It results in a 400 Bad Request response.
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.MultiField;
 
 /**
  * Represents a car listing in the application.
@@ -16,20 +18,31 @@ import org.springframework.data.elasticsearch.annotations.FieldType;
  * It includes various attributes of a car listing, such as make, model, year, pricing,
  * and color.
  * </p>
+ * <p>
+ * The index name is an alias. The index behind it is created from a versioned mapping at
+ * startup by {@code CarListingIndexManager}, the annotations describe the same mapping.
+ * Make, model and color carry a lower-cased keyword subfield for term filters, sorting
+ * and aggregations.
+ * </p>
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Document(indexName = "car_listings")
+@Document(indexName = Constants.CAR_LISTINGS_INDEX, createIndex = false)
 public class CarListing {
 
     @Id
+    @Field(type = FieldType.Keyword, name = Constants.ID)
     private String id;
 
-    @Field(type = FieldType.Text, name = Constants.MAKE)
+    @MultiField(mainField = @Field(type = FieldType.Text, name = Constants.MAKE),
+            otherFields = @InnerField(suffix = Constants.KEYWORD, type = FieldType.Keyword,
+                    normalizer = Constants.LOWERCASE_NORMALIZER))
     private String make;
 
-    @Field(type = FieldType.Text, name = Constants.MODEL)
+    @MultiField(mainField = @Field(type = FieldType.Text, name = Constants.MODEL),
+            otherFields = @InnerField(suffix = Constants.KEYWORD, type = FieldType.Keyword,
+                    normalizer = Constants.LOWERCASE_NORMALIZER))
     private String model;
 
     @Field(type = FieldType.Integer, name = Constants.YEAR)
@@ -41,6 +54,8 @@ public class CarListing {
     @Field(type = FieldType.Double, name = Constants.MAX_PRICE)
     private double maxPrice;
 
-    @Field(type = FieldType.Text, name = Constants.COLOR)
+    @MultiField(mainField = @Field(type = FieldType.Text, name = Constants.COLOR),
+            otherFields = @InnerField(suffix = Constants.KEYWORD, type = FieldType.Keyword,
+                    normalizer = Constants.LOWERCASE_NORMALIZER))
     private String color;
 }
@@ -0,0 +1,22 @@
+package org.smg.carlisting.domain.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.smg.carlisting.domain.event.CarListingEvent;
+
+/**
+ * Represents the latest state of a car listing held by a {@link CarListingWriteBuffer}.
+ * <p>
+ * The sequence number grows with every event appended to the buffer. It tells a drained
+ * state apart from a newer state of the same car listing that was appended while the
+ * drained one was being written.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BufferedCarListingEvent {
+    private long sequence;
+    private CarListingEvent carListingEvent;
+}
@@ -0,0 +1,39 @@
+package org.smg.carlisting.domain.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.smg.carlisting.domain.event.EventType;
+
+/**
+ * Describes a single operation of a bulk request that was rejected by the data store.
+ * <p>
+ * A bulk request is accepted or rejected item by item, so one failing car listing does
+ * not fail the whole batch. Each failure carries the identifier of the car listing, the
+ * type of the event that was applied and the reason reported by the data store.
+ * A status of {@code 0} means that the operation never reached the data store.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkIndexFailure {
+    private String carListingId;
+    private EventType eventType;
+    private int status;
+    private String reason;
+
+    /**
+     * Tells whether the operation may succeed when it is sent again.
+     * <p>
+     * Operations that were not sent, rejected because of load (429) or failed on the
+     * server side (5xx) are retryable. Other rejections, such as mapping errors, fail
+     * again for the same document.
+     * </p>
+     *
+     * @return true if the operation should be retried, false otherwise.
+     */
+    public boolean isRetryable() {
+        return status == 0 || status == 429 || status >= 500;
+    }
+}
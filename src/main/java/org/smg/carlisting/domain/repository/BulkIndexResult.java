@@ -0,0 +1,26 @@
+package org.smg.carlisting.domain.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Represents the outcome of a bulk write of car listing events.
+ * <p>
+ * It holds the number of operations that were applied successfully and the list of
+ * operations that failed, so callers can report or retry individual car listings.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkIndexResult {
+    private int successful;
+    private List<BulkIndexFailure> failures;
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+}
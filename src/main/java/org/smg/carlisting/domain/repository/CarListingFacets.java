@@ -0,0 +1,33 @@
+package org.smg.carlisting.domain.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Represents the facet counts of the car listings matching a search.
+ * <p>
+ * It holds the total number of matching car listings, the most frequent makes, models
+ * and colors with their counts, ordered by count, and the number of car listings per
+ * year and per price range, ordered by value. Make, model and color are reported
+ * lower-cased like their keyword subfields. Price ranges group the car listings by their
+ * minimum price. Values without matching car listings are left out.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CarListingFacets {
+    private long total;
+    private List<FacetBucket> makes;
+    private List<FacetBucket> models;
+    private List<FacetBucket> colors;
+    private List<HistogramBucket> years;
+    private List<HistogramBucket> prices;
+
+    public static CarListingFacets empty() {
+        return new CarListingFacets(0, List.of(), List.of(), List.of(), List.of(), List.of());
+    }
+}
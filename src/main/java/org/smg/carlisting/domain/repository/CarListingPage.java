@@ -0,0 +1,28 @@
+package org.smg.carlisting.domain.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.smg.carlisting.domain.model.CarListing;
+
+import java.util.List;
+
+/**
+ * Represents one page of a {@code search_after} search over car listings.
+ * <p>
+ * It holds the car listings of the page and the sort values of its last hit. Passing the
+ * sort values to the next search continues right after this page. They are null when the
+ * page is the last one.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CarListingPage {
+    private List<CarListing> carListings;
+    private List<Object> searchAfter;
+
+    public boolean hasNext() {
+        return searchAfter != null;
+    }
+}
@@ -1,23 +1,53 @@
 package org.smg.carlisting.domain.repository;
 
 import org.smg.carlisting.application.CarListingSearchCriteria;
+import org.smg.carlisting.domain.event.CarListingEvent;
 import org.smg.carlisting.domain.model.CarListing;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Interface for repository operations related to Car Listings.
  * <p>
  * This interface defines the methods for interacting with the underlying data store
- * for CarListing entities. It includes operations for searching, creating, updating,
- * and deleting car listings.
+ * for CarListing entities. It includes operations for searching, either blocking or
+ * asynchronously, counting facets, exporting, creating, updating, and deleting car listings, either one at a time or in bulk.
+ * </p>
+ * <p>
+ * Writes carry the version of their event, if any. A data store that tracks versions
+ * rejects a write whose version is not newer than the one it holds, and reports the
+ * stale write as successful, as there is nothing left to retry.
  * </p>
  */
 public interface CarListingRepository {
     List<CarListing> searchCarListings(CarListingSearchCriteria searchCriteria, Pageable pageable);
 
-    void createOrUpdateElasticsearchIndex(CarListing carListing);
+    CompletableFuture<List<CarListing>> searchCarListingsAsync(CarListingSearchCriteria searchCriteria, Pageable pageable);
+
+    CarListingPage searchCarListingsAfter(CarListingSearchCriteria searchCriteria, Sort sort, int size, List<Object> searchAfter);
+
+    CarListingFacets searchCarListingFacets(CarListingSearchCriteria searchCriteria);
+
+    long exportCarListings(CarListingSearchCriteria searchCriteria, Consumer<List<CarListing>> pageConsumer);
+
+    boolean createOrUpdateElasticsearchIndex(CarListing carListing, Long version);
+
+    boolean deleteFromElasticsearchIndex(String carListingId, Long version);
+
+    BulkIndexResult bulkUpdateElasticsearchIndex(List<CarListingEvent> carListingEvents);
+
+    BulkIndexResult bulkUpdateElasticsearchIndex(List<CarListingEvent> carListingEvents, String indexName);
 
-    void deleteFromElasticsearchIndex(String carListingId);
+    /**
+     * Applies events that are held back for a later write to the local copy of the car
+     * listings that answers searches while the data store is unavailable, if there is one.
+     *
+     * @param carListingEvents The held back car listing events, in consumption order.
+     */
+    default void writeReplica(List<CarListingEvent> carListingEvents) {
+    }
 }
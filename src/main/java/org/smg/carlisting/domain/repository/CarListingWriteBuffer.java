@@ -0,0 +1,54 @@
+package org.smg.carlisting.domain.repository;
+
+import org.smg.carlisting.domain.event.CarListingEvent;
+
+import java.util.List;
+
+/**
+ * Durable buffer for car listing events whose write to the data store has to be delayed.
+ * <p>
+ * Events that could not be written are appended to the buffer instead of being lost or
+ * redelivered, and are written later once the data store accepts writes again. The buffer
+ * keeps only the latest event per car listing id.
+ * </p>
+ */
+public interface CarListingWriteBuffer {
+
+    /**
+     * Appends the given events durably, in order.
+     *
+     * @param carListingEvents The car listing events to be buffered.
+     * @return true if the events are stored durably, false if they could not be stored.
+     */
+    boolean append(List<CarListingEvent> carListingEvents);
+
+    /**
+     * Returns the oldest buffered car listings, without removing them.
+     *
+     * @param maxEvents The maximum number of events to return.
+     * @return The buffered events, oldest first.
+     */
+    List<BufferedCarListingEvent> peek(int maxEvents);
+
+    /**
+     * Removes car listings that were written to the data store. A car listing whose state
+     * was replaced after it was peeked stays in the buffer.
+     *
+     * @param drainedEvents The events returned by {@link #peek(int)} that were written.
+     */
+    void remove(List<BufferedCarListingEvent> drainedEvents);
+
+    /**
+     * Tells whether no car listing waits for its write.
+     *
+     * @return true if the buffer is empty, false otherwise.
+     */
+    boolean isEmpty();
+
+    /**
+     * Returns the number of buffered car listings.
+     *
+     * @return The number of car listings waiting for their write.
+     */
+    int size();
+}
@@ -0,0 +1,16 @@
+package org.smg.carlisting.domain.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counts the car listings of a search that share one make, model or color.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetBucket {
+    private String value;
+    private long count;
+}
@@ -0,0 +1,18 @@
+package org.smg.carlisting.domain.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counts the car listings of a search whose year or price lies in the range
+ * {@code [from, to)}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistogramBucket {
+    private double from;
+    private double to;
+    private long count;
+}
@@ -43,7 +43,7 @@ public class CircuitBreakerConfiguration {
                 .waitDurationInOpenState(Duration.ofSeconds(60))// Time circuit breaker stays open
                 .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)//Fixed Number of Calls to determine when to open or close
                 .slidingWindowSize(10)// Last 10 calls to measure the failure rate
-                .recordExceptions(IOException.class, TimeoutException.class, DataAccessResourceFailureException.class, ConnectException.class)//A list of exceptions that will consider as failures
+                .recordExceptions(IOException.class, TimeoutException.class, java.util.concurrent.TimeoutException.class, DataAccessResourceFailureException.class, ConnectException.class)//A list of exceptions that will consider as failures
                 .minimumNumberOfCalls(3)//The minimum number of calls required before the Circuit Breaker can calculate the failure rate and decide whether to open
                 .permittedNumberOfCallsInHalfOpenState(3)//The number of calls allowed when the Circuit Breaker is in a half-open state to test if the ES is still unavailable
                 .build();
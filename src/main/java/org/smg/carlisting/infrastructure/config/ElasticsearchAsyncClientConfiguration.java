@@ -0,0 +1,30 @@
+package org.smg.carlisting.infrastructure.config;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class for the asynchronous Elasticsearch Java API client.
+ * <p>
+ * Spring Boot only configures the blocking client. The asynchronous client is created on
+ * the same transport, so both share the connection pool, the credentials and the JSON
+ * mapper, and the asynchronous one sends its requests without holding a thread until the
+ * response arrives.
+ * </p>
+ */
+@Configuration
+public class ElasticsearchAsyncClientConfiguration {
+
+    /**
+     * Creates the asynchronous client on the transport of the blocking one.
+     *
+     * @param elasticsearchClient The blocking client configured by Spring Boot.
+     * @return The asynchronous Elasticsearch client.
+     */
+    @Bean
+    public ElasticsearchAsyncClient elasticsearchAsyncClient(ElasticsearchClient elasticsearchClient) {
+        return new ElasticsearchAsyncClient(elasticsearchClient._transport(), elasticsearchClient._transportOptions());
+    }
+}
@@ -0,0 +1,81 @@
+package org.smg.carlisting.infrastructure.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.infrastructure.kafka.CarListingEventDeserializer;
+import org.smg.carlisting.infrastructure.kafka.CarListingEventVersioner;
+import org.smg.carlisting.infrastructure.kafka.PartitionAcknowledgmentBatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaConsumerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import static org.smg.carlisting.common.Constants.CAR_LISTING_GROUP;
+import static org.smg.carlisting.common.Constants.CONSUMER_MODE_PARALLEL;
+
+/**
+ * Configuration class for the Kafka listener containers.
+ * <p>
+ * Spring Boot builds the listener container factory from the {@code spring.kafka}
+ * properties. This class adds the parts that cannot be expressed as properties,
+ * such as the rebalance listener that flushes pending offset commits, the
+ * interceptors that version the consumed events and the deserializer instances that
+ * record into the application's meter registry.
+ * </p>
+ */
+@Configuration
+@EnableScheduling
+public class KafkaConsumerConfiguration {
+
+    /**
+     * Lets the consumer factory create the value deserializer of every consumer itself,
+     * wrapped in an {@link ErrorHandlingDeserializer} as configured by the properties, so
+     * the deserializer gets the application's {@link MeterRegistry}.
+     *
+     * @param meterRegistry The registry of the deserialization timers.
+     * @return The customizer applied to the auto-configured consumer factory.
+     */
+    @Bean
+    @SuppressWarnings("unchecked")
+    public DefaultKafkaConsumerFactoryCustomizer carListingEventDeserializerCustomizer(MeterRegistry meterRegistry) {
+        return consumerFactory -> ((DefaultKafkaConsumerFactory<Object, CarListingEvent>) consumerFactory)
+                .setValueDeserializerSupplier(() ->
+                        new ErrorHandlingDeserializer<>(new CarListingEventDeserializer(meterRegistry)));
+    }
+
+    /**
+     * Customizes every listener container created by the auto-configured factory.
+     * <p>
+     * The acknowledgment batcher is registered as rebalance listener, so pending
+     * offsets of revoked partitions are committed before the partitions move to
+     * another consumer. In parallel mode records complete out of order, so asynchronous
+     * acknowledgments are enabled and the container commits an offset only once every
+     * record before it was acknowledged. The retry topic listener keeps ordered
+     * acknowledgments, since it delays records with {@code nack}. Every record and batch
+     * passes the versioner before it reaches the listener.
+     * </p>
+     *
+     * @param partitionAcknowledgmentBatcher The batcher holding the pending acknowledgments.
+     * @param carListingEventVersioner       The interceptor assigning versions to the events.
+     * @param consumerMode                   The configured consumption mode.
+     * @return The customizer applied to the listener containers.
+     */
+    @Bean
+    public ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>> kafkaContainerCustomizer(
+            PartitionAcknowledgmentBatcher partitionAcknowledgmentBatcher,
+            CarListingEventVersioner carListingEventVersioner,
+            @Value("${car-listing.consumer.mode:record}") String consumerMode) {
+        return container -> {
+            container.getContainerProperties().setConsumerRebalanceListener(partitionAcknowledgmentBatcher);
+            container.setRecordInterceptor(carListingEventVersioner);
+            container.setBatchInterceptor(carListingEventVersioner);
+            container.getContainerProperties().setAsyncAcks(CONSUMER_MODE_PARALLEL.equals(consumerMode)
+                    && CAR_LISTING_GROUP.equals(container.getGroupId()));
+        };
+    }
+}
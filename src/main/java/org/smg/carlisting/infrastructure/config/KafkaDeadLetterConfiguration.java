@@ -0,0 +1,89 @@
+package org.smg.carlisting.infrastructure.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.infrastructure.kafka.CarListingDeadLetterPublisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.smg.carlisting.common.Constants.CAR_LISTING_DLT;
+
+/**
+ * Configuration class for the retry and dead-letter topics of car listing events.
+ * <p>
+ * The producer sends car listing events as JSON and payloads that could not be
+ * deserialized as the raw bytes they arrived with. The container error handler publishes
+ * records the listener never received, such as records that failed deserialization, to
+ * the dead-letter topic without retrying them, so one poison record never stalls a
+ * partition.
+ * </p>
+ */
+@Configuration
+public class KafkaDeadLetterConfiguration {
+
+    /**
+     * Creates the template that publishes to the retry, dead-letter and main topics.
+     *
+     * @param kafkaProperties The {@code spring.kafka} properties.
+     * @return The template for car listing events and raw payloads.
+     */
+    @Bean
+    public KafkaTemplate<String, Object> carListingKafkaTemplate(KafkaProperties kafkaProperties) {
+        DelegatingByTypeSerializer valueSerializer = new DelegatingByTypeSerializer(Map.of(
+                byte[].class, new ByteArraySerializer(),
+                CarListingEvent.class, new JsonSerializer<CarListingEvent>().noTypeInfo()));
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(kafkaProperties.buildProducerProperties(null),
+                new StringSerializer(), valueSerializer));
+    }
+
+    /**
+     * Creates the error handler of the listener containers, which publishes failed
+     * records to the dead-letter topic at once.
+     *
+     * @param carListingKafkaTemplate The template used to publish the records.
+     * @return The error handler picked up by the auto-configured container factory.
+     */
+    @Bean
+    public CommonErrorHandler kafkaErrorHandler(KafkaTemplate<String, Object> carListingKafkaTemplate) {
+        DeadLetterPublishingRecoverer deadLetterPublishingRecoverer = new DeadLetterPublishingRecoverer(
+                carListingKafkaTemplate, (record, exception) -> new TopicPartition(CAR_LISTING_DLT, -1));
+        return new DefaultErrorHandler(deadLetterPublishingRecoverer, new FixedBackOff(0L, 0L));
+    }
+
+    /**
+     * Declares the retry topics and the dead-letter topic, created by the Kafka admin at
+     * startup if they do not exist.
+     *
+     * @param carListingDeadLetterPublisher The publisher that knows the retry tiers.
+     * @param partitions                    The number of partitions of every topic.
+     * @return The topics of the retry pipeline.
+     */
+    @Bean
+    public KafkaAdmin.NewTopics carListingRetryTopics(CarListingDeadLetterPublisher carListingDeadLetterPublisher,
+                                                      @Value("${car-listing.retry.partitions:1}") int partitions) {
+        List<String> topicNames = new ArrayList<>(carListingDeadLetterPublisher.getRetryTopics());
+        topicNames.add(CAR_LISTING_DLT);
+        return new KafkaAdmin.NewTopics(topicNames.stream()
+                .map(topicName -> TopicBuilder.name(topicName).partitions(partitions).build())
+                .toArray(NewTopic[]::new));
+    }
+}
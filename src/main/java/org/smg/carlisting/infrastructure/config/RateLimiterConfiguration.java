@@ -0,0 +1,44 @@
+package org.smg.carlisting.infrastructure.config;
+
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+import static org.smg.carlisting.common.Constants.EXPORT_RATE_LIMITER;
+
+/**
+ * Configuration class for setting up rate limiters with Resilience4j.
+ * <p>
+ * The export rate limiter bounds the number of pages all running exports together may
+ * request from Elasticsearch per second, so walking the whole catalog never competes
+ * with the searches of the site. An export waits for a permission before every page.
+ * </p>
+ */
+@Configuration
+public class RateLimiterConfiguration {
+
+    /**
+     * Creates the RateLimiterRegistry bean with the export rate limiter.
+     *
+     * @param pagesPerSecond The number of export pages permitted per second.
+     * @param permitTimeout  How long an export waits for a permission before it fails.
+     * @return RateLimiterRegistry holding the export rate limiter.
+     */
+    @Bean
+    public RateLimiterRegistry rateLimiterRegistry(@Value("${car-listing.export.pages-per-second:20}") int pagesPerSecond,
+                                                   @Value("${car-listing.export.permit-timeout:30s}") Duration permitTimeout) {
+        RateLimiterConfig exportRateLimiterConfig = RateLimiterConfig.custom()
+                .limitForPeriod(pagesPerSecond)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(permitTimeout)
+                .build();
+
+        RateLimiterRegistry rateLimiterRegistry = RateLimiterRegistry.ofDefaults();
+        rateLimiterRegistry.rateLimiter(EXPORT_RATE_LIMITER, exportRateLimiterConfig);
+        return rateLimiterRegistry;
+    }
+}
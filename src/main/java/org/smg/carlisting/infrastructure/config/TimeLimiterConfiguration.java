@@ -0,0 +1,41 @@
+package org.smg.carlisting.infrastructure.config;
+
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+import static org.smg.carlisting.common.Constants.SEARCH_TIME_LIMITER;
+
+/**
+ * Configuration class for setting up time limiters with Resilience4j.
+ * <p>
+ * The search time limiter bounds how long an asynchronous search may wait for
+ * Elasticsearch. A search that takes longer fails with a timeout and its request is
+ * cancelled, so a slow cluster does not pile up pending requests.
+ * </p>
+ */
+@Configuration
+public class TimeLimiterConfiguration {
+
+    /**
+     * Creates the TimeLimiterRegistry bean with the search time limiter.
+     *
+     * @param searchTimeout How long an asynchronous search may take.
+     * @return TimeLimiterRegistry holding the search time limiter.
+     */
+    @Bean
+    public TimeLimiterRegistry timeLimiterRegistry(@Value("${car-listing.search.timeout:5s}") Duration searchTimeout) {
+        TimeLimiterConfig searchTimeLimiterConfig = TimeLimiterConfig.custom()
+                .timeoutDuration(searchTimeout)
+                .cancelRunningFuture(true)
+                .build();
+
+        TimeLimiterRegistry timeLimiterRegistry = TimeLimiterRegistry.ofDefaults();
+        timeLimiterRegistry.timeLimiter(SEARCH_TIME_LIMITER, searchTimeLimiterConfig);
+        return timeLimiterRegistry;
+    }
+}
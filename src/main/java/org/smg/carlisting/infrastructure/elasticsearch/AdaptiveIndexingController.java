@@ -0,0 +1,263 @@
+package org.smg.carlisting.infrastructure.elasticsearch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.smg.carlisting.infrastructure.kafka.CarListingListenerControl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.smg.carlisting.common.Constants.METRIC_INDEXING_BACKING_OFF;
+import static org.smg.carlisting.common.Constants.METRIC_INDEXING_BACKOFFS;
+import static org.smg.carlisting.common.Constants.METRIC_INDEXING_BULK_SIZE;
+import static org.smg.carlisting.common.Constants.METRIC_INDEXING_CONCURRENCY;
+import static org.smg.carlisting.common.Constants.METRIC_INDEXING_IN_FLIGHT;
+import static org.smg.carlisting.common.Constants.TAG_REASON;
+
+/**
+ * Adapts the size of bulk requests and the number of concurrent Elasticsearch writes to
+ * the capacity the cluster currently has.
+ * <p>
+ * Both limits follow additive increase, multiplicative decrease. Every write that took
+ * less than the target latency while it used the full limit raises it: the bulk size by
+ * the minimum bulk size, the concurrency by one after as many fast writes as writes may
+ * run concurrently. A write that Elasticsearch rejected with 429, for example an
+ * {@code es_rejected_execution_exception} of a full write queue, or one that took longer
+ * than the target halves both limits.
+ * </p>
+ * <p>
+ * After a decrease the controller backs off: consumption of the car listing topic is
+ * paused, further slow writes do not decrease the limits again and nothing is raised
+ * until the backoff elapsed. Writes that are already running complete with the lowered
+ * limits.
+ * </p>
+ * <p>
+ * With {@code car-listing.indexing.adaptive.enabled=false}, bulk requests are not split
+ * and writes are not limited.
+ * </p>
+ */
+@Component
+@Slf4j
+public class AdaptiveIndexingController {
+
+    private static final String PAUSE_REASON = "indexing is backing off";
+    private static final String REASON_REJECTED = "rejected";
+    private static final String REASON_LATENCY = "latency";
+
+    private final CarListingListenerControl carListingListenerControl;
+    private final boolean enabled;
+    private final int minBulkSize;
+    private final int maxBulkSize;
+    private final int maxConcurrency;
+    private final long targetLatencyNanos;
+    private final Duration backoff;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "indexing-backoff");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+    private final Counter rejectedBackoffCounter;
+    private final Counter latencyBackoffCounter;
+    private volatile int bulkSize;
+    private volatile int concurrency;
+    private volatile int inFlight;
+    private volatile boolean backingOff;
+    private int fastWrites;
+
+    public AdaptiveIndexingController(CarListingListenerControl carListingListenerControl, MeterRegistry meterRegistry,
+                                      @Value("${car-listing.indexing.adaptive.enabled:true}") boolean enabled,
+                                      @Value("${car-listing.indexing.bulk-size.initial:500}") int initialBulkSize,
+                                      @Value("${car-listing.indexing.bulk-size.min:50}") int minBulkSize,
+                                      @Value("${car-listing.indexing.bulk-size.max:5000}") int maxBulkSize,
+                                      @Value("${car-listing.indexing.concurrency.initial:8}") int initialConcurrency,
+                                      @Value("${car-listing.indexing.concurrency.max:64}") int maxConcurrency,
+                                      @Value("${car-listing.indexing.target-latency:500ms}") Duration targetLatency,
+                                      @Value("${car-listing.indexing.backoff:2s}") Duration backoff) {
+        this.carListingListenerControl = carListingListenerControl;
+        this.enabled = enabled;
+        this.minBulkSize = minBulkSize;
+        this.maxBulkSize = maxBulkSize;
+        this.maxConcurrency = maxConcurrency;
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.backoff = backoff;
+        this.bulkSize = Math.max(minBulkSize, Math.min(maxBulkSize, initialBulkSize));
+        this.concurrency = Math.max(1, Math.min(maxConcurrency, initialConcurrency));
+        Gauge.builder(METRIC_INDEXING_BULK_SIZE, this, AdaptiveIndexingController::getBulkSize)
+                .description("Current limit of operations per Elasticsearch bulk request")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_INDEXING_CONCURRENCY, this, AdaptiveIndexingController::getConcurrency)
+                .description("Current limit of concurrent Elasticsearch writes")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_INDEXING_IN_FLIGHT, this, AdaptiveIndexingController::getInFlight)
+                .description("Elasticsearch writes currently running")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_INDEXING_BACKING_OFF, this, controller -> controller.isBackingOff() ? 1 : 0)
+                .description("1 while indexing backs off and consumption is paused, 0 otherwise")
+                .register(meterRegistry);
+        this.rejectedBackoffCounter = backoffCounter(meterRegistry, REASON_REJECTED);
+        this.latencyBackoffCounter = backoffCounter(meterRegistry, REASON_LATENCY);
+    }
+
+    private static Counter backoffCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder(METRIC_INDEXING_BACKOFFS)
+                .description("Times indexing backed off, by the reason of the decrease")
+                .tag(TAG_REASON, reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the number of operations a bulk request may carry, larger requests are split.
+     *
+     * @return The current bulk size, or {@link Integer#MAX_VALUE} if the controller is disabled.
+     */
+    public int getBulkSize() {
+        return enabled ? bulkSize : Integer.MAX_VALUE;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public boolean isBackingOff() {
+        return backingOff;
+    }
+
+    /**
+     * Waits until one more write may run and takes its permit. Every permit must be given
+     * back with one of the release methods.
+     *
+     * @return The time the permit was taken, in {@link System#nanoTime()} units.
+     */
+    public long acquire() {
+        if (!enabled) {
+            return System.nanoTime();
+        }
+
+        lock.lock();
+        try {
+            while (inFlight >= concurrency) {
+                permitReleased.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight++;
+            lock.unlock();
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Gives back the permit of a write that reached Elasticsearch and adapts the limits
+     * to its outcome.
+     *
+     * @param acquired   The time returned by {@link #acquire()}.
+     * @param operations The number of operations the write carried.
+     * @param rejected   Whether Elasticsearch rejected the write or any of its operations with 429.
+     */
+    public void release(long acquired, int operations, boolean rejected) {
+        if (!enabled) {
+            return;
+        }
+
+        long latencyNanos = System.nanoTime() - acquired;
+        boolean decreased;
+        lock.lock();
+        try {
+            boolean limitReached = inFlight >= concurrency;
+            inFlight--;
+            permitReleased.signalAll();
+            if (rejected || latencyNanos > targetLatencyNanos) {
+                decreased = decrease();
+            } else {
+                increase(operations, limitReached);
+                decreased = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (decreased) {
+            (rejected ? rejectedBackoffCounter : latencyBackoffCounter).increment();
+            log.warn("Indexing backs off for {} after a {} write, bulk size {}, concurrency {}", backoff,
+                    rejected ? "rejected" : "slow", bulkSize, concurrency);
+            carListingListenerControl.pause(PAUSE_REASON);
+            scheduler.schedule(this::endBackoff, backoff.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Gives back the permit of a write that did not reach Elasticsearch, for example
+     * because the circuit breaker is open, without adapting the limits.
+     */
+    public void release() {
+        if (!enabled) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            inFlight--;
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean decrease() {
+        if (backingOff) {
+            return false;
+        }
+
+        backingOff = true;
+        fastWrites = 0;
+        bulkSize = Math.max(minBulkSize, bulkSize / 2);
+        concurrency = Math.max(1, concurrency / 2);
+        return true;
+    }
+
+    private void increase(int operations, boolean limitReached) {
+        if (backingOff) {
+            return;
+        }
+
+        if (operations >= bulkSize) {
+            bulkSize = Math.min(maxBulkSize, bulkSize + minBulkSize);
+        }
+        if (limitReached && ++fastWrites >= concurrency) {
+            fastWrites = 0;
+            concurrency = Math.min(maxConcurrency, concurrency + 1);
+        }
+    }
+
+    private void endBackoff() {
+        lock.lock();
+        try {
+            backingOff = false;
+        } finally {
+            lock.unlock();
+        }
+        log.info("Indexing resumes with bulk size {} and concurrency {}", bulkSize, concurrency);
+        carListingListenerControl.resume(PAUSE_REASON);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
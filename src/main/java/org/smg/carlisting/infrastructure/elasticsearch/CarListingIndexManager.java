@@ -0,0 +1,283 @@
+package org.smg.carlisting.infrastructure.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.ReindexRequest;
+import co.elastic.clients.elasticsearch.core.ReindexResponse;
+import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
+import co.elastic.clients.elasticsearch.indices.DeleteIndexRequest;
+import co.elastic.clients.elasticsearch.indices.ExistsAliasRequest;
+import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.elasticsearch.indices.GetAliasRequest;
+import co.elastic.clients.elasticsearch.indices.PutIndicesSettingsRequest;
+import co.elastic.clients.elasticsearch.indices.RefreshRequest;
+import co.elastic.clients.elasticsearch.indices.UpdateAliasesRequest;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.smg.carlisting.common.Constants.CAR_LISTINGS_INDEX;
+
+/**
+ * Manages the Elasticsearch index holding the car listings.
+ * <p>
+ * Car listings are read and written through the {@code car_listings} alias, which points
+ * to a versioned index such as {@code car_listings_v1}. The mapping and settings of every
+ * version are kept in {@code elasticsearch/car_listings_v<version>.json}. At startup the
+ * index of the current version is created, or migrated from the index the alias pointed
+ * to before, and the alias is moved in one atomic request. A concrete index named
+ * {@code car_listings}, as created by dynamic mapping, is migrated and removed the same way.
+ * </p>
+ * <p>
+ * Shard count, replica count and refresh interval are taken from the configuration.
+ * Replicas and refresh interval are dynamic settings and are applied to an existing
+ * index of the current version as well.
+ * </p>
+ * <p>
+ * A full rebuild writes into a fresh index of the current version, named
+ * {@code car_listings_v<version>-<timestamp>}, that is created without replicas and
+ * refreshes and gets the configured settings back before the alias is moved to it.
+ * </p>
+ */
+@Component
+@Slf4j
+public class CarListingIndexManager {
+
+    public static final int INDEX_VERSION = 1;
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final int numberOfShards;
+    private final int numberOfReplicas;
+    private final String refreshInterval;
+    private final Clock clock;
+
+    @Autowired
+    public CarListingIndexManager(ElasticsearchClient elasticsearchClient,
+                                 @Value("${car-listing.index.number-of-shards:1}") int numberOfShards,
+                                 @Value("${car-listing.index.number-of-replicas:1}") int numberOfReplicas,
+                                 @Value("${car-listing.index.refresh-interval:1s}") String refreshInterval) {
+        this(elasticsearchClient, numberOfShards, numberOfReplicas, refreshInterval, Clock.systemUTC());
+    }
+
+    CarListingIndexManager(ElasticsearchClient elasticsearchClient, int numberOfShards, int numberOfReplicas,
+                           String refreshInterval, Clock clock) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.numberOfShards = numberOfShards;
+        this.numberOfReplicas = numberOfReplicas;
+        this.refreshInterval = refreshInterval;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates or migrates the car listing index before the Kafka listeners start.
+     * <p>
+     * If Elasticsearch is not reachable the error is logged and the application starts
+     * anyway, writes are then retried by the consumers until the index exists.
+     * </p>
+     */
+    @PostConstruct
+    public void initializeIndex() {
+        try {
+            ensureCurrentIndex();
+        } catch (Exception ex) {
+            log.error("Car listing index could not be initialized: {}", ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Makes sure the alias points to the index of the current mapping version.
+     *
+     * @throws IOException if Elasticsearch cannot be reached.
+     */
+    public void ensureCurrentIndex() throws IOException {
+        String currentIndex = getIndexName(INDEX_VERSION);
+        Set<String> aliasedIndices = getAliasedIndices();
+
+        Optional<String> aliasedCurrentIndex = aliasedIndices.stream()
+                .filter(CarListingIndexManager::isCurrentVersion)
+                .findFirst();
+        if (aliasedCurrentIndex.isPresent()) {
+            updateDynamicSettings(aliasedCurrentIndex.get(), numberOfReplicas, refreshInterval);
+            log.info("Car listing index {} is up to date", aliasedCurrentIndex.get());
+            return;
+        }
+
+        if (!aliasedIndices.isEmpty()) {
+            log.info("Migrating car listings from {} to {}", aliasedIndices, currentIndex);
+            createIndex(currentIndex);
+            for (String sourceIndex : aliasedIndices) {
+                reindex(sourceIndex, currentIndex);
+            }
+            swapAlias(aliasedIndices, currentIndex, false);
+            return;
+        }
+
+        if (indexExists(CAR_LISTINGS_INDEX)) {
+            log.info("Migrating car listings from the unmanaged index {} to {}", CAR_LISTINGS_INDEX, currentIndex);
+            createIndex(currentIndex);
+            reindex(CAR_LISTINGS_INDEX, currentIndex);
+            swapAlias(Set.of(CAR_LISTINGS_INDEX), currentIndex, true);
+            return;
+        }
+
+        createIndex(currentIndex);
+        swapAlias(Set.of(), currentIndex, false);
+        log.info("Car listing index {} is created", currentIndex);
+    }
+
+    /**
+     * Creates a new index from the mapping and settings of the current version.
+     *
+     * @param indexName The name of the index to be created.
+     * @throws IOException if Elasticsearch cannot be reached.
+     */
+    public void createIndex(String indexName) throws IOException {
+        createIndex(indexName, numberOfReplicas, refreshInterval);
+    }
+
+    /**
+     * Creates a fresh index of the current version for a full rebuild.
+     * <p>
+     * The index has no replicas and refreshes are disabled, so Elasticsearch indexes
+     * every document only once and does not create a segment per refresh.
+     * </p>
+     *
+     * @return The name of the created index.
+     * @throws IOException if Elasticsearch cannot be reached.
+     */
+    public String createRebuildIndex() throws IOException {
+        String indexName = getIndexName(INDEX_VERSION) + "-" + clock.millis();
+        createIndex(indexName, 0, "-1");
+        log.info("Car listing index {} is created for a rebuild", indexName);
+        return indexName;
+    }
+
+    /**
+     * Restores the configured replicas and refresh interval of a rebuilt index and
+     * refreshes it, so all documents are searchable before the alias is moved to it.
+     *
+     * @param indexName The rebuilt index.
+     * @throws IOException if Elasticsearch cannot be reached.
+     */
+    public void restoreDynamicSettings(String indexName) throws IOException {
+        updateDynamicSettings(indexName, numberOfReplicas, refreshInterval);
+        elasticsearchClient.indices().refresh(RefreshRequest.of(refresh -> refresh.index(indexName)));
+    }
+
+    /**
+     * Deletes the given index, used to drop the index of an aborted rebuild.
+     *
+     * @param indexName The index to be deleted.
+     * @throws IOException if Elasticsearch cannot be reached.
+     */
+    public void deleteIndex(String indexName) throws IOException {
+        elasticsearchClient.indices().delete(DeleteIndexRequest.of(delete -> delete.index(indexName)));
+    }
+
+    /**
+     * Points the alias to the target index and removes it from the given indices in a
+     * single atomic request.
+     *
+     * @param sourceIndices       The indices the alias pointed to before.
+     * @param targetIndex         The index the alias points to afterwards.
+     * @param deleteSourceIndices Whether the source indices are deleted in the same request.
+     * @throws IOException if Elasticsearch cannot be reached.
+     */
+    public void swapAlias(Set<String> sourceIndices, String targetIndex, boolean deleteSourceIndices) throws IOException {
+        List<Action> actions = new ArrayList<>();
+        for (String sourceIndex : sourceIndices) {
+            actions.add(deleteSourceIndices
+                    ? Action.of(action -> action.removeIndex(remove -> remove.index(sourceIndex)))
+                    : Action.of(action -> action.remove(remove -> remove.index(sourceIndex).alias(CAR_LISTINGS_INDEX))));
+        }
+        actions.add(Action.of(action -> action.add(add -> add.index(targetIndex).alias(CAR_LISTINGS_INDEX))));
+
+        elasticsearchClient.indices().updateAliases(UpdateAliasesRequest.of(update -> update.actions(actions)));
+        log.info("Alias {} now points to {}", CAR_LISTINGS_INDEX, targetIndex);
+    }
+
+    /**
+     * Returns the indices the car listing alias currently points to.
+     *
+     * @return The names of the aliased indices, empty if the alias does not exist.
+     * @throws IOException if Elasticsearch cannot be reached.
+     */
+    public Set<String> getAliasedIndices() throws IOException {
+        boolean aliasExists = elasticsearchClient.indices()
+                .existsAlias(ExistsAliasRequest.of(exists -> exists.name(CAR_LISTINGS_INDEX)))
+                .value();
+        if (!aliasExists) {
+            return Set.of();
+        }
+
+        return elasticsearchClient.indices()
+                .getAlias(GetAliasRequest.of(alias -> alias.name(CAR_LISTINGS_INDEX)))
+                .result()
+                .keySet();
+    }
+
+    /**
+     * Updates the dynamic settings that differ between normal operation and a full rebuild.
+     *
+     * @param indexName        The index to be updated.
+     * @param replicas         The number of replicas.
+     * @param indexRefreshTime The refresh interval, {@code -1} disables refreshes.
+     * @throws IOException if Elasticsearch cannot be reached.
+     */
+    public void updateDynamicSettings(String indexName, int replicas, String indexRefreshTime) throws IOException {
+        elasticsearchClient.indices().putSettings(PutIndicesSettingsRequest.of(put -> put
+                .index(indexName)
+                .settings(settings -> settings
+                        .numberOfReplicas(String.valueOf(replicas))
+                        .refreshInterval(time -> time.time(indexRefreshTime)))));
+    }
+
+    public static String getIndexName(int version) {
+        return CAR_LISTINGS_INDEX + "_v" + version;
+    }
+
+    private static boolean isCurrentVersion(String indexName) {
+        String currentIndex = getIndexName(INDEX_VERSION);
+        return indexName.equals(currentIndex) || indexName.startsWith(currentIndex + "-");
+    }
+
+    private void createIndex(String indexName, int replicas, String indexRefreshTime) throws IOException {
+        String definition = loadIndexDefinition(INDEX_VERSION)
+                .replace("{{numberOfShards}}", String.valueOf(numberOfShards))
+                .replace("{{numberOfReplicas}}", String.valueOf(replicas))
+                .replace("{{refreshInterval}}", indexRefreshTime);
+
+        elasticsearchClient.indices().create(CreateIndexRequest.of(create -> create
+                .index(indexName)
+                .withJson(new StringReader(definition))));
+    }
+
+    private boolean indexExists(String indexName) throws IOException {
+        return elasticsearchClient.indices().exists(ExistsRequest.of(exists -> exists.index(indexName))).value();
+    }
+
+    private void reindex(String sourceIndex, String targetIndex) throws IOException {
+        ReindexResponse response = elasticsearchClient.reindex(ReindexRequest.of(reindex -> reindex
+                .source(source -> source.index(sourceIndex))
+                .dest(dest -> dest.index(targetIndex))
+                .waitForCompletion(true)));
+        log.info("Reindexed {} car listings from {} to {}", response.total(), sourceIndex, targetIndex);
+    }
+
+    private String loadIndexDefinition(int version) throws IOException {
+        ClassPathResource resource = new ClassPathResource("elasticsearch/" + getIndexName(version) + ".json");
+        return resource.getContentAsString(StandardCharsets.UTF_8);
+    }
+}
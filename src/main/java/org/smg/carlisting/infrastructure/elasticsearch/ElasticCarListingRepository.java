@@ -1,40 +1,120 @@
 package org.smg.carlisting.infrastructure.elasticsearch;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.Result;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
 import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch._types.query_dsl.QueryBuilders;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.DeleteRequest;
+import co.elastic.clients.elasticsearch.core.IndexRequest;
+import co.elastic.clients.elasticsearch.core.IndexResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.UpdateRequest;
+import co.elastic.clients.elasticsearch.core.UpdateResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonData;
 import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.functions.CheckedSupplier;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.smg.carlisting.application.CarListingSearchCriteria;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
 import org.smg.carlisting.domain.exception.InternalServerErrorException;
 import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.BulkIndexFailure;
+import org.smg.carlisting.domain.repository.BulkIndexResult;
+import org.smg.carlisting.domain.repository.CarListingFacets;
+import org.smg.carlisting.domain.repository.CarListingPage;
 import org.smg.carlisting.domain.repository.CarListingRepository;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
+import org.smg.carlisting.domain.repository.FacetBucket;
+import org.smg.carlisting.domain.repository.HistogramBucket;
+import org.smg.carlisting.infrastructure.elasticsearch.IndexedDocumentCache.IndexedDocument;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.elasticsearch.NoSuchIndexException;
+import org.springframework.data.elasticsearch.UncategorizedElasticsearchException;
 import org.springframework.data.elasticsearch.client.elc.NativeQuery;
 import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHitSupport;
 import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.query.Query.PointInTime;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
-import static org.smg.carlisting.common.Constants.CACHE_NAME;
 import static org.smg.carlisting.common.Constants.CIRCUIT_BREAKER_IS_OPEN;
 import static org.smg.carlisting.common.Constants.COLOR;
 import static org.smg.carlisting.common.Constants.ELASTICSEARCH_CIRCUIT_BREAKER;
+import static org.smg.carlisting.common.Constants.EXPORT_RATE_LIMITER;
+import static org.smg.carlisting.common.Constants.FACET_PRICE_INTERVAL;
+import static org.smg.carlisting.common.Constants.KEYWORD;
 import static org.smg.carlisting.common.Constants.MAKE;
 import static org.smg.carlisting.common.Constants.MAX_PRICE;
+import static org.smg.carlisting.common.Constants.MAX_CURSOR_PAGE_SIZE;
+import static org.smg.carlisting.common.Constants.MAX_FACET_VALUES;
+import static org.smg.carlisting.common.Constants.MAX_YEAR;
 import static org.smg.carlisting.common.Constants.MESSAGE_EXCEPTION_ELASTICSEARCH;
+import static org.smg.carlisting.common.Constants.METRIC_BULK_SIZE;
+import static org.smg.carlisting.common.Constants.METRIC_EVENTS_STALE;
+import static org.smg.carlisting.common.Constants.METRIC_INDEX;
+import static org.smg.carlisting.common.Constants.METRIC_INDEX_UNCHANGED;
+import static org.smg.carlisting.common.Constants.METRIC_SEARCH;
 import static org.smg.carlisting.common.Constants.MIN_PRICE;
+import static org.smg.carlisting.common.Constants.MIN_YEAR;
+import static org.smg.carlisting.common.Constants.MISSING_CAR_LISTING_ID;
 import static org.smg.carlisting.common.Constants.MODEL;
+import static org.smg.carlisting.common.Constants.SEARCH_TIME_LIMITER;
+import static org.smg.carlisting.common.Constants.STATUS_REJECTED;
+import static org.smg.carlisting.common.Constants.TAG_CRITERIA;
+import static org.smg.carlisting.common.Constants.TAG_DETECTED;
+import static org.smg.carlisting.common.Constants.TAG_OPERATION;
+import static org.smg.carlisting.common.Constants.TAG_OUTCOME;
+import static org.smg.carlisting.common.Constants.TAG_PAGINATION;
 import static org.smg.carlisting.common.Constants.YEAR;
 
 /**
@@ -44,49 +124,196 @@ import static org.smg.carlisting.common.Constants.YEAR;
  * searching car listings in an Elasticsearch index. It includes fallback methods
  * for handling errors in communication with Elasticsearch.
  * </p>
+ * <p>
+ * With {@code car-listing.index.partial-updates.enabled=true}, only the fields that
+ * changed since the last write of this instance are sent, and a write is skipped when
+ * nothing changed. A partial update carries the sequence number and primary term of
+ * that last write as {@code if_seq_no} and {@code if_primary_term}, so it only applies
+ * to the document it was computed from. If the document changed or disappeared in the
+ * meantime, the car listing is indexed in full instead. A car listing this instance
+ * has not written yet is indexed in full as well.
+ * </p>
+ * <p>
+ * Writes of versioned events use external versioning: Elasticsearch keeps the version
+ * of the event with the document and rejects a write whose version is not higher. The
+ * rejection is counted as stale event and reported as a successful write. The update
+ * API cannot carry an external version, so versioned events are indexed in full even
+ * with partial updates enabled; an unchanged car listing is still skipped. Events are
+ * only versioned by their producer or with offset versions enabled. A deleted
+ * document keeps its version only for {@code index.gc_deletes}, 60 seconds by default,
+ * so an older event replayed later than that recreates the car listing.
+ * </p>
+ * <p>
+ * Writes are paced by the {@link AdaptiveIndexingController}, which limits how many of
+ * them run at once and how many operations a bulk request carries.
+ * </p>
+ * <p>
+ * The latency of every write is recorded per operation and outcome, together with the
+ * number of operations per bulk request. Search latency is recorded per combination of
+ * search criteria, so slow filters can be told apart. The write timers are registered
+ * up front, the search timers once per combination and pagination on first use.
+ * </p>
+ * <p>
+ * The timeouts of asynchronous searches are triggered by a single scheduler thread of
+ * this repository, no thread waits for the response itself.
+ * </p>
  */
 @Service
 @Slf4j
 public class ElasticCarListingRepository implements CarListingRepository {
 
+    private static final Set<String> KEYWORD_SORT_FIELDS = Set.of(MAKE, MODEL, COLOR);
+    private static final String OPERATION_INDEX = "index";
+    private static final String OPERATION_DELETE = "delete";
+    private static final String OPERATION_BULK = "bulk";
+    private static final String OUTCOME_SUCCESS = "success";
+    private static final String OUTCOME_FAILURE = "failure";
+    private static final String PAGINATION_OFFSET = "offset";
+    private static final String PAGINATION_CURSOR = "cursor";
+    private static final String PAGINATION_FACETS = "facets";
+    private static final String PAGINATION_EXPORT = "export";
+    private static final String SHARD_DOC = "_shard_doc";
+    private static final String RESULT_NOOP = "noop";
+    private static final String VERSION_CONFLICT = "version_conflict_engine_exception";
+    private static final String INDEX_NOT_FOUND = "index_not_found_exception";
+    private static final String DOCUMENT_MISSING = "document_missing_exception";
+    private static final Duration EXPORT_KEEP_ALIVE = Duration.ofMinutes(5);
+    private static final int MAX_RESULT_WINDOW = 10_000;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int CRITERIA_COMBINATIONS = 1 << 8;
+
     private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchAsyncClient elasticsearchAsyncClient;
     private final CircuitBreakerRegistry circuitBreakerRegistry;
     private final CircuitBreaker circuitBreaker;
+    private final RateLimiter exportRateLimiter;
+    private final TimeLimiter searchTimeLimiter;
+    private final ScheduledExecutorService timeLimiterScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("car-listing-time-limiter").daemon(true).factory());
+    private final IndexedDocumentCache indexedDocumentCache;
+    private final AdaptiveIndexingController adaptiveIndexingController;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary bulkSizeSummary;
+    private final Counter unchangedCounter;
+    private final Counter staleCounter;
+    private final Map<String, Timer> writeSuccessTimers;
+    private final Map<String, Timer> writeFailureTimers;
+    private final Map<String, AtomicReferenceArray<Timer>> searchTimers;
 
-    public ElasticCarListingRepository(ElasticsearchOperations elasticsearchOperations, CircuitBreakerRegistry circuitBreakerRegistry) {
+    public ElasticCarListingRepository(ElasticsearchOperations elasticsearchOperations, ElasticsearchClient elasticsearchClient,
+                                       ElasticsearchAsyncClient elasticsearchAsyncClient,
+                                       CircuitBreakerRegistry circuitBreakerRegistry, RateLimiterRegistry rateLimiterRegistry,
+                                       TimeLimiterRegistry timeLimiterRegistry, IndexedDocumentCache indexedDocumentCache,
+                                       AdaptiveIndexingController adaptiveIndexingController, MeterRegistry meterRegistry) {
         this.elasticsearchOperations = elasticsearchOperations;
+        this.elasticsearchClient = elasticsearchClient;
+        this.elasticsearchAsyncClient = elasticsearchAsyncClient;
         this.circuitBreakerRegistry = circuitBreakerRegistry;
         this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(ELASTICSEARCH_CIRCUIT_BREAKER);
+        this.exportRateLimiter = rateLimiterRegistry.rateLimiter(EXPORT_RATE_LIMITER);
+        this.searchTimeLimiter = timeLimiterRegistry.timeLimiter(SEARCH_TIME_LIMITER);
+        this.indexedDocumentCache = indexedDocumentCache;
+        this.adaptiveIndexingController = adaptiveIndexingController;
+        this.meterRegistry = meterRegistry;
+        this.bulkSizeSummary = DistributionSummary.builder(METRIC_BULK_SIZE)
+                .description("Operations per Elasticsearch bulk request")
+                .baseUnit("operations")
+                .register(meterRegistry);
+        this.unchangedCounter = Counter.builder(METRIC_INDEX_UNCHANGED)
+                .description("Car listing writes that changed nothing, skipped or detected as noop by Elasticsearch")
+                .register(meterRegistry);
+        this.staleCounter = Counter.builder(METRIC_EVENTS_STALE)
+                .description("Car listing events dropped because a newer version was already written")
+                .tag(TAG_DETECTED, "elasticsearch")
+                .register(meterRegistry);
+        this.writeSuccessTimers = writeTimers(meterRegistry, OUTCOME_SUCCESS);
+        this.writeFailureTimers = writeTimers(meterRegistry, OUTCOME_FAILURE);
+        this.searchTimers = Map.of(
+                PAGINATION_OFFSET, new AtomicReferenceArray<>(CRITERIA_COMBINATIONS),
+                PAGINATION_CURSOR, new AtomicReferenceArray<>(CRITERIA_COMBINATIONS),
+                PAGINATION_FACETS, new AtomicReferenceArray<>(CRITERIA_COMBINATIONS),
+                PAGINATION_EXPORT, new AtomicReferenceArray<>(CRITERIA_COMBINATIONS));
+    }
+
+    private static Map<String, Timer> writeTimers(MeterRegistry meterRegistry, String outcome) {
+        Map<String, Timer> timers = new HashMap<>();
+        for (String operation : List.of(OPERATION_INDEX, OPERATION_DELETE, OPERATION_BULK)) {
+            timers.put(operation, Timer.builder(METRIC_INDEX)
+                    .description("Latency of Elasticsearch writes")
+                    .tag(TAG_OPERATION, operation)
+                    .tag(TAG_OUTCOME, outcome)
+                    .register(meterRegistry));
+        }
+        return Map.copyOf(timers);
     }
 
     /**
      * Creates or updates a car listing in the Elasticsearch index. This method
      * is responsible for saving the provided {@code carListing} to the Elasticsearch
      * index. It is wrapped in a circuit breaker to handle partial system failures
-     * gracefully. Additionally, this operation triggers the eviction of corresponding
-     * entries from the specified cache to maintain consistency. The circuit breaker
-     * ensures that, in case of system issues, the operation does not further strain
-     * the failing system.
+     * gracefully. The circuit breaker ensures that, in case of system issues, the
+     * operation does not further strain the failing system. With partial updates
+     * enabled, only the changed fields are sent and an unchanged car listing is not
+     * written at all. A versioned car listing is written with its version as external
+     * version.
      *
      * @param carListing The {@code CarListing} object to be created or updated in
      *                   the Elasticsearch index. It must not be null.
+     * @param version    The version of the event, null to write unconditionally.
+     * @return true if Elasticsearch acknowledged the write or rejected it as stale, false otherwise.
      */
     @Override
-    @CachePut(value = CACHE_NAME)
-    public void createOrUpdateElasticsearchIndex(CarListing carListing) {
-        executeWithCircuitBreaker(() -> executeCreateOrUpdateElasticsearchIndex(carListing),
+    public boolean createOrUpdateElasticsearchIndex(CarListing carListing, Long version) {
+        if (version != null) {
+            return writeVersioned(carListing, version);
+        }
+        if (indexedDocumentCache.isEnabled()) {
+            return writePartialUpdate(carListing);
+        }
+
+        return executeWithCircuitBreaker(() -> executeCreateOrUpdateElasticsearchIndex(carListing), OPERATION_INDEX,
                 "Car listing is saved with id: " + carListing.getId());
     }
 
+    private boolean writePartialUpdate(CarListing carListing) {
+        Document document = elasticsearchOperations.getElasticsearchConverter().mapObject(carListing);
+        IndexedDocument indexed = indexedDocumentCache.get(carListing.getId());
+        Map<String, Object> changes = indexed != null ? indexed.diff(document) : null;
+        if (changes != null && changes.isEmpty()) {
+            unchangedCounter.increment();
+            log.debug("Car listing with id {} did not change, it is not written", carListing.getId());
+            return true;
+        }
+
+        indexedDocumentCache.remove(carListing.getId());
+        return executeWithCircuitBreaker(() -> executeUpdateElasticsearchIndex(carListing.getId(), indexed, changes,
+                document), OPERATION_INDEX, "Car listing is updated with id: " + carListing.getId());
+    }
+
+    private boolean writeVersioned(CarListing carListing, long version) {
+        Document document = elasticsearchOperations.getElasticsearchConverter().mapObject(carListing);
+        if (indexedDocumentCache.isEnabled()) {
+            Map<String, Object> changes = indexedDocumentCache.diff(carListing.getId(), document);
+            if (changes != null && changes.isEmpty()) {
+                unchangedCounter.increment();
+                log.debug("Car listing with id {} did not change, it is not written", carListing.getId());
+                return true;
+            }
+            indexedDocumentCache.remove(carListing.getId());
+        }
+
+        return executeWithCircuitBreaker(() -> executeVersionedIndexElasticsearchIndex(carListing.getId(), document, version),
+                OPERATION_INDEX, "Car listing is saved with id: " + carListing.getId() + " and version: " + version);
+    }
+
     /**
      * Deletes a car listing from the Elasticsearch index based on its identifier.
      * <p>
      * This method removes the car listing associated with the specified identifier
      * from the Elasticsearch index. It is protected by a circuit breaker to handle
-     * partial system failures gracefully. Additionally, this operation causes the
-     * eviction of corresponding entries from the specified cache to maintain consistency.
-     * The circuit breaker ensures that in case of system failures, the operation
-     * does not further strain the failing system.
+     * partial system failures gracefully. The circuit breaker ensures that in case of
+     * system failures, the operation does not further strain the failing system.
      * </p>
      * <p>
      * If the circuit breaker is open, indicating ongoing system issues, the method
@@ -96,14 +323,119 @@ public class ElasticCarListingRepository implements CarListingRepository {
      *
      * @param carListingId The identifier of the car listing to be deleted.
      *                     It must not be null.
+     * @param version      The version of the event, null to delete unconditionally.
+     * @return true if Elasticsearch acknowledged the delete or rejected it as stale, false otherwise.
      */
     @Override
-    @CacheEvict(value = CACHE_NAME)
-    public void deleteFromElasticsearchIndex(String carListingId) {
-        executeWithCircuitBreaker(() -> executeDeleteFromElasticsearchIndex(carListingId),
+    public boolean deleteFromElasticsearchIndex(String carListingId, Long version) {
+        indexedDocumentCache.remove(carListingId);
+        if (version != null) {
+            return executeWithCircuitBreaker(() -> executeVersionedDeleteFromElasticsearchIndex(carListingId, version),
+                    OPERATION_DELETE, "Car listing with id: " + carListingId + " and version: " + version
+                            + " is deleted from Elasticsearch index.");
+        }
+        return executeWithCircuitBreaker(() -> executeDeleteFromElasticsearchIndex(carListingId), OPERATION_DELETE,
                 "Car listing with id: " + carListingId + " is deleted from Elasticsearch index.");
     }
 
+    /**
+     * Applies a batch of car listing events to the Elasticsearch index with a single
+     * {@code _bulk} request.
+     * <p>
+     * CREATE and UPDATE events become index operations and DELETE events become delete
+     * operations, kept in the order of the given list. The request is protected by the
+     * circuit breaker. Elasticsearch accepts or rejects every operation on its own, so
+     * rejected operations are returned as failures instead of failing the whole batch.
+     * Operations of versioned events carry the version as external version; the ones
+     * rejected as stale count as applied. If the circuit breaker is open or the request
+     * cannot be sent, every event of the batch is reported as failed.
+     * </p>
+     * <p>
+     * A batch larger than the current bulk size of the {@link AdaptiveIndexingController}
+     * is sent as several requests one after the other, and every request waits for a
+     * permit of the controller.
+     * </p>
+     *
+     * @param carListingEvents The car listing events to be applied, in consumption order.
+     * @return The number of applied operations and the failures reported per car listing.
+     */
+    @Override
+    public BulkIndexResult bulkUpdateElasticsearchIndex(List<CarListingEvent> carListingEvents) {
+        return bulkUpdateElasticsearchIndex(carListingEvents, null);
+    }
+
+    /**
+     * Applies a batch of car listing events to the given index with a single {@code _bulk}
+     * request, bypassing the alias. It behaves like
+     * {@link #bulkUpdateElasticsearchIndex(List)} and is used to fill a rebuilt index
+     * before the alias is moved to it.
+     * <p>
+     * Writes to a given index are not paced by the {@link AdaptiveIndexingController}:
+     * the rebuild sizes its batches with its own bulk size and retries rejected events
+     * itself, so the batch is sent as it is and does not feed the limits of the live
+     * writes.
+     * </p>
+     *
+     * @param carListingEvents The car listing events to be applied, in consumption order.
+     * @param indexName        The index to write to, null for the car listing alias.
+     * @return The number of applied operations and the failures reported per car listing.
+     */
+    @Override
+    public BulkIndexResult bulkUpdateElasticsearchIndex(List<CarListingEvent> carListingEvents, String indexName) {
+        if (carListingEvents.isEmpty()) {
+            return new BulkIndexResult(0, List.of());
+        }
+        if (indexName != null) {
+            return bulkUpdate(carListingEvents, indexName, false);
+        }
+
+        int bulkSize = adaptiveIndexingController.getBulkSize();
+        if (carListingEvents.size() <= bulkSize) {
+            return bulkUpdate(carListingEvents, null, true);
+        }
+
+        int successful = 0;
+        List<BulkIndexFailure> failures = new ArrayList<>();
+        for (int from = 0; from < carListingEvents.size(); from += bulkSize) {
+            BulkIndexResult bulkIndexResult = bulkUpdate(
+                    carListingEvents.subList(from, Math.min(carListingEvents.size(), from + bulkSize)), null, true);
+            successful += bulkIndexResult.getSuccessful();
+            failures.addAll(bulkIndexResult.getFailures());
+        }
+        return new BulkIndexResult(successful, failures);
+    }
+
+    private BulkIndexResult bulkUpdate(List<CarListingEvent> carListingEvents, String indexName, boolean paced) {
+        bulkSizeSummary.record(carListingEvents.size());
+        long start = System.nanoTime();
+        long acquired = paced ? adaptiveIndexingController.acquire() : 0;
+        BulkIndexResult bulkIndexResult;
+        try {
+            CheckedSupplier<BulkIndexResult> bulkSupplier = CircuitBreaker.decorateCheckedSupplier(circuitBreaker,
+                    () -> executeBulkUpdateElasticsearchIndex(carListingEvents, indexName));
+            bulkIndexResult = bulkSupplier.get();
+            if (paced) {
+                adaptiveIndexingController.release(acquired, carListingEvents.size(), bulkIndexResult.getFailures()
+                        .stream().anyMatch(failure -> failure.getStatus() == TOO_MANY_REQUESTS));
+            }
+        } catch (CallNotPermittedException e) {
+            if (paced) {
+                adaptiveIndexingController.release();
+            }
+            log.error(CIRCUIT_BREAKER_IS_OPEN, e.getLocalizedMessage());
+            bulkIndexResult = failedBulkIndexResult(carListingEvents, "Circuit Breaker is open!");
+        } catch (Throwable e) {
+            if (paced) {
+                releaseAfterFailure(acquired, carListingEvents.size(), e);
+            }
+            log.error(MESSAGE_EXCEPTION_ELASTICSEARCH, e.getLocalizedMessage());
+            bulkIndexResult = failedBulkIndexResult(carListingEvents, e.getLocalizedMessage());
+        }
+
+        recordWrite(OPERATION_BULK, !bulkIndexResult.hasFailures(), start);
+        return bulkIndexResult;
+    }
+
     /**
      * Searches for car listings based on given search criteria and pagination settings.
      * This method is protected by a circuit breaker to ensure resilience in the face of
@@ -122,51 +454,592 @@ public class ElasticCarListingRepository implements CarListingRepository {
         try {
             Supplier<List<CarListing>> carListingSupplier = CircuitBreaker
                     .decorateSupplier(circuitBreaker, () -> executeSearchCarListings(searchCriteria, pageable));
-            return carListingSupplier.get();
+            return recordSearch(searchCriteria, PAGINATION_OFFSET, carListingSupplier);
         } catch (CallNotPermittedException e) {
             log.error(CIRCUIT_BREAKER_IS_OPEN, e.getLocalizedMessage());
             throw new InternalServerErrorException("Circuit Breaker is open!");
         }
     }
 
-    private void executeWithCircuitBreaker(Runnable operation, String successMessage) {
-        Runnable runnable = CircuitBreaker.decorateRunnable(circuitBreaker, () -> {
-            operation.run();
-            log.info(successMessage);
-        });
+    /**
+     * Searches for car listings like {@link #searchCarListings(CarListingSearchCriteria, Pageable)},
+     * but without blocking the calling thread.
+     * <p>
+     * The request is sent with the asynchronous Elasticsearch client and the returned
+     * future completes on the client's I/O thread once the response arrived. It is
+     * protected by the same circuit breaker as the blocking searches and limited by the
+     * search time limiter. A search that takes longer fails with a timeout, which the
+     * circuit breaker counts as a failure, and its request is cancelled.
+     * </p>
+     *
+     * @param searchCriteria The criteria used to filter the car listings.
+     * @param pageable       The pagination information (page number, size, sorting) for the query.
+     * @return The future car listings matching the given criteria, failed with an
+     * {@link InternalServerErrorException} if the circuit breaker is open, the search timed
+     * out or Elasticsearch cannot be reached.
+     */
+    @Override
+    public CompletableFuture<List<CarListing>> searchCarListingsAsync(CarListingSearchCriteria searchCriteria,
+                                                                     Pageable pageable) {
+        long start = System.nanoTime();
+        return CircuitBreaker.decorateCompletionStage(circuitBreaker, () -> searchTimeLimiter.executeCompletionStage(
+                        timeLimiterScheduler, () -> executeSearchCarListingsAsync(searchCriteria, pageable)))
+                .get()
+                .toCompletableFuture()
+                .handle((carListings, ex) -> {
+                    searchTimer(searchCriteria, PAGINATION_OFFSET).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (ex == null) {
+                        return carListings;
+                    }
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof ElasticsearchException elasticsearchException
+                            && elasticsearchException.status() == 404) {
+                        log.error("Executing SEARCH, index is not created yet! {}", cause.getLocalizedMessage());
+                        return List.of();
+                    }
+                    throw toSearchException(cause);
+                });
+    }
 
+    /**
+     * Searches for one page of car listings following the given sort values.
+     * <p>
+     * The search uses {@code search_after} instead of an offset, so Elasticsearch only
+     * collects {@code size} hits per shard however deep the traversal is. The sort should
+     * end with a unique tiebreaker, otherwise hits with equal sort values can be skipped.
+     * Like the paged search, it is protected by the circuit breaker.
+     * </p>
+     *
+     * @param searchCriteria The criteria used to filter the car listings.
+     * @param sort           The sort of the traversal.
+     * @param size           The number of car listings to return.
+     * @param searchAfter    The sort values of the last hit of the previous page, null for the first page.
+     * @return The page of car listings with the sort values to continue from.
+     * @throws InternalServerErrorException if the circuit breaker is in an open state.
+     */
+    @Override
+    public CarListingPage searchCarListingsAfter(CarListingSearchCriteria searchCriteria, Sort sort, int size,
+                                                 List<Object> searchAfter) {
         try {
-            runnable.run();
+            Supplier<CarListingPage> carListingSupplier = CircuitBreaker.decorateSupplier(circuitBreaker,
+                    () -> executeSearchCarListingsAfter(searchCriteria, sort, size, searchAfter));
+            return recordSearch(searchCriteria, PAGINATION_CURSOR, carListingSupplier);
         } catch (CallNotPermittedException e) {
             log.error(CIRCUIT_BREAKER_IS_OPEN, e.getLocalizedMessage());
-        } catch (Exception e) {
+            throw new InternalServerErrorException("Circuit Breaker is open!");
+        }
+    }
+
+    /**
+     * Counts the car listings matching the given criteria per make, model, color, year
+     * and price range.
+     * <p>
+     * All counts come from a single search request with {@code size=0}, so no documents
+     * are fetched. Make, model and color are {@code terms} aggregations on their keyword
+     * subfields, limited to the {@value org.smg.carlisting.common.Constants#MAX_FACET_VALUES}
+     * most frequent values. Year and price are {@code histogram} aggregations, the price
+     * in steps of {@value org.smg.carlisting.common.Constants#FACET_PRICE_INTERVAL} on
+     * the minimum price. Like the other searches, it is protected by the circuit breaker.
+     * </p>
+     *
+     * @param searchCriteria The criteria used to filter the car listings.
+     * @return The facet counts of the matching car listings.
+     * @throws InternalServerErrorException if the circuit breaker is in an open state or
+     *                                      Elasticsearch cannot be reached.
+     */
+    @Override
+    public CarListingFacets searchCarListingFacets(CarListingSearchCriteria searchCriteria) {
+        try {
+            Supplier<CarListingFacets> facetSupplier = CircuitBreaker.decorateSupplier(circuitBreaker,
+                    () -> executeSearchCarListingFacets(searchCriteria));
+            return recordSearch(searchCriteria, PAGINATION_FACETS, facetSupplier);
+        } catch (CallNotPermittedException e) {
+            log.error(CIRCUIT_BREAKER_IS_OPEN, e.getLocalizedMessage());
+            throw new InternalServerErrorException("Circuit Breaker is open!");
+        }
+    }
+
+    /**
+     * Walks all car listings matching the given criteria and hands them to the consumer
+     * page by page.
+     * <p>
+     * The walk runs in a point in time, so it sees the index as it was when the export
+     * started, and pages with {@code search_after} on {@code _shard_doc}, the cheapest
+     * sort Elasticsearch offers. Only one page of
+     * {@value org.smg.carlisting.common.Constants#MAX_CURSOR_PAGE_SIZE} car listings is
+     * held at a time. Every page waits for a permission of the export rate limiter and
+     * is protected by the circuit breaker. The point in time is closed when the walk ends,
+     * also when it fails or the consumer throws.
+     * </p>
+     *
+     * @param searchCriteria The criteria used to filter the car listings.
+     * @param pageConsumer   The consumer of every page, called on the calling thread.
+     * @return The number of exported car listings.
+     * @throws InternalServerErrorException if the circuit breaker is in an open state or
+     *                                      the rate limiter did not permit a page in time.
+     */
+    @Override
+    public long exportCarListings(CarListingSearchCriteria searchCriteria, Consumer<List<CarListing>> pageConsumer) {
+        String pointInTimeId;
+        try {
+            pointInTimeId = CircuitBreaker.decorateSupplier(circuitBreaker, () -> elasticsearchOperations.openPointInTime(
+                    elasticsearchOperations.getIndexCoordinatesFor(CarListing.class), EXPORT_KEEP_ALIVE)).get();
+        } catch (NoSuchIndexException ex) {
+            log.error("Executing EXPORT, index is not created yet! {}", ex.getLocalizedMessage());
+            return 0;
+        } catch (CallNotPermittedException e) {
+            log.error(CIRCUIT_BREAKER_IS_OPEN, e.getLocalizedMessage());
+            throw new InternalServerErrorException("Circuit Breaker is open!");
+        }
+
+        long exported = 0;
+        try {
+            List<Object> searchAfter = null;
+            PointInTimePage page;
+            do {
+                RateLimiter.waitForPermission(exportRateLimiter);
+                String currentPointInTimeId = pointInTimeId;
+                List<Object> currentSearchAfter = searchAfter;
+                page = recordSearch(searchCriteria, PAGINATION_EXPORT, CircuitBreaker.decorateSupplier(circuitBreaker,
+                        () -> executeExportPage(searchCriteria, currentPointInTimeId, currentSearchAfter)));
+                pointInTimeId = page.pointInTimeId();
+                searchAfter = page.searchAfter();
+                if (!page.carListings().isEmpty()) {
+                    pageConsumer.accept(page.carListings());
+                    exported += page.carListings().size();
+                }
+            } while (searchAfter != null);
+        } catch (CallNotPermittedException e) {
+            log.error(CIRCUIT_BREAKER_IS_OPEN, e.getLocalizedMessage());
+            throw new InternalServerErrorException("Circuit Breaker is open!");
+        } catch (RequestNotPermitted e) {
+            log.error("Export is throttled: {}", e.getLocalizedMessage());
+            throw new InternalServerErrorException("Export is throttled, try again later");
+        } finally {
+            closePointInTime(pointInTimeId);
+        }
+
+        log.info("Exported {} car listings", exported);
+        return exported;
+    }
+
+    private boolean executeWithCircuitBreaker(CheckedSupplier<Boolean> operation, String operationName,
+                                              String successMessage) {
+        CheckedSupplier<Boolean> supplier = CircuitBreaker.decorateCheckedSupplier(circuitBreaker, operation);
+        long start = System.nanoTime();
+        long acquired = adaptiveIndexingController.acquire();
+        boolean written = false;
+
+        try {
+            written = supplier.get();
+            adaptiveIndexingController.release(acquired, 1, false);
+            if (written) {
+                log.info(successMessage);
+            }
+        } catch (CallNotPermittedException e) {
+            adaptiveIndexingController.release();
+            log.error(CIRCUIT_BREAKER_IS_OPEN, e.getLocalizedMessage());
+        } catch (Throwable e) {
+            releaseAfterFailure(acquired, 1, e);
             log.error(MESSAGE_EXCEPTION_ELASTICSEARCH, e.getLocalizedMessage());
         }
+
+        recordWrite(operationName, written, start);
+        return written;
+    }
+
+    /**
+     * Gives the permit of a failed write back to the adaptive controller. Only a rejection
+     * because of load is a sample of the cluster's capacity; other failures are left to
+     * the circuit breaker.
+     */
+    private void releaseAfterFailure(long acquired, int operations, Throwable e) {
+        if (isRejected(e)) {
+            adaptiveIndexingController.release(acquired, operations, true);
+        } else {
+            adaptiveIndexingController.release();
+        }
+    }
+
+    private static boolean isRejected(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ElasticsearchException elasticsearchException
+                    && elasticsearchException.status() == TOO_MANY_REQUESTS) {
+                return true;
+            }
+            if (cause instanceof UncategorizedElasticsearchException uncategorizedException
+                    && Integer.valueOf(TOO_MANY_REQUESTS).equals(uncategorizedException.getStatusCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordWrite(String operationName, boolean successful, long start) {
+        (successful ? writeSuccessTimers : writeFailureTimers).get(operationName)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private <T> T recordSearch(CarListingSearchCriteria searchCriteria, String pagination, Supplier<T> search) {
+        return searchTimer(searchCriteria, pagination).record(search);
+    }
+
+    private Timer searchTimer(CarListingSearchCriteria searchCriteria, String pagination) {
+        AtomicReferenceArray<Timer> timers = searchTimers.get(pagination);
+        int combination = getCriteriaCombination(searchCriteria);
+        Timer timer = timers.get(combination);
+        if (timer == null) {
+            // Registering twice concurrently returns the same timer
+            timer = Timer.builder(METRIC_SEARCH)
+                    .description("Latency of Elasticsearch searches by the criteria used")
+                    .tag(TAG_CRITERIA, getCriteriaTag(searchCriteria))
+                    .tag(TAG_PAGINATION, pagination)
+                    .register(meterRegistry);
+            timers.set(combination, timer);
+        }
+        return timer;
     }
 
-    private void executeCreateOrUpdateElasticsearchIndex(CarListing carListing) {
+    /**
+     * Encodes the criteria a search uses as one bit each, in the order of
+     * {@link #getCriteriaTag(CarListingSearchCriteria)}.
+     */
+    private static int getCriteriaCombination(CarListingSearchCriteria searchCriteria) {
+        return (searchCriteria.getMake() != null ? 1 : 0)
+                | (searchCriteria.getModel() != null ? 1 << 1 : 0)
+                | (searchCriteria.getYear() != null ? 1 << 2 : 0)
+                | (searchCriteria.getMinYear() != null ? 1 << 3 : 0)
+                | (searchCriteria.getMaxYear() != null ? 1 << 4 : 0)
+                | (searchCriteria.getMinPrice() != null ? 1 << 5 : 0)
+                | (searchCriteria.getMaxPrice() != null ? 1 << 6 : 0)
+                | (searchCriteria.getColor() != null ? 1 << 7 : 0);
+    }
+
+    /**
+     * Names the criteria a search uses, e.g. {@code make+year}, or {@code none}. The tag
+     * has at most one value per combination of the eight criteria.
+     */
+    static String getCriteriaTag(CarListingSearchCriteria searchCriteria) {
+        StringJoiner criteria = new StringJoiner("+");
+        if (searchCriteria.getMake() != null) {
+            criteria.add(MAKE);
+        }
+        if (searchCriteria.getModel() != null) {
+            criteria.add(MODEL);
+        }
+        if (searchCriteria.getYear() != null) {
+            criteria.add(YEAR);
+        }
+        if (searchCriteria.getMinYear() != null) {
+            criteria.add(MIN_YEAR);
+        }
+        if (searchCriteria.getMaxYear() != null) {
+            criteria.add(MAX_YEAR);
+        }
+        if (searchCriteria.getMinPrice() != null) {
+            criteria.add(MIN_PRICE);
+        }
+        if (searchCriteria.getMaxPrice() != null) {
+            criteria.add(MAX_PRICE);
+        }
+        if (searchCriteria.getColor() != null) {
+            criteria.add(COLOR);
+        }
+
+        return criteria.length() == 0 ? "none" : criteria.toString();
+    }
+
+    private boolean executeCreateOrUpdateElasticsearchIndex(CarListing carListing) {
         try {
             elasticsearchOperations.save(carListing);
             log.info("Car listing is saved with id: {}", carListing.getId());
+            return true;
         } catch (NoSuchIndexException ex) {
             log.error("Executing CREATE/UPDATE event, index is not created for id: {}", carListing.getId());
+            return false;
+        }
+    }
+
+    /**
+     * Sends the changed fields on condition that the document is still the one that was
+     * written last, and indexes the full document if there are no changes to send or the
+     * condition does not hold.
+     */
+    private boolean executeUpdateElasticsearchIndex(String carListingId, IndexedDocument indexed,
+                                                    Map<String, Object> changes, Document document) throws IOException {
+        String indexName = elasticsearchOperations.getIndexCoordinatesFor(CarListing.class).getIndexName();
+        try {
+            if (changes != null) {
+                UpdateResponse<Document> updateResponse = elasticsearchClient.update(
+                        UpdateRequest.<Document, Map<String, Object>>of(update -> update
+                                .index(indexName)
+                                .id(carListingId)
+                                .ifSeqNo(indexed.seqNo())
+                                .ifPrimaryTerm(indexed.primaryTerm())
+                                .doc(changes)), Document.class);
+                if (updateResponse.result() == Result.NoOp) {
+                    unchangedCounter.increment();
+                }
+                indexedDocumentCache.put(carListingId, document, updateResponse.seqNo(), updateResponse.primaryTerm());
+                return true;
+            }
+        } catch (ElasticsearchException ex) {
+            if (!isOutdated(ex)) {
+                return isMissingIndex(ex, carListingId);
+            }
+            log.info("Car listing with id {} changed since the last write of this instance, it is indexed in full",
+                    carListingId);
+        }
+
+        try {
+            IndexResponse indexResponse = elasticsearchClient.index(IndexRequest.of(index -> index
+                    .index(indexName)
+                    .id(carListingId)
+                    .document(document)));
+            indexedDocumentCache.put(carListingId, document, indexResponse.seqNo(), indexResponse.primaryTerm());
+            return true;
+        } catch (ElasticsearchException ex) {
+            return isMissingIndex(ex, carListingId);
+        }
+    }
+
+    /**
+     * Tells a conditional update Elasticsearch rejected because the document changed or
+     * disappeared since the state it was computed from was written.
+     */
+    private static boolean isOutdated(ElasticsearchException ex) {
+        return ex.status() == 409 && VERSION_CONFLICT.equals(ex.error().type())
+                || ex.status() == 404 && DOCUMENT_MISSING.equals(ex.error().type());
+    }
+
+    private static boolean isMissingIndex(ElasticsearchException ex, String carListingId) {
+        if (ex.status() == 404) {
+            log.error("Executing UPDATE event, index is not created for id: {}", carListingId);
+            return false;
+        }
+        throw ex;
+    }
+
+    private boolean executeVersionedIndexElasticsearchIndex(String carListingId, Document document, long version)
+            throws IOException {
+        IndexResponse indexResponse;
+        try {
+            indexResponse = elasticsearchClient.index(IndexRequest.of(index -> index
+                    .index(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class).getIndexName())
+                    .id(carListingId)
+                    .document(document)
+                    .version(version)
+                    .versionType(VersionType.External)));
+        } catch (ElasticsearchException ex) {
+            return isStaleWrite(ex, carListingId, version);
+        }
+
+        if (indexedDocumentCache.isEnabled()) {
+            indexedDocumentCache.put(carListingId, document, indexResponse.seqNo(), indexResponse.primaryTerm());
+        }
+        return true;
+    }
+
+    private boolean executeVersionedDeleteFromElasticsearchIndex(String carListingId, long version) throws IOException {
+        try {
+            elasticsearchClient.delete(DeleteRequest.of(delete -> delete
+                    .index(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class).getIndexName())
+                    .id(carListingId)
+                    .version(version)
+                    .versionType(VersionType.External)));
+            return true;
+        } catch (ElasticsearchException ex) {
+            if (ex.status() == 404 && !INDEX_NOT_FOUND.equals(ex.error().type())) {
+                log.info("Car listing for id {} is not in the index, nothing to delete", carListingId);
+                return true;
+            }
+            return isStaleWrite(ex, carListingId, version);
         }
     }
 
-    private void executeDeleteFromElasticsearchIndex(String carListingId) {
+    /**
+     * Tells a write Elasticsearch rejected because it already holds a newer version apart
+     * from other rejections, which are rethrown unless the index does not exist.
+     */
+    private boolean isStaleWrite(ElasticsearchException ex, String carListingId, long version) {
+        if (ex.status() == 409 && VERSION_CONFLICT.equals(ex.error().type())) {
+            staleCounter.increment();
+            log.info("Car listing with id {} holds a newer version than {}, the write is dropped", carListingId, version);
+            return true;
+        }
+        if (ex.status() == 404) {
+            log.error("Executing versioned write, index is not created for id: {}", carListingId);
+            return false;
+        }
+        throw ex;
+    }
+
+    private boolean executeDeleteFromElasticsearchIndex(String carListingId) {
         try {
             elasticsearchOperations.delete(carListingId, CarListing.class);
             log.info("Car listing for id {} is removed", carListingId);
+            return true;
         } catch (NoSuchIndexException ex) {
             log.error("Executing DElETE event, index is not created with id: {}", carListingId);
+            return false;
+        }
+    }
+
+    private BulkIndexResult executeBulkUpdateElasticsearchIndex(List<CarListingEvent> carListingEvents, String indexName)
+            throws IOException {
+        String targetIndex = indexName != null
+                ? indexName
+                : elasticsearchOperations.getIndexCoordinatesFor(CarListing.class).getIndexName();
+        boolean partialUpdates = indexName == null && indexedDocumentCache.isEnabled();
+        BulkRequest.Builder bulkRequest = new BulkRequest.Builder();
+        List<CarListingEvent> sentEvents = new ArrayList<>();
+        List<Document> sentDocuments = new ArrayList<>();
+        Set<String> batchIds = new HashSet<>();
+        List<BulkIndexFailure> rejected = new ArrayList<>();
+        int unchanged = 0;
+        int stale = 0;
+        for (CarListingEvent carListingEvent : carListingEvents) {
+            if (carListingEvent.carListingId() == null) {
+                // A single event without id must not fail the whole bulk request
+                rejected.add(new BulkIndexFailure(null, carListingEvent.getEventType(), STATUS_REJECTED,
+                        MISSING_CAR_LISTING_ID));
+                continue;
+            }
+
+            CarListing carListing = carListingEvent.getCarListing();
+            boolean repeated = !batchIds.add(carListing.getId());
+            Document document = null;
+            BulkOperation bulkOperation;
+            Long version = carListingEvent.getVersion();
+            if (carListingEvent.getEventType() == EventType.DELETE) {
+                bulkOperation = deleteOperation(targetIndex, carListing.getId(), version);
+            } else if (partialUpdates) {
+                document = elasticsearchOperations.getElasticsearchConverter().mapObject(carListing);
+                // A repeated id is compared with a state this batch replaces, so it is sent in full
+                IndexedDocument indexed = repeated ? null : indexedDocumentCache.get(carListing.getId());
+                Map<String, Object> changes = indexed != null ? indexed.diff(document) : null;
+                if (changes != null && changes.isEmpty()) {
+                    unchanged++;
+                    continue;
+                }
+                bulkOperation = changes == null || version != null
+                        ? indexOperation(targetIndex, carListing.getId(), document, version)
+                        : updateOperation(targetIndex, carListing.getId(), changes, indexed);
+            } else {
+                document = elasticsearchOperations.getElasticsearchConverter().mapObject(carListing);
+                bulkOperation = indexOperation(targetIndex, carListing.getId(), document, version);
+            }
+
+            if (partialUpdates) {
+                indexedDocumentCache.remove(carListing.getId());
+            }
+            bulkRequest.operations(bulkOperation);
+            sentEvents.add(carListingEvent);
+            sentDocuments.add(document);
+        }
+
+        unchangedCounter.increment(unchanged);
+        if (sentEvents.isEmpty()) {
+            log.info("Bulk request is skipped, none of the {} car listings changed", unchanged);
+            return new BulkIndexResult(unchanged, rejected);
+        }
+
+        BulkResponse bulkResponse = elasticsearchClient.bulk(bulkRequest.build());
+        List<BulkResponseItem> items = bulkResponse.items();
+        List<BulkIndexFailure> failures = new ArrayList<>(rejected);
+        List<CarListingEvent> outdatedEvents = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            BulkResponseItem item = items.get(i);
+            if (item.error() != null && item.operationType() == OperationType.Update && isOutdated(item)) {
+                indexedDocumentCache.remove(item.id());
+                outdatedEvents.add(sentEvents.get(i));
+            } else if (item.error() != null && item.status() == 409 && VERSION_CONFLICT.equals(item.error().type())) {
+                stale++;
+                if (partialUpdates) {
+                    indexedDocumentCache.remove(item.id());
+                }
+            } else if (item.error() != null) {
+                failures.add(new BulkIndexFailure(item.id(), sentEvents.get(i).getEventType(),
+                        item.status(), item.error().reason()));
+                if (partialUpdates) {
+                    indexedDocumentCache.remove(item.id());
+                }
+            } else if (partialUpdates && sentDocuments.get(i) != null) {
+                if (item.seqNo() != null && item.primaryTerm() != null) {
+                    indexedDocumentCache.put(item.id(), sentDocuments.get(i), item.seqNo(), item.primaryTerm());
+                }
+                if (RESULT_NOOP.equals(item.result())) {
+                    unchangedCounter.increment();
+                }
+            }
+        }
+
+        staleCounter.increment(stale);
+        log.info("Bulk request with {} operations is applied, {} failed, {} were stale, {} were outdated, "
+                        + "{} unchanged car listings were skipped",
+                items.size(), failures.size() - rejected.size(), stale, outdatedEvents.size(), unchanged);
+        int successful = unchanged + items.size() - (failures.size() - rejected.size()) - outdatedEvents.size();
+        if (outdatedEvents.isEmpty()) {
+            return new BulkIndexResult(successful, failures);
         }
+
+        // Their cached states were dropped above, so they are indexed in full this time
+        BulkIndexResult outdatedResult = executeBulkUpdateElasticsearchIndex(outdatedEvents, indexName);
+        failures.addAll(outdatedResult.getFailures());
+        return new BulkIndexResult(successful + outdatedResult.getSuccessful(), failures);
+    }
+
+    /**
+     * Tells a conditional update Elasticsearch rejected because the document changed or
+     * disappeared since the state it was computed from was written.
+     */
+    private static boolean isOutdated(BulkResponseItem item) {
+        return item.status() == 409 && VERSION_CONFLICT.equals(item.error().type())
+                || item.status() == 404 && DOCUMENT_MISSING.equals(item.error().type());
+    }
+
+    private static BulkOperation deleteOperation(String indexName, String carListingId, Long version) {
+        return BulkOperation.of(operation -> operation
+                .delete(delete -> {
+                    delete.index(indexName).id(carListingId);
+                    return version != null ? delete.version(version).versionType(VersionType.External) : delete;
+                }));
+    }
+
+    private static BulkOperation indexOperation(String indexName, String carListingId, Document document, Long version) {
+        return BulkOperation.of(operation -> operation
+                .index(index -> {
+                    index.index(indexName).id(carListingId).document(document);
+                    return version != null ? index.version(version).versionType(VersionType.External) : index;
+                }));
+    }
+
+    /**
+     * Sends the changed fields as partial document, on condition that the document is
+     * still the one they were computed from.
+     */
+    private static BulkOperation updateOperation(String indexName, String carListingId, Map<String, Object> changes,
+                                                 IndexedDocument indexed) {
+        return BulkOperation.of(operation -> operation
+                .update(update -> update.index(indexName).id(carListingId)
+                        .ifSeqNo(indexed.seqNo())
+                        .ifPrimaryTerm(indexed.primaryTerm())
+                        .action(action -> action.doc(changes))));
+    }
+
+    private BulkIndexResult failedBulkIndexResult(List<CarListingEvent> carListingEvents, String reason) {
+        List<BulkIndexFailure> failures = carListingEvents.stream()
+                .map(carListingEvent -> new BulkIndexFailure(carListingEvent.carListingId(),
+                        carListingEvent.getEventType(), 0, reason))
+                .toList();
+        return new BulkIndexResult(0, failures);
     }
 
     private List<CarListing> executeSearchCarListings(CarListingSearchCriteria searchCriteria, Pageable pageable) {
         Query queryCriteria = getQueryCriteria(searchCriteria);
         NativeQuery query = new NativeQueryBuilder()
                 .withQuery(queryCriteria)
-                .withPageable(pageable)
+                .withPageable(withKeywordSort(pageable))
                 .build();
 
         try {
@@ -182,7 +1055,227 @@ public class ElasticCarListingRepository implements CarListingRepository {
         return List.of();
     }
 
-    private Query getQueryCriteria(CarListingSearchCriteria searchCriteria) {
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private CompletableFuture<List<CarListing>> executeSearchCarListingsAsync(CarListingSearchCriteria searchCriteria,
+                                                                              Pageable pageable) {
+        SearchRequest searchRequest = getSearchRequest(
+                elasticsearchOperations.getIndexCoordinatesFor(CarListing.class).getIndexName(), searchCriteria, pageable);
+        return elasticsearchAsyncClient.search(searchRequest, Map.class)
+                .thenApply(searchResponse -> searchResponse.hits().hits().stream()
+                        .map(hit -> toCarListing((Hit<Map<String, Object>>) (Hit) hit))
+                        .toList());
+    }
+
+    private CarListing toCarListing(Hit<Map<String, Object>> hit) {
+        Document document = Document.from(hit.source());
+        document.setId(hit.id());
+        return elasticsearchOperations.getElasticsearchConverter().read(CarListing.class, document);
+    }
+
+    private InternalServerErrorException toSearchException(Throwable cause) {
+        if (cause instanceof CallNotPermittedException) {
+            log.error(CIRCUIT_BREAKER_IS_OPEN, cause.getLocalizedMessage());
+            return new InternalServerErrorException("Circuit Breaker is open!");
+        }
+        if (cause instanceof TimeoutException) {
+            log.error("Search timed out after {}", searchTimeLimiter.getTimeLimiterConfig().getTimeoutDuration());
+            return new InternalServerErrorException("Search timed out");
+        }
+        if (cause instanceof InternalServerErrorException internalServerErrorException) {
+            return internalServerErrorException;
+        }
+        log.error(MESSAGE_EXCEPTION_ELASTICSEARCH, cause.getLocalizedMessage());
+        return new InternalServerErrorException("Searching car listings failed: " + cause.getLocalizedMessage());
+    }
+
+    /**
+     * Builds the search request of the asynchronous search, with the same query, page and
+     * sort as the blocking one. Without a page, as many hits as the default
+     * {@code max_result_window} allows are returned.
+     */
+    static SearchRequest getSearchRequest(String indexName, CarListingSearchCriteria searchCriteria, Pageable pageable) {
+        return SearchRequest.of(search -> {
+            search.index(indexName).query(getQueryCriteria(searchCriteria));
+            if (pageable.isPaged()) {
+                search.from((int) pageable.getOffset()).size(pageable.getPageSize());
+            } else {
+                search.size(MAX_RESULT_WINDOW);
+            }
+            withKeywordSort(pageable.getSort()).forEach(order -> search.sort(sort -> sort.field(field -> field
+                    .field(order.getProperty())
+                    .order(order.isAscending() ? SortOrder.Asc : SortOrder.Desc))));
+            return search;
+        });
+    }
+
+    private CarListingPage executeSearchCarListingsAfter(CarListingSearchCriteria searchCriteria, Sort sort, int size,
+                                                         List<Object> searchAfter) {
+        NativeQueryBuilder queryBuilder = new NativeQueryBuilder()
+                .withQuery(getQueryCriteria(searchCriteria))
+                .withSort(withKeywordSort(sort))
+                .withMaxResults(size)
+                .withTrackTotalHits(false);
+        if (searchAfter != null) {
+            queryBuilder.withSearchAfter(searchAfter);
+        }
+
+        try {
+            List<SearchHit<CarListing>> searchHits = elasticsearchOperations.search(queryBuilder.build(), CarListing.class)
+                    .getSearchHits();
+            List<CarListing> carListings = searchHits.stream()
+                    .map(SearchHit::getContent)
+                    .toList();
+            List<Object> nextSearchAfter = searchHits.size() < size
+                    ? null
+                    : searchHits.get(searchHits.size() - 1).getSortValues();
+            return new CarListingPage(carListings, nextSearchAfter);
+        } catch (NoSuchIndexException ex) {
+            log.error("Executing SEARCH AFTER, index is not created yet! {}", ex.getLocalizedMessage());
+        }
+
+        return new CarListingPage(List.of(), null);
+    }
+
+    private PointInTimePage executeExportPage(CarListingSearchCriteria searchCriteria, String pointInTimeId,
+                                              List<Object> searchAfter) {
+        NativeQueryBuilder queryBuilder = new NativeQueryBuilder()
+                .withQuery(getQueryCriteria(searchCriteria))
+                .withPointInTime(new PointInTime(pointInTimeId, EXPORT_KEEP_ALIVE))
+                .withSort(sort -> sort.field(field -> field.field(SHARD_DOC).order(SortOrder.Asc)))
+                .withMaxResults(MAX_CURSOR_PAGE_SIZE)
+                .withTrackTotalHits(false);
+        if (searchAfter != null) {
+            queryBuilder.withSearchAfter(searchAfter);
+        }
+
+        SearchHits<CarListing> searchHits = elasticsearchOperations.search(queryBuilder.build(), CarListing.class);
+        List<SearchHit<CarListing>> hits = searchHits.getSearchHits();
+        List<Object> nextSearchAfter = hits.size() < MAX_CURSOR_PAGE_SIZE
+                ? null
+                : hits.get(hits.size() - 1).getSortValues();
+        String nextPointInTimeId = searchHits.getPointInTimeId() != null ? searchHits.getPointInTimeId() : pointInTimeId;
+        return new PointInTimePage(hits.stream().map(SearchHit::getContent).toList(), nextSearchAfter, nextPointInTimeId);
+    }
+
+    private void closePointInTime(String pointInTimeId) {
+        try {
+            elasticsearchOperations.closePointInTime(pointInTimeId);
+        } catch (RuntimeException ex) {
+            log.warn("Closing point in time failed, it expires after {}: {}", EXPORT_KEEP_ALIVE, ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * One page of an export, with the point in time id to use for the next page, since
+     * Elasticsearch may return a new one with every response.
+     */
+    private record PointInTimePage(List<CarListing> carListings, List<Object> searchAfter, String pointInTimeId) {
+    }
+
+    private CarListingFacets executeSearchCarListingFacets(CarListingSearchCriteria searchCriteria) {
+        SearchRequest searchRequest = getFacetRequest(
+                elasticsearchOperations.getIndexCoordinatesFor(CarListing.class).getIndexName(), searchCriteria);
+        try {
+            SearchResponse<Void> searchResponse = elasticsearchClient.search(searchRequest, Void.class);
+            Map<String, Aggregate> aggregations = searchResponse.aggregations();
+            return new CarListingFacets(searchResponse.hits().total() == null ? 0 : searchResponse.hits().total().value(),
+                    toFacetBuckets(aggregations.get(MAKE)), toFacetBuckets(aggregations.get(MODEL)),
+                    toFacetBuckets(aggregations.get(COLOR)), toHistogramBuckets(aggregations.get(YEAR), 1),
+                    toHistogramBuckets(aggregations.get(MIN_PRICE), FACET_PRICE_INTERVAL));
+        } catch (ElasticsearchException ex) {
+            if (ex.status() == 404) {
+                log.error("Executing FACETS, index is not created yet! {}", ex.getLocalizedMessage());
+                return CarListingFacets.empty();
+            }
+            log.error(MESSAGE_EXCEPTION_ELASTICSEARCH, ex.getLocalizedMessage());
+            throw new InternalServerErrorException("Counting facets failed: " + ex.getLocalizedMessage());
+        } catch (IOException ex) {
+            log.error(MESSAGE_EXCEPTION_ELASTICSEARCH, ex.getLocalizedMessage());
+            throw new InternalServerErrorException("Counting facets failed: " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Builds the aggregation-only search request of the facets, with the same query as
+     * the searches and the total number of hits counted exactly.
+     */
+    static SearchRequest getFacetRequest(String indexName, CarListingSearchCriteria searchCriteria) {
+        return SearchRequest.of(search -> search
+                .index(indexName)
+                .query(getQueryCriteria(searchCriteria))
+                .size(0)
+                .trackTotalHits(trackHits -> trackHits.enabled(true))
+                .aggregations(MAKE, termsAggregation(MAKE))
+                .aggregations(MODEL, termsAggregation(MODEL))
+                .aggregations(COLOR, termsAggregation(COLOR))
+                .aggregations(YEAR, histogramAggregation(YEAR, 1))
+                .aggregations(MIN_PRICE, histogramAggregation(MIN_PRICE, FACET_PRICE_INTERVAL)));
+    }
+
+    private static Aggregation termsAggregation(String field) {
+        return Aggregation.of(aggregation -> aggregation
+                .terms(terms -> terms.field(field + "." + KEYWORD).size(MAX_FACET_VALUES)));
+    }
+
+    private static Aggregation histogramAggregation(String field, double interval) {
+        return Aggregation.of(aggregation -> aggregation
+                .histogram(histogram -> histogram.field(field).interval(interval).minDocCount(1)));
+    }
+
+    private static List<FacetBucket> toFacetBuckets(Aggregate aggregate) {
+        if (aggregate == null || !aggregate.isSterms()) {
+            return List.of();
+        }
+
+        return aggregate.sterms().buckets().array().stream()
+                .map(bucket -> new FacetBucket(bucket.key().stringValue(), bucket.docCount()))
+                .toList();
+    }
+
+    private static List<HistogramBucket> toHistogramBuckets(Aggregate aggregate, double interval) {
+        if (aggregate == null || !aggregate.isHistogram()) {
+            return List.of();
+        }
+
+        return aggregate.histogram().buckets().array().stream()
+                .map(bucket -> new HistogramBucket(bucket.key(), bucket.key() + interval, bucket.docCount()))
+                .toList();
+    }
+
+    /**
+     * Sorts text fields by their keyword subfield, text fields themselves have no doc values.
+     */
+    private static Pageable withKeywordSort(Pageable pageable) {
+        if (pageable.isUnpaged() || pageable.getSort().isUnsorted()) {
+            return pageable;
+        }
+
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), withKeywordSort(pageable.getSort()));
+    }
+
+    private static Sort withKeywordSort(Sort sort) {
+        return Sort.by(sort.stream()
+                .map(order -> KEYWORD_SORT_FIELDS.contains(order.getProperty())
+                        ? order.withProperty(order.getProperty() + "." + KEYWORD)
+                        : order)
+                .toList());
+    }
+
+    /**
+     * Builds the Elasticsearch query for the given search criteria.
+     * <p>
+     * Make, model and color are analyzed text and are matched in query context. Year and
+     * price are exact or range conditions, they go into filter context where Elasticsearch
+     * skips scoring and can cache the result per segment. The year is matched exactly or
+     * within {@code minYear}/{@code maxYear}. A car listing matches the price criteria when
+     * its own price range overlaps the searched one: its maximum price is at least the
+     * searched minimum and its minimum price is at most the searched maximum.
+     * </p>
+     *
+     * @param searchCriteria The criteria used to filter the car listings.
+     * @return The bool query combining all given criteria.
+     */
+    static Query getQueryCriteria(CarListingSearchCriteria searchCriteria) {
         BoolQuery.Builder queryBuilder = QueryBuilders.bool();
 
         String make = searchCriteria.getMake();
@@ -195,26 +1288,46 @@ public class ElasticCarListingRepository implements CarListingRepository {
             queryBuilder.must(QueryBuilders.match(query -> query.field(MODEL).query(model)));
         }
 
+        String color = searchCriteria.getColor();
+        if (color != null) {
+            queryBuilder.must(QueryBuilders.match(query -> query.field(COLOR).query(color)));
+        }
+
         Integer year = searchCriteria.getYear();
         if (year != null) {
-            queryBuilder.must(QueryBuilders.match(query -> query.field(YEAR).query(year)));
+            queryBuilder.filter(QueryBuilders.term(query -> query.field(YEAR).value(year)));
+        }
+
+        Integer minYear = searchCriteria.getMinYear();
+        Integer maxYear = searchCriteria.getMaxYear();
+        if (minYear != null || maxYear != null) {
+            queryBuilder.filter(QueryBuilders.range(query -> {
+                query.field(YEAR);
+                if (minYear != null) {
+                    query.gte(JsonData.of(minYear));
+                }
+                if (maxYear != null) {
+                    query.lte(JsonData.of(maxYear));
+                }
+                return query;
+            }));
         }
 
         Double minPrice = searchCriteria.getMinPrice();
         if (minPrice != null) {
-            queryBuilder.must(QueryBuilders.match(query -> query.field(MIN_PRICE).query(minPrice)));
+            queryBuilder.filter(QueryBuilders.range(query -> query.field(MAX_PRICE).gte(JsonData.of(minPrice))));
         }
 
         Double maxPrice = searchCriteria.getMaxPrice();
         if (maxPrice != null) {
-            queryBuilder.must(QueryBuilders.match(query -> query.field(MAX_PRICE).query(maxPrice)));
-        }
-
-        String color = searchCriteria.getColor();
-        if (color != null) {
-            queryBuilder.must(QueryBuilders.match(query -> query.field(COLOR).query(color)));
+            queryBuilder.filter(QueryBuilders.range(query -> query.field(MIN_PRICE).lte(JsonData.of(maxPrice))));
         }
 
         return queryBuilder.build()._toQuery();
     }
+
+    @PreDestroy
+    public void shutdown() {
+        timeLimiterScheduler.shutdownNow();
+    }
 }
@@ -0,0 +1,131 @@
+package org.smg.carlisting.infrastructure.elasticsearch;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.smg.carlisting.common.Constants.INDEXED_DOCUMENT_CACHE_NAME;
+
+/**
+ * Cache of the documents this instance last wrote to Elasticsearch, keyed by car listing id.
+ * <p>
+ * It lets the repository send only the fields an update changed, and skip the write
+ * altogether when an event carries the state that was written last. An entry is dropped
+ * before every write of its car listing and put back once Elasticsearch acknowledged it,
+ * so a failed or unknown write never leaves a state behind that Elasticsearch may not hold.
+ * Every entry keeps the sequence number and primary term Elasticsearch assigned to the
+ * write, so that a partial update only applies to the document it was computed from.
+ * </p>
+ * <p>
+ * The cache only knows the writes of this instance. While the partitions of the topic
+ * move between consumers, another instance may write a car listing this one still holds,
+ * so entries expire after a short time and the cache is disabled unless
+ * {@code car-listing.index.partial-updates.enabled=true}.
+ * </p>
+ */
+@Component
+public class IndexedDocumentCache {
+
+    private final boolean enabled;
+    private final Cache<String, IndexedDocument> cache;
+
+    public IndexedDocumentCache(@Value("${car-listing.index.partial-updates.enabled:false}") boolean enabled,
+                                @Value("${car-listing.index.partial-updates.maximum-size:100000}") long maximumSize,
+                                @Value("${car-listing.index.partial-updates.expire-after-write:10m}") Duration expireAfterWrite,
+                                MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, INDEXED_DOCUMENT_CACHE_NAME);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param id The id of the car listing.
+     * @return The document last written for the car listing, null if none is known.
+     */
+    public IndexedDocument get(String id) {
+        return cache.getIfPresent(id);
+    }
+
+    /**
+     * Compares a document with the one last written for the same car listing.
+     *
+     * @param id       The id of the car listing.
+     * @param document The document about to be written.
+     * @return null if no document is known for the id, an empty map if nothing changed,
+     * otherwise the changed fields, with fields that are gone set to null.
+     */
+    public Map<String, Object> diff(String id, Map<String, Object> document) {
+        IndexedDocument indexed = cache.getIfPresent(id);
+        return indexed != null ? indexed.diff(document) : null;
+    }
+
+    /**
+     * Remembers the document Elasticsearch acknowledged for a car listing.
+     *
+     * @param id          The id of the car listing.
+     * @param document    The written document.
+     * @param seqNo       The sequence number Elasticsearch assigned to the write.
+     * @param primaryTerm The primary term Elasticsearch assigned to the write.
+     */
+    public void put(String id, Map<String, Object> document, long seqNo, long primaryTerm) {
+        cache.put(id, new IndexedDocument(Collections.unmodifiableMap(new HashMap<>(document)), seqNo, primaryTerm));
+    }
+
+    /**
+     * Forgets the document of a car listing, before it is written or deleted.
+     *
+     * @param id The id of the car listing.
+     */
+    public void remove(String id) {
+        cache.invalidate(id);
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * A document as Elasticsearch acknowledged it.
+     *
+     * @param document    The written document.
+     * @param seqNo       The sequence number of the write.
+     * @param primaryTerm The primary term of the write.
+     */
+    public record IndexedDocument(Map<String, Object> document, long seqNo, long primaryTerm) {
+
+        /**
+         * @param changed The document about to be written.
+         * @return An empty map if nothing changed, otherwise the changed fields, with
+         * fields that are gone set to null.
+         */
+        public Map<String, Object> diff(Map<String, Object> changed) {
+            Map<String, Object> changes = new HashMap<>();
+            changed.forEach((field, value) -> {
+                if (!Objects.equals(value, document.get(field))) {
+                    changes.put(field, value);
+                }
+            });
+            document.keySet().stream()
+                    .filter(field -> !changed.containsKey(field))
+                    .forEach(field -> changes.put(field, null));
+            return changes;
+        }
+    }
+}
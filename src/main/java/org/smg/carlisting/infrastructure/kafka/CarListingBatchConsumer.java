@@ -0,0 +1,127 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.smg.carlisting.application.CarListingService;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.repository.BulkIndexFailure;
+import org.smg.carlisting.domain.repository.BulkIndexResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.smg.carlisting.common.Constants.CAR_LISTING_GROUP;
+import static org.smg.carlisting.common.Constants.CAR_LISTING_TOPIC;
+import static org.smg.carlisting.common.Constants.CONSUMER_MODE_BATCH;
+import static org.smg.carlisting.common.Constants.CONSUMER_MODE_PROPERTY;
+import static org.smg.carlisting.common.Constants.MISSING_CAR_LISTING_ID;
+
+/**
+ * Kafka batch consumer for car listing events.
+ * <p>
+ * This service receives every poll of the Kafka topic as one list of records and
+ * hands the deserialized events over as a single batch, so each poll results in one
+ * bulk request to Elasticsearch. The size of a batch is bounded by
+ * {@code spring.kafka.consumer.max-poll-records}, which also bounds how many records
+ * one offset commit covers.
+ * </p>
+ * <p>
+ * It is enabled by setting {@code car-listing.consumer.mode=batch}.
+ * </p>
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = CONSUMER_MODE_PROPERTY, havingValue = CONSUMER_MODE_BATCH)
+public class CarListingBatchConsumer {
+
+    private final CarListingService carListingService;
+    private final CarListingDeadLetterPublisher carListingDeadLetterPublisher;
+    private final Duration nackSleep;
+
+    public CarListingBatchConsumer(CarListingService carListingService,
+                                   CarListingDeadLetterPublisher carListingDeadLetterPublisher,
+                                   @Value("${car-listing.consumer.nack-sleep:1s}") Duration nackSleep) {
+        this.carListingService = carListingService;
+        this.carListingDeadLetterPublisher = carListingDeadLetterPublisher;
+        this.nackSleep = nackSleep;
+    }
+
+    /**
+     * Consumes one poll of Kafka messages representing car listing events.
+     * <p>
+     * Every message is deserialized into a CarListingEvent by the
+     * {@link CarListingEventDeserializer}. Messages that cannot be deserialized arrive
+     * without a value and are published to the dead-letter topic with their raw payload.
+     * Events without a car listing id cannot be written and are published to the
+     * dead-letter topic one by one as well. The remaining events are processed together
+     * in their original order.
+     * </p>
+     * <p>
+     * The batch is acknowledged once the bulk write completed. Every car listing that
+     * failed is published on its own: rejections that fail again for the same document go
+     * to the dead-letter topic, retryable failures to the first retry topic. Only if a
+     * publish fails, the whole batch is negatively acknowledged and redelivered after the
+     * configured sleep, which is safe because every write carries the complete state of a
+     * car listing.
+     * </p>
+     *
+     * @param records        The Kafka messages returned by a single poll.
+     * @param acknowledgment The handle used to commit the offsets of the batch.
+     */
+    @KafkaListener(topics = CAR_LISTING_TOPIC, groupId = CAR_LISTING_GROUP, batch = "true")
+    public void consume(List<ConsumerRecord<String, CarListingEvent>> records, Acknowledgment acknowledgment) {
+        List<CarListingEvent> carListingEvents = new ArrayList<>(records.size());
+        Map<String, ConsumerRecord<String, CarListingEvent>> recordsById = new HashMap<>();
+        boolean published = true;
+        for (ConsumerRecord<String, CarListingEvent> record : records) {
+            if (record.value() == null) {
+                log.error("Error occurred on consuming event at offset {}: payload could not be deserialized", record.offset());
+                published &= carListingDeadLetterPublisher.deadLetterUndeserializable(record);
+            } else if (record.value().carListingId() == null) {
+                log.error("Event at offset {} of partition {} has no car listing id", record.offset(), record.partition());
+                published &= carListingDeadLetterPublisher.deadLetter(record, record.value(), null, MISSING_CAR_LISTING_ID);
+            } else {
+                carListingEvents.add(record.value());
+                recordsById.put(record.value().carListingId(), record);
+            }
+        }
+
+        BulkIndexResult bulkIndexResult = carListingService.processCarListings(carListingEvents);
+        for (BulkIndexFailure failure : bulkIndexResult.getFailures()) {
+            // The coalesced batch wrote the event of the last record of every car listing
+            ConsumerRecord<String, CarListingEvent> record = failure.getCarListingId() != null
+                    ? recordsById.get(failure.getCarListingId())
+                    : null;
+            if (record != null) {
+                published &= publish(record, failure);
+            } else {
+                // Nothing to publish, redelivering the batch would fail the same way
+                log.error("Bulk write failure for id {} matches no record of the batch: {}",
+                        failure.getCarListingId(), failure.getReason());
+            }
+        }
+
+        if (published) {
+            acknowledgment.acknowledge();
+        } else {
+            log.warn("Failed records of a batch of {} could not be published, the batch is redelivered in {}",
+                    records.size(), nackSleep);
+            acknowledgment.nack(0, nackSleep);
+        }
+    }
+
+    private boolean publish(ConsumerRecord<String, CarListingEvent> record, BulkIndexFailure failure) {
+        String reason = "Bulk write failed with status " + failure.getStatus() + ": " + failure.getReason();
+        return failure.isRetryable()
+                ? carListingDeadLetterPublisher.retryLater(record, record.value(), reason)
+                : carListingDeadLetterPublisher.deadLetter(record, record.value(), null, reason);
+    }
+}
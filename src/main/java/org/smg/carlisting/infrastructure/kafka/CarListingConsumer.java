@@ -1,14 +1,22 @@
 package org.smg.carlisting.infrastructure.kafka;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.smg.carlisting.application.CarListingService;
 import org.smg.carlisting.domain.event.CarListingEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
+import static org.smg.carlisting.common.Constants.CAR_LISTING_GROUP;
+import static org.smg.carlisting.common.Constants.CAR_LISTING_TOPIC;
+import static org.smg.carlisting.common.Constants.CONSUMER_MODE_PROPERTY;
+import static org.smg.carlisting.common.Constants.CONSUMER_MODE_RECORD;
+
 /**
  * Kafka consumer for car listing events.
  * <p>
@@ -16,35 +24,68 @@ import org.springframework.stereotype.Service;
  * and processes them accordingly. It handles different types of events, including
  * creating, updating, and deleting car listings.
  * </p>
+ * <p>
+ * This is the default consumption mode and handles one record at a time. A record is
+ * acknowledged only after its Elasticsearch write succeeded, the offset commits are
+ * batched per partition by the {@link PartitionAcknowledgmentBatcher}. An event whose
+ * write failed is handed to the retry topics by the {@link CarListingDeadLetterPublisher},
+ * so the partition moves on to the next record.
+ * </p>
  */
 @Service
 @Slf4j
+@ConditionalOnProperty(name = CONSUMER_MODE_PROPERTY, havingValue = CONSUMER_MODE_RECORD, matchIfMissing = true)
 public class CarListingConsumer {
 
+    private static final String WRITE_FAILED = "Writing the car listing failed";
+
     private final CarListingService carListingService;
+    private final PartitionAcknowledgmentBatcher partitionAcknowledgmentBatcher;
+    private final CarListingDeadLetterPublisher carListingDeadLetterPublisher;
+    private final Duration nackSleep;
 
-    public CarListingConsumer(CarListingService carListingService) {
+    public CarListingConsumer(CarListingService carListingService, PartitionAcknowledgmentBatcher partitionAcknowledgmentBatcher,
+                              CarListingDeadLetterPublisher carListingDeadLetterPublisher,
+                              @Value("${car-listing.consumer.nack-sleep:1s}") Duration nackSleep) {
         this.carListingService = carListingService;
+        this.partitionAcknowledgmentBatcher = partitionAcknowledgmentBatcher;
+        this.carListingDeadLetterPublisher = carListingDeadLetterPublisher;
+        this.nackSleep = nackSleep;
     }
 
     /**
      * Consumes a Kafka message representing a car listing event.
      * <p>
      * This method is triggered when a new message is available on the Kafka topic.
-     * It deserializes the message into a CarListingEvent and processes it based on
-     * the event type.
+     * The message is already deserialized into a CarListingEvent by the
+     * {@link CarListingEventDeserializer} and is processed based on the event type.
+     * Messages that cannot be deserialized never reach this method, the container error
+     * handler publishes them to the dead-letter topic. If the write fails, the event is
+     * published to the first retry topic and the record is acknowledged. Only if that
+     * fails as well, the record is negatively acknowledged and redelivered after the
+     * configured sleep.
      * </p>
      *
-     * @param record The Kafka message containing the car listing event data.
+     * @param record         The Kafka message containing the car listing event data.
+     * @param acknowledgment The handle used to commit the offset of the message.
      */
-    @KafkaListener(topics = "car-listing-topic", groupId = "car-listing-group")
-    public void consume(ConsumerRecord<String, String> record) {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            CarListingEvent carListingEvent = objectMapper.readValue(record.value(), CarListingEvent.class);
-            carListingService.processCarListing(carListingEvent);
-        } catch (JsonProcessingException ex) {
-            log.error("Error occurred on consuming event: {}", ex.getMessage());
+    @KafkaListener(topics = CAR_LISTING_TOPIC, groupId = CAR_LISTING_GROUP)
+    public void consume(ConsumerRecord<String, CarListingEvent> record, Acknowledgment acknowledgment) {
+        CarListingEvent carListingEvent = record.value();
+        if (carListingEvent == null) {
+            log.error("Error occurred on consuming event: empty payload at offset {}", record.offset());
+            partitionAcknowledgmentBatcher.acknowledge(record, acknowledgment);
+            return;
+        }
+
+        if (carListingService.processCarListing(carListingEvent)
+                || carListingDeadLetterPublisher.retryLater(record, carListingEvent, WRITE_FAILED)) {
+            partitionAcknowledgmentBatcher.acknowledge(record, acknowledgment);
+        } else {
+            log.warn("Processing of event at offset {} of partition {} failed, it is redelivered in {}",
+                    record.offset(), record.partition(), nackSleep);
+            partitionAcknowledgmentBatcher.flush();
+            acknowledgment.nack(nackSleep);
         }
     }
 }
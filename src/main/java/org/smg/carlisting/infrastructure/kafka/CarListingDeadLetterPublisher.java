@@ -0,0 +1,257 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+import static org.smg.carlisting.common.Constants.CAR_LISTING_DLT;
+import static org.smg.carlisting.common.Constants.CAR_LISTING_RETRY_TOPIC_PREFIX;
+import static org.smg.carlisting.common.Constants.HEADER_CONTENT_TYPE;
+import static org.smg.carlisting.common.Constants.HEADER_RETRY_ATTEMPT;
+import static org.smg.carlisting.common.Constants.HEADER_RETRY_DUE;
+import static org.smg.carlisting.common.Constants.METRIC_RETRY_PUBLISHED;
+import static org.smg.carlisting.common.Constants.TAG_TOPIC;
+
+/**
+ * Moves car listing events that could not be processed out of the way of the listeners.
+ * <p>
+ * A failed event is published to the next of the tiered retry topics
+ * {@code car-listing-topic-retry-0..n}, each with a longer delay than the one before,
+ * and to the dead-letter topic {@code car-listing-topic-dlt} once every tier was tried.
+ * Records that cannot be deserialized, or that the data store rejects for good, go to
+ * the dead-letter topic at once, since retrying them cannot succeed.
+ * </p>
+ * <p>
+ * The original key and headers are kept, except the content type of events, which are
+ * always published as JSON. The origin of the record is added with the standard Spring
+ * Kafka {@code kafka_dlt-original-*} headers on the first hop and kept on later ones,
+ * and the reason of the failure with the {@code kafka_dlt-exception-*} headers. The send
+ * is awaited, so the caller may acknowledge the record once this publisher reports
+ * success.
+ * </p>
+ */
+@Component
+@Slf4j
+public class CarListingDeadLetterPublisher {
+
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(CarListingDeadLetterPublisher.class);
+    private static final Set<String> PIPELINE_HEADERS = Set.of(HEADER_RETRY_ATTEMPT, HEADER_RETRY_DUE,
+            KafkaHeaders.DLT_EXCEPTION_FQCN, KafkaHeaders.DLT_EXCEPTION_MESSAGE, KafkaHeaders.DLT_EXCEPTION_STACKTRACE,
+            SerializationUtils.KEY_DESERIALIZER_EXCEPTION_HEADER, SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER);
+    private static final Set<String> ORIGIN_HEADERS = Set.of(KafkaHeaders.DLT_ORIGINAL_TOPIC,
+            KafkaHeaders.DLT_ORIGINAL_PARTITION, KafkaHeaders.DLT_ORIGINAL_OFFSET, KafkaHeaders.DLT_ORIGINAL_TIMESTAMP);
+
+    private final KafkaTemplate<String, Object> carListingKafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int attempts;
+    private final Duration initialDelay;
+    private final double multiplier;
+    private final Duration sendTimeout;
+    private final Clock clock;
+
+    @Autowired
+    public CarListingDeadLetterPublisher(KafkaTemplate<String, Object> carListingKafkaTemplate, MeterRegistry meterRegistry,
+                                         @Value("${car-listing.retry.attempts:3}") int attempts,
+                                         @Value("${car-listing.retry.initial-delay:1s}") Duration initialDelay,
+                                         @Value("${car-listing.retry.multiplier:10}") double multiplier,
+                                         @Value("${car-listing.retry.send-timeout:10s}") Duration sendTimeout) {
+        this(carListingKafkaTemplate, meterRegistry, attempts, initialDelay, multiplier, sendTimeout, Clock.systemUTC());
+    }
+
+    CarListingDeadLetterPublisher(KafkaTemplate<String, Object> carListingKafkaTemplate, MeterRegistry meterRegistry,
+                                  int attempts, Duration initialDelay, double multiplier, Duration sendTimeout, Clock clock) {
+        this.carListingKafkaTemplate = carListingKafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.attempts = attempts;
+        this.initialDelay = initialDelay;
+        this.multiplier = multiplier;
+        this.sendTimeout = sendTimeout;
+        this.clock = clock;
+    }
+
+    /**
+     * Publishes an event whose write failed to the next retry tier, or to the dead-letter
+     * topic once all tiers were tried.
+     *
+     * @param record          The record of the event, from the main topic or a retry topic.
+     * @param carListingEvent The event that could not be written.
+     * @param reason          Why the write failed.
+     * @return true if the event was published, false if the send failed.
+     */
+    public boolean retryLater(ConsumerRecord<String, ?> record, CarListingEvent carListingEvent, String reason) {
+        int attempt = getRetryAttempt(record);
+        if (attempt >= attempts) {
+            return deadLetter(record, carListingEvent, null, reason);
+        }
+
+        Headers headers = forwardedHeaders(record);
+        headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, reason.getBytes(StandardCharsets.UTF_8));
+        headers.add(HEADER_RETRY_ATTEMPT, ByteBuffer.allocate(Integer.BYTES).putInt(attempt + 1).array());
+        headers.add(HEADER_RETRY_DUE, ByteBuffer.allocate(Long.BYTES)
+                .putLong(clock.millis() + getDelay(attempt).toMillis()).array());
+        return publish(CAR_LISTING_RETRY_TOPIC_PREFIX + attempt, record, carListingEvent, headers);
+    }
+
+    /**
+     * Publishes a record that cannot be processed to the dead-letter topic.
+     *
+     * @param record The record that failed.
+     * @param value  The value to publish, the event or the raw payload.
+     * @param cause  The exception that made the record fail, or null.
+     * @param reason Why the record failed.
+     * @return true if the record was published, false if the send failed.
+     */
+    public boolean deadLetter(ConsumerRecord<String, ?> record, Object value, Exception cause, String reason) {
+        Headers headers = forwardedHeaders(record);
+        if (cause != null) {
+            headers.add(KafkaHeaders.DLT_EXCEPTION_FQCN, cause.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        }
+        headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, reason.getBytes(StandardCharsets.UTF_8));
+        int attempt = getRetryAttempt(record);
+        if (attempt > 0) {
+            headers.add(HEADER_RETRY_ATTEMPT, ByteBuffer.allocate(Integer.BYTES).putInt(attempt).array());
+        }
+        return publish(CAR_LISTING_DLT, record, value, headers);
+    }
+
+    /**
+     * Publishes a record whose payload could not be deserialized to the dead-letter topic,
+     * with its raw payload. Records without payload are not published.
+     *
+     * @param record The record that arrived without a value.
+     * @return true if the record was published or has no payload, false if the send failed.
+     */
+    public boolean deadLetterUndeserializable(ConsumerRecord<String, ?> record) {
+        DeserializationException deserializationException = SerializationUtils.getExceptionFromHeader(record,
+                SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR);
+        if (deserializationException == null) {
+            return true;
+        }
+
+        return deadLetter(record, deserializationException.getData(), deserializationException,
+                String.valueOf(deserializationException.getMessage()));
+    }
+
+    /**
+     * Returns how long a record of a retry topic still has to wait before it is retried.
+     *
+     * @param record The record of a retry topic.
+     * @return The remaining delay, zero if the record is due.
+     */
+    public Duration getRemainingDelay(ConsumerRecord<String, ?> record) {
+        Header due = record.headers().lastHeader(HEADER_RETRY_DUE);
+        if (due == null) {
+            return Duration.ZERO;
+        }
+
+        return Duration.ofMillis(Math.max(0, ByteBuffer.wrap(due.value()).getLong() - clock.millis()));
+    }
+
+    /**
+     * Returns the names of the retry topics, from the shortest to the longest delay.
+     *
+     * @return The retry topic names.
+     */
+    public List<String> getRetryTopics() {
+        return IntStream.range(0, attempts)
+                .mapToObj(attempt -> CAR_LISTING_RETRY_TOPIC_PREFIX + attempt)
+                .toList();
+    }
+
+    Duration getDelay(int attempt) {
+        return Duration.ofMillis(Math.round(initialDelay.toMillis() * Math.pow(multiplier, attempt)));
+    }
+
+    /**
+     * Copies the headers of a record without the headers added by the retry pipeline, so
+     * a replayed record looks like it was never retried.
+     *
+     * @param headers The headers of the record.
+     * @return The headers to send with the replayed record.
+     */
+    static Headers withoutPipelineHeaders(Headers headers) {
+        RecordHeaders forwarded = new RecordHeaders();
+        for (Header header : headers) {
+            if (!PIPELINE_HEADERS.contains(header.key()) && !ORIGIN_HEADERS.contains(header.key())) {
+                forwarded.add(header);
+            }
+        }
+        return forwarded;
+    }
+
+    private Headers forwardedHeaders(ConsumerRecord<String, ?> record) {
+        RecordHeaders forwarded = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (!PIPELINE_HEADERS.contains(header.key())) {
+                forwarded.add(header);
+            }
+        }
+
+        if (forwarded.lastHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC) == null) {
+            forwarded.add(KafkaHeaders.DLT_ORIGINAL_TOPIC, record.topic().getBytes(StandardCharsets.UTF_8));
+            forwarded.add(KafkaHeaders.DLT_ORIGINAL_PARTITION,
+                    ByteBuffer.allocate(Integer.BYTES).putInt(record.partition()).array());
+            forwarded.add(KafkaHeaders.DLT_ORIGINAL_OFFSET,
+                    ByteBuffer.allocate(Long.BYTES).putLong(record.offset()).array());
+            forwarded.add(KafkaHeaders.DLT_ORIGINAL_TIMESTAMP,
+                    ByteBuffer.allocate(Long.BYTES).putLong(record.timestamp()).array());
+        }
+        return forwarded;
+    }
+
+    private int getRetryAttempt(ConsumerRecord<String, ?> record) {
+        Header attempt = record.headers().lastHeader(HEADER_RETRY_ATTEMPT);
+        return attempt == null ? 0 : ByteBuffer.wrap(attempt.value()).getInt();
+    }
+
+    private boolean publish(String topic, ConsumerRecord<String, ?> record, Object value, Headers headers) {
+        if (!(value instanceof byte[])) {
+            // The event is sent as JSON, whatever format it arrived in
+            headers.remove(HEADER_CONTENT_TYPE);
+        }
+        try {
+            carListingKafkaTemplate.send(new ProducerRecord<>(topic, null, record.key(), value, headers))
+                    .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            Counter.builder(METRIC_RETRY_PUBLISHED)
+                    .description("Failed car listing records published to a retry or dead-letter topic")
+                    .tag(TAG_TOPIC, topic)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("Record at offset {} of {}-{} was published to {}", record.offset(), record.topic(),
+                    record.partition(), topic);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException | RuntimeException ex) {
+            log.error("Publishing record at offset {} of {}-{} to {} failed: {}", record.offset(), record.topic(),
+                    record.partition(), topic, ex.getLocalizedMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.exception.InternalServerErrorException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.smg.carlisting.common.Constants.CAR_LISTING_DLT;
+import static org.smg.carlisting.common.Constants.CAR_LISTING_DLT_REPLAY_GROUP;
+import static org.smg.carlisting.common.Constants.CAR_LISTING_TOPIC;
+import static org.smg.carlisting.common.Constants.METRIC_DLT_REPLAYED;
+
+/**
+ * Replays records of the dead-letter topic into the car listing topic.
+ * <p>
+ * The records are read with their raw payload by a consumer that is assigned the
+ * dead-letter partitions directly and commits its progress under its own group, so every
+ * record is replayed once. The original key, payload and headers are published again,
+ * without the headers added by the retry pipeline, so a replayed record is processed
+ * like a new one. A record that fails again ends up in the dead-letter topic again.
+ * </p>
+ */
+@Component
+@Slf4j
+public class CarListingDeadLetterReplayer {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ConsumerFactory<String, byte[]> deadLetterConsumerFactory;
+    private final KafkaTemplate<String, Object> carListingKafkaTemplate;
+    private final Duration sendTimeout;
+    private final Counter replayedCounter;
+
+    @Autowired
+    public CarListingDeadLetterReplayer(ConsumerFactory<String, CarListingEvent> consumerFactory,
+                                        KafkaTemplate<String, Object> carListingKafkaTemplate, MeterRegistry meterRegistry,
+                                        @Value("${car-listing.retry.send-timeout:10s}") Duration sendTimeout) {
+        this(rawConsumerFactory(consumerFactory), carListingKafkaTemplate, meterRegistry, sendTimeout);
+    }
+
+    CarListingDeadLetterReplayer(ConsumerFactory<String, byte[]> deadLetterConsumerFactory,
+                                 KafkaTemplate<String, Object> carListingKafkaTemplate, MeterRegistry meterRegistry,
+                                 Duration sendTimeout) {
+        this.deadLetterConsumerFactory = deadLetterConsumerFactory;
+        this.carListingKafkaTemplate = carListingKafkaTemplate;
+        this.sendTimeout = sendTimeout;
+        this.replayedCounter = Counter.builder(METRIC_DLT_REPLAYED)
+                .description("Dead-letter records published to the car listing topic again")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publishes the next records of the dead-letter topic to the car listing topic.
+     * <p>
+     * The progress is committed for every record that was published, also when a later
+     * one fails, so a failed replay continues where it stopped.
+     * </p>
+     *
+     * @param maxRecords The maximum number of records to replay.
+     * @return The number of records replayed.
+     */
+    public synchronized int replay(int maxRecords) {
+        try (Consumer<String, byte[]> consumer = deadLetterConsumerFactory.createConsumer(CAR_LISTING_DLT_REPLAY_GROUP,
+                CAR_LISTING_DLT_REPLAY_GROUP)) {
+            List<TopicPartition> partitions = consumer.partitionsFor(CAR_LISTING_DLT).stream()
+                    .map(partition -> new TopicPartition(partition.topic(), partition.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+            for (TopicPartition partition : partitions) {
+                OffsetAndMetadata offset = committed.get(partition);
+                if (offset == null) {
+                    consumer.seekToBeginning(List.of(partition));
+                } else {
+                    consumer.seek(partition, offset.offset());
+                }
+            }
+
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            Map<TopicPartition, OffsetAndMetadata> replayedOffsets = new HashMap<>();
+            int replayed = 0;
+            try {
+                while (replayed < maxRecords && hasRemaining(consumer, endOffsets)) {
+                    for (ConsumerRecord<String, byte[]> record : consumer.poll(POLL_TIMEOUT)) {
+                        if (replayed == maxRecords) {
+                            break;
+                        }
+                        send(record);
+                        replayedOffsets.put(new TopicPartition(record.topic(), record.partition()),
+                                new OffsetAndMetadata(record.offset() + 1));
+                        replayed++;
+                    }
+                }
+            } finally {
+                if (!replayedOffsets.isEmpty()) {
+                    consumer.commitSync(replayedOffsets);
+                }
+                replayedCounter.increment(replayed);
+            }
+
+            log.info("Replayed {} records from {} to {}", replayed, CAR_LISTING_DLT, CAR_LISTING_TOPIC);
+            return replayed;
+        }
+    }
+
+    private void send(ConsumerRecord<String, byte[]> record) {
+        try {
+            carListingKafkaTemplate.send(new ProducerRecord<>(CAR_LISTING_TOPIC, null, record.key(), record.value(),
+                            CarListingDeadLetterPublisher.withoutPipelineHeaders(record.headers())))
+                    .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException("Replaying the dead-letter topic was interrupted");
+        } catch (ExecutionException | TimeoutException ex) {
+            throw new InternalServerErrorException("Replaying record at offset " + record.offset() + " of "
+                    + record.topic() + "-" + record.partition() + " failed: " + ex.getLocalizedMessage());
+        }
+    }
+
+    private static boolean hasRemaining(Consumer<String, byte[]> consumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .anyMatch(endOffset -> consumer.position(endOffset.getKey()) < endOffset.getValue());
+    }
+
+    private static ConsumerFactory<String, byte[]> rawConsumerFactory(ConsumerFactory<String, CarListingEvent> consumerFactory) {
+        Map<String, Object> configs = new HashMap<>(consumerFactory.getConfigurationProperties());
+        configs.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return new DefaultKafkaConsumerFactory<>(configs, new StringDeserializer(), new ByteArrayDeserializer());
+    }
+}
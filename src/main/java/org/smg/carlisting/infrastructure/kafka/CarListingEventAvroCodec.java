@@ -0,0 +1,121 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import static org.smg.carlisting.common.Constants.CAR_LISTING_EVENT_SCHEMA;
+
+/**
+ * Encodes and decodes car listing events in Avro binary encoding.
+ * <p>
+ * The schema is read from {@code avro/car_listing_event_v1.avsc} on the classpath and used
+ * as writer and reader schema, so producers must encode with the same file; there is no
+ * schema registry. Binary Avro carries no field names and writes numbers in binary, so
+ * an event is smaller than its JSON form and is decoded without parsing text.
+ * </p>
+ * <p>
+ * An instance reuses its decoder and record between calls and is not thread-safe. Kafka
+ * creates one deserializer, and thereby one codec, per consumer.
+ * </p>
+ */
+public class CarListingEventAvroCodec {
+
+    static final Schema SCHEMA = loadSchema();
+    private static final Schema EVENT_TYPE_SCHEMA = SCHEMA.getField("eventType").schema().getTypes().get(1);
+    private static final Schema CAR_LISTING_SCHEMA = SCHEMA.getField("carListing").schema().getTypes().get(1);
+
+    private final GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(SCHEMA);
+    private final GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(SCHEMA);
+    private BinaryDecoder decoder;
+    private GenericRecord record;
+
+    /**
+     * Decodes a car listing event.
+     *
+     * @param data The Avro binary payload of a record.
+     * @return The decoded event.
+     * @throws IOException if the payload does not match the schema.
+     */
+    public CarListingEvent decode(byte[] data) throws IOException {
+        decoder = DecoderFactory.get().binaryDecoder(data, decoder);
+        record = reader.read(record, decoder);
+
+        CarListingEvent carListingEvent = new CarListingEvent();
+        carListingEvent.setId((String) record.get("id"));
+        Object eventType = record.get("eventType");
+        carListingEvent.setEventType(eventType != null ? EventType.valueOf(eventType.toString()) : null);
+        GenericRecord carListing = (GenericRecord) record.get("carListing");
+        if (carListing != null) {
+            carListingEvent.setCarListing(new CarListing((String) carListing.get("id"), (String) carListing.get("make"),
+                    (String) carListing.get("model"), (Integer) carListing.get("year"),
+                    (Double) carListing.get("minPrice"), (Double) carListing.get("maxPrice"),
+                    (String) carListing.get("color")));
+        }
+        carListingEvent.setVersion((Long) record.get("version"));
+        return carListingEvent;
+    }
+
+    /**
+     * Encodes a car listing event, as a producer of the binary format does.
+     *
+     * @param carListingEvent The event to encode.
+     * @return The Avro binary payload.
+     */
+    public byte[] encode(CarListingEvent carListingEvent) {
+        GenericRecord event = new GenericData.Record(SCHEMA);
+        event.put("id", carListingEvent.getId());
+        if (carListingEvent.getEventType() != null) {
+            event.put("eventType", new GenericData.EnumSymbol(EVENT_TYPE_SCHEMA, carListingEvent.getEventType().name()));
+        }
+        CarListing carListing = carListingEvent.getCarListing();
+        if (carListing != null) {
+            GenericRecord listing = new GenericData.Record(CAR_LISTING_SCHEMA);
+            listing.put("id", carListing.getId());
+            listing.put("make", carListing.getMake());
+            listing.put("model", carListing.getModel());
+            listing.put("year", carListing.getYear());
+            listing.put("minPrice", carListing.getMinPrice());
+            listing.put("maxPrice", carListing.getMaxPrice());
+            listing.put("color", carListing.getColor());
+            event.put("carListing", listing);
+        }
+        event.put("version", carListingEvent.getVersion());
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+            BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+            writer.write(event, encoder);
+            encoder.flush();
+            return out.toByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static Schema loadSchema() {
+        try (InputStream schema = CarListingEventAvroCodec.class.getClassLoader()
+                .getResourceAsStream(CAR_LISTING_EVENT_SCHEMA)) {
+            if (schema == null) {
+                throw new IllegalStateException("Avro schema " + CAR_LISTING_EVENT_SCHEMA + " is not on the classpath");
+            }
+            return new Schema.Parser().parse(schema);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
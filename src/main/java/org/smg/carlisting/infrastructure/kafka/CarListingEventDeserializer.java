@@ -0,0 +1,134 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.smg.carlisting.application.CarListingStringInterner;
+import org.smg.carlisting.domain.event.CarListingEvent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.smg.carlisting.common.Constants.CONTENT_TYPE_AVRO;
+import static org.smg.carlisting.common.Constants.HEADER_CONTENT_TYPE;
+import static org.smg.carlisting.common.Constants.METRIC_DESERIALIZE;
+import static org.smg.carlisting.common.Constants.TAG_FORMAT;
+import static org.smg.carlisting.common.Constants.TAG_OUTCOME;
+
+/**
+ * Kafka deserializer for car listing events.
+ * <p>
+ * The payload is parsed straight from the raw bytes of the record with a shared,
+ * pre-built {@link ObjectReader}, so neither an intermediate {@code String} nor an
+ * {@code ObjectMapper} is created per record. {@code ObjectReader} is immutable and
+ * thread-safe, so one instance serves every consumer thread.
+ * </p>
+ * <p>
+ * Records with the header {@code content-type: application/avro} carry the event in the
+ * Avro binary encoding of {@link CarListingEventAvroCodec} and are decoded by it. All
+ * other records are parsed as JSON, so producers that do not set the header keep working.
+ * </p>
+ * <p>
+ * The make, model and color of the car listing are replaced with the shared instances of
+ * {@link CarListingStringInterner}, so the many events of a popular make do not each keep
+ * their own copies.
+ * </p>
+ * <p>
+ * Payloads that cannot be parsed raise a {@link SerializationException}. The consumer is
+ * configured to wrap this deserializer in Spring's {@code ErrorHandlingDeserializer}, which
+ * hands such records to the container error handler instead of failing the poll.
+ * </p>
+ * <p>
+ * The deserialization time is recorded per format and outcome in timers registered once
+ * per instance. The consumer factory creates the deserializers with the application's
+ * {@link MeterRegistry}; an instance that Kafka creates from the class name records in
+ * the global registry instead.
+ * </p>
+ */
+public class CarListingEventDeserializer implements Deserializer<CarListingEvent> {
+
+    private static final ObjectReader CAR_LISTING_EVENT_READER = new ObjectMapper().readerFor(CarListingEvent.class);
+
+    private static final String FORMAT_JSON = "json";
+    private static final String FORMAT_AVRO = "avro";
+
+    private final CarListingEventAvroCodec avroCodec = new CarListingEventAvroCodec();
+    private final Timer successTimer;
+    private final Timer failureTimer;
+    private final Timer avroSuccessTimer;
+    private final Timer avroFailureTimer;
+
+    public CarListingEventDeserializer() {
+        this(Metrics.globalRegistry);
+    }
+
+    public CarListingEventDeserializer(MeterRegistry meterRegistry) {
+        this.successTimer = deserializeTimer(meterRegistry, FORMAT_JSON, "success");
+        this.failureTimer = deserializeTimer(meterRegistry, FORMAT_JSON, "failure");
+        this.avroSuccessTimer = deserializeTimer(meterRegistry, FORMAT_AVRO, "success");
+        this.avroFailureTimer = deserializeTimer(meterRegistry, FORMAT_AVRO, "failure");
+    }
+
+    @Override
+    public CarListingEvent deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null || !isAvro(headers)) {
+            return deserialize(topic, data);
+        }
+
+        long start = System.nanoTime();
+        try {
+            CarListingEvent carListingEvent = intern(avroCodec.decode(data));
+            avroSuccessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return carListingEvent;
+        } catch (IOException | RuntimeException ex) {
+            avroFailureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw new SerializationException("Avro car listing event from topic " + topic + " could not be deserialized",
+                    ex);
+        }
+    }
+
+    @Override
+    public CarListingEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+        try {
+            CarListingEvent carListingEvent = intern(CAR_LISTING_EVENT_READER.readValue(data));
+            successTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return carListingEvent;
+        } catch (IOException ex) {
+            failureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw new SerializationException("Car listing event from topic " + topic + " could not be deserialized", ex);
+        }
+    }
+
+    private static CarListingEvent intern(CarListingEvent carListingEvent) {
+        if (carListingEvent != null) {
+            CarListingStringInterner.intern(carListingEvent.getCarListing());
+        }
+        return carListingEvent;
+    }
+
+    private static boolean isAvro(Headers headers) {
+        Header contentType = headers != null ? headers.lastHeader(HEADER_CONTENT_TYPE) : null;
+        return contentType != null && contentType.value() != null
+                && CONTENT_TYPE_AVRO.equals(new String(contentType.value(), StandardCharsets.UTF_8));
+    }
+
+    private static Timer deserializeTimer(MeterRegistry meterRegistry, String format, String outcome) {
+        return Timer.builder(METRIC_DESERIALIZE)
+                .description("Time to deserialize a car listing event")
+                .tag(TAG_FORMAT, format)
+                .tag(TAG_OUTCOME, outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,92 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.header.Header;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Assigns a version to every consumed car listing event that does not carry one.
+ * <p>
+ * The versions rely on the producers keying every event by the id of its car listing,
+ * so that all events of a listing land in the same partition and the offset of a record
+ * orders them. Offsets of different partitions are not comparable: if the events of a
+ * listing were spread over partitions, valid updates would be dropped as stale. A record of a retry topic carries the offset it
+ * had on the car listing topic in the {@code kafka_dlt-original-offset} header, and is
+ * versioned with that offset. The version is part of the event from then on, so it is
+ * kept when the event is published to the retry and dead-letter topics or buffered by
+ * the write-behind log, and a replayed event does not pass newer ones.
+ * </p>
+ * <p>
+ * It is registered as record and batch interceptor of every listener container, so the
+ * listeners receive versioned events. A malformed original offset header falls back to
+ * the offset of the record, so it cannot fail the poll.
+ * </p>
+ * <p>
+ * Offset versions are disabled unless {@code car-listing.versions.offsets.enabled=true}.
+ * Elasticsearch keeps them as external versions, so they only hold for an index filled
+ * with them from the start, such as a rebuilt one: documents written with internal
+ * versions, and offsets that start over after the topic is recreated or repartitioned,
+ * make Elasticsearch reject valid writes as stale. Without them, events are only
+ * versioned if the producer sets a version.
+ * </p>
+ */
+@Component
+@Slf4j
+public class CarListingEventVersioner implements RecordInterceptor<Object, Object>, BatchInterceptor<Object, Object> {
+
+    private final boolean enabled;
+
+    public CarListingEventVersioner(@Value("${car-listing.versions.offsets.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public ConsumerRecord<Object, Object> intercept(ConsumerRecord<Object, Object> record, Consumer<Object, Object> consumer) {
+        assignVersion(record);
+        return record;
+    }
+
+    @Override
+    public ConsumerRecords<Object, Object> intercept(ConsumerRecords<Object, Object> records, Consumer<Object, Object> consumer) {
+        records.forEach(this::assignVersion);
+        return records;
+    }
+
+    /**
+     * Sets the offset of a record as version of its event if offset versions are enabled
+     * and the producer did not set one.
+     *
+     * @param record The consumed record, its value may be null or another type.
+     */
+    public void assignVersion(ConsumerRecord<?, ?> record) {
+        if (!enabled || !(record.value() instanceof CarListingEvent carListingEvent)
+                || carListingEvent.getVersion() != null) {
+            return;
+        }
+
+        carListingEvent.setVersion(originalOffset(record));
+    }
+
+    private static long originalOffset(ConsumerRecord<?, ?> record) {
+        Header originalOffset = record.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_OFFSET);
+        if (originalOffset == null) {
+            return record.offset();
+        }
+        if (originalOffset.value() == null || originalOffset.value().length != Long.BYTES) {
+            log.warn("Ignoring malformed {} header of record {}-{}@{}", KafkaHeaders.DLT_ORIGINAL_OFFSET,
+                    record.topic(), record.partition(), record.offset());
+            return record.offset();
+        }
+        return ByteBuffer.wrap(originalOffset.value()).getLong();
+    }
+}
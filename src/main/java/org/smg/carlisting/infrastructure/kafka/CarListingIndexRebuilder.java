@@ -0,0 +1,279 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.smg.carlisting.application.CarListingService;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.repository.BulkIndexFailure;
+import org.smg.carlisting.domain.repository.BulkIndexResult;
+import org.smg.carlisting.infrastructure.elasticsearch.CarListingIndexManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.smg.carlisting.common.Constants.CAR_LISTING_REBUILD_GROUP;
+import static org.smg.carlisting.common.Constants.CAR_LISTING_TOPIC;
+import static org.smg.carlisting.common.Constants.METRIC_REBUILD_DOCUMENTS_WRITTEN;
+import static org.smg.carlisting.common.Constants.METRIC_REBUILD_EVENTS_READ;
+import static org.smg.carlisting.common.Constants.METRIC_REBUILD_REMAINING;
+import static org.smg.carlisting.common.Constants.REBUILD_ENABLED_PROPERTY;
+
+/**
+ * Rebuilds the car listing index from the whole car listing topic.
+ * <p>
+ * The rebuild reads every partition from the beginning with its own consumer, which is
+ * assigned the partitions directly and never commits, so the offsets of the regular
+ * consumer group are not touched. The events are written into a fresh versioned index
+ * with large bulk requests, coalesced per car listing. The index is created without
+ * replicas and refreshes, which are restored once the topic was read.
+ * </p>
+ * <p>
+ * The regular listeners keep writing into the old index through the alias while the
+ * rebuild runs. Once the rebuild reached the end offsets taken at its start, the
+ * listeners are paused, the events published in the meantime are caught up, and the
+ * alias is moved to the new index in one atomic request before the listeners resume.
+ * Events the listeners replay after resuming are applied in topic order again.
+ * </p>
+ * <p>
+ * Progress and throughput are logged periodically and published as metrics. The rebuild
+ * runs once at startup when {@code car-listing.rebuild.enabled=true}. If it fails, the
+ * new index is deleted and the alias is left unchanged.
+ * </p>
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = REBUILD_ENABLED_PROPERTY, havingValue = "true")
+public class CarListingIndexRebuilder implements ApplicationRunner {
+
+    private static final String PAUSE_REASON = "index rebuild";
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+    private static final int MAX_BULK_ATTEMPTS = 5;
+
+    private final ConsumerFactory<String, CarListingEvent> consumerFactory;
+    private final CarListingService carListingService;
+    private final CarListingIndexManager carListingIndexManager;
+    private final CarListingListenerControl carListingListenerControl;
+    private final CarListingEventVersioner carListingEventVersioner;
+    private final int bulkSize;
+    private final Duration progressInterval;
+    private final Duration retryBackoff;
+    private final boolean deletePreviousIndex;
+    private final Counter eventsRead;
+    private final Counter documentsWritten;
+    private final AtomicLong remaining = new AtomicLong();
+
+    public CarListingIndexRebuilder(ConsumerFactory<String, CarListingEvent> consumerFactory,
+                                    CarListingService carListingService,
+                                    CarListingIndexManager carListingIndexManager,
+                                    CarListingListenerControl carListingListenerControl,
+                                    CarListingEventVersioner carListingEventVersioner,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${car-listing.rebuild.bulk-size:5000}") int bulkSize,
+                                    @Value("${car-listing.rebuild.progress-interval:10s}") Duration progressInterval,
+                                    @Value("${car-listing.rebuild.retry-backoff:1s}") Duration retryBackoff,
+                                    @Value("${car-listing.rebuild.delete-previous-index:false}") boolean deletePreviousIndex) {
+        this.consumerFactory = consumerFactory;
+        this.carListingService = carListingService;
+        this.carListingIndexManager = carListingIndexManager;
+        this.carListingListenerControl = carListingListenerControl;
+        this.carListingEventVersioner = carListingEventVersioner;
+        this.bulkSize = bulkSize;
+        this.progressInterval = progressInterval;
+        this.retryBackoff = retryBackoff;
+        this.deletePreviousIndex = deletePreviousIndex;
+        this.eventsRead = Counter.builder(METRIC_REBUILD_EVENTS_READ)
+                .description("Car listing events read from the topic by the index rebuild")
+                .register(meterRegistry);
+        this.documentsWritten = Counter.builder(METRIC_REBUILD_DOCUMENTS_WRITTEN)
+                .description("Car listing operations applied to the rebuilt index")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_REBUILD_REMAINING, remaining, AtomicLong::get)
+                .description("Car listing events left to read by the index rebuild")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the rebuild on its own thread, so the application and the regular listeners
+     * start without waiting for it.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread.ofVirtual().name("car-listing-rebuild").start(() -> {
+            try {
+                rebuild();
+            } catch (Exception ex) {
+                log.error("Car listing index rebuild failed: {}", ex.getLocalizedMessage(), ex);
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the car listing index and moves the alias to it.
+     *
+     * @return The name of the rebuilt index.
+     * @throws IOException if Elasticsearch cannot be reached.
+     */
+    public String rebuild() throws IOException {
+        String indexName = carListingIndexManager.createRebuildIndex();
+        boolean aliasSwapped = false;
+        try (Consumer<String, CarListingEvent> consumer = createConsumer()) {
+            List<TopicPartition> partitions = consumer.partitionsFor(CAR_LISTING_TOPIC).stream()
+                    .map(partition -> new TopicPartition(partition.topic(), partition.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+
+            RebuildProgress progress = new RebuildProgress(indexName, System.nanoTime());
+            consumeUntil(consumer, consumer.endOffsets(partitions), indexName, progress);
+            carListingIndexManager.restoreDynamicSettings(indexName);
+
+            carListingListenerControl.pause(PAUSE_REASON);
+            try {
+                consumeUntil(consumer, consumer.endOffsets(partitions), indexName, progress);
+                Set<String> previousIndices = carListingIndexManager.getAliasedIndices();
+                carListingIndexManager.swapAlias(previousIndices, indexName, deletePreviousIndex);
+                aliasSwapped = true;
+                carListingService.invalidateSearchResults();
+            } finally {
+                carListingListenerControl.resume(PAUSE_REASON);
+            }
+
+            progress.log(0);
+            log.info("Car listing index rebuild into {} is completed", indexName);
+            return indexName;
+        } catch (RuntimeException | IOException ex) {
+            if (!aliasSwapped) {
+                carListingIndexManager.deleteIndex(indexName);
+            }
+            throw ex;
+        }
+    }
+
+    private Consumer<String, CarListingEvent> createConsumer() {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(bulkSize));
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        return consumerFactory.createConsumer(CAR_LISTING_REBUILD_GROUP, CAR_LISTING_REBUILD_GROUP, null, properties);
+    }
+
+    private void consumeUntil(Consumer<String, CarListingEvent> consumer, Map<TopicPartition, Long> endOffsets,
+                              String indexName, RebuildProgress progress) {
+        List<CarListingEvent> buffer = new ArrayList<>(bulkSize);
+        long lag;
+        while ((lag = lag(consumer, endOffsets)) > 0) {
+            remaining.set(lag);
+            for (ConsumerRecord<String, CarListingEvent> consumerRecord : consumer.poll(POLL_TIMEOUT)) {
+                eventsRead.increment();
+                progress.eventsRead++;
+                if (consumerRecord.value() == null) {
+                    continue;
+                }
+                if (consumerRecord.value().carListingId() == null) {
+                    log.warn("Skipping event at offset {} of partition {} without car listing id",
+                            consumerRecord.offset(), consumerRecord.partition());
+                    continue;
+                }
+                carListingEventVersioner.assignVersion(consumerRecord);
+                buffer.add(consumerRecord.value());
+            }
+
+            if (buffer.size() >= bulkSize) {
+                write(buffer, indexName, progress);
+            }
+            if (progress.isDue(progressInterval)) {
+                progress.log(lag);
+            }
+        }
+
+        write(buffer, indexName, progress);
+        remaining.set(0);
+    }
+
+    private long lag(Consumer<String, CarListingEvent> consumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .mapToLong(endOffset -> Math.max(0, endOffset.getValue() - consumer.position(endOffset.getKey())))
+                .sum();
+    }
+
+    private void write(List<CarListingEvent> buffer, String indexName, RebuildProgress progress) {
+        List<CarListingEvent> pending = List.copyOf(buffer);
+        buffer.clear();
+
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            BulkIndexResult result = carListingService.rebuildCarListings(pending, indexName);
+            documentsWritten.increment(result.getSuccessful());
+            progress.documentsWritten += result.getSuccessful();
+
+            Set<String> retryableIds = result.getFailures().stream()
+                    .filter(BulkIndexFailure::isRetryable)
+                    .map(BulkIndexFailure::getCarListingId)
+                    .collect(Collectors.toSet());
+            if (retryableIds.isEmpty()) {
+                return;
+            }
+            if (attempt == MAX_BULK_ATTEMPTS) {
+                throw new IllegalStateException("Rebuilding " + indexName + " failed for " + retryableIds.size()
+                        + " car listings after " + attempt + " attempts");
+            }
+
+            pending = pending.stream()
+                    .filter(event -> retryableIds.contains(event.carListingId()))
+                    .toList();
+            sleep(retryBackoff.multipliedBy(attempt));
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Car listing index rebuild was interrupted", e);
+        }
+    }
+
+    private static final class RebuildProgress {
+
+        private final String indexName;
+        private final long startNanos;
+        private long lastLogNanos;
+        private long eventsRead;
+        private long documentsWritten;
+
+        private RebuildProgress(String indexName, long startNanos) {
+            this.indexName = indexName;
+            this.startNanos = startNanos;
+            this.lastLogNanos = startNanos;
+        }
+
+        private boolean isDue(Duration interval) {
+            return System.nanoTime() - lastLogNanos >= interval.toNanos();
+        }
+
+        private void log(long lag) {
+            lastLogNanos = System.nanoTime();
+            double seconds = Math.max(1, lastLogNanos - startNanos) / 1_000_000_000d;
+            log.info("Rebuilding {}: {} events read, {} documents written, {} events left, {} events/s",
+                    indexName, eventsRead, documentsWritten, lag, Math.round(eventsRead / seconds));
+        }
+    }
+}
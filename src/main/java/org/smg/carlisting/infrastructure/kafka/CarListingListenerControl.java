@@ -0,0 +1,68 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.smg.carlisting.common.Constants.CAR_LISTING_GROUP;
+
+/**
+ * Pauses and resumes consumption of the car listing topic.
+ * <p>
+ * Several components may ask for a pause at the same time, for example a full
+ * processing engine and a backing-off indexer. Every request is registered under a
+ * reason, and the listener containers are resumed only after the last reason was
+ * released. Pausing only stops the next polls, records that were already polled are
+ * still delivered to the listener.
+ * </p>
+ */
+@Component
+@Slf4j
+public class CarListingListenerControl {
+
+    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+    private final Set<String> pauseReasons = new HashSet<>();
+
+    public CarListingListenerControl(KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry) {
+        this.kafkaListenerEndpointRegistry = kafkaListenerEndpointRegistry;
+    }
+
+    /**
+     * Pauses the car listing listener containers for the given reason.
+     *
+     * @param reason The name of the component that requests the pause.
+     */
+    public synchronized void pause(String reason) {
+        if (pauseReasons.add(reason) && pauseReasons.size() == 1) {
+            log.info("Pausing consumption of car listing events: {}", reason);
+            carListingContainers().forEach(MessageListenerContainer::pause);
+        }
+    }
+
+    /**
+     * Releases the pause requested for the given reason and resumes the car listing
+     * listener containers when no other pause is requested.
+     *
+     * @param reason The name of the component that requested the pause.
+     */
+    public synchronized void resume(String reason) {
+        if (pauseReasons.remove(reason) && pauseReasons.isEmpty()) {
+            log.info("Resuming consumption of car listing events: {}", reason);
+            carListingContainers().forEach(MessageListenerContainer::resume);
+        }
+    }
+
+    public synchronized boolean isPaused() {
+        return !pauseReasons.isEmpty();
+    }
+
+    private Iterable<MessageListenerContainer> carListingContainers() {
+        return kafkaListenerEndpointRegistry.getAllListenerContainers().stream()
+                .filter(container -> CAR_LISTING_GROUP.equals(container.getGroupId()))
+                .toList();
+    }
+}
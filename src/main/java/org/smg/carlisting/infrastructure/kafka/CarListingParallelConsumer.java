@@ -0,0 +1,133 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.smg.carlisting.application.CarListingService;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+import static org.smg.carlisting.common.Constants.CAR_LISTING_GROUP;
+import static org.smg.carlisting.common.Constants.CAR_LISTING_TOPIC;
+import static org.smg.carlisting.common.Constants.CONSUMER_MODE_PARALLEL;
+import static org.smg.carlisting.common.Constants.CONSUMER_MODE_PROPERTY;
+
+/**
+ * Kafka consumer that processes car listing events in parallel.
+ * <p>
+ * The listener thread only hands every record over to the {@link KeyOrderedProcessingEngine},
+ * keyed by car listing id. Events of the same car listing are processed in order, events of
+ * different car listings concurrently on virtual threads.
+ * </p>
+ * <p>
+ * Every record is acknowledged on its own as soon as its write succeeded. The listener
+ * containers run with asynchronous acknowledgments in this mode, so the container commits
+ * an offset only after all records before it were acknowledged. An event whose write
+ * failed is handed to the retry topics by the {@link CarListingDeadLetterPublisher}. Only
+ * if that fails, the write is retried on its virtual thread after the configured sleep,
+ * which holds back the later events of the same car listing only.
+ * </p>
+ * <p>
+ * An event whose processing throws goes to the dead-letter topic and is acknowledged
+ * as well, since a record that is never acknowledged would stop the commits of its
+ * partition for good. Only an interrupt during shutdown leaves the record
+ * unacknowledged, to be redelivered after the restart.
+ * </p>
+ * <p>
+ * It is enabled by setting {@code car-listing.consumer.mode=parallel}.
+ * </p>
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = CONSUMER_MODE_PROPERTY, havingValue = CONSUMER_MODE_PARALLEL)
+public class CarListingParallelConsumer {
+
+    private static final String WRITE_FAILED = "Writing the car listing failed";
+    private static final String PROCESSING_FAILED = "Processing the car listing event failed";
+
+    private final CarListingService carListingService;
+    private final KeyOrderedProcessingEngine keyOrderedProcessingEngine;
+    private final CarListingDeadLetterPublisher carListingDeadLetterPublisher;
+    private final Duration nackSleep;
+
+    public CarListingParallelConsumer(CarListingService carListingService, KeyOrderedProcessingEngine keyOrderedProcessingEngine,
+                                      CarListingDeadLetterPublisher carListingDeadLetterPublisher,
+                                      @Value("${car-listing.consumer.nack-sleep:1s}") Duration nackSleep) {
+        this.carListingService = carListingService;
+        this.keyOrderedProcessingEngine = keyOrderedProcessingEngine;
+        this.carListingDeadLetterPublisher = carListingDeadLetterPublisher;
+        this.nackSleep = nackSleep;
+    }
+
+    /**
+     * Consumes a Kafka message representing a car listing event and submits it for
+     * processing.
+     *
+     * @param record         The Kafka message containing the car listing event data.
+     * @param acknowledgment The handle used to commit the offset of the message.
+     */
+    @KafkaListener(topics = CAR_LISTING_TOPIC, groupId = CAR_LISTING_GROUP)
+    public void consume(ConsumerRecord<String, CarListingEvent> record, Acknowledgment acknowledgment) {
+        CarListingEvent carListingEvent = record.value();
+        if (carListingEvent == null) {
+            log.error("Error occurred on consuming event: empty payload at offset {}", record.offset());
+            acknowledgment.acknowledge();
+            return;
+        }
+
+        keyOrderedProcessingEngine.submit(getOrderingKey(record), () -> {
+            try {
+                processUntilWrittenOrRetried(record, carListingEvent);
+            } catch (RuntimeException ex) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw ex;
+                }
+                log.error("Processing of event {} at offset {} failed, it is dead-lettered", carListingEvent.getId(),
+                        record.offset(), ex);
+                deadLetterUntilPublished(record, carListingEvent, ex);
+            }
+            acknowledgment.acknowledge();
+        });
+    }
+
+    private void deadLetterUntilPublished(ConsumerRecord<String, CarListingEvent> record,
+                                          CarListingEvent carListingEvent, RuntimeException cause) {
+        while (!carListingDeadLetterPublisher.deadLetter(record, carListingEvent, cause, PROCESSING_FAILED)) {
+            log.warn("Dead-lettering of event {} failed, it is retried in {}", carListingEvent.getId(), nackSleep);
+            sleep(carListingEvent);
+        }
+    }
+
+    private void processUntilWrittenOrRetried(ConsumerRecord<String, CarListingEvent> record,
+                                              CarListingEvent carListingEvent) {
+        while (!carListingService.processCarListing(carListingEvent)
+                && !carListingDeadLetterPublisher.retryLater(record, carListingEvent, WRITE_FAILED)) {
+            log.warn("Processing of event {} failed, it is retried in {}", carListingEvent.getId(), nackSleep);
+            sleep(carListingEvent);
+        }
+    }
+
+    private void sleep(CarListingEvent carListingEvent) {
+        try {
+            Thread.sleep(nackSleep);
+        } catch (InterruptedException ex) {
+            // Shutting down, the record is not acknowledged and is redelivered after restart
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Processing of event " + carListingEvent.getId() + " was interrupted", ex);
+        }
+    }
+
+    private String getOrderingKey(ConsumerRecord<String, CarListingEvent> record) {
+        CarListingEvent carListingEvent = record.value();
+        if (carListingEvent.getCarListing() != null && carListingEvent.getCarListing().getId() != null) {
+            return carListingEvent.getCarListing().getId();
+        }
+
+        return record.key() != null ? record.key() : record.topic() + "-" + record.partition() + "@" + record.offset();
+    }
+}
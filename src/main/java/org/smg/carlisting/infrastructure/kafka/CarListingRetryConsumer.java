@@ -0,0 +1,72 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.smg.carlisting.application.CarListingService;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+import static org.smg.carlisting.common.Constants.CAR_LISTING_RETRY_GROUP;
+import static org.smg.carlisting.common.Constants.CAR_LISTING_RETRY_TOPIC_PATTERN;
+
+/**
+ * Kafka consumer of the car listing retry topics.
+ * <p>
+ * Every retry tier has a fixed delay, so the records of a tier partition become due in
+ * the order they were published. A record that is not due yet is negatively
+ * acknowledged with the time it still has to wait, which pauses only this partition of
+ * the retry tier while the main topic is consumed as usual.
+ * </p>
+ * <p>
+ * A due event is processed like any other. If the write fails again, the event moves on
+ * to the next tier, or to the dead-letter topic after the last one.
+ * </p>
+ */
+@Service
+@Slf4j
+public class CarListingRetryConsumer {
+
+    private static final String WRITE_FAILED = "Writing the car listing failed again";
+
+    private final CarListingService carListingService;
+    private final CarListingDeadLetterPublisher carListingDeadLetterPublisher;
+    private final Duration nackSleep;
+
+    public CarListingRetryConsumer(CarListingService carListingService,
+                                   CarListingDeadLetterPublisher carListingDeadLetterPublisher,
+                                   @Value("${car-listing.consumer.nack-sleep:1s}") Duration nackSleep) {
+        this.carListingService = carListingService;
+        this.carListingDeadLetterPublisher = carListingDeadLetterPublisher;
+        this.nackSleep = nackSleep;
+    }
+
+    /**
+     * Consumes a car listing event from one of the retry topics once it is due.
+     *
+     * @param record         The Kafka message containing the car listing event data.
+     * @param acknowledgment The handle used to commit the offset of the message.
+     */
+    @KafkaListener(topicPattern = CAR_LISTING_RETRY_TOPIC_PATTERN, groupId = CAR_LISTING_RETRY_GROUP)
+    public void consume(ConsumerRecord<String, CarListingEvent> record, Acknowledgment acknowledgment) {
+        Duration remainingDelay = carListingDeadLetterPublisher.getRemainingDelay(record);
+        if (!remainingDelay.isZero()) {
+            acknowledgment.nack(remainingDelay);
+            return;
+        }
+
+        CarListingEvent carListingEvent = record.value();
+        if (carListingEvent == null || carListingService.processCarListing(carListingEvent)
+                || carListingDeadLetterPublisher.retryLater(record, carListingEvent, WRITE_FAILED)) {
+            acknowledgment.acknowledge();
+        } else {
+            log.warn("Retried event at offset {} of {} could not be published to the next tier, it is redelivered in {}",
+                    record.offset(), record.topic(), nackSleep);
+            acknowledgment.nack(nackSleep);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.smg.carlisting.common.Constants.CONSUMER_MODE_PARALLEL;
+import static org.smg.carlisting.common.Constants.CONSUMER_MODE_PROPERTY;
+import static org.smg.carlisting.common.Constants.METRIC_ENGINE_IN_FLIGHT;
+import static org.smg.carlisting.common.Constants.METRIC_ENGINE_PAUSES;
+
+/**
+ * Runs tasks on virtual threads while keeping the order of tasks that share a key.
+ * <p>
+ * Tasks of the same key are chained, so each one starts after the previous one of that
+ * key completed. Tasks of different keys run concurrently, one virtual thread each, so
+ * a slow Elasticsearch call only delays the car listing it belongs to.
+ * </p>
+ * <p>
+ * The number of submitted but not completed tasks is bounded. When the bound is hit the
+ * car listing listener containers are paused, and they are resumed once the in-flight
+ * work dropped to half of the bound.
+ * </p>
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = CONSUMER_MODE_PROPERTY, havingValue = CONSUMER_MODE_PARALLEL)
+public class KeyOrderedProcessingEngine {
+
+    private static final String PAUSE_REASON = "processing engine is full";
+
+    private final CarListingListenerControl carListingListenerControl;
+    private final int maxInFlight;
+    private final int resumeInFlight;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean paused = new AtomicBoolean();
+    private final Counter pauseCounter;
+
+    public KeyOrderedProcessingEngine(CarListingListenerControl carListingListenerControl, MeterRegistry meterRegistry,
+                                      @Value("${car-listing.consumer.max-in-flight:1000}") int maxInFlight) {
+        this.carListingListenerControl = carListingListenerControl;
+        this.maxInFlight = maxInFlight;
+        this.resumeInFlight = maxInFlight / 2;
+        Gauge.builder(METRIC_ENGINE_IN_FLIGHT, inFlight, AtomicInteger::get)
+                .description("Car listing events submitted to the processing engine and not completed yet")
+                .register(meterRegistry);
+        this.pauseCounter = Counter.builder(METRIC_ENGINE_PAUSES)
+                .description("Times the listener was paused because the processing engine was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Submits a task that runs after all previously submitted tasks of the same key.
+     * <p>
+     * The task must handle its own failures. A task that throws anyway is logged and does
+     * not block the following tasks of its key.
+     * </p>
+     *
+     * @param key  The ordering key, the car listing id.
+     * @param task The work to be done for the key.
+     * @return A future completed when the task finished and its in-flight slot was released.
+     */
+    public CompletableFuture<Void> submit(String key, Runnable task) {
+        if (inFlight.incrementAndGet() >= maxInFlight && paused.compareAndSet(false, true)) {
+            pauseCounter.increment();
+            carListingListenerControl.pause(PAUSE_REASON);
+        }
+
+        CompletableFuture<Void> next = tails.compute(key, (k, tail) -> {
+            CompletableFuture<Void> previous = tail == null ? CompletableFuture.completedFuture(null) : tail;
+            return previous.thenRunAsync(task, executor)
+                    .exceptionally(ex -> {
+                        log.error("Processing task for key {} failed: {}", k, ex.getMessage());
+                        return null;
+                    });
+        });
+
+        return next.whenComplete((result, ex) -> {
+            tails.remove(key, next);
+            if (inFlight.decrementAndGet() <= resumeInFlight && paused.compareAndSet(true, false)) {
+                carListingListenerControl.resume(PAUSE_REASON);
+            }
+        });
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,141 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Batches manual offset commits per topic partition.
+ * <p>
+ * Listeners hand over the acknowledgment of every record once its Elasticsearch write
+ * succeeded. Kafka offsets are cumulative, so acknowledging the latest successful record
+ * of a partition commits every record before it. The batcher therefore keeps only the
+ * latest acknowledgment per partition and acknowledges it once the configured number of
+ * records is reached or the oldest pending record waited for the configured interval.
+ * </p>
+ * <p>
+ * Pending acknowledgments are flushed before partitions are revoked, so a rebalance only
+ * replays records whose write has not completed.
+ * </p>
+ * <p>
+ * Expired acknowledgments are looked for ten times per configured interval, so a record
+ * waits at most a tenth of the interval longer than configured.
+ * </p>
+ */
+@Component
+@Slf4j
+public class PartitionAcknowledgmentBatcher implements ConsumerAwareRebalanceListener, SchedulingConfigurer {
+
+    private static final int CHECKS_PER_INTERVAL = 10;
+
+    private final int ackCount;
+    private final Duration ackInterval;
+    private final Clock clock;
+    private final Map<TopicPartition, PendingAcknowledgment> pendingAcknowledgments = new ConcurrentHashMap<>();
+
+    public PartitionAcknowledgmentBatcher(@Value("${car-listing.consumer.ack-count:100}") int ackCount,
+                                          @Value("${car-listing.consumer.ack-interval:5s}") Duration ackInterval) {
+        this(ackCount, ackInterval, Clock.systemUTC());
+    }
+
+    PartitionAcknowledgmentBatcher(int ackCount, Duration ackInterval, Clock clock) {
+        this.ackCount = ackCount;
+        this.ackInterval = ackInterval;
+        this.clock = clock;
+    }
+
+    /**
+     * Registers the successful processing of a record.
+     * <p>
+     * The acknowledgment replaces any pending acknowledgment of the same partition and
+     * is committed right away when the partition reached the configured record count.
+     * </p>
+     *
+     * @param record         The record whose processing completed successfully.
+     * @param acknowledgment The acknowledgment of that record.
+     */
+    public void acknowledge(ConsumerRecord<?, ?> record, Acknowledgment acknowledgment) {
+        TopicPartition topicPartition = new TopicPartition(record.topic(), record.partition());
+        PendingAcknowledgment pending = pendingAcknowledgments.compute(topicPartition, (partition, current) ->
+                current == null
+                        ? new PendingAcknowledgment(acknowledgment, 1, clock.millis())
+                        : new PendingAcknowledgment(acknowledgment, current.count() + 1, current.firstPendingAt()));
+
+        if (pending.count() >= ackCount) {
+            commit(topicPartition, pending);
+        }
+    }
+
+    /**
+     * Commits the pending acknowledgments of all partitions.
+     * <p>
+     * Listeners call this before they re-seek a partition, so the work completed so far
+     * is not replayed.
+     * </p>
+     */
+    public void flush() {
+        pendingAcknowledgments.forEach(this::commit);
+    }
+
+    /**
+     * Commits the pending acknowledgments that waited longer than the configured interval.
+     * <p>
+     * Acknowledgments made outside the consumer thread are queued by the listener container
+     * and committed by the consumer thread on its next poll.
+     * </p>
+     */
+    public void flushExpired() {
+        long now = clock.millis();
+        pendingAcknowledgments.forEach((topicPartition, pending) -> {
+            if (now - pending.firstPendingAt() >= ackInterval.toMillis()) {
+                commit(topicPartition, pending);
+            }
+        });
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        Duration checkInterval = ackInterval.dividedBy(CHECKS_PER_INTERVAL);
+        taskRegistrar.addFixedDelayTask(this::flushExpired,
+                checkInterval.isZero() ? Duration.ofMillis(1) : checkInterval);
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        partitions.forEach(topicPartition -> {
+            PendingAcknowledgment pending = pendingAcknowledgments.get(topicPartition);
+            if (pending != null) {
+                commit(topicPartition, pending);
+            }
+        });
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // The partitions already belong to another consumer, their offsets can no longer be committed
+        partitions.forEach(pendingAcknowledgments::remove);
+    }
+
+    private void commit(TopicPartition topicPartition, PendingAcknowledgment pending) {
+        if (pendingAcknowledgments.remove(topicPartition, pending)) {
+            pending.acknowledgment().acknowledge();
+            log.debug("Acknowledged {} records of partition {}", pending.count(), topicPartition);
+        }
+    }
+
+    private record PendingAcknowledgment(Acknowledgment acknowledgment, int count, long firstPendingAt) {
+    }
+}
@@ -0,0 +1,220 @@
+package org.smg.carlisting.infrastructure.memory;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.smg.carlisting.application.CarListingSearchCriteria;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.exception.InternalServerErrorException;
+import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.BulkIndexResult;
+import org.smg.carlisting.domain.repository.CarListingFacets;
+import org.smg.carlisting.domain.repository.CarListingPage;
+import org.smg.carlisting.domain.repository.CarListingRepository;
+import org.smg.carlisting.infrastructure.elasticsearch.ElasticCarListingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.smg.carlisting.common.Constants.ELASTICSEARCH_CIRCUIT_BREAKER;
+import static org.smg.carlisting.common.Constants.ID;
+import static org.smg.carlisting.common.Constants.LOCAL_INDEX_ENABLED_PROPERTY;
+import static org.smg.carlisting.common.Constants.METRIC_SEARCH_FALLBACK;
+
+/**
+ * Car listing repository that keeps searches available while Elasticsearch is down.
+ * <p>
+ * Every write goes to Elasticsearch and to the {@link InMemoryCarListingRepository}, and
+ * the result of the Elasticsearch write is returned, so acknowledgments and retries do not
+ * change. Searches go to Elasticsearch as long as the circuit breaker lets calls through.
+ * While it is open, or when Elasticsearch cannot be reached, they are answered from the
+ * in-memory replica instead of failing.
+ * </p>
+ * <p>
+ * Events that are held back in the write buffer during an outage are written to the
+ * replica alone, so the searches it answers meanwhile include them.
+ * </p>
+ * <p>
+ * The replica is loaded from Elasticsearch once the application is ready. It is enabled
+ * with {@code car-listing.local-index.enabled=true}.
+ * </p>
+ */
+@Component
+@Primary
+@Slf4j
+@ConditionalOnProperty(name = LOCAL_INDEX_ENABLED_PROPERTY, havingValue = "true")
+public class FallbackCarListingRepository implements CarListingRepository {
+
+    private final ElasticCarListingRepository elasticCarListingRepository;
+    private final InMemoryCarListingRepository inMemoryCarListingRepository;
+    private final CircuitBreaker circuitBreaker;
+    private final Counter fallbackCounter;
+    private final int bootstrapPageSize;
+
+    public FallbackCarListingRepository(ElasticCarListingRepository elasticCarListingRepository,
+                                        InMemoryCarListingRepository inMemoryCarListingRepository,
+                                        CircuitBreakerRegistry circuitBreakerRegistry, MeterRegistry meterRegistry,
+                                        @Value("${car-listing.local-index.bootstrap-page-size:1000}") int bootstrapPageSize) {
+        this.elasticCarListingRepository = elasticCarListingRepository;
+        this.inMemoryCarListingRepository = inMemoryCarListingRepository;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(ELASTICSEARCH_CIRCUIT_BREAKER);
+        this.fallbackCounter = Counter.builder(METRIC_SEARCH_FALLBACK)
+                .description("Searches answered by the in-process replica instead of Elasticsearch")
+                .register(meterRegistry);
+        this.bootstrapPageSize = bootstrapPageSize;
+    }
+
+    @Override
+    public List<CarListing> searchCarListings(CarListingSearchCriteria searchCriteria, Pageable pageable) {
+        return searchWithFallback(() -> elasticCarListingRepository.searchCarListings(searchCriteria, pageable),
+                () -> inMemoryCarListingRepository.searchCarListings(searchCriteria, pageable));
+    }
+
+    @Override
+    public CompletableFuture<List<CarListing>> searchCarListingsAsync(CarListingSearchCriteria searchCriteria,
+                                                                     Pageable pageable) {
+        if (isOpen()) {
+            fallbackCounter.increment();
+            return inMemoryCarListingRepository.searchCarListingsAsync(searchCriteria, pageable);
+        }
+
+        return elasticCarListingRepository.searchCarListingsAsync(searchCriteria, pageable)
+                .exceptionallyCompose(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (!(cause instanceof InternalServerErrorException
+                            || cause instanceof DataAccessResourceFailureException)) {
+                        return CompletableFuture.failedFuture(cause);
+                    }
+                    log.warn("Searching Elasticsearch failed, answering from the local index: {}",
+                            cause.getLocalizedMessage());
+                    fallbackCounter.increment();
+                    return inMemoryCarListingRepository.searchCarListingsAsync(searchCriteria, pageable);
+                });
+    }
+
+    @Override
+    public CarListingPage searchCarListingsAfter(CarListingSearchCriteria searchCriteria, Sort sort, int size,
+                                                 List<Object> searchAfter) {
+        return searchWithFallback(
+                () -> elasticCarListingRepository.searchCarListingsAfter(searchCriteria, sort, size, searchAfter),
+                () -> inMemoryCarListingRepository.searchCarListingsAfter(searchCriteria, sort, size, searchAfter));
+    }
+
+    @Override
+    public CarListingFacets searchCarListingFacets(CarListingSearchCriteria searchCriteria) {
+        return searchWithFallback(() -> elasticCarListingRepository.searchCarListingFacets(searchCriteria),
+                () -> inMemoryCarListingRepository.searchCarListingFacets(searchCriteria));
+    }
+
+    /**
+     * Exports from the replica only if the circuit breaker is open when the export starts.
+     * Once car listings were handed to the consumer, a failing Elasticsearch export cannot
+     * switch over without repeating them, so the failure is passed on.
+     */
+    @Override
+    public long exportCarListings(CarListingSearchCriteria searchCriteria, Consumer<List<CarListing>> pageConsumer) {
+        if (isOpen()) {
+            fallbackCounter.increment();
+            return inMemoryCarListingRepository.exportCarListings(searchCriteria, pageConsumer);
+        }
+
+        return elasticCarListingRepository.exportCarListings(searchCriteria, pageConsumer);
+    }
+
+    @Override
+    public boolean createOrUpdateElasticsearchIndex(CarListing carListing, Long version) {
+        boolean written = elasticCarListingRepository.createOrUpdateElasticsearchIndex(carListing, version);
+        inMemoryCarListingRepository.createOrUpdateElasticsearchIndex(carListing, version);
+        return written;
+    }
+
+    @Override
+    public boolean deleteFromElasticsearchIndex(String carListingId, Long version) {
+        boolean written = elasticCarListingRepository.deleteFromElasticsearchIndex(carListingId, version);
+        inMemoryCarListingRepository.deleteFromElasticsearchIndex(carListingId, version);
+        return written;
+    }
+
+    @Override
+    public BulkIndexResult bulkUpdateElasticsearchIndex(List<CarListingEvent> carListingEvents) {
+        BulkIndexResult bulkIndexResult = elasticCarListingRepository.bulkUpdateElasticsearchIndex(carListingEvents);
+        inMemoryCarListingRepository.bulkUpdateElasticsearchIndex(carListingEvents);
+        return bulkIndexResult;
+    }
+
+    @Override
+    public BulkIndexResult bulkUpdateElasticsearchIndex(List<CarListingEvent> carListingEvents, String indexName) {
+        return elasticCarListingRepository.bulkUpdateElasticsearchIndex(carListingEvents, indexName);
+    }
+
+    @Override
+    public void writeReplica(List<CarListingEvent> carListingEvents) {
+        inMemoryCarListingRepository.bulkUpdateElasticsearchIndex(carListingEvents);
+    }
+
+    /**
+     * Loads the replica on its own thread once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrapInBackground() {
+        Thread.ofVirtual().name("car-listing-local-index-bootstrap").start(this::bootstrap);
+    }
+
+    /**
+     * Loads all car listings from Elasticsearch into the replica, page by page in id order.
+     * If Elasticsearch cannot be read, the replica keeps only the car listings of the
+     * events consumed from now on.
+     */
+    public void bootstrap() {
+        inMemoryCarListingRepository.startBootstrap();
+        try {
+            CarListingSearchCriteria allCarListings = new CarListingSearchCriteria();
+            List<Object> searchAfter = null;
+            do {
+                CarListingPage page = elasticCarListingRepository.searchCarListingsAfter(allCarListings, Sort.by(ID),
+                        bootstrapPageSize, searchAfter);
+                inMemoryCarListingRepository.bootstrap(page.getCarListings());
+                searchAfter = page.getSearchAfter();
+            } while (searchAfter != null);
+            log.info("Local car listing index is loaded with {} car listings", inMemoryCarListingRepository.size());
+        } catch (RuntimeException ex) {
+            log.warn("Local car listing index could not be loaded from Elasticsearch: {}", ex.getLocalizedMessage());
+        } finally {
+            inMemoryCarListingRepository.finishBootstrap();
+        }
+    }
+
+    private <T> T searchWithFallback(Supplier<T> elasticsearchSearch, Supplier<T> localSearch) {
+        if (isOpen()) {
+            fallbackCounter.increment();
+            return localSearch.get();
+        }
+
+        try {
+            return elasticsearchSearch.get();
+        } catch (InternalServerErrorException | DataAccessResourceFailureException ex) {
+            log.warn("Searching Elasticsearch failed, answering from the local index: {}", ex.getLocalizedMessage());
+            fallbackCounter.increment();
+            return localSearch.get();
+        }
+    }
+
+    private boolean isOpen() {
+        CircuitBreaker.State state = circuitBreaker.getState();
+        return state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN;
+    }
+}
@@ -0,0 +1,502 @@
+package org.smg.carlisting.infrastructure.memory;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.smg.carlisting.application.CarListingSearchCriteria;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.BulkIndexResult;
+import org.smg.carlisting.domain.repository.CarListingFacets;
+import org.smg.carlisting.domain.repository.CarListingPage;
+import org.smg.carlisting.domain.repository.CarListingRepository;
+import org.smg.carlisting.domain.repository.FacetBucket;
+import org.smg.carlisting.domain.repository.HistogramBucket;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import static org.smg.carlisting.common.Constants.COLOR;
+import static org.smg.carlisting.common.Constants.FACET_PRICE_INTERVAL;
+import static org.smg.carlisting.common.Constants.ID;
+import static org.smg.carlisting.common.Constants.LOCAL_INDEX_ENABLED_PROPERTY;
+import static org.smg.carlisting.common.Constants.MAKE;
+import static org.smg.carlisting.common.Constants.MAX_CURSOR_PAGE_SIZE;
+import static org.smg.carlisting.common.Constants.MAX_FACET_VALUES;
+import static org.smg.carlisting.common.Constants.MAX_PRICE;
+import static org.smg.carlisting.common.Constants.METRIC_LOCAL_INDEX_SIZE;
+import static org.smg.carlisting.common.Constants.MIN_PRICE;
+import static org.smg.carlisting.common.Constants.MODEL;
+import static org.smg.carlisting.common.Constants.YEAR;
+import static org.smg.carlisting.infrastructure.memory.StringDictionary.NO_VALUE;
+
+/**
+ * In-process replica of all car listings, used to answer searches while Elasticsearch
+ * is unavailable.
+ * <p>
+ * The car listings are stored column by column: make, model and color as dictionary
+ * codes in {@code int} arrays, year in an {@code int} array and the prices in
+ * {@code double} arrays, with one row per car listing. A search scans the columns of all
+ * rows without creating objects and materializes only the car listings of the requested
+ * page. Text criteria are evaluated once per distinct value of the dictionary.
+ * </p>
+ * <p>
+ * Searches mirror the Elasticsearch query: text criteria match on a shared token, year
+ * and prices are exact or range filters. Hits are sorted by the requested sort, with
+ * make, model and color compared lower-cased like their keyword subfields, and otherwise
+ * kept in insertion order since there is no relevance score.
+ * </p>
+ * <p>
+ * The replica is filled by the same events as Elasticsearch and bootstrapped from
+ * Elasticsearch at startup. Writes that happen during the bootstrap win over the loaded
+ * state. Rows of deleted car listings are reused.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = LOCAL_INDEX_ENABLED_PROPERTY, havingValue = "true")
+public class InMemoryCarListingRepository implements CarListingRepository {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> rowsById = new HashMap<>();
+    private final StringDictionary makes = new StringDictionary();
+    private final StringDictionary models = new StringDictionary();
+    private final StringDictionary colors = new StringDictionary();
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private int[] makeCodes = new int[INITIAL_CAPACITY];
+    private int[] modelCodes = new int[INITIAL_CAPACITY];
+    private int[] colorCodes = new int[INITIAL_CAPACITY];
+    private int[] years = new int[INITIAL_CAPACITY];
+    private double[] minPrices = new double[INITIAL_CAPACITY];
+    private double[] maxPrices = new double[INITIAL_CAPACITY];
+    private int[] freeRows = new int[INITIAL_CAPACITY];
+    private int freeRowCount;
+    private int rowCount;
+    private Set<String> writtenDuringBootstrap;
+
+    public InMemoryCarListingRepository(MeterRegistry meterRegistry) {
+        Gauge.builder(METRIC_LOCAL_INDEX_SIZE, this, InMemoryCarListingRepository::size)
+                .description("Car listings held by the in-process search fallback")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<CarListing> searchCarListings(CarListingSearchCriteria searchCriteria, Pageable pageable) {
+        lock.readLock().lock();
+        try {
+            Integer[] hits = sort(match(searchCriteria), pageable.getSort());
+            if (pageable.isUnpaged()) {
+                return materialize(hits, 0, hits.length);
+            }
+
+            long offset = pageable.getOffset();
+            if (offset >= hits.length) {
+                return List.of();
+            }
+            return materialize(hits, (int) offset, (int) Math.min(hits.length, offset + pageable.getPageSize()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches on the calling thread, the replica answers from memory without waiting.
+     */
+    @Override
+    public CompletableFuture<List<CarListing>> searchCarListingsAsync(CarListingSearchCriteria searchCriteria,
+                                                                     Pageable pageable) {
+        return CompletableFuture.completedFuture(searchCarListings(searchCriteria, pageable));
+    }
+
+    @Override
+    public CarListingPage searchCarListingsAfter(CarListingSearchCriteria searchCriteria, Sort sort, int size,
+                                                 List<Object> searchAfter) {
+        lock.readLock().lock();
+        try {
+            Integer[] hits = sort(match(searchCriteria), sort);
+            int start = 0;
+            if (searchAfter != null) {
+                while (start < hits.length && compareToSortValues(hits[start], sort, searchAfter) <= 0) {
+                    start++;
+                }
+            }
+
+            int end = Math.min(hits.length, start + size);
+            List<Object> nextSearchAfter = end < hits.length && end > start ? sortValues(hits[end - 1], sort) : null;
+            return new CarListingPage(materialize(hits, start, end), nextSearchAfter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the facets over the columns of the matching rows, like the Elasticsearch
+     * aggregations: the most frequent lower-cased makes, models and colors, ties ordered
+     * by value, and the years and minimum prices in ascending order.
+     */
+    @Override
+    public CarListingFacets searchCarListingFacets(CarListingSearchCriteria searchCriteria) {
+        lock.readLock().lock();
+        try {
+            int[] hits = match(searchCriteria);
+            Map<String, Long> makeCounts = new HashMap<>();
+            Map<String, Long> modelCounts = new HashMap<>();
+            Map<String, Long> colorCounts = new HashMap<>();
+            Map<Double, Long> yearCounts = new TreeMap<>();
+            Map<Double, Long> priceCounts = new TreeMap<>();
+            for (int row : hits) {
+                count(makeCounts, lowerCase(makes.decode(makeCodes[row])));
+                count(modelCounts, lowerCase(models.decode(modelCodes[row])));
+                count(colorCounts, lowerCase(colors.decode(colorCodes[row])));
+                yearCounts.merge((double) years[row], 1L, Long::sum);
+                priceCounts.merge(Math.floor(minPrices[row] / FACET_PRICE_INTERVAL) * FACET_PRICE_INTERVAL, 1L, Long::sum);
+            }
+
+            return new CarListingFacets(hits.length, toFacetBuckets(makeCounts), toFacetBuckets(modelCounts),
+                    toFacetBuckets(colorCounts), toHistogramBuckets(yearCounts, 1),
+                    toHistogramBuckets(priceCounts, FACET_PRICE_INTERVAL));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Walks the matching car listings in id order, one page of
+     * {@value org.smg.carlisting.common.Constants#MAX_CURSOR_PAGE_SIZE} at a time. The
+     * lock is released between pages, so the export sees writes made while it runs.
+     */
+    @Override
+    public long exportCarListings(CarListingSearchCriteria searchCriteria, Consumer<List<CarListing>> pageConsumer) {
+        long exported = 0;
+        CarListingPage page;
+        List<Object> searchAfter = null;
+        do {
+            page = searchCarListingsAfter(searchCriteria, Sort.by(ID), MAX_CURSOR_PAGE_SIZE, searchAfter);
+            if (!page.getCarListings().isEmpty()) {
+                pageConsumer.accept(page.getCarListings());
+                exported += page.getCarListings().size();
+            }
+            searchAfter = page.getSearchAfter();
+        } while (page.hasNext());
+        return exported;
+    }
+
+    @Override
+    public boolean createOrUpdateElasticsearchIndex(CarListing carListing, Long version) {
+        lock.writeLock().lock();
+        try {
+            put(carListing);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteFromElasticsearchIndex(String carListingId, Long version) {
+        lock.writeLock().lock();
+        try {
+            remove(carListingId);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public BulkIndexResult bulkUpdateElasticsearchIndex(List<CarListingEvent> carListingEvents) {
+        lock.writeLock().lock();
+        try {
+            for (CarListingEvent carListingEvent : carListingEvents) {
+                if (carListingEvent.carListingId() == null) {
+                    continue;
+                }
+                if (carListingEvent.getEventType() == EventType.DELETE) {
+                    remove(carListingEvent.getCarListing().getId());
+                } else {
+                    put(carListingEvent.getCarListing());
+                }
+            }
+            return new BulkIndexResult(carListingEvents.size(), List.of());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes into other indices, such as an index being rebuilt, are not replicated,
+     * the replica already follows the alias.
+     */
+    @Override
+    public BulkIndexResult bulkUpdateElasticsearchIndex(List<CarListingEvent> carListingEvents, String indexName) {
+        if (indexName == null) {
+            return bulkUpdateElasticsearchIndex(carListingEvents);
+        }
+
+        return new BulkIndexResult(0, List.of());
+    }
+
+    /**
+     * Starts tracking the car listings written by events, so that the state loaded by
+     * the bootstrap does not overwrite them.
+     */
+    public void startBootstrap() {
+        lock.writeLock().lock();
+        try {
+            writtenDuringBootstrap = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Loads car listings read from Elasticsearch, skipping the ones that events wrote or
+     * deleted since the bootstrap started.
+     *
+     * @param carListings A page of car listings read from Elasticsearch.
+     */
+    public void bootstrap(List<CarListing> carListings) {
+        lock.writeLock().lock();
+        try {
+            Set<String> skippedIds = writtenDuringBootstrap == null ? Set.of() : writtenDuringBootstrap;
+            for (CarListing carListing : carListings) {
+                if (!skippedIds.contains(carListing.getId())) {
+                    putRow(carListing);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void finishBootstrap() {
+        lock.writeLock().lock();
+        try {
+            writtenDuringBootstrap = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(CarListing carListing) {
+        if (carListing.getId() == null) {
+            return;
+        }
+        if (writtenDuringBootstrap != null) {
+            writtenDuringBootstrap.add(carListing.getId());
+        }
+        putRow(carListing);
+    }
+
+    private void putRow(CarListing carListing) {
+        Integer row = rowsById.get(carListing.getId());
+        if (row == null) {
+            row = allocateRow();
+            rowsById.put(carListing.getId(), row);
+            ids[row] = carListing.getId();
+        }
+
+        makeCodes[row] = makes.encode(carListing.getMake());
+        modelCodes[row] = models.encode(carListing.getModel());
+        colorCodes[row] = colors.encode(carListing.getColor());
+        years[row] = carListing.getYear();
+        minPrices[row] = carListing.getMinPrice();
+        maxPrices[row] = carListing.getMaxPrice();
+    }
+
+    private void remove(String carListingId) {
+        if (carListingId == null) {
+            return;
+        }
+        if (writtenDuringBootstrap != null) {
+            writtenDuringBootstrap.add(carListingId);
+        }
+
+        Integer row = rowsById.remove(carListingId);
+        if (row != null) {
+            ids[row] = null;
+            if (freeRowCount == freeRows.length) {
+                freeRows = Arrays.copyOf(freeRows, freeRows.length * 2);
+            }
+            freeRows[freeRowCount++] = row;
+        }
+    }
+
+    private int allocateRow() {
+        if (freeRowCount > 0) {
+            return freeRows[--freeRowCount];
+        }
+
+        if (rowCount == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            makeCodes = Arrays.copyOf(makeCodes, capacity);
+            modelCodes = Arrays.copyOf(modelCodes, capacity);
+            colorCodes = Arrays.copyOf(colorCodes, capacity);
+            years = Arrays.copyOf(years, capacity);
+            minPrices = Arrays.copyOf(minPrices, capacity);
+            maxPrices = Arrays.copyOf(maxPrices, capacity);
+        }
+        return rowCount++;
+    }
+
+    private int[] match(CarListingSearchCriteria criteria) {
+        boolean[] matchingMakes = criteria.getMake() == null ? null : makes.matching(criteria.getMake());
+        boolean[] matchingModels = criteria.getModel() == null ? null : models.matching(criteria.getModel());
+        boolean[] matchingColors = criteria.getColor() == null ? null : colors.matching(criteria.getColor());
+        Integer year = criteria.getYear();
+        int minYear = criteria.getMinYear() == null ? Integer.MIN_VALUE : criteria.getMinYear();
+        int maxYear = criteria.getMaxYear() == null ? Integer.MAX_VALUE : criteria.getMaxYear();
+        double minPrice = criteria.getMinPrice() == null ? Double.NEGATIVE_INFINITY : criteria.getMinPrice();
+        double maxPrice = criteria.getMaxPrice() == null ? Double.POSITIVE_INFINITY : criteria.getMaxPrice();
+
+        int[] hits = new int[rowsById.size()];
+        int hitCount = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (ids[row] == null
+                    || !matches(matchingMakes, makeCodes[row])
+                    || !matches(matchingModels, modelCodes[row])
+                    || !matches(matchingColors, colorCodes[row])
+                    || (year != null && years[row] != year)
+                    || years[row] < minYear || years[row] > maxYear
+                    || maxPrices[row] < minPrice || minPrices[row] > maxPrice) {
+                continue;
+            }
+            hits[hitCount++] = row;
+        }
+        return Arrays.copyOf(hits, hitCount);
+    }
+
+    private static boolean matches(boolean[] matchingCodes, int code) {
+        return matchingCodes == null || (code != NO_VALUE && matchingCodes[code]);
+    }
+
+    private Integer[] sort(int[] rows, Sort sort) {
+        Integer[] hits = Arrays.stream(rows).boxed().toArray(Integer[]::new);
+        if (sort.isSorted()) {
+            Arrays.sort(hits, comparator(sort));
+        }
+        return hits;
+    }
+
+    private Comparator<Integer> comparator(Sort sort) {
+        Comparator<Integer> comparator = (left, right) -> 0;
+        for (Sort.Order order : sort) {
+            comparator = comparator.thenComparing((left, right) -> compareSortValues(
+                    sortValue(left, order.getProperty()), sortValue(right, order.getProperty()), order.getDirection()));
+        }
+        return comparator;
+    }
+
+    private int compareToSortValues(int row, Sort sort, List<Object> searchAfter) {
+        int index = 0;
+        for (Sort.Order order : sort) {
+            if (index == searchAfter.size()) {
+                break;
+            }
+            int comparison = compareSortValues(sortValue(row, order.getProperty()), searchAfter.get(index++),
+                    order.getDirection());
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Compares two sort values, missing values are sorted last in both directions like
+     * Elasticsearch does by default.
+     */
+    private static int compareSortValues(Object left, Object right, Sort.Direction direction) {
+        if (left == null || right == null) {
+            return left == null ? (right == null ? 0 : 1) : -1;
+        }
+
+        int comparison = left instanceof Number leftNumber && right instanceof Number rightNumber
+                ? Double.compare(leftNumber.doubleValue(), rightNumber.doubleValue())
+                : left.toString().compareTo(right.toString());
+        return direction.isAscending() ? comparison : -comparison;
+    }
+
+    private List<Object> sortValues(int row, Sort sort) {
+        List<Object> values = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            values.add(sortValue(row, order.getProperty()));
+        }
+        return values;
+    }
+
+    private Object sortValue(int row, String property) {
+        return switch (property) {
+            case ID -> ids[row];
+            case MAKE -> lowerCase(makes.decode(makeCodes[row]));
+            case MODEL -> lowerCase(models.decode(modelCodes[row]));
+            case COLOR -> lowerCase(colors.decode(colorCodes[row]));
+            case YEAR -> years[row];
+            case MIN_PRICE -> minPrices[row];
+            case MAX_PRICE -> maxPrices[row];
+            default -> null;
+        };
+    }
+
+    private static void count(Map<String, Long> counts, String value) {
+        if (value != null) {
+            counts.merge(value, 1L, Long::sum);
+        }
+    }
+
+    private static List<FacetBucket> toFacetBuckets(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.<String, Long>comparingByKey()))
+                .limit(MAX_FACET_VALUES)
+                .map(count -> new FacetBucket(count.getKey(), count.getValue()))
+                .toList();
+    }
+
+    private static List<HistogramBucket> toHistogramBuckets(Map<Double, Long> counts, double interval) {
+        return counts.entrySet().stream()
+                .map(count -> new HistogramBucket(count.getKey(), count.getKey() + interval, count.getValue()))
+                .toList();
+    }
+
+    private static String lowerCase(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    private List<CarListing> materialize(Integer[] hits, int from, int to) {
+        List<CarListing> carListings = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            int row = hits[i];
+            carListings.add(new CarListing(ids[row], makes.decode(makeCodes[row]), models.decode(modelCodes[row]),
+                    years[row], minPrices[row], maxPrices[row], colors.decode(colorCodes[row])));
+        }
+        return carListings;
+    }
+}
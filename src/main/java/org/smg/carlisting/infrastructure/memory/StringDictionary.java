@@ -0,0 +1,58 @@
+package org.smg.carlisting.infrastructure.memory;
+
+import org.smg.carlisting.application.CarListingSearchCriteriaMatcher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding of a low cardinality text column.
+ * <p>
+ * Every distinct value is stored once and referenced by its code, so a column of makes
+ * costs one {@code int} per car listing. Codes are never reused, the number of distinct
+ * makes, models and colors is small. This class is not thread-safe, the owning
+ * repository guards it with its lock.
+ * </p>
+ */
+class StringDictionary {
+
+    static final int NO_VALUE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    int encode(String value) {
+        if (value == null) {
+            return NO_VALUE;
+        }
+
+        return codes.computeIfAbsent(value, key -> {
+            values.add(key);
+            return values.size() - 1;
+        });
+    }
+
+    String decode(int code) {
+        return code == NO_VALUE ? null : values.get(code);
+    }
+
+    /**
+     * Evaluates a text criterion once per distinct value instead of once per car listing.
+     *
+     * @param criteria The searched text.
+     * @return The codes whose value shares a token with the criterion, indexed by code.
+     */
+    boolean[] matching(String criteria) {
+        boolean[] matches = new boolean[values.size()];
+        for (int code = 0; code < values.size(); code++) {
+            matches[code] = CarListingSearchCriteriaMatcher.sharesToken(criteria, values.get(code));
+        }
+        return matches;
+    }
+
+    int size() {
+        return values.size();
+    }
+}
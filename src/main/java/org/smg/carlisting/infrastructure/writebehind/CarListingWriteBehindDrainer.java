@@ -0,0 +1,107 @@
+package org.smg.carlisting.infrastructure.writebehind;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.smg.carlisting.application.CarListingService;
+import org.smg.carlisting.domain.repository.BufferedCarListingEvent;
+import org.smg.carlisting.domain.repository.BulkIndexFailure;
+import org.smg.carlisting.domain.repository.BulkIndexResult;
+import org.smg.carlisting.domain.repository.CarListingWriteBuffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.smg.carlisting.common.Constants.ELASTICSEARCH_CIRCUIT_BREAKER;
+import static org.smg.carlisting.common.Constants.METRIC_WRITE_BEHIND_DRAINED;
+import static org.smg.carlisting.common.Constants.WRITE_BEHIND_ENABLED_PROPERTY;
+
+/**
+ * Writes the car listings held by the {@link CarListingWriteBuffer} to Elasticsearch.
+ * <p>
+ * The buffer is drained in bulk requests of the oldest car listings as soon as the
+ * Elasticsearch circuit breaker closes, and periodically in between. The periodic drain
+ * also probes Elasticsearch while the breaker is open, since the consumers do not call
+ * it as long as they write into the buffer.
+ * </p>
+ * <p>
+ * Written car listings are removed from the buffer. A drain stops at the first bulk
+ * request with retryable failures and keeps those car listings for the next drain.
+ * Car listings rejected for good are logged by the service and removed.
+ * </p>
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = WRITE_BEHIND_ENABLED_PROPERTY, havingValue = "true")
+public class CarListingWriteBehindDrainer {
+
+    private final CarListingWriteBuffer carListingWriteBuffer;
+    private final CarListingService carListingService;
+    private final int drainBatchSize;
+    private final Counter drainedCounter;
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    public CarListingWriteBehindDrainer(CarListingWriteBuffer carListingWriteBuffer, CarListingService carListingService,
+                                        CircuitBreakerRegistry circuitBreakerRegistry, MeterRegistry meterRegistry,
+                                        @Value("${car-listing.write-behind.drain-batch-size:1000}") int drainBatchSize) {
+        this.carListingWriteBuffer = carListingWriteBuffer;
+        this.carListingService = carListingService;
+        this.drainBatchSize = drainBatchSize;
+        this.drainedCounter = Counter.builder(METRIC_WRITE_BEHIND_DRAINED)
+                .description("Buffered car listings written to Elasticsearch")
+                .register(meterRegistry);
+        circuitBreakerRegistry.circuitBreaker(ELASTICSEARCH_CIRCUIT_BREAKER).getEventPublisher()
+                .onStateTransition(event -> {
+                    if (event.getStateTransition().getToState() == CircuitBreaker.State.CLOSED
+                            && !carListingWriteBuffer.isEmpty()) {
+                        Thread.ofVirtual().name("car-listing-write-behind-drain").start(this::drain);
+                    }
+                });
+    }
+
+    /**
+     * Drains the buffer until it is empty or Elasticsearch rejects a bulk request with
+     * retryable failures. Returns at once if another drain is running.
+     */
+    @Scheduled(fixedDelayString = "${car-listing.write-behind.drain-interval:PT5S}")
+    public void drain() {
+        if (carListingWriteBuffer.isEmpty() || !draining.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            List<BufferedCarListingEvent> bufferedEvents;
+            while (!(bufferedEvents = carListingWriteBuffer.peek(drainBatchSize)).isEmpty()) {
+                BulkIndexResult bulkIndexResult = carListingService.writeBufferedCarListings(bufferedEvents.stream()
+                        .map(BufferedCarListingEvent::getCarListingEvent)
+                        .toList());
+                Set<String> retryableIds = bulkIndexResult.getFailures().stream()
+                        .filter(BulkIndexFailure::isRetryable)
+                        .map(BulkIndexFailure::getCarListingId)
+                        .collect(Collectors.toSet());
+                List<BufferedCarListingEvent> drainedEvents = bufferedEvents.stream()
+                        .filter(bufferedEvent -> !retryableIds.contains(bufferedEvent.getCarListingEvent().carListingId()))
+                        .toList();
+                carListingWriteBuffer.remove(drainedEvents);
+                drainedCounter.increment(drainedEvents.size());
+
+                if (!retryableIds.isEmpty()) {
+                    log.info("Elasticsearch does not accept writes yet, {} car listings stay buffered",
+                            carListingWriteBuffer.size());
+                    return;
+                }
+            }
+            log.info("Write-behind buffer is drained");
+        } finally {
+            draining.set(false);
+        }
+    }
+}
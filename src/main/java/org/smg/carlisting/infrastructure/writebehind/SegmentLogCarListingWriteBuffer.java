@@ -0,0 +1,312 @@
+package org.smg.carlisting.infrastructure.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.repository.BufferedCarListingEvent;
+import org.smg.carlisting.domain.repository.CarListingWriteBuffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static org.smg.carlisting.common.Constants.METRIC_WRITE_BEHIND_APPENDED;
+import static org.smg.carlisting.common.Constants.METRIC_WRITE_BEHIND_SIZE;
+import static org.smg.carlisting.common.Constants.WRITE_BEHIND_ENABLED_PROPERTY;
+
+/**
+ * Write buffer stored in an append-only log of memory-mapped segment files.
+ * <p>
+ * Every appended event is written as one record at the end of the active segment, which
+ * is forced to disk before {@link #append(List)} returns. A record holds its length, a
+ * CRC32C checksum, the sequence number, the record type and the event as JSON. When a
+ * car listing was written to the data store, a drained record with its id and sequence
+ * number is appended. The latest state per car listing id is kept in memory, so older
+ * records of the same car listing are never read again.
+ * </p>
+ * <p>
+ * At startup, all segments are replayed in order to restore the buffered car listings.
+ * Replay of a segment stops at the first record that is incomplete or fails its checksum,
+ * as left behind by a crash during a write. The segments are deleted once the buffer is
+ * empty, and rewritten with the live records only when most of their records are
+ * superseded.
+ * </p>
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = WRITE_BEHIND_ENABLED_PROPERTY, havingValue = "true")
+public class SegmentLogCarListingWriteBuffer implements CarListingWriteBuffer {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES + Byte.BYTES;
+    private static final byte EVENT_RECORD = 1;
+    private static final byte DRAINED_RECORD = 2;
+    private static final ObjectReader CAR_LISTING_EVENT_READER = new ObjectMapper().readerFor(CarListingEvent.class);
+    private static final ObjectWriter CAR_LISTING_EVENT_WRITER = new ObjectMapper().writerFor(CarListingEvent.class);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Map<String, BufferedRecord> buffered = new LinkedHashMap<>();
+    private final List<Path> segments = new ArrayList<>();
+    private final Counter appendedCounter;
+    private MappedByteBuffer activeSegment;
+    private long nextSequence;
+    private long nextSegmentNumber;
+    private long liveBytes;
+
+    public SegmentLogCarListingWriteBuffer(@Value("${car-listing.write-behind.directory:data/write-behind}") String directory,
+                                           @Value("${car-listing.write-behind.segment-size:64MB}") DataSize segmentSize,
+                                           MeterRegistry meterRegistry) throws IOException {
+        this.directory = Path.of(directory);
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+        this.appendedCounter = Counter.builder(METRIC_WRITE_BEHIND_APPENDED)
+                .description("Car listing events appended to the write-behind buffer")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_WRITE_BEHIND_SIZE, this, SegmentLogCarListingWriteBuffer::size)
+                .description("Car listings waiting in the write-behind buffer")
+                .register(meterRegistry);
+
+        Files.createDirectories(this.directory);
+        recover();
+    }
+
+    @Override
+    public synchronized boolean append(List<CarListingEvent> carListingEvents) {
+        try {
+            for (CarListingEvent carListingEvent : carListingEvents) {
+                if (carListingEvent.carListingId() == null) {
+                    log.warn("Event {} without car listing id is not buffered", carListingEvent.getId());
+                    continue;
+                }
+                long sequence = nextSequence++;
+                int recordSize = write(sequence, EVENT_RECORD, CAR_LISTING_EVENT_WRITER.writeValueAsBytes(carListingEvent));
+                put(new BufferedCarListingEvent(sequence, carListingEvent), recordSize);
+            }
+            if (activeSegment != null) {
+                activeSegment.force();
+            }
+            appendedCounter.increment(carListingEvents.size());
+            compactIfMostlySuperseded();
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            log.error("Appending {} car listing events to the write-behind buffer failed: {}",
+                    carListingEvents.size(), ex.getLocalizedMessage(), ex);
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized List<BufferedCarListingEvent> peek(int maxEvents) {
+        return buffered.values().stream()
+                .limit(maxEvents)
+                .map(BufferedRecord::bufferedEvent)
+                .toList();
+    }
+
+    @Override
+    public synchronized void remove(List<BufferedCarListingEvent> drainedEvents) {
+        try {
+            for (BufferedCarListingEvent drainedEvent : drainedEvents) {
+                String carListingId = drainedEvent.getCarListingEvent().carListingId();
+                if (carListingId != null && removeIfCurrent(carListingId, drainedEvent.getSequence()) && !buffered.isEmpty()) {
+                    write(drainedEvent.getSequence(), DRAINED_RECORD, carListingId.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            if (buffered.isEmpty()) {
+                deleteSegments(List.copyOf(segments));
+            }
+        } catch (IOException ex) {
+            // Without the drained record the car listing is written once more after a restart
+            log.warn("Recording drained car listings in the write-behind buffer failed: {}", ex.getLocalizedMessage());
+        }
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return buffered.isEmpty();
+    }
+
+    @Override
+    public synchronized int size() {
+        return buffered.size();
+    }
+
+    private void recover() throws IOException {
+        List<Path> existingSegments;
+        try (Stream<Path> files = Files.list(directory)) {
+            existingSegments = files
+                    .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+
+        for (Path segment : existingSegments) {
+            replay(segment);
+            segments.add(segment);
+            nextSegmentNumber = Math.max(nextSegmentNumber, segmentNumber(segment) + 1);
+        }
+
+        if (buffered.isEmpty()) {
+            deleteSegments(List.copyOf(segments));
+        } else {
+            log.info("Write-behind buffer recovered {} car listings from {} segments", buffered.size(), segments.size());
+        }
+    }
+
+    private void replay(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (records.remaining() >= RECORD_HEADER_SIZE) {
+                int length = records.getInt();
+                if (length < RECORD_HEADER_SIZE - Integer.BYTES || length > records.remaining()) {
+                    return;
+                }
+
+                int checksum = records.getInt();
+                byte[] body = new byte[length - Integer.BYTES];
+                records.get(body);
+                if (checksum != checksum(body)) {
+                    log.warn("Write-behind segment {} ends with an incomplete record", segment.getFileName());
+                    return;
+                }
+                apply(ByteBuffer.wrap(body), Integer.BYTES + length);
+            }
+        }
+    }
+
+    private void apply(ByteBuffer body, int recordSize) throws IOException {
+        long sequence = body.getLong();
+        byte type = body.get();
+        byte[] payload = new byte[body.remaining()];
+        body.get(payload);
+        nextSequence = Math.max(nextSequence, sequence + 1);
+
+        if (type == EVENT_RECORD) {
+            CarListingEvent carListingEvent = CAR_LISTING_EVENT_READER.readValue(payload);
+            put(new BufferedCarListingEvent(sequence, carListingEvent), recordSize);
+        } else if (type == DRAINED_RECORD) {
+            removeIfCurrent(new String(payload, StandardCharsets.UTF_8), sequence);
+        }
+    }
+
+    private void put(BufferedCarListingEvent bufferedEvent, int recordSize) {
+        String carListingId = bufferedEvent.getCarListingEvent().carListingId();
+        if (carListingId == null) {
+            return;
+        }
+        BufferedRecord previous = buffered.remove(carListingId);
+        if (previous != null) {
+            liveBytes -= previous.recordSize();
+        }
+        buffered.put(carListingId, new BufferedRecord(bufferedEvent, recordSize));
+        liveBytes += recordSize;
+    }
+
+    private boolean removeIfCurrent(String carListingId, long sequence) {
+        BufferedRecord current = buffered.get(carListingId);
+        if (current == null || current.bufferedEvent().getSequence() != sequence) {
+            return false;
+        }
+
+        buffered.remove(carListingId);
+        liveBytes -= current.recordSize();
+        return true;
+    }
+
+    private int write(long sequence, byte type, byte[] payload) throws IOException {
+        byte[] body = ByteBuffer.allocate(Long.BYTES + Byte.BYTES + payload.length)
+                .putLong(sequence)
+                .put(type)
+                .put(payload)
+                .array();
+        int recordSize = Integer.BYTES + Integer.BYTES + body.length;
+        if (activeSegment == null || activeSegment.remaining() < recordSize) {
+            roll(recordSize);
+        }
+
+        activeSegment.putInt(Integer.BYTES + body.length)
+                .putInt(checksum(body))
+                .put(body);
+        return recordSize;
+    }
+
+    private void roll(int minimumSize) throws IOException {
+        if (activeSegment != null) {
+            activeSegment.force();
+        }
+
+        Path segment = directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, nextSegmentNumber++, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            activeSegment = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, minimumSize));
+        }
+        segments.add(segment);
+    }
+
+    /**
+     * Rewrites the live records into new segments once they take less than half of the
+     * segments, so a long outage with many updates per car listing does not fill the disk.
+     */
+    private void compactIfMostlySuperseded() throws IOException {
+        if (segments.size() < 2 || liveBytes * 2 >= (long) segments.size() * segmentSize) {
+            return;
+        }
+
+        List<Path> obsoleteSegments = List.copyOf(segments);
+        activeSegment = null;
+        for (BufferedRecord bufferedRecord : buffered.values()) {
+            BufferedCarListingEvent bufferedEvent = bufferedRecord.bufferedEvent();
+            write(bufferedEvent.getSequence(), EVENT_RECORD,
+                    CAR_LISTING_EVENT_WRITER.writeValueAsBytes(bufferedEvent.getCarListingEvent()));
+        }
+        activeSegment.force();
+        deleteSegments(obsoleteSegments);
+        log.info("Write-behind buffer compacted {} segments into {}", obsoleteSegments.size(), segments.size());
+    }
+
+    private void deleteSegments(List<Path> obsoleteSegments) throws IOException {
+        if (obsoleteSegments.contains(segments.isEmpty() ? null : segments.get(segments.size() - 1))) {
+            activeSegment = null;
+        }
+        for (Path segment : obsoleteSegments) {
+            Files.deleteIfExists(segment);
+            segments.remove(segment);
+        }
+    }
+
+    private static long segmentNumber(Path segment) {
+        String fileName = segment.getFileName().toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static int checksum(byte[] body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private record BufferedRecord(BufferedCarListingEvent bufferedEvent, int recordSize) {
+    }
+}
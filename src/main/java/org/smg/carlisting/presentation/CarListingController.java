@@ -1,5 +1,6 @@
 package org.smg.carlisting.presentation;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -7,38 +8,56 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
 import org.smg.carlisting.application.CarListingSearchCriteria;
+import org.smg.carlisting.application.CarListingCursorPage;
 import org.smg.carlisting.application.CarListingService;
+import org.smg.carlisting.domain.exception.CarListingCursorResponse;
+import org.smg.carlisting.domain.exception.CarListingFacetsResponse;
 import org.smg.carlisting.domain.exception.CarListingResponse;
 import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.CarListingFacets;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Rest Controller for handling car listing related operations.
  * <p>
  * This controller provides endpoints for searching car listings
- * based on various criteria such as make, model, year, etc.
+ * based on various criteria such as make, model, year, etc., and for counting the
+ * matching car listings per filter value.
  * </p>
  */
 @RestController
 @RequestMapping("/api/car-listings")
 public class CarListingController {
 
+    private static final int NEWLINE = '\n';
+
     private final CarListingService carListingService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Constructs a CarListingController with the given CarListingService.
      *
      * @param carListingService The service for car listing operations.
+     * @param objectMapper      The mapper writing the lines of the export.
      */
-    public CarListingController(CarListingService carListingService) {
+    public CarListingController(CarListingService carListingService, ObjectMapper objectMapper) {
         this.carListingService = carListingService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -68,4 +87,141 @@ public class CarListingController {
 
         return ResponseEntity.ok(new CarListingResponse(true, carListings, null));
     }
+
+    /**
+     * Searches for car listings based on the given criteria without holding a request thread.
+     * <p>
+     * This endpoint returns the same result as {@code /search}. The request thread is
+     * released while Elasticsearch answers and the response is written once the search
+     * completed, so many slow searches do not exhaust the servlet thread pool. A search
+     * that exceeds the search timeout fails like one rejected by the circuit breaker.
+     * </p>
+     *
+     * @param query    The search criteria for filtering car listings.
+     * @param pageable The pagination information including page number, size and sortBy.
+     * @return A future ResponseEntity containing a list of car listings matching the search criteria,
+     * or an empty list if no matches are found.
+     */
+    @Operation(summary = "Search car listings asynchronously")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Found car listings",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CarListing.class))}),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping("/search/async")
+    public CompletableFuture<ResponseEntity<CarListingResponse>> searchCarListingsAsync(@Valid CarListingSearchCriteria query,
+                                                                                       Pageable pageable) {
+        return carListingService.searchCarListingsAsync(query, pageable)
+                .thenApply(carListings -> ResponseEntity.ok(new CarListingResponse(true, carListings, null)));
+    }
+
+    /**
+     * Searches for car listings page by page with a continuation token.
+     * <p>
+     * This endpoint is meant for crawlers and exports walking through the whole catalog.
+     * Every page costs the same regardless of its depth. The first request passes the
+     * criteria, size and sort; following requests pass the same criteria and the
+     * {@code nextCursor} of the previous response. The last page has no {@code nextCursor}.
+     * </p>
+     *
+     * @param query  The search criteria for filtering car listings.
+     * @param size   The number of car listings per page.
+     * @param sort   The sort of the traversal, the car listing id is always added as tiebreaker.
+     * @param cursor The continuation token of the previous page, absent for the first page.
+     * @return A ResponseEntity containing the car listings of the page and the token of the next page.
+     */
+    @Operation(summary = "Search car listings with a cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Found car listings",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CarListingCursorResponse.class))}),
+            @ApiResponse(responseCode = "400", description = "Bad Request or invalid cursor",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping("/search/cursor")
+    public ResponseEntity<CarListingCursorResponse> searchCarListingsWithCursor(@Valid CarListingSearchCriteria query,
+                                                                                @RequestParam(defaultValue = "20") int size,
+                                                                                Sort sort,
+                                                                                @RequestParam(required = false) String cursor) {
+        CarListingCursorPage carListingPage = carListingService.searchCarListings(query, sort, size, cursor);
+
+        return ResponseEntity.ok(new CarListingCursorResponse(true, carListingPage.carListings(),
+                carListingPage.nextCursor(), null));
+    }
+
+    /**
+     * Counts the car listings matching the given criteria per filter value.
+     * <p>
+     * This endpoint returns the counts shown next to the search filters: the most frequent
+     * makes, models and colors and the number of car listings per year and price range,
+     * computed by a single aggregation request. The counts are cached for a short time,
+     * so the endpoint can be called with every search.
+     * </p>
+     *
+     * @param query The search criteria for filtering car listings.
+     * @return A ResponseEntity containing the facet counts of the matching car listings.
+     */
+    @Operation(summary = "Count car listings per make, model, color, year and price range")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Facet counts of the found car listings",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CarListingFacetsResponse.class))}),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping("/facets")
+    public ResponseEntity<CarListingFacetsResponse> getCarListingFacets(@Valid CarListingSearchCriteria query) {
+        CarListingFacets carListingFacets = carListingService.getCarListingFacets(query);
+
+        return ResponseEntity.ok(new CarListingFacetsResponse(true, carListingFacets, null));
+    }
+
+    /**
+     * Exports all car listings matching the given criteria as newline delimited JSON.
+     * <p>
+     * This endpoint is meant for partners pulling the whole catalog. Every car listing is
+     * written as one JSON line straight to the response while the catalog is walked, page
+     * by page, so neither the server nor the client has to hold the whole result. The
+     * export sees the catalog as it was when it started. Exports are throttled, a large
+     * export takes a while.
+     * </p>
+     *
+     * @param query The search criteria for filtering car listings.
+     * @return A ResponseEntity streaming one JSON line per matching car listing.
+     */
+    @Operation(summary = "Export car listings as newline delimited JSON")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Matching car listings, one per line",
+                    content = {@Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = CarListing.class))}),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCarListings(@Valid CarListingSearchCriteria query) {
+        StreamingResponseBody body = outputStream ->
+                carListingService.exportCarListings(query, carListings -> writeLines(outputStream, carListings));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private void writeLines(OutputStream outputStream, List<CarListing> carListings) {
+        try {
+            for (CarListing carListing : carListings) {
+                outputStream.write(objectMapper.writeValueAsBytes(carListing));
+                outputStream.write(NEWLINE);
+            }
+            outputStream.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
 }
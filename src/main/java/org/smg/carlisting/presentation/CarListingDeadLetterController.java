@@ -0,0 +1,64 @@
+package org.smg.carlisting.presentation;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.smg.carlisting.domain.exception.CarListingReplayResponse;
+import org.smg.carlisting.domain.exception.CarListingResponse;
+import org.smg.carlisting.infrastructure.kafka.CarListingDeadLetterReplayer;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Rest Controller for operating the dead-letter topic of car listing events.
+ * <p>
+ * Once the cause of the failures was fixed, for example a mapping or a producer bug,
+ * the dead-lettered records are replayed into the car listing topic from here.
+ * </p>
+ */
+@RestController
+@RequestMapping("/api/car-listings/dead-letters")
+public class CarListingDeadLetterController {
+
+    private final CarListingDeadLetterReplayer carListingDeadLetterReplayer;
+
+    /**
+     * Constructs a CarListingDeadLetterController with the given CarListingDeadLetterReplayer.
+     *
+     * @param carListingDeadLetterReplayer The replayer of the dead-letter topic.
+     */
+    public CarListingDeadLetterController(CarListingDeadLetterReplayer carListingDeadLetterReplayer) {
+        this.carListingDeadLetterReplayer = carListingDeadLetterReplayer;
+    }
+
+    /**
+     * Replays the next dead-lettered records into the car listing topic.
+     * <p>
+     * Every call continues after the last replayed record, so the topic is worked through
+     * by calling this endpoint until it reports no more replayed records.
+     * </p>
+     *
+     * @param maxRecords The maximum number of records to replay.
+     * @return A ResponseEntity containing the number of replayed records.
+     */
+    @Operation(summary = "Replay dead-lettered car listing events")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Replayed records",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CarListingReplayResponse.class))}),
+            @ApiResponse(responseCode = "500", description = "Replay failed",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CarListingResponse.class)))
+    })
+    @PostMapping("/replay")
+    public ResponseEntity<CarListingReplayResponse> replay(@RequestParam(defaultValue = "1000") int maxRecords) {
+        int replayed = carListingDeadLetterReplayer.replay(Math.max(1, maxRecords));
+
+        return ResponseEntity.ok(new CarListingReplayResponse(true, replayed, null));
+    }
+}
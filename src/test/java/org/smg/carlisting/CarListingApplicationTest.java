@@ -0,0 +1,35 @@
+package org.smg.carlisting;
+
+import org.junit.jupiter.api.Test;
+import org.smg.carlisting.application.SearchResultCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.TaskScheduler;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Starts the whole application context without Kafka and Elasticsearch, both of which
+ * point to a closed port, so that wiring errors fail the build instead of the deployment.
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=localhost:1",
+        "spring.kafka.listener.auto-startup=false",
+        "spring.kafka.admin.auto-create=false",
+        "spring.elasticsearch.uris=http://localhost:1",
+        "car-listing.write-behind.directory=${java.io.tmpdir}/car-listing-application-test/write-behind"
+})
+public class CarListingApplicationTest {
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Test
+    public void testContextLoads() {
+        assertNotNull(taskScheduler);
+        assertNotNull(searchResultCache);
+    }
+}
@@ -0,0 +1,70 @@
+package org.smg.carlisting.application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.smg.carlisting.common.Constants;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CarListingEventCoalescerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CarListingEventCoalescer carListingEventCoalescer;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        carListingEventCoalescer = new CarListingEventCoalescer(meterRegistry);
+    }
+
+    @Test
+    public void testCoalesceKeepsLastEventPerId() {
+        CarListingEvent firstUpdate = event("1", EventType.UPDATE, 10000);
+        CarListingEvent otherCreate = event("2", EventType.CREATE, 5000);
+        CarListingEvent secondUpdate = event("1", EventType.UPDATE, 11000);
+        CarListingEvent delete = event("1", EventType.DELETE, 0);
+
+        List<CarListingEvent> result = carListingEventCoalescer
+                .coalesce(List.of(firstUpdate, otherCreate, secondUpdate, delete));
+
+        assertEquals(List.of(otherCreate, delete), result);
+        assertEquals(2, carListingEventCoalescer.getDroppedCount());
+        assertEquals(2, meterRegistry.get(Constants.METRIC_COALESCER_DROPPED)
+                .tag(Constants.TAG_EVENT_TYPE, EventType.UPDATE.name()).counter().count());
+    }
+
+    @Test
+    public void testCoalesceKeepsEventsWithoutId() {
+        CarListingEvent first = event(null, EventType.CREATE, 1000);
+        CarListingEvent second = event(null, EventType.CREATE, 2000);
+
+        List<CarListingEvent> result = carListingEventCoalescer.coalesce(List.of(first, second));
+
+        assertEquals(List.of(first, second), result);
+        assertEquals(0, carListingEventCoalescer.getDroppedCount());
+    }
+
+    @Test
+    public void testSupersededEventWithoutTypeIsCountedAsUnknown() {
+        CarListingEvent untyped = event("1", null, 1000);
+        CarListingEvent update = event("1", EventType.UPDATE, 2000);
+
+        List<CarListingEvent> result = carListingEventCoalescer.coalesce(List.of(untyped, update));
+
+        assertEquals(List.of(update), result);
+        assertEquals(1, carListingEventCoalescer.getDroppedCount());
+        assertEquals(1, meterRegistry.get(Constants.METRIC_COALESCER_DROPPED)
+                .tag(Constants.TAG_EVENT_TYPE, Constants.EVENT_TYPE_UNKNOWN).counter().count());
+    }
+
+    private CarListingEvent event(String id, EventType eventType, double price) {
+        CarListing carListing = new CarListing(id, "Peugeot", "308", 2015, price, price, "black");
+        return new CarListingEvent(null, eventType, carListing);
+    }
+}
@@ -1,21 +1,43 @@
 package org.smg.carlisting.application;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.smg.carlisting.common.Constants;
 import org.smg.carlisting.domain.event.CarListingEvent;
 import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.exception.InvalidCursorException;
 import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.BulkIndexFailure;
+import org.smg.carlisting.domain.repository.BulkIndexResult;
+import org.smg.carlisting.domain.repository.CarListingFacets;
+import org.smg.carlisting.domain.repository.CarListingPage;
+import org.smg.carlisting.domain.repository.CarListingWriteBuffer;
+import org.smg.carlisting.domain.repository.FacetBucket;
 import org.smg.carlisting.infrastructure.elasticsearch.ElasticCarListingRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -24,12 +46,25 @@ public class CarListingServiceTest {
 
     private static final String CAR_LISTING_ID = "test_id";
 
-    @InjectMocks
     private CarListingService carListingService;
 
     @Mock
     private ElasticCarListingRepository elasticCarListingRepository;
 
+    @Spy
+    private CarListingEventCoalescer carListingEventCoalescer = new CarListingEventCoalescer(new SimpleMeterRegistry());
+
+    @Mock
+    private CarListingWriteBuffer carListingWriteBuffer;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private SearchResultCache searchResultCache = new SearchResultCache(100, DataSize.ofBytes(0),
+            Duration.ofMinutes(1), Duration.ZERO, Duration.ZERO, DataSize.ofBytes(0), null, new SimpleMeterRegistry());
+
+    private final FacetCache facetCache = new FacetCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
     public CarListingSearchCriteria criteria;
     public Pageable pageable;
     private CarListingEvent carListingEvent;
@@ -37,6 +72,8 @@ public class CarListingServiceTest {
 
     @BeforeEach
     public void setup() {
+        carListingService = new CarListingService(elasticCarListingRepository, carListingEventCoalescer, searchResultCache,
+                facetCache, new CarListingVersionTracker(100), meterRegistry, Optional.empty());
         carListing = new CarListing();
         carListing.setId(CAR_LISTING_ID);
         carListingEvent = new CarListingEvent();
@@ -47,21 +84,55 @@ public class CarListingServiceTest {
     public void testProcessCarListingCreate() {
         carListingEvent.setEventType(EventType.CREATE);
         carListingService.processCarListing(carListingEvent);
-        verify(elasticCarListingRepository).createOrUpdateElasticsearchIndex(carListing);
+        verify(elasticCarListingRepository).createOrUpdateElasticsearchIndex(carListing, null);
     }
 
     @Test
     public void testProcessCarListingUpdate() {
         carListingEvent.setEventType(EventType.UPDATE);
         carListingService.processCarListing(carListingEvent);
-        verify(elasticCarListingRepository).createOrUpdateElasticsearchIndex(carListing);
+        verify(elasticCarListingRepository).createOrUpdateElasticsearchIndex(carListing, null);
+    }
+
+    @Test
+    public void testProcessCarListingReportsFailedWrite() {
+        carListingEvent.setEventType(EventType.UPDATE);
+        when(elasticCarListingRepository.createOrUpdateElasticsearchIndex(carListing, null)).thenReturn(false);
+
+        assertFalse(carListingService.processCarListing(carListingEvent));
     }
 
     @Test
     public void testProcessCarListingDelete() {
         carListingEvent.setEventType(EventType.DELETE);
         carListingService.processCarListing(carListingEvent);
-        verify(elasticCarListingRepository).deleteFromElasticsearchIndex(CAR_LISTING_ID);
+        verify(elasticCarListingRepository).deleteFromElasticsearchIndex(CAR_LISTING_ID, null);
+    }
+
+    @Test
+    public void testProcessCarListingWithoutEventTypeIsCountedAndSkipped() {
+        assertTrue(carListingService.processCarListing(carListingEvent));
+
+        verify(elasticCarListingRepository, never()).createOrUpdateElasticsearchIndex(any(), any());
+        assertEquals(1, meterRegistry.get(Constants.METRIC_EVENTS).tag(Constants.TAG_EVENT_TYPE,
+                Constants.EVENT_TYPE_UNKNOWN).counter().count());
+    }
+
+    @Test
+    public void testProcessCarListingDropsStaleVersion() {
+        carListingEvent.setEventType(EventType.UPDATE);
+        carListingEvent.setVersion(5L);
+        when(elasticCarListingRepository.createOrUpdateElasticsearchIndex(carListing, 5L)).thenReturn(true);
+        carListingService.processCarListing(carListingEvent);
+
+        CarListingEvent replayed = new CarListingEvent(CAR_LISTING_ID, EventType.UPDATE, carListing, 4L);
+        assertTrue(carListingService.processCarListing(replayed));
+        BulkIndexResult result = carListingService.processCarListings(List.of(replayed));
+
+        assertEquals(1, result.getSuccessful());
+        verify(elasticCarListingRepository, never()).createOrUpdateElasticsearchIndex(carListing, 4L);
+        verify(elasticCarListingRepository, never()).bulkUpdateElasticsearchIndex(any());
+        assertEquals(2, meterRegistry.get(Constants.METRIC_EVENTS_STALE).tag(Constants.TAG_DETECTED, "local").counter().count());
     }
 
     @Test
@@ -74,4 +145,196 @@ public class CarListingServiceTest {
         assertEquals(carListings, result);
         verify(elasticCarListingRepository).searchCarListings(criteria, pageable);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSearchCarListingsIsCachedUntilMatchingWrite() {
+        CarListingSearchCriteria peugeot = new CarListingSearchCriteria();
+        peugeot.setMake("Peugeot");
+        Pageable firstPage = PageRequest.of(0, 10);
+        when(elasticCarListingRepository.searchCarListings(peugeot, firstPage)).thenReturn(List.of());
+
+        carListingService.searchCarListings(peugeot, firstPage);
+        carListingService.searchCarListings(peugeot, firstPage);
+        verify(elasticCarListingRepository, times(1)).searchCarListings(peugeot, firstPage);
+
+        carListing.setMake("Peugeot");
+        carListingEvent.setEventType(EventType.CREATE);
+        when(elasticCarListingRepository.createOrUpdateElasticsearchIndex(carListing, null)).thenReturn(true);
+        carListingService.processCarListing(carListingEvent);
+
+        carListingService.searchCarListings(peugeot, firstPage);
+        verify(elasticCarListingRepository, times(2)).searchCarListings(peugeot, firstPage);
+    }
+
+    @Test
+    public void testGetCarListingFacetsIsCachedPerCanonicalCriteria() {
+        CarListingSearchCriteria peugeot = new CarListingSearchCriteria();
+        peugeot.setMake("Peugeot");
+        CarListingSearchCriteria lowerCasePeugeot = new CarListingSearchCriteria();
+        lowerCasePeugeot.setMake(" peugeot ");
+        CarListingFacets facets = new CarListingFacets(1, List.of(new FacetBucket("peugeot", 1)), List.of(), List.of(),
+                List.of(), List.of());
+        when(elasticCarListingRepository.searchCarListingFacets(peugeot)).thenReturn(facets);
+
+        assertEquals(facets, carListingService.getCarListingFacets(peugeot));
+        assertEquals(facets, carListingService.getCarListingFacets(lowerCasePeugeot));
+
+        verify(elasticCarListingRepository, times(1)).searchCarListingFacets(any());
+    }
+
+    @Test
+    public void testProcessCarListingsInBulk() {
+        carListingEvent.setEventType(EventType.UPDATE);
+        List<CarListingEvent> carListingEvents = List.of(carListingEvent);
+        BulkIndexResult bulkIndexResult = new BulkIndexResult(0,
+                List.of(new BulkIndexFailure(CAR_LISTING_ID, EventType.UPDATE, 400, "mapper_parsing_exception")));
+        when(elasticCarListingRepository.bulkUpdateElasticsearchIndex(carListingEvents)).thenReturn(bulkIndexResult);
+
+        BulkIndexResult result = carListingService.processCarListings(carListingEvents);
+
+        assertEquals(bulkIndexResult, result);
+        verify(elasticCarListingRepository).bulkUpdateElasticsearchIndex(carListingEvents);
+    }
+
+    @Test
+    public void testProcessCarListingsCoalescesBatch() {
+        CarListingEvent update = new CarListingEvent("1", EventType.UPDATE, carListing);
+        CarListingEvent delete = new CarListingEvent("2", EventType.DELETE, carListing);
+        when(elasticCarListingRepository.bulkUpdateElasticsearchIndex(List.of(delete)))
+                .thenReturn(new BulkIndexResult(1, List.of()));
+
+        carListingService.processCarListings(List.of(update, delete));
+
+        verify(elasticCarListingRepository).bulkUpdateElasticsearchIndex(List.of(delete));
+    }
+
+    @Test
+    public void testProcessCarListingsWithoutEventTypeIsCountedAndNotWritten() {
+        BulkIndexResult result = carListingService.processCarListings(List.of(carListingEvent));
+
+        verify(elasticCarListingRepository, never()).bulkUpdateElasticsearchIndex(any());
+        assertEquals(1, result.getSuccessful());
+        assertFalse(result.hasFailures());
+        assertEquals(1, meterRegistry.get(Constants.METRIC_EVENTS).tag(Constants.TAG_EVENT_TYPE,
+                Constants.EVENT_TYPE_UNKNOWN).counter().count());
+    }
+
+    @Test
+    public void testProcessCarListingsWritesOnlyEventsWithEventType() {
+        CarListingEvent update = new CarListingEvent("1", EventType.UPDATE, carListing);
+        when(elasticCarListingRepository.bulkUpdateElasticsearchIndex(List.of(update)))
+                .thenReturn(new BulkIndexResult(1, List.of()));
+
+        BulkIndexResult result = carListingService.processCarListings(List.of(carListingEvent, update));
+
+        verify(elasticCarListingRepository).bulkUpdateElasticsearchIndex(List.of(update));
+        assertEquals(2, result.getSuccessful());
+        assertFalse(result.hasFailures());
+    }
+
+    @Test
+    public void testProcessCarListingsRejectsEventWithoutCarListingId() {
+        CarListingEvent update = new CarListingEvent("1", EventType.UPDATE, carListing);
+        CarListingEvent withoutCarListing = new CarListingEvent("2", EventType.CREATE, null);
+        when(elasticCarListingRepository.bulkUpdateElasticsearchIndex(List.of(update)))
+                .thenReturn(new BulkIndexResult(1, List.of()));
+
+        BulkIndexResult result = carListingService.processCarListings(List.of(update, withoutCarListing));
+
+        verify(elasticCarListingRepository).bulkUpdateElasticsearchIndex(List.of(update));
+        assertEquals(1, result.getSuccessful());
+        assertEquals(1, result.getFailures().size());
+        assertNull(result.getFailures().get(0).getCarListingId());
+        assertFalse(result.getFailures().get(0).isRetryable());
+    }
+
+    @Test
+    public void testSearchCarListingsWithCursorContinuesAfterLastHit() {
+        CarListingSearchCriteria peugeot = new CarListingSearchCriteria();
+        peugeot.setMake("Peugeot");
+        Sort sort = Sort.by(Sort.Direction.DESC, "year").and(Sort.by("id"));
+        List<Object> lastHit = List.of(2015, CAR_LISTING_ID);
+        when(elasticCarListingRepository.searchCarListingsAfter(peugeot, sort, 1, null))
+                .thenReturn(new CarListingPage(List.of(carListing), lastHit));
+        when(elasticCarListingRepository.searchCarListingsAfter(peugeot, sort, 1, lastHit))
+                .thenReturn(new CarListingPage(List.of(), null));
+
+        CarListingCursorPage firstPage = carListingService.searchCarListings(peugeot, Sort.by(Sort.Direction.DESC, "year"), 1, null);
+        CarListingCursorPage lastPage = carListingService.searchCarListings(peugeot, Sort.unsorted(), 1, firstPage.nextCursor());
+
+        assertEquals(List.of(carListing), firstPage.carListings());
+        assertEquals(List.of(), lastPage.carListings());
+        assertNull(lastPage.nextCursor());
+    }
+
+    @Test
+    public void testSearchCarListingsWithInvalidCursor() {
+        CarListingSearchCriteria criteria = new CarListingSearchCriteria();
+
+        assertThrows(InvalidCursorException.class,
+                () -> carListingService.searchCarListings(criteria, Sort.unsorted(), 10, "not a cursor"));
+    }
+
+    @Test
+    public void testProcessCarListingIsCountedAndTimedPerEventType() {
+        carListingEvent.setEventType(EventType.DELETE);
+        when(elasticCarListingRepository.deleteFromElasticsearchIndex(CAR_LISTING_ID, null)).thenReturn(true);
+
+        carListingService.processCarListing(carListingEvent);
+
+        assertEquals(1, meterRegistry.get(Constants.METRIC_EVENTS).tag(Constants.TAG_EVENT_TYPE, "DELETE").counter().count());
+        assertEquals(1, meterRegistry.get(Constants.METRIC_PROCESS).tag(Constants.TAG_EVENT_TYPE, "DELETE").timer().count());
+    }
+
+    @Test
+    public void testProcessCarListingBuffersFailedWrite() {
+        CarListingService bufferingService = new CarListingService(elasticCarListingRepository, carListingEventCoalescer,
+                searchResultCache, facetCache, new CarListingVersionTracker(100), new SimpleMeterRegistry(),
+                Optional.of(carListingWriteBuffer));
+        carListingEvent.setEventType(EventType.UPDATE);
+        when(carListingWriteBuffer.isEmpty()).thenReturn(true);
+        when(elasticCarListingRepository.createOrUpdateElasticsearchIndex(carListing, null)).thenReturn(false);
+        when(carListingWriteBuffer.append(List.of(carListingEvent))).thenReturn(true);
+
+        assertTrue(bufferingService.processCarListing(carListingEvent));
+        verify(carListingWriteBuffer).append(List.of(carListingEvent));
+    }
+
+    @Test
+    public void testProcessCarListingsGoIntoNonEmptyBuffer() {
+        CarListingService bufferingService = new CarListingService(elasticCarListingRepository, carListingEventCoalescer,
+                searchResultCache, facetCache, new CarListingVersionTracker(100), new SimpleMeterRegistry(),
+                Optional.of(carListingWriteBuffer));
+        carListingEvent.setEventType(EventType.UPDATE);
+        when(carListingWriteBuffer.isEmpty()).thenReturn(false);
+        when(carListingWriteBuffer.append(List.of(carListingEvent))).thenReturn(true);
+
+        BulkIndexResult result = bufferingService.processCarListings(List.of(carListingEvent));
+
+        assertEquals(1, result.getSuccessful());
+        assertFalse(result.hasFailures());
+        verify(elasticCarListingRepository, never()).bulkUpdateElasticsearchIndex(any());
+    }
+
+    @Test
+    public void testProcessCarListingsBuffersOnlyRetryableFailures() {
+        CarListing rejected = new CarListing();
+        rejected.setId("rejected_id");
+        CarListingEvent unavailable = new CarListingEvent("1", EventType.UPDATE, carListing);
+        CarListingEvent invalid = new CarListingEvent("2", EventType.CREATE, rejected);
+        CarListingService bufferingService = new CarListingService(elasticCarListingRepository, carListingEventCoalescer,
+                searchResultCache, facetCache, new CarListingVersionTracker(100), new SimpleMeterRegistry(),
+                Optional.of(carListingWriteBuffer));
+        when(carListingWriteBuffer.isEmpty()).thenReturn(true);
+        when(elasticCarListingRepository.bulkUpdateElasticsearchIndex(List.of(unavailable, invalid)))
+                .thenReturn(new BulkIndexResult(0, List.of(
+                        new BulkIndexFailure(CAR_LISTING_ID, EventType.UPDATE, 0, "Circuit breaker is open"),
+                        new BulkIndexFailure("rejected_id", EventType.CREATE, 400, "mapper_parsing_exception"))));
+        when(carListingWriteBuffer.append(List.of(unavailable))).thenReturn(true);
+
+        BulkIndexResult result = bufferingService.processCarListings(List.of(unavailable, invalid));
+
+        assertEquals(1, result.getSuccessful());
+        assertEquals(List.of("rejected_id"), result.getFailures().stream().map(BulkIndexFailure::getCarListingId).toList());
+    }
+}
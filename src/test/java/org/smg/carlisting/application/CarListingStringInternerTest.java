@@ -0,0 +1,38 @@
+package org.smg.carlisting.application;
+
+import org.junit.jupiter.api.Test;
+import org.smg.carlisting.domain.model.CarListing;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class CarListingStringInternerTest {
+
+    @Test
+    public void testRepeatedValuesShareOneCanonicalInstance() {
+        String first = CarListingStringInterner.intern(new String(" Alfa Romeo "));
+        String second = CarListingStringInterner.intern(new String("ALFA ROMEO"));
+
+        assertEquals("Alfa Romeo", first);
+        assertSame(first, second);
+        assertNull(CarListingStringInterner.intern((String) null));
+    }
+
+    @Test
+    public void testInternAllReplacesMakeModelAndColor() {
+        CarListing first = new CarListing("1", new String("Lancia"), new String("Delta"), 1990, 20000, 25000,
+                new String("rosso"));
+        CarListing second = new CarListing("2", new String("lancia "), new String("DELTA"), 1991, 21000, 26000,
+                new String(" Rosso"));
+
+        CarListingStringInterner.internAll(List.of(first, second));
+
+        assertSame(first.getMake(), second.getMake());
+        assertSame(first.getModel(), second.getModel());
+        assertSame(first.getColor(), second.getColor());
+        assertEquals("rosso", second.getColor());
+    }
+}
@@ -0,0 +1,339 @@
+package org.smg.carlisting.application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.smg.carlisting.common.Constants;
+import org.smg.carlisting.domain.exception.InternalServerErrorException;
+import org.smg.carlisting.domain.model.CarListing;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class SearchResultCacheTest {
+
+    private static final CarListing PEUGEOT = new CarListing("1", "Peugeot", "308", 2015, 10000, 12000, "black");
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SearchResultCache searchResultCache;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        searchResultCache = new SearchResultCache(100, DataSize.ofBytes(0), Duration.ofMinutes(1), Duration.ZERO,
+                Duration.ZERO, DataSize.ofBytes(0), null, meterRegistry);
+    }
+
+    @Test
+    public void testKeyIsCaseAndWhitespaceInsensitive() {
+        assertEquals(SearchCacheKey.of(criteria(" Peugeot ", "BLACK"), PageRequest.of(0, 10)),
+                SearchCacheKey.of(criteria("peugeot", "black"), PageRequest.of(0, 10)));
+    }
+
+    @Test
+    public void testKeyFoldsInPaginationAndSort() {
+        SearchCacheKey firstPage = SearchCacheKey.of(criteria("peugeot", null), PageRequest.of(0, 10));
+
+        assertNotEquals(firstPage, SearchCacheKey.of(criteria("peugeot", null), PageRequest.of(1, 10)));
+        assertNotEquals(firstPage, SearchCacheKey.of(criteria("peugeot", null), PageRequest.of(0, 10, Sort.by("year"))));
+    }
+
+    @Test
+    public void testInvalidateOnlyMatchingSearches() {
+        SearchCacheKey peugeot = cache(criteria("Peugeot", null), List.of());
+        SearchCacheKey bmw = cache(criteria("BMW", null), List.of());
+
+        searchResultCache.invalidate(List.of(new CarListing("1", "Peugeot", "308", 2015, 10000, 12000, "black")));
+
+        assertEquals(1, searchResultCache.size());
+        assertEquals(List.of(), cachedHits(bmw));
+        assertNull(cachedHits(peugeot));
+    }
+
+    @Test
+    public void testInvalidateSearchesHoldingTheListing() {
+        CarListing cached = new CarListing("1", "Peugeot", "308", 2015, 10000, 12000, "black");
+        cache(criteria("Peugeot", null), List.of(cached));
+
+        searchResultCache.invalidate(List.of(new CarListing("1", "Peugeot", "308", 2015, 10000, 12000, "white")));
+        assertEquals(0, searchResultCache.size());
+    }
+
+    @Test
+    public void testInvalidateDropsEveryPageOfASearchTheListingLeft() {
+        CarListingSearchCriteria peugeot = criteria("Peugeot", null);
+        searchResultCache.get(SearchCacheKey.of(peugeot, PageRequest.of(0, 3)), k -> page("1", "Peugeot", "308"));
+        searchResultCache.get(SearchCacheKey.of(peugeot, PageRequest.of(1, 3)), k -> page("4", "Peugeot", "308"));
+        searchResultCache.get(SearchCacheKey.of(peugeot, PageRequest.of(1, 3, Sort.by("year"))),
+                k -> page("7", "Peugeot", "308"));
+        SearchCacheKey fiat = SearchCacheKey.of(criteria("Fiat", null), PageRequest.of(1, 3));
+        searchResultCache.get(fiat, k -> page("10", "Fiat", "500"));
+
+        searchResultCache.invalidate(List.of(new CarListing("1", "BMW", "320d", 2020, 30000, 32000, "white")));
+
+        assertEquals(1, searchResultCache.size());
+        assertEquals(page("10", "Fiat", "500"), cachedHits(fiat));
+    }
+
+    @Test
+    public void testInvalidateMatchesThePreviousWrittenState() {
+        searchResultCache.invalidate(List.of(PEUGEOT));
+        SearchCacheKey peugeot = SearchCacheKey.of(criteria("Peugeot", null), PageRequest.of(1, 3));
+        searchResultCache.get(peugeot, k -> page("4", "Peugeot", "308"));
+        SearchCacheKey fiat = SearchCacheKey.of(criteria("Fiat", null), PageRequest.of(1, 3));
+        searchResultCache.get(fiat, k -> page("10", "Fiat", "500"));
+
+        searchResultCache.invalidate(List.of(new CarListing("1", "BMW", "320d", 2020, 30000, 32000, "white")));
+
+        assertNull(cachedHits(peugeot));
+        assertEquals(page("10", "Fiat", "500"), cachedHits(fiat));
+    }
+
+    @Test
+    public void testInvalidateOfUnknownListingKeepsFirstPagesThatDoNotHoldIt() {
+        CarListingSearchCriteria fiat = criteria("Fiat", null);
+        SearchCacheKey firstPage = SearchCacheKey.of(fiat, PageRequest.of(0, 3));
+        searchResultCache.get(firstPage, k -> page("10", "Fiat", "500"));
+        SearchCacheKey secondPage = SearchCacheKey.of(fiat, PageRequest.of(1, 3));
+        searchResultCache.get(secondPage, k -> page("13", "Fiat", "500"));
+
+        searchResultCache.invalidate(List.of(new CarListing("1", "BMW", "320d", 2020, 30000, 32000, "white")));
+
+        assertEquals(page("10", "Fiat", "500"), cachedHits(firstPage));
+        assertNull(cachedHits(secondPage));
+    }
+
+    @Test
+    public void testRemovedPagesAreNoLongerIndexed() {
+        searchResultCache = new SearchResultCache(1, DataSize.ofBytes(0), Duration.ofMinutes(1), Duration.ZERO,
+                Duration.ZERO, DataSize.ofBytes(0), null, meterRegistry);
+        cache(criteria("Peugeot", null), page("1", "Peugeot", "308"));
+        cache(criteria("Fiat", null), page("10", "Fiat", "500"));
+
+        await(() -> searchResultCache.size() == 1 && searchResultCache.indexedQueries() == 1);
+        searchResultCache.invalidate(List.of(PEUGEOT, new CarListing("10", "Fiat", "500", 2015, 10000, 12000, "black")));
+
+        assertEquals(0, searchResultCache.size());
+        assertEquals(0, searchResultCache.indexedQueries());
+    }
+
+    @Test
+    public void testDelayedInvalidationsAreDebounced() {
+        TaskScheduler taskScheduler = mock(TaskScheduler.class);
+        searchResultCache = new SearchResultCache(100, DataSize.ofBytes(0), Duration.ofMinutes(1), Duration.ZERO,
+                Duration.ofSeconds(1), DataSize.ofBytes(0), taskScheduler, meterRegistry);
+
+        searchResultCache.invalidate(List.of(PEUGEOT));
+        searchResultCache.invalidate(List.of(new CarListing("2", "BMW", "320d", 2020, 30000, 32000, "white")));
+
+        verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    public void testDeleteWithoutAttributesInvalidatesConservatively() {
+        cache(criteria("Peugeot", "black"), List.of());
+        CarListing deleted = new CarListing();
+        deleted.setId("1");
+
+        searchResultCache.invalidate(List.of(deleted));
+
+        assertEquals(0, searchResultCache.size());
+    }
+
+    private SearchCacheKey cache(CarListingSearchCriteria criteria, List<CarListing> hits) {
+        SearchCacheKey key = SearchCacheKey.of(criteria, PageRequest.of(0, 10));
+        searchResultCache.get(key, k -> hits);
+        return key;
+    }
+
+    private CarListingSearchCriteria criteria(String make, String color) {
+        CarListingSearchCriteria criteria = new CarListingSearchCriteria();
+        criteria.setMake(make);
+        criteria.setColor(color);
+        return criteria;
+    }
+
+    @Test
+    public void testInvalidateUsesOverlappingPriceRange() {
+        CarListingSearchCriteria cheap = criteria(null, null);
+        cheap.setMaxPrice(5000.0);
+        CarListingSearchCriteria midRange = criteria(null, null);
+        midRange.setMinPrice(11000.0);
+        midRange.setMaxPrice(20000.0);
+        SearchCacheKey cheapKey = cache(cheap, List.of());
+        cache(midRange, List.of());
+
+        searchResultCache.invalidate(List.of(new CarListing("1", "Peugeot", "308", 2015, 10000, 12000, "black")));
+
+        assertEquals(1, searchResultCache.size());
+        assertEquals(List.of(), cachedHits(cheapKey));
+    }
+
+    @Test
+    public void testConcurrentIdenticalMissesShareOneLoad() throws Exception {
+        SearchCacheKey key = SearchCacheKey.of(criteria("Peugeot", null), PageRequest.of(0, 10));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<SearchCacheKey, List<CarListing>> loader = k -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            awaitUninterruptibly(release);
+            return List.of(PEUGEOT);
+        };
+
+        CompletableFuture<List<CarListing>> first = CompletableFuture.supplyAsync(() -> searchResultCache.get(key, loader));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<List<CarListing>> second = CompletableFuture.supplyAsync(() -> searchResultCache.get(key, loader));
+        await(() -> meterRegistry.counter(Constants.METRIC_SEARCH_COALESCED).count() == 1);
+        release.countDown();
+
+        assertEquals(List.of(PEUGEOT), first.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(PEUGEOT), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() {
+        SearchCacheKey key = SearchCacheKey.of(criteria("Peugeot", null), PageRequest.of(0, 10));
+
+        assertThrows(InternalServerErrorException.class, () -> searchResultCache.get(key, k -> {
+            throw new InternalServerErrorException("Circuit Breaker is open!");
+        }));
+
+        assertEquals(List.of(PEUGEOT), searchResultCache.get(key, k -> List.of(PEUGEOT)));
+    }
+
+    @Test
+    public void testConcurrentAsyncMissesShareOneSearch() {
+        SearchCacheKey key = SearchCacheKey.of(criteria("Peugeot", null), PageRequest.of(0, 10));
+        CompletableFuture<List<CarListing>> search = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+        Function<SearchCacheKey, CompletableFuture<List<CarListing>>> loader = k -> {
+            loads.incrementAndGet();
+            return search;
+        };
+
+        CompletableFuture<List<CarListing>> first = searchResultCache.getAsync(key, loader);
+        CompletableFuture<List<CarListing>> second = searchResultCache.getAsync(key, loader);
+        search.complete(List.of(PEUGEOT));
+
+        assertEquals(List.of(PEUGEOT), first.join());
+        assertEquals(List.of(PEUGEOT), second.join());
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.counter(Constants.METRIC_SEARCH_COALESCED).count());
+        assertEquals(List.of(PEUGEOT), cachedHits(key));
+    }
+
+    @Test
+    public void testHotEntryIsRefreshedAheadOfExpiry() {
+        searchResultCache = new SearchResultCache(100, DataSize.ofBytes(0), Duration.ofMinutes(1), Duration.ofNanos(1),
+                Duration.ZERO, DataSize.ofBytes(0), null, meterRegistry);
+        SearchCacheKey key = SearchCacheKey.of(criteria("Peugeot", null), PageRequest.of(0, 10));
+        searchResultCache.get(key, k -> List.of());
+
+        assertEquals(List.of(), searchResultCache.get(key, k -> List.of(PEUGEOT)));
+
+        await(() -> List.of(PEUGEOT).equals(cachedHits(key)));
+        assertEquals(1, meterRegistry.counter(Constants.METRIC_SEARCH_REFRESHED).count());
+    }
+
+    @Test
+    public void testPagesOverByteBudgetMoveOffHeapAndBack() {
+        searchResultCache = new SearchResultCache(100, DataSize.ofBytes(200), Duration.ofMinutes(1), Duration.ZERO,
+                Duration.ZERO, DataSize.ofKilobytes(64), null, meterRegistry);
+        SearchCacheKey peugeot = cache(criteria("Peugeot", null), page("1", "Peugeot", "308"));
+        SearchCacheKey volkswagen = cache(criteria("Volkswagen", null), page("4", "Volkswagen", "Golf"));
+        long cachedBy = System.nanoTime();
+
+        await(() -> searchResultCache.size() == 1 && searchResultCache.offHeapSize() == 1);
+        SearchCacheKey evicted = cachedHits(peugeot) == null ? peugeot : volkswagen;
+        List<CarListing> expected = evicted == peugeot ? page("1", "Peugeot", "308") : page("4", "Volkswagen", "Golf");
+
+        assertEquals(expected, searchResultCache.get(evicted, k -> {
+            throw new InternalServerErrorException("Off-heap page was not used");
+        }));
+        assertTrue(searchResultCache.getCache().getIfPresent(evicted).loadedAt() <= cachedBy);
+    }
+
+    @Test
+    public void testOffHeapPageExpiresFromItsOriginalLoadTime() {
+        OffHeapSearchResultStore offHeapStore = new OffHeapSearchResultStore(DataSize.ofKilobytes(64).toBytes(),
+                Duration.ofMinutes(1), key -> {
+                }, meterRegistry);
+        SearchCacheKey expired = SearchCacheKey.of(criteria("Peugeot", null), PageRequest.of(0, 10));
+        SearchCacheKey fresh = SearchCacheKey.of(criteria("Volkswagen", null), PageRequest.of(0, 10));
+        long loadedAt = System.nanoTime();
+        offHeapStore.put(expired, new SearchResultCache.CachedPage(page("1", "Peugeot", "308"),
+                loadedAt - Duration.ofMinutes(2).toNanos()));
+        offHeapStore.put(fresh, new SearchResultCache.CachedPage(page("4", "Volkswagen", "Golf"), loadedAt));
+
+        assertNull(offHeapStore.take(expired));
+        assertEquals(new SearchResultCache.CachedPage(page("4", "Volkswagen", "Golf"), loadedAt), offHeapStore.take(fresh));
+    }
+
+    @Test
+    public void testInvalidateRemovesOffHeapPagesHoldingTheListing() {
+        searchResultCache = new SearchResultCache(100, DataSize.ofBytes(200), Duration.ofMinutes(1), Duration.ZERO,
+                Duration.ZERO, DataSize.ofKilobytes(64), null, meterRegistry);
+        cache(criteria("Peugeot", null), page("1", "Peugeot", "308"));
+        cache(criteria("Peugeot", "black"), page("4", "Peugeot", "208"));
+        await(() -> searchResultCache.offHeapSize() == 1);
+
+        searchResultCache.invalidate(List.of(new CarListing("1", "BMW", "320d", 2020, 30000, 32000, "white"),
+                new CarListing("4", "BMW", "320d", 2020, 30000, 32000, "white")));
+
+        assertEquals(0, searchResultCache.offHeapSize());
+        assertEquals(0, searchResultCache.size());
+    }
+
+    private List<CarListing> cachedHits(SearchCacheKey key) {
+        SearchResultCache.CachedPage page = searchResultCache.getCache().getIfPresent(key);
+        return page != null ? page.hits() : null;
+    }
+
+    private static List<CarListing> page(String firstId, String make, String model) {
+        int id = Integer.parseInt(firstId);
+        return List.of(new CarListing(String.valueOf(id), make, model, 2015, 10000, 12000, "black"),
+                new CarListing(String.valueOf(id + 1), make, model, 2016, 11000, 13000, "black"),
+                new CarListing(String.valueOf(id + 2), make, model, 2017, 12000, 14000, null));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
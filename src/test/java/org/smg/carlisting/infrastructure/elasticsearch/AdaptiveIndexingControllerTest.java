@@ -0,0 +1,90 @@
+package org.smg.carlisting.infrastructure.elasticsearch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smg.carlisting.common.Constants;
+import org.smg.carlisting.infrastructure.kafka.CarListingListenerControl;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class AdaptiveIndexingControllerTest {
+
+    @Mock
+    private CarListingListenerControl carListingListenerControl;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AdaptiveIndexingController controller;
+
+    @AfterEach
+    public void tearDown() {
+        controller.shutdown();
+    }
+
+    @Test
+    public void testFastFullWritesRaiseBulkSizeAndConcurrency() {
+        controller = controller(Duration.ofSeconds(10), Duration.ofMinutes(1));
+
+        for (int i = 0; i < 2; i++) {
+            long acquired = controller.acquire();
+            controller.acquire();
+            controller.release(acquired, controller.getBulkSize(), false);
+            controller.release();
+        }
+
+        assertEquals(200, controller.getBulkSize());
+        assertEquals(3, controller.getConcurrency());
+        assertEquals(0, controller.getInFlight());
+        verify(carListingListenerControl, never()).pause(anyString());
+    }
+
+    @Test
+    public void testRejectedWriteHalvesLimitsAndPausesUntilBackoffElapsed() {
+        controller = controller(Duration.ofSeconds(10), Duration.ofMillis(500));
+
+        controller.release(controller.acquire(), 100, true);
+        controller.release(controller.acquire(), 50, true);
+
+        assertEquals(50, controller.getBulkSize());
+        assertEquals(1, controller.getConcurrency());
+        assertEquals(1, meterRegistry.get(Constants.METRIC_INDEXING_BACKOFFS).tag(Constants.TAG_REASON, "rejected")
+                .counter().count());
+        verify(carListingListenerControl, times(1)).pause(anyString());
+        verify(carListingListenerControl, timeout(2000)).resume(anyString());
+        assertFalse(controller.isBackingOff());
+    }
+
+    @Test
+    public void testSlowWriteBacksOff() throws InterruptedException {
+        controller = controller(Duration.ofMillis(1), Duration.ofMinutes(1));
+
+        long acquired = controller.acquire();
+        Thread.sleep(10);
+        controller.release(acquired, 100, false);
+
+        assertTrue(controller.isBackingOff());
+        assertEquals(50, controller.getBulkSize());
+        assertEquals(1, meterRegistry.get(Constants.METRIC_INDEXING_BACKOFFS).tag(Constants.TAG_REASON, "latency")
+                .counter().count());
+        assertEquals(50, meterRegistry.get(Constants.METRIC_INDEXING_BULK_SIZE).gauge().value());
+    }
+
+    private AdaptiveIndexingController controller(Duration targetLatency, Duration backoff) {
+        return new AdaptiveIndexingController(carListingListenerControl, meterRegistry, true, 100, 50, 1000, 2, 8,
+                targetLatency, backoff);
+    }
+}
@@ -0,0 +1,130 @@
+package org.smg.carlisting.infrastructure.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.ReindexRequest;
+import co.elastic.clients.elasticsearch.core.ReindexResponse;
+import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
+import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
+import co.elastic.clients.elasticsearch.indices.ExistsAliasRequest;
+import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.elasticsearch.indices.GetAliasRequest;
+import co.elastic.clients.elasticsearch.indices.GetAliasResponse;
+import co.elastic.clients.elasticsearch.indices.PutIndicesSettingsRequest;
+import co.elastic.clients.elasticsearch.indices.UpdateAliasesRequest;
+import co.elastic.clients.elasticsearch.indices.get_alias.IndexAliases;
+import co.elastic.clients.transport.endpoints.BooleanResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CarListingIndexManagerTest {
+
+    private static final String CURRENT_INDEX = "car_listings_v1";
+
+    @Mock
+    private ElasticsearchClient elasticsearchClient;
+
+    @Mock
+    private ElasticsearchIndicesClient indicesClient;
+
+    private CarListingIndexManager carListingIndexManager;
+
+    @BeforeEach
+    public void setup() {
+        when(elasticsearchClient.indices()).thenReturn(indicesClient);
+        carListingIndexManager = new CarListingIndexManager(elasticsearchClient, 1, 1, "1s");
+    }
+
+    @Test
+    public void testCreatesIndexAndAliasWhenNothingExists() throws IOException {
+        when(indicesClient.existsAlias(any(ExistsAliasRequest.class))).thenReturn(new BooleanResponse(false));
+        when(indicesClient.exists(any(ExistsRequest.class))).thenReturn(new BooleanResponse(false));
+
+        carListingIndexManager.ensureCurrentIndex();
+
+        ArgumentCaptor<CreateIndexRequest> createRequest = ArgumentCaptor.forClass(CreateIndexRequest.class);
+        verify(indicesClient).create(createRequest.capture());
+        assertEquals(CURRENT_INDEX, createRequest.getValue().index());
+        assertTrue(createRequest.getValue().mappings().properties().get("make").text().fields().containsKey("keyword"));
+        assertEquals("1", createRequest.getValue().settings().index().numberOfShards());
+
+        ArgumentCaptor<UpdateAliasesRequest> aliasRequest = ArgumentCaptor.forClass(UpdateAliasesRequest.class);
+        verify(indicesClient).updateAliases(aliasRequest.capture());
+        assertEquals(1, aliasRequest.getValue().actions().size());
+        assertTrue(aliasRequest.getValue().actions().get(0).isAdd());
+    }
+
+    @Test
+    public void testUpdatesSettingsWhenIndexIsCurrent() throws IOException {
+        mockAliasedIndex(CURRENT_INDEX);
+
+        carListingIndexManager.ensureCurrentIndex();
+
+        verify(indicesClient).putSettings(any(PutIndicesSettingsRequest.class));
+        verify(indicesClient, never()).create(any(CreateIndexRequest.class));
+        verify(indicesClient, never()).updateAliases(any(UpdateAliasesRequest.class));
+    }
+
+    @Test
+    public void testMigratesFromPreviousVersion() throws IOException {
+        mockAliasedIndex("car_listings_v0");
+        when(elasticsearchClient.reindex(any(ReindexRequest.class)))
+                .thenReturn(ReindexResponse.of(response -> response.total(10L)));
+
+        carListingIndexManager.ensureCurrentIndex();
+
+        verify(indicesClient).create(any(CreateIndexRequest.class));
+        ArgumentCaptor<UpdateAliasesRequest> aliasRequest = ArgumentCaptor.forClass(UpdateAliasesRequest.class);
+        verify(indicesClient).updateAliases(aliasRequest.capture());
+        assertTrue(aliasRequest.getValue().actions().get(0).isRemove());
+        assertTrue(aliasRequest.getValue().actions().get(1).isAdd());
+    }
+
+    @Test
+    public void testKeepsRebuiltIndexOfCurrentVersion() throws IOException {
+        mockAliasedIndex(CURRENT_INDEX + "-1700000000000");
+
+        carListingIndexManager.ensureCurrentIndex();
+
+        verify(indicesClient).putSettings(any(PutIndicesSettingsRequest.class));
+        verify(indicesClient, never()).create(any(CreateIndexRequest.class));
+    }
+
+    @Test
+    public void testCreatesRebuildIndexWithoutReplicasAndRefresh() throws IOException {
+        carListingIndexManager = new CarListingIndexManager(elasticsearchClient, 1, 1, "1s",
+                Clock.fixed(Instant.ofEpochMilli(1700000000000L), ZoneOffset.UTC));
+
+        String indexName = carListingIndexManager.createRebuildIndex();
+
+        ArgumentCaptor<CreateIndexRequest> createRequest = ArgumentCaptor.forClass(CreateIndexRequest.class);
+        verify(indicesClient).create(createRequest.capture());
+        assertEquals(CURRENT_INDEX + "-1700000000000", indexName);
+        assertEquals(indexName, createRequest.getValue().index());
+        assertEquals("0", createRequest.getValue().settings().index().numberOfReplicas());
+        assertEquals("-1", createRequest.getValue().settings().index().refreshInterval().time());
+    }
+
+    private void mockAliasedIndex(String indexName) throws IOException {
+        when(indicesClient.existsAlias(any(ExistsAliasRequest.class))).thenReturn(new BooleanResponse(true));
+        when(indicesClient.getAlias(any(GetAliasRequest.class))).thenReturn(GetAliasResponse.of(response -> response
+                .result(Map.of(indexName, IndexAliases.of(aliases -> aliases.aliases(Map.of()))))));
+    }
+}
@@ -1,19 +1,78 @@
 package org.smg.carlisting.infrastructure.elasticsearch;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch._types.Result;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.IndexRequest;
+import co.elastic.clients.elasticsearch.core.IndexResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.UpdateRequest;
+import co.elastic.clients.elasticsearch.core.UpdateResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.smg.carlisting.application.CarListingSearchCriteria;
 import org.smg.carlisting.common.Constants;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.exception.InternalServerErrorException;
 import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.BulkIndexResult;
+import org.smg.carlisting.infrastructure.kafka.CarListingEventVersioner;
+import org.smg.carlisting.infrastructure.kafka.CarListingListenerControl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.elasticsearch.NoSuchIndexException;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -22,18 +81,34 @@ public class ElasticCarListingRepositoryTest {
 
     private static final String ID = "123";
     private static final String INDEX_NOT_FOUND = "Index not found";
+    private static final String INDEX_NAME = "car_listings";
+    private static final String REBUILT_INDEX_NAME = "car_listings_v2";
 
     @Mock
     private ElasticsearchOperations elasticsearchOperations;
 
+    @Mock
+    private ElasticsearchClient elasticsearchClient;
+
+    @Mock
+    private ElasticsearchAsyncClient elasticsearchAsyncClient;
+
+    @Mock
+    private ElasticsearchConverter elasticsearchConverter;
+
     @Mock
     private CircuitBreakerRegistry circuitBreakerRegistry;
 
     @Mock
     private CircuitBreaker circuitBreaker;
 
+    @Mock
+    private CarListingListenerControl carListingListenerControl;
+
     private CarListing carListing;
 
+    private SimpleMeterRegistry meterRegistry;
+
     private ElasticCarListingRepository elasticCarListingRepository;
 
 
@@ -42,12 +117,16 @@ public class ElasticCarListingRepositoryTest {
         carListing = new CarListing();
         carListing.setId(ID);
         when(circuitBreakerRegistry.circuitBreaker(Constants.ELASTICSEARCH_CIRCUIT_BREAKER)).thenReturn(circuitBreaker);
-        elasticCarListingRepository = new ElasticCarListingRepository(elasticsearchOperations, circuitBreakerRegistry);
+        meterRegistry = new SimpleMeterRegistry();
+        elasticCarListingRepository = new ElasticCarListingRepository(elasticsearchOperations, elasticsearchClient,
+                elasticsearchAsyncClient, circuitBreakerRegistry, RateLimiterRegistry.ofDefaults(),
+                TimeLimiterRegistry.ofDefaults(), indexedDocumentCache(false),
+                indexingController(false), meterRegistry);
     }
 
     @Test
     public void testCreateOrUpdateElasticsearchIndexSuccess() {
-        elasticCarListingRepository.createOrUpdateElasticsearchIndex(carListing);
+        assertTrue(elasticCarListingRepository.createOrUpdateElasticsearchIndex(carListing, null));
         verify(elasticsearchOperations).save(carListing);
     }
 
@@ -56,12 +135,12 @@ public class ElasticCarListingRepositoryTest {
         NoSuchIndexException exception = new NoSuchIndexException(INDEX_NOT_FOUND);
         doThrow(exception).when(elasticsearchOperations).save(carListing, CarListing.class);
 
-        assertDoesNotThrow(() -> elasticCarListingRepository.createOrUpdateElasticsearchIndex(carListing));
+        assertDoesNotThrow(() -> elasticCarListingRepository.createOrUpdateElasticsearchIndex(carListing, null));
     }
 
     @Test
     public void testDeleteSuccess() {
-        elasticCarListingRepository.deleteFromElasticsearchIndex(ID);
+        assertTrue(elasticCarListingRepository.deleteFromElasticsearchIndex(ID, null));
         verify(elasticsearchOperations).delete(ID, CarListing.class);
     }
 
@@ -70,6 +149,470 @@ public class ElasticCarListingRepositoryTest {
         NoSuchIndexException exception = new NoSuchIndexException(INDEX_NOT_FOUND);
         doThrow(exception).when(elasticsearchOperations).delete(ID, CarListing.class);
 
-        assertDoesNotThrow(() -> elasticCarListingRepository.deleteFromElasticsearchIndex(ID));
+        assertDoesNotThrow(() -> elasticCarListingRepository.deleteFromElasticsearchIndex(ID, null));
+    }
+
+    @Test
+    public void testDeleteNoIndexIsNotAcknowledged() {
+        NoSuchIndexException exception = new NoSuchIndexException(INDEX_NOT_FOUND);
+        doThrow(exception).when(elasticsearchOperations).delete(ID, CarListing.class);
+
+        assertFalse(elasticCarListingRepository.deleteFromElasticsearchIndex(ID, null));
+    }
+
+    @Test
+    public void testBulkUpdateReportsItemFailures() throws IOException {
+        when(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class)).thenReturn(IndexCoordinates.of(INDEX_NAME));
+        when(elasticsearchOperations.getElasticsearchConverter()).thenReturn(elasticsearchConverter);
+        when(elasticsearchConverter.mapObject(carListing)).thenReturn(Document.create());
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenReturn(BulkResponse.of(response -> response
+                .errors(true)
+                .took(1)
+                .items(BulkResponseItem.of(item -> item.operationType(OperationType.Index).index(INDEX_NAME).id(ID)
+                                .status(201)),
+                        BulkResponseItem.of(item -> item.operationType(OperationType.Delete).index(INDEX_NAME).id(ID)
+                                .status(400).error(ErrorCause.of(error -> error.type("illegal_argument_exception")
+                                        .reason("failed")))))));
+
+        BulkIndexResult result = elasticCarListingRepository.bulkUpdateElasticsearchIndex(List.of(
+                new CarListingEvent(ID, EventType.UPDATE, carListing),
+                new CarListingEvent(ID, EventType.DELETE, carListing)));
+
+        assertEquals(1, result.getSuccessful());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(EventType.DELETE, result.getFailures().get(0).getEventType());
+        assertEquals(400, result.getFailures().get(0).getStatus());
+    }
+
+    @Test
+    public void testBulkUpdateRejectsEventsWithoutCarListingId() throws IOException {
+        when(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class)).thenReturn(IndexCoordinates.of(INDEX_NAME));
+
+        BulkIndexResult result = elasticCarListingRepository.bulkUpdateElasticsearchIndex(List.of(
+                new CarListingEvent(ID, EventType.CREATE, null),
+                new CarListingEvent(ID, EventType.UPDATE, new CarListing())));
+
+        verify(elasticsearchClient, never()).bulk(any(BulkRequest.class));
+        assertEquals(0, result.getSuccessful());
+        assertEquals(2, result.getFailures().size());
+        assertNull(result.getFailures().get(0).getCarListingId());
+        assertEquals(Constants.STATUS_REJECTED, result.getFailures().get(0).getStatus());
+        assertFalse(result.getFailures().get(0).isRetryable());
+    }
+
+    @Test
+    public void testBulkUpdateCountsVersionConflictsAsStale() throws IOException {
+        when(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class)).thenReturn(IndexCoordinates.of(INDEX_NAME));
+        when(elasticsearchOperations.getElasticsearchConverter()).thenReturn(elasticsearchConverter);
+        when(elasticsearchConverter.mapObject(carListing)).thenReturn(Document.create());
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenReturn(BulkResponse.of(response -> response
+                .errors(true)
+                .took(1)
+                .items(BulkResponseItem.of(item -> item.operationType(OperationType.Index).index(INDEX_NAME).id(ID)
+                        .status(409).error(ErrorCause.of(error -> error.type("version_conflict_engine_exception")
+                                .reason("current version [8] is higher than or equal to the one provided [7]")))))));
+
+        BulkIndexResult result = elasticCarListingRepository.bulkUpdateElasticsearchIndex(List.of(
+                new CarListingEvent(ID, EventType.UPDATE, carListing, 7L)));
+
+        ArgumentCaptor<BulkRequest> bulkRequest = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(elasticsearchClient).bulk(bulkRequest.capture());
+        assertEquals(7L, bulkRequest.getValue().operations().get(0).index().version());
+        assertEquals(VersionType.External, bulkRequest.getValue().operations().get(0).index().versionType());
+        assertEquals(1, result.getSuccessful());
+        assertFalse(result.hasFailures());
+        assertEquals(1, meterRegistry.counter(Constants.METRIC_EVENTS_STALE, Constants.TAG_DETECTED, "elasticsearch").count());
+    }
+
+    @Test
+    public void testVersionedWriteRejectedAsStaleIsAcknowledged() throws IOException {
+        when(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class)).thenReturn(IndexCoordinates.of(INDEX_NAME));
+        when(elasticsearchOperations.getElasticsearchConverter()).thenReturn(elasticsearchConverter);
+        when(elasticsearchConverter.mapObject(carListing)).thenReturn(Document.create());
+        when(elasticsearchClient.index(any(IndexRequest.class))).thenThrow(new ElasticsearchException("index",
+                ErrorResponse.of(response -> response.status(409).error(ErrorCause.of(error -> error
+                        .type("version_conflict_engine_exception").reason("version conflict"))))));
+
+        assertTrue(elasticCarListingRepository.createOrUpdateElasticsearchIndex(carListing, 7L));
+
+        ArgumentCaptor<IndexRequest<?>> indexRequest = ArgumentCaptor.forClass(IndexRequest.class);
+        verify(elasticsearchClient).index(indexRequest.capture());
+        assertEquals(7L, indexRequest.getValue().version());
+        assertEquals(VersionType.External, indexRequest.getValue().versionType());
+        verify(elasticsearchOperations, never()).save(carListing);
+        assertEquals(1, meterRegistry.counter(Constants.METRIC_EVENTS_STALE, Constants.TAG_DETECTED, "elasticsearch").count());
+    }
+
+    @Test
+    public void testBulkUpdateIsSplitByAdaptiveBulkSizeAndBacksOffOnRejection() throws IOException {
+        AdaptiveIndexingController indexingController = indexingController(true);
+        ElasticCarListingRepository repository = new ElasticCarListingRepository(elasticsearchOperations,
+                elasticsearchClient, elasticsearchAsyncClient, circuitBreakerRegistry, RateLimiterRegistry.ofDefaults(),
+                TimeLimiterRegistry.ofDefaults(), indexedDocumentCache(false), indexingController,
+                meterRegistry);
+        when(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class)).thenReturn(IndexCoordinates.of(INDEX_NAME));
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenReturn(BulkResponse.of(response -> response
+                .errors(true)
+                .took(1)
+                .items(BulkResponseItem.of(item -> item.operationType(OperationType.Delete).index(INDEX_NAME).id(ID)
+                        .status(429).error(ErrorCause.of(error -> error.type("es_rejected_execution_exception")
+                                .reason("rejected execution")))))));
+
+        BulkIndexResult result = repository.bulkUpdateElasticsearchIndex(List.of(
+                new CarListingEvent(ID, EventType.DELETE, carListing),
+                new CarListingEvent(ID, EventType.DELETE, carListing),
+                new CarListingEvent(ID, EventType.DELETE, carListing)));
+
+        verify(elasticsearchClient, times(2)).bulk(any(BulkRequest.class));
+        assertEquals(2, result.getFailures().size());
+        assertTrue(indexingController.isBackingOff());
+        verify(carListingListenerControl).pause(any());
+    }
+
+    @Test
+    public void testRebuildBulkUpdateIsSentInOneRequestAndDoesNotFeedTheAdaptiveLimits() throws IOException {
+        AdaptiveIndexingController indexingController = indexingController(true);
+        ElasticCarListingRepository repository = new ElasticCarListingRepository(elasticsearchOperations,
+                elasticsearchClient, elasticsearchAsyncClient, circuitBreakerRegistry, RateLimiterRegistry.ofDefaults(),
+                TimeLimiterRegistry.ofDefaults(), indexedDocumentCache(false), indexingController,
+                meterRegistry);
+        ArgumentCaptor<BulkRequest> bulkRequest = ArgumentCaptor.forClass(BulkRequest.class);
+        when(elasticsearchClient.bulk(bulkRequest.capture())).thenReturn(BulkResponse.of(response -> response
+                .errors(true)
+                .took(1)
+                .items(BulkResponseItem.of(item -> item.operationType(OperationType.Delete).index(REBUILT_INDEX_NAME)
+                        .id(ID).status(429).error(ErrorCause.of(error -> error.type("es_rejected_execution_exception")
+                                .reason("rejected execution")))))));
+
+        repository.bulkUpdateElasticsearchIndex(List.of(
+                new CarListingEvent(ID, EventType.DELETE, carListing),
+                new CarListingEvent(ID, EventType.DELETE, carListing),
+                new CarListingEvent(ID, EventType.DELETE, carListing)), REBUILT_INDEX_NAME);
+
+        verify(elasticsearchClient, times(1)).bulk(any(BulkRequest.class));
+        assertEquals(3, bulkRequest.getValue().operations().size());
+        assertEquals(REBUILT_INDEX_NAME, bulkRequest.getValue().operations().get(0).delete().index());
+        assertFalse(indexingController.isBackingOff());
+        verify(carListingListenerControl, never()).pause(any());
+    }
+
+    @Test
+    public void testBulkUpdateFailsWholeBatchOnConnectionError() throws IOException {
+        when(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class)).thenReturn(IndexCoordinates.of(INDEX_NAME));
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenThrow(new IOException("Connection refused"));
+
+        BulkIndexResult result = elasticCarListingRepository.bulkUpdateElasticsearchIndex(List.of(
+                new CarListingEvent(ID, EventType.DELETE, carListing)));
+
+        assertTrue(result.hasFailures());
+        assertEquals(0, result.getSuccessful());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPartialUpdateSendsOnlyChangedFieldsOfTheLastWrite() throws IOException {
+        IndexedDocumentCache indexedDocumentCache = indexedDocumentCache(true);
+        indexedDocumentCache.put(ID, Map.of(Constants.MAKE, "Peugeot", Constants.YEAR, 2015), 3L, 1L);
+        ElasticCarListingRepository repository = partialUpdateRepository(indexedDocumentCache);
+        Document document = Document.from(Map.of(Constants.MAKE, "Peugeot", Constants.YEAR, 2016));
+        when(elasticsearchOperations.getElasticsearchConverter()).thenReturn(elasticsearchConverter);
+        when(elasticsearchConverter.mapObject(carListing)).thenReturn(document);
+        when(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class)).thenReturn(IndexCoordinates.of(INDEX_NAME));
+        when(elasticsearchClient.update(any(UpdateRequest.class), eq(Document.class)))
+                .thenReturn(UpdateResponse.<Document>of(response -> response.index(INDEX_NAME).id(ID)
+                        .result(Result.Updated).seqNo(4L).primaryTerm(1L).version(2L)
+                        .shards(shards -> shards.total(1).successful(1).failed(0))));
+
+        assertTrue(repository.createOrUpdateElasticsearchIndex(carListing, null));
+
+        ArgumentCaptor<UpdateRequest<Document, Map<String, Object>>> updateRequest =
+                ArgumentCaptor.forClass(UpdateRequest.class);
+        verify(elasticsearchClient).update(updateRequest.capture(), eq(Document.class));
+        assertEquals(Map.of(Constants.YEAR, 2016), updateRequest.getValue().doc());
+        assertEquals(3L, updateRequest.getValue().ifSeqNo());
+        assertEquals(1L, updateRequest.getValue().ifPrimaryTerm());
+        assertEquals(4L, indexedDocumentCache.get(ID).seqNo());
+        assertEquals(Map.of(), indexedDocumentCache.diff(ID, document));
+    }
+
+    @Test
+    public void testPartialUpdateOfChangedDocumentIsIndexedInFull() throws IOException {
+        IndexedDocumentCache indexedDocumentCache = indexedDocumentCache(true);
+        indexedDocumentCache.put(ID, Map.of(Constants.MAKE, "Peugeot", Constants.YEAR, 2015), 3L, 1L);
+        ElasticCarListingRepository repository = partialUpdateRepository(indexedDocumentCache);
+        Document document = Document.from(Map.of(Constants.MAKE, "Peugeot", Constants.YEAR, 2016));
+        when(elasticsearchOperations.getElasticsearchConverter()).thenReturn(elasticsearchConverter);
+        when(elasticsearchConverter.mapObject(carListing)).thenReturn(document);
+        when(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class)).thenReturn(IndexCoordinates.of(INDEX_NAME));
+        when(elasticsearchClient.update(any(UpdateRequest.class), eq(Document.class))).thenThrow(
+                new ElasticsearchException("update", ErrorResponse.of(response -> response.status(409)
+                        .error(ErrorCause.of(error -> error.type("version_conflict_engine_exception")
+                                .reason("required seqNo [3], current document has seqNo [5]"))))));
+        when(elasticsearchClient.index(any(IndexRequest.class))).thenReturn(IndexResponse.of(response -> response
+                .index(INDEX_NAME).id(ID).result(Result.Updated).seqNo(6L).primaryTerm(1L).version(4L)
+                .shards(shards -> shards.total(1).successful(1).failed(0))));
+
+        assertTrue(repository.createOrUpdateElasticsearchIndex(carListing, null));
+
+        ArgumentCaptor<IndexRequest<Document>> indexRequest = ArgumentCaptor.forClass(IndexRequest.class);
+        verify(elasticsearchClient).index(indexRequest.capture());
+        assertSame(document, indexRequest.getValue().document());
+        assertNull(indexRequest.getValue().version());
+        assertEquals(6L, indexedDocumentCache.get(ID).seqNo());
+    }
+
+    @Test
+    public void testBulkPartialUpdateOfUnversionedEventIsConditional() throws IOException {
+        IndexedDocumentCache indexedDocumentCache = indexedDocumentCache(true);
+        indexedDocumentCache.put(ID, Map.of(Constants.MAKE, "Peugeot", Constants.YEAR, 2015), 3L, 1L);
+        ElasticCarListingRepository repository = partialUpdateRepository(indexedDocumentCache);
+        Document document = Document.from(Map.of(Constants.MAKE, "Peugeot", Constants.YEAR, 2016));
+        when(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class)).thenReturn(IndexCoordinates.of(INDEX_NAME));
+        when(elasticsearchOperations.getElasticsearchConverter()).thenReturn(elasticsearchConverter);
+        when(elasticsearchConverter.mapObject(carListing)).thenReturn(document);
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenReturn(BulkResponse.of(response -> response
+                .errors(false)
+                .took(1)
+                .items(BulkResponseItem.of(item -> item.operationType(OperationType.Update).index(INDEX_NAME).id(ID)
+                        .status(200).result("updated").seqNo(4L).primaryTerm(1L)))));
+        CarListingEvent carListingEvent = new CarListingEvent(ID, EventType.UPDATE, carListing);
+        new CarListingEventVersioner(false).assignVersion(new ConsumerRecord<>(Constants.CAR_LISTING_TOPIC, 0, 42L, ID,
+                carListingEvent));
+
+        BulkIndexResult result = repository.bulkUpdateElasticsearchIndex(List.of(carListingEvent));
+
+        ArgumentCaptor<BulkRequest> bulkRequest = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(elasticsearchClient).bulk(bulkRequest.capture());
+        BulkOperation operation = bulkRequest.getValue().operations().get(0);
+        assertTrue(operation.isUpdate());
+        assertEquals(3L, operation.update().ifSeqNo());
+        assertEquals(1L, operation.update().ifPrimaryTerm());
+        assertEquals(1, result.getSuccessful());
+        assertFalse(result.hasFailures());
+        assertEquals(4L, indexedDocumentCache.get(ID).seqNo());
+    }
+
+    @Test
+    public void testBulkPartialUpdateOfChangedDocumentIsIndexedInFull() throws IOException {
+        IndexedDocumentCache indexedDocumentCache = indexedDocumentCache(true);
+        indexedDocumentCache.put(ID, Map.of(Constants.MAKE, "Peugeot", Constants.YEAR, 2015), 3L, 1L);
+        ElasticCarListingRepository repository = partialUpdateRepository(indexedDocumentCache);
+        when(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class)).thenReturn(IndexCoordinates.of(INDEX_NAME));
+        when(elasticsearchOperations.getElasticsearchConverter()).thenReturn(elasticsearchConverter);
+        when(elasticsearchConverter.mapObject(carListing))
+                .thenReturn(Document.from(Map.of(Constants.MAKE, "Peugeot", Constants.YEAR, 2016)));
+        when(elasticsearchClient.bulk(any(BulkRequest.class)))
+                .thenReturn(BulkResponse.of(response -> response
+                        .errors(true)
+                        .took(1)
+                        .items(BulkResponseItem.of(item -> item.operationType(OperationType.Update).index(INDEX_NAME)
+                                .id(ID).status(409).error(ErrorCause.of(error -> error
+                                        .type("version_conflict_engine_exception")
+                                        .reason("required seqNo [3], current document has seqNo [5]")))))))
+                .thenReturn(BulkResponse.of(response -> response
+                        .errors(false)
+                        .took(1)
+                        .items(BulkResponseItem.of(item -> item.operationType(OperationType.Index).index(INDEX_NAME)
+                                .id(ID).status(200).result("updated").seqNo(6L).primaryTerm(1L)))));
+
+        BulkIndexResult result = repository.bulkUpdateElasticsearchIndex(List.of(
+                new CarListingEvent(ID, EventType.UPDATE, carListing)));
+
+        ArgumentCaptor<BulkRequest> bulkRequest = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(elasticsearchClient, times(2)).bulk(bulkRequest.capture());
+        assertTrue(bulkRequest.getAllValues().get(0).operations().get(0).isUpdate());
+        assertTrue(bulkRequest.getAllValues().get(1).operations().get(0).isIndex());
+        assertEquals(1, result.getSuccessful());
+        assertFalse(result.hasFailures());
+        assertEquals(0, meterRegistry.counter(Constants.METRIC_EVENTS_STALE, Constants.TAG_DETECTED, "elasticsearch").count());
+        assertEquals(6L, indexedDocumentCache.get(ID).seqNo());
+    }
+
+    @Test
+    public void testPartialUpdateSkipsUnchangedCarListings() throws IOException {
+        IndexedDocumentCache indexedDocumentCache = indexedDocumentCache(true);
+        indexedDocumentCache.put(ID, Map.of(Constants.MAKE, "Peugeot"), 1L, 1L);
+        ElasticCarListingRepository repository = partialUpdateRepository(indexedDocumentCache);
+        when(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class)).thenReturn(IndexCoordinates.of(INDEX_NAME));
+        when(elasticsearchOperations.getElasticsearchConverter()).thenReturn(elasticsearchConverter);
+        when(elasticsearchConverter.mapObject(carListing)).thenReturn(Document.from(Map.of(Constants.MAKE, "Peugeot")));
+
+        BulkIndexResult result = repository.bulkUpdateElasticsearchIndex(List.of(
+                new CarListingEvent(ID, EventType.UPDATE, carListing)));
+
+        assertEquals(1, result.getSuccessful());
+        assertFalse(result.hasFailures());
+        verify(elasticsearchClient, never()).bulk(any(BulkRequest.class));
+        assertEquals(1, meterRegistry.counter(Constants.METRIC_INDEX_UNCHANGED).count());
+    }
+
+    @Test
+    public void testBulkUpdateEmptyBatch() {
+        BulkIndexResult result = elasticCarListingRepository.bulkUpdateElasticsearchIndex(List.of());
+
+        assertFalse(result.hasFailures());
+        assertEquals(0, result.getSuccessful());
+    }
+
+    @Test
+    public void testQueryCriteriaPutsYearAndPriceIntoFilterContext() {
+        CarListingSearchCriteria criteria = new CarListingSearchCriteria();
+        criteria.setMake("Peugeot");
+        criteria.setYear(2015);
+        criteria.setMinYear(2010);
+        criteria.setMinPrice(10000.0);
+        criteria.setMaxPrice(12000.0);
+
+        BoolQuery query = ElasticCarListingRepository.getQueryCriteria(criteria).bool();
+
+        assertEquals(1, query.must().size());
+        assertTrue(query.must().get(0).isMatch());
+        assertEquals(4, query.filter().size());
+        assertTrue(query.filter().get(0).isTerm());
+        assertEquals(Constants.YEAR, query.filter().get(1).range().field());
+        Query minPrice = query.filter().get(2);
+        assertEquals(Constants.MAX_PRICE, minPrice.range().field());
+        assertEquals(10000.0, minPrice.range().gte().to(Double.class));
+        Query maxPrice = query.filter().get(3);
+        assertEquals(Constants.MIN_PRICE, maxPrice.range().field());
+        assertEquals(12000.0, maxPrice.range().lte().to(Double.class));
+    }
+
+    @Test
+    public void testQueryCriteriaWithoutCriteria() {
+        BoolQuery query = ElasticCarListingRepository.getQueryCriteria(new CarListingSearchCriteria()).bool();
+
+        assertTrue(query.must().isEmpty());
+        assertTrue(query.filter().isEmpty());
+    }
+
+    @Test
+    public void testFacetRequestAggregatesWithoutFetchingDocuments() {
+        CarListingSearchCriteria criteria = new CarListingSearchCriteria();
+        criteria.setMake("Peugeot");
+
+        SearchRequest request = ElasticCarListingRepository.getFacetRequest(INDEX_NAME, criteria);
+
+        assertEquals(List.of(INDEX_NAME), request.index());
+        assertEquals(0, request.size());
+        assertTrue(request.trackTotalHits().enabled());
+        assertEquals(1, request.query().bool().must().size());
+        assertEquals("make.keyword", request.aggregations().get(Constants.MAKE).terms().field());
+        assertEquals("model.keyword", request.aggregations().get(Constants.MODEL).terms().field());
+        assertEquals("color.keyword", request.aggregations().get(Constants.COLOR).terms().field());
+        assertEquals(1.0, request.aggregations().get(Constants.YEAR).histogram().interval());
+        assertEquals(Constants.MIN_PRICE, request.aggregations().get(Constants.MIN_PRICE).histogram().field());
+        assertEquals(Constants.FACET_PRICE_INTERVAL, request.aggregations().get(Constants.MIN_PRICE).histogram().interval());
+    }
+
+    @Test
+    public void testSearchRequestUsesPageAndKeywordSort() {
+        CarListingSearchCriteria criteria = new CarListingSearchCriteria();
+        criteria.setMake("Peugeot");
+
+        SearchRequest request = ElasticCarListingRepository.getSearchRequest(INDEX_NAME, criteria,
+                PageRequest.of(2, 20, Sort.by(Sort.Order.desc(Constants.MAKE), Sort.Order.asc(Constants.YEAR))));
+
+        assertEquals(List.of(INDEX_NAME), request.index());
+        assertEquals(40, request.from());
+        assertEquals(20, request.size());
+        assertEquals(1, request.query().bool().must().size());
+        assertEquals("make.keyword", request.sort().get(0).field().field());
+        assertEquals(SortOrder.Desc, request.sort().get(0).field().order());
+        assertEquals(Constants.YEAR, request.sort().get(1).field().field());
+    }
+
+    @Test
+    public void testAsyncSearchFailsWithoutRequestWhileCircuitBreakerIsOpen() {
+        CircuitBreaker openCircuitBreaker = CircuitBreaker.ofDefaults(Constants.ELASTICSEARCH_CIRCUIT_BREAKER);
+        openCircuitBreaker.transitionToOpenState();
+        when(circuitBreakerRegistry.circuitBreaker(Constants.ELASTICSEARCH_CIRCUIT_BREAKER)).thenReturn(openCircuitBreaker);
+        ElasticCarListingRepository repository = new ElasticCarListingRepository(elasticsearchOperations,
+                elasticsearchClient, elasticsearchAsyncClient, circuitBreakerRegistry, RateLimiterRegistry.ofDefaults(),
+                TimeLimiterRegistry.ofDefaults(), indexedDocumentCache(false),
+                indexingController(false), meterRegistry);
+
+        CompletionException exception = assertThrows(CompletionException.class, () -> repository
+                .searchCarListingsAsync(new CarListingSearchCriteria(), PageRequest.of(0, 10)).join());
+
+        assertTrue(exception.getCause() instanceof InternalServerErrorException);
+        verify(elasticsearchAsyncClient, never()).search(any(SearchRequest.class), eq(Map.class));
+    }
+
+    @Test
+    public void testExportWalksPointInTimeAndClosesIt() {
+        IndexCoordinates index = IndexCoordinates.of(INDEX_NAME);
+        when(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class)).thenReturn(index);
+        when(elasticsearchOperations.openPointInTime(eq(index), any(Duration.class))).thenReturn("pit-1");
+        SearchHit<CarListing> searchHit = mock(SearchHit.class);
+        when(searchHit.getContent()).thenReturn(carListing);
+        SearchHits<CarListing> searchHits = mock(SearchHits.class);
+        when(searchHits.getSearchHits()).thenReturn(List.of(searchHit));
+        when(searchHits.getPointInTimeId()).thenReturn("pit-2");
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(CarListing.class))).thenReturn(searchHits);
+        List<CarListing> exported = new ArrayList<>();
+
+        assertEquals(1, elasticCarListingRepository.exportCarListings(new CarListingSearchCriteria(), exported::addAll));
+
+        assertEquals(List.of(carListing), exported);
+        verify(elasticsearchOperations).closePointInTime("pit-2");
+    }
+
+    @Test
+    public void testExportClosesPointInTimeWhenConsumerFails() {
+        IndexCoordinates index = IndexCoordinates.of(INDEX_NAME);
+        when(elasticsearchOperations.getIndexCoordinatesFor(CarListing.class)).thenReturn(index);
+        when(elasticsearchOperations.openPointInTime(eq(index), any(Duration.class))).thenReturn("pit-1");
+        SearchHit<CarListing> searchHit = mock(SearchHit.class);
+        when(searchHit.getContent()).thenReturn(carListing);
+        SearchHits<CarListing> searchHits = mock(SearchHits.class);
+        when(searchHits.getSearchHits()).thenReturn(List.of(searchHit));
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(CarListing.class))).thenReturn(searchHits);
+
+        assertThrows(UncheckedIOException.class, () -> elasticCarListingRepository.exportCarListings(
+                new CarListingSearchCriteria(), page -> {
+                    throw new UncheckedIOException(new IOException("Broken pipe"));
+                }));
+
+        verify(elasticsearchOperations).closePointInTime("pit-1");
+    }
+
+    private ElasticCarListingRepository partialUpdateRepository(IndexedDocumentCache indexedDocumentCache) {
+        return new ElasticCarListingRepository(elasticsearchOperations, elasticsearchClient, elasticsearchAsyncClient,
+                circuitBreakerRegistry, RateLimiterRegistry.ofDefaults(), TimeLimiterRegistry.ofDefaults(),
+                indexedDocumentCache, indexingController(false), meterRegistry);
+    }
+
+    private AdaptiveIndexingController indexingController(boolean enabled) {
+        return new AdaptiveIndexingController(carListingListenerControl, new SimpleMeterRegistry(), enabled, 2, 2, 10, 1, 4,
+                Duration.ofSeconds(10), Duration.ofMinutes(1));
+    }
+
+    private IndexedDocumentCache indexedDocumentCache(boolean enabled) {
+        return new IndexedDocumentCache(enabled, 100, Duration.ofMinutes(10), new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void testCriteriaTagNamesUsedCriteria() {
+        CarListingSearchCriteria criteria = new CarListingSearchCriteria();
+        assertEquals("none", ElasticCarListingRepository.getCriteriaTag(criteria));
+
+        criteria.setMake("Peugeot");
+        criteria.setMinYear(2015);
+        criteria.setMaxPrice(12000.0);
+        assertEquals("make+minYear+maxPrice", ElasticCarListingRepository.getCriteriaTag(criteria));
+    }
+
+    @Test
+    public void testWritesAreTimedPerOperationAndOutcome() {
+        doThrow(new NoSuchIndexException(INDEX_NOT_FOUND)).when(elasticsearchOperations).delete(ID, CarListing.class);
+
+        elasticCarListingRepository.createOrUpdateElasticsearchIndex(carListing, null);
+        elasticCarListingRepository.deleteFromElasticsearchIndex(ID, null);
+
+        assertEquals(1, meterRegistry.get(Constants.METRIC_INDEX)
+                .tags(Constants.TAG_OPERATION, "index", Constants.TAG_OUTCOME, "success").timer().count());
+        assertEquals(1, meterRegistry.get(Constants.METRIC_INDEX)
+                .tags(Constants.TAG_OPERATION, "delete", Constants.TAG_OUTCOME, "failure").timer().count());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,68 @@
+package org.smg.carlisting.infrastructure.elasticsearch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.smg.carlisting.common.Constants;
+import org.smg.carlisting.infrastructure.elasticsearch.IndexedDocumentCache.IndexedDocument;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IndexedDocumentCacheTest {
+
+    private static final String ID = "1";
+
+    private IndexedDocumentCache indexedDocumentCache;
+
+    @BeforeEach
+    public void setup() {
+        indexedDocumentCache = new IndexedDocumentCache(true, 100, Duration.ofMinutes(10), new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void testUnknownCarListingHasNoDiff() {
+        assertNull(indexedDocumentCache.diff(ID, Map.of(Constants.MAKE, "Peugeot")));
+    }
+
+    @Test
+    public void testDiffContainsChangedAndRemovedFields() {
+        indexedDocumentCache.put(ID, Map.of(Constants.MAKE, "Peugeot", Constants.MIN_PRICE, 10000.0,
+                Constants.COLOR, "black"), 1L, 1L);
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put(Constants.MIN_PRICE, 9000.0);
+        expected.put(Constants.COLOR, null);
+        assertEquals(expected, indexedDocumentCache.diff(ID, Map.of(Constants.MAKE, "Peugeot", Constants.MIN_PRICE, 9000.0)));
+    }
+
+    @Test
+    public void testUnchangedDocumentHasEmptyDiff() {
+        indexedDocumentCache.put(ID, Map.of(Constants.MAKE, "Peugeot"), 1L, 1L);
+
+        assertTrue(indexedDocumentCache.diff(ID, Map.of(Constants.MAKE, "Peugeot")).isEmpty());
+    }
+
+    @Test
+    public void testIndexedDocumentKeepsSequenceNumberAndPrimaryTerm() {
+        indexedDocumentCache.put(ID, Map.of(Constants.MAKE, "Peugeot"), 7L, 2L);
+
+        IndexedDocument indexed = indexedDocumentCache.get(ID);
+        assertEquals(Map.of(Constants.MAKE, "Peugeot"), indexed.document());
+        assertEquals(7L, indexed.seqNo());
+        assertEquals(2L, indexed.primaryTerm());
+    }
+
+    @Test
+    public void testRemovedCarListingIsUnknown() {
+        indexedDocumentCache.put(ID, Map.of(Constants.MAKE, "Peugeot"), 1L, 1L);
+        indexedDocumentCache.remove(ID);
+
+        assertNull(indexedDocumentCache.diff(ID, Map.of(Constants.MAKE, "Peugeot")));
+    }
+}
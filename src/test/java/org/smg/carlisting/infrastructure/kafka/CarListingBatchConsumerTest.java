@@ -0,0 +1,137 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smg.carlisting.application.CarListingService;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.BulkIndexFailure;
+import org.smg.carlisting.domain.repository.BulkIndexResult;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.smg.carlisting.common.Constants.MISSING_CAR_LISTING_ID;
+
+@ExtendWith(MockitoExtension.class)
+public class CarListingBatchConsumerTest {
+
+    private static final String KEY = "key";
+    private static final String CAR_LISTING_TOPIC = "car-listing-topic";
+    private static final Duration NACK_SLEEP = Duration.ofSeconds(1);
+    private static final String KAFKA_MESSAGE = "{\"eventType\": \"DELETE\", \"carListing\": {\"id\": \"1\"}}";
+
+    private CarListingBatchConsumer carListingBatchConsumer;
+
+    @Mock
+    private CarListingService carListingService;
+
+    @Mock
+    private CarListingDeadLetterPublisher carListingDeadLetterPublisher;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    @BeforeEach
+    public void setup() {
+        carListingBatchConsumer = new CarListingBatchConsumer(carListingService, carListingDeadLetterPublisher, NACK_SLEEP);
+    }
+
+    @Test
+    public void testConsumeBatchDeadLettersInvalidEvents() throws JsonProcessingException {
+        CarListingEvent event = new ObjectMapper().readValue(KAFKA_MESSAGE, CarListingEvent.class);
+        ConsumerRecord<String, CarListingEvent> invalid = new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 0L, KEY, null);
+        List<ConsumerRecord<String, CarListingEvent>> records = List.of(
+                invalid,
+                new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 1L, KEY, event));
+        when(carListingDeadLetterPublisher.deadLetterUndeserializable(invalid)).thenReturn(true);
+        when(carListingService.processCarListings(List.of(event))).thenReturn(new BulkIndexResult(1, List.of()));
+
+        carListingBatchConsumer.consume(records, acknowledgment);
+
+        verify(carListingService).processCarListings(List.of(event));
+        verify(carListingDeadLetterPublisher).deadLetterUndeserializable(invalid);
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    public void testConsumeBatchRetriesRetryableFailureLater() throws JsonProcessingException {
+        CarListingEvent event = new ObjectMapper().readValue(KAFKA_MESSAGE, CarListingEvent.class);
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 0L, KEY, event);
+        when(carListingService.processCarListings(anyList())).thenReturn(new BulkIndexResult(0,
+                List.of(new BulkIndexFailure("1", EventType.DELETE, 429, "es_rejected_execution_exception"))));
+        when(carListingDeadLetterPublisher.retryLater(eq(record), eq(event), anyString())).thenReturn(true);
+
+        carListingBatchConsumer.consume(List.of(record), acknowledgment);
+
+        verify(acknowledgment).acknowledge();
+        verify(acknowledgment, never()).nack(0, NACK_SLEEP);
+    }
+
+    @Test
+    public void testConsumeBatchIsRedeliveredIfFailureCannotBePublished() throws JsonProcessingException {
+        CarListingEvent event = new ObjectMapper().readValue(KAFKA_MESSAGE, CarListingEvent.class);
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 0L, KEY, event);
+        when(carListingService.processCarListings(anyList())).thenReturn(new BulkIndexResult(0,
+                List.of(new BulkIndexFailure("1", EventType.DELETE, 429, "es_rejected_execution_exception"))));
+        when(carListingDeadLetterPublisher.retryLater(eq(record), eq(event), anyString())).thenReturn(false);
+
+        carListingBatchConsumer.consume(List.of(record), acknowledgment);
+
+        verify(acknowledgment).nack(0, NACK_SLEEP);
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    public void testConsumeBatchDeadLettersPermanentFailure() throws JsonProcessingException {
+        CarListingEvent event = new ObjectMapper().readValue(KAFKA_MESSAGE, CarListingEvent.class);
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 0L, KEY, event);
+        when(carListingService.processCarListings(anyList())).thenReturn(new BulkIndexResult(0,
+                List.of(new BulkIndexFailure("1", EventType.DELETE, 400, "mapper_parsing_exception"))));
+        when(carListingDeadLetterPublisher.deadLetter(eq(record), eq(event), isNull(), anyString())).thenReturn(true);
+
+        carListingBatchConsumer.consume(List.of(record), acknowledgment);
+
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    public void testConsumeBatchDeadLettersEventsWithoutIdBeforeTheBulkWrite() throws JsonProcessingException {
+        CarListingEvent event = new ObjectMapper().readValue(KAFKA_MESSAGE, CarListingEvent.class);
+        CarListingEvent withoutId = new CarListingEvent("e2", EventType.CREATE, new CarListing());
+        CarListingEvent withoutCarListing = new CarListingEvent("e3", EventType.UPDATE, null);
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 0L, KEY, event);
+        ConsumerRecord<String, CarListingEvent> recordWithoutId = new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 1L, null,
+                withoutId);
+        ConsumerRecord<String, CarListingEvent> recordWithoutCarListing = new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 2L,
+                null, withoutCarListing);
+        when(carListingService.processCarListings(List.of(event))).thenReturn(new BulkIndexResult(1, List.of()));
+        when(carListingDeadLetterPublisher.deadLetter(any(), any(), isNull(), eq(MISSING_CAR_LISTING_ID)))
+                .thenReturn(true);
+
+        carListingBatchConsumer.consume(List.of(record, recordWithoutId, recordWithoutCarListing), acknowledgment);
+
+        verify(carListingService).processCarListings(List.of(event));
+        verify(carListingDeadLetterPublisher).deadLetter(recordWithoutId, withoutId, null, MISSING_CAR_LISTING_ID);
+        verify(carListingDeadLetterPublisher).deadLetter(recordWithoutCarListing, withoutCarListing, null,
+                MISSING_CAR_LISTING_ID);
+        verify(carListingDeadLetterPublisher, never()).deadLetter(eq(record), any(), any(), anyString());
+        verify(acknowledgment).acknowledge();
+    }
+}
@@ -3,49 +3,100 @@ package org.smg.carlisting.infrastructure.kafka;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.smg.carlisting.application.CarListingService;
 import org.smg.carlisting.domain.event.CarListingEvent;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class CarListingConsumerTest {
 
     private static final String KEY = "key";
     private static final String CAR_LISTING_TOPIC = "car-listing-topic";
+    private static final Duration NACK_SLEEP = Duration.ofSeconds(1);
+    private static final String KAFKA_MESSAGE = "{\"eventType\": \"CREATE\", \"carListing\": {\"make\": \"Peugeot\", \"model\": \"308\"," +
+            " \"year\": \"2015\", \"minPrice\": 100, \"maxPrice\": 200, \"color\": \"blue\"}}";
 
-    @InjectMocks
     private CarListingConsumer carListingConsumer;
 
     @Mock
     private CarListingService carListingService;
 
+    @Mock
+    private PartitionAcknowledgmentBatcher partitionAcknowledgmentBatcher;
+
+    @Mock
+    private CarListingDeadLetterPublisher carListingDeadLetterPublisher;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    @BeforeEach
+    public void setup() {
+        carListingConsumer = new CarListingConsumer(carListingService, partitionAcknowledgmentBatcher,
+                carListingDeadLetterPublisher, NACK_SLEEP);
+    }
+
     @Test
     public void testConsumeValidEvent() throws JsonProcessingException {
-        String kafkaMessage = "{\"eventType\": \"CREATE\", \"carListing\": {\"make\": \"Peugeot\", \"model\": \"308\"," +
-                " \"year\": \"2015\", \"minPrice\": 100, \"maxPrice\": 200, \"color\": \"blue\"}}";
         ObjectMapper objectMapper = new ObjectMapper();
-        CarListingEvent event = objectMapper.readValue(kafkaMessage, CarListingEvent.class);
-        ConsumerRecord<String, String> record = new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 0L, KEY, kafkaMessage);
+        CarListingEvent event = objectMapper.readValue(KAFKA_MESSAGE, CarListingEvent.class);
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 0L, KEY, event);
+        when(carListingService.processCarListing(event)).thenReturn(true);
 
-        carListingConsumer.consume(record);
+        carListingConsumer.consume(record, acknowledgment);
 
         verify(carListingService).processCarListing(event);
+        verify(partitionAcknowledgmentBatcher).acknowledge(record, acknowledgment);
+    }
+
+    @Test
+    public void testConsumeFailedWriteIsRetriedLater() throws JsonProcessingException {
+        CarListingEvent event = new ObjectMapper().readValue(KAFKA_MESSAGE, CarListingEvent.class);
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 0L, KEY, event);
+        when(carListingService.processCarListing(event)).thenReturn(false);
+        when(carListingDeadLetterPublisher.retryLater(eq(record), eq(event), anyString())).thenReturn(true);
+
+        carListingConsumer.consume(record, acknowledgment);
+
+        verify(partitionAcknowledgmentBatcher).acknowledge(record, acknowledgment);
+        verify(acknowledgment, never()).nack(NACK_SLEEP);
+    }
+
+    @Test
+    public void testConsumeFailedWriteIsRedeliveredIfRetryCannotBePublished() throws JsonProcessingException {
+        CarListingEvent event = new ObjectMapper().readValue(KAFKA_MESSAGE, CarListingEvent.class);
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 0L, KEY, event);
+        when(carListingService.processCarListing(any(CarListingEvent.class))).thenReturn(false);
+        when(carListingDeadLetterPublisher.retryLater(eq(record), eq(event), anyString())).thenReturn(false);
+
+        carListingConsumer.consume(record, acknowledgment);
+
+        verify(partitionAcknowledgmentBatcher, never()).acknowledge(record, acknowledgment);
+        verify(partitionAcknowledgmentBatcher).flush();
+        verify(acknowledgment).nack(NACK_SLEEP);
     }
 
     @Test
-    public void testConsumeInvalidEvent() {
-        ConsumerRecord<String, String> record = new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 0L, KEY, "invalid message");
+    public void testConsumeEmptyEvent() {
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 0L, KEY, null);
 
-        carListingConsumer.consume(record);
+        carListingConsumer.consume(record, acknowledgment);
 
         verify(carListingService, never()).processCarListing(any(CarListingEvent.class));
+        verify(partitionAcknowledgmentBatcher).acknowledge(record, acknowledgment);
     }
-}
\ No newline at end of file
+}
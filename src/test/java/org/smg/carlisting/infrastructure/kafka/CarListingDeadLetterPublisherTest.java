@@ -0,0 +1,125 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smg.carlisting.common.Constants;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CarListingDeadLetterPublisherTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+    private static final CarListingEvent EVENT = new CarListingEvent("1", EventType.UPDATE,
+            new CarListing("1", "Peugeot", "308", 2015, 10000, 12000, "black"));
+
+    @Mock
+    private KafkaTemplate<String, Object> carListingKafkaTemplate;
+
+    private CarListingDeadLetterPublisher carListingDeadLetterPublisher;
+
+    @BeforeEach
+    public void setup() {
+        carListingDeadLetterPublisher = new CarListingDeadLetterPublisher(carListingKafkaTemplate, new SimpleMeterRegistry(),
+                2, Duration.ofSeconds(1), 10, Duration.ofSeconds(1), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void testFirstRetryGoesToFirstTierWithOrigin() {
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>(Constants.CAR_LISTING_TOPIC, 3, 42L, "1", EVENT);
+        record.headers().add("trace-id", "abc".getBytes(StandardCharsets.UTF_8));
+        record.headers().add(Constants.HEADER_CONTENT_TYPE, Constants.CONTENT_TYPE_AVRO.getBytes(StandardCharsets.UTF_8));
+        when(carListingKafkaTemplate.send(any(ProducerRecord.class))).thenReturn(sent());
+
+        assertTrue(carListingDeadLetterPublisher.retryLater(record, EVENT, "write failed"));
+
+        ProducerRecord<String, Object> published = published();
+        assertEquals("car-listing-topic-retry-0", published.topic());
+        assertEquals("1", published.key());
+        assertEquals(EVENT, published.value());
+        assertEquals("abc", header(published, "trace-id"));
+        assertNull(published.headers().lastHeader(Constants.HEADER_CONTENT_TYPE));
+        assertEquals(Constants.CAR_LISTING_TOPIC, header(published, KafkaHeaders.DLT_ORIGINAL_TOPIC));
+        assertEquals(42L, ByteBuffer.wrap(published.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_OFFSET).value()).getLong());
+        assertEquals(NOW.toEpochMilli() + 1000,
+                ByteBuffer.wrap(published.headers().lastHeader(Constants.HEADER_RETRY_DUE).value()).getLong());
+    }
+
+    @Test
+    public void testLastTierGoesToDeadLetterTopic() {
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>("car-listing-topic-retry-1", 0, 7L, "1", EVENT);
+        record.headers().add(Constants.HEADER_RETRY_ATTEMPT, ByteBuffer.allocate(Integer.BYTES).putInt(2).array());
+        record.headers().add(KafkaHeaders.DLT_ORIGINAL_TOPIC, Constants.CAR_LISTING_TOPIC.getBytes(StandardCharsets.UTF_8));
+        when(carListingKafkaTemplate.send(any(ProducerRecord.class))).thenReturn(sent());
+
+        assertTrue(carListingDeadLetterPublisher.retryLater(record, EVENT, "write failed"));
+
+        ProducerRecord<String, Object> published = published();
+        assertEquals(Constants.CAR_LISTING_DLT, published.topic());
+        assertEquals(Constants.CAR_LISTING_TOPIC, header(published, KafkaHeaders.DLT_ORIGINAL_TOPIC));
+        assertEquals("write failed", header(published, KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+    }
+
+    @Test
+    public void testFailedSendIsReported() {
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>(Constants.CAR_LISTING_TOPIC, 0, 0L, "1", EVENT);
+        when(carListingKafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        assertFalse(carListingDeadLetterPublisher.deadLetter(record, EVENT, null, "mapper_parsing_exception"));
+    }
+
+    @Test
+    public void testRetryDelaysGrowExponentially() {
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>("car-listing-topic-retry-0", 0, 0L, "1", EVENT);
+        record.headers().add(Constants.HEADER_RETRY_DUE, ByteBuffer.allocate(Long.BYTES).putLong(NOW.toEpochMilli() + 500).array());
+
+        assertEquals(Duration.ofSeconds(10), carListingDeadLetterPublisher.getDelay(1));
+        assertEquals(Duration.ofMillis(500), carListingDeadLetterPublisher.getRemainingDelay(record));
+        assertEquals(List.of("car-listing-topic-retry-0", "car-listing-topic-retry-1"),
+                carListingDeadLetterPublisher.getRetryTopics());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProducerRecord<String, Object> published() {
+        ArgumentCaptor<ProducerRecord<String, Object>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(carListingKafkaTemplate).send(captor.capture());
+        return captor.getValue();
+    }
+
+    private static String header(ProducerRecord<String, Object> record, String key) {
+        return new String(record.headers().lastHeader(key).value(), StandardCharsets.UTF_8);
+    }
+
+    private static CompletableFuture<SendResult<String, Object>> sent() {
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,85 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.smg.carlisting.common.Constants.CONTENT_TYPE_AVRO;
+import static org.smg.carlisting.common.Constants.HEADER_CONTENT_TYPE;
+
+public class CarListingEventDeserializerTest {
+
+    private static final String CAR_LISTING_TOPIC = "car-listing-topic";
+
+    private final CarListingEventDeserializer deserializer = new CarListingEventDeserializer(new SimpleMeterRegistry());
+
+    @Test
+    public void testDeserializeValidEvent() {
+        byte[] payload = ("{\"id\": \"e1\", \"eventType\": \"UPDATE\", \"carListing\": {\"id\": \"1\", \"make\": \"Peugeot\"," +
+                " \"model\": \"308\", \"year\": 2015, \"minPrice\": 100, \"maxPrice\": 200, \"color\": \"blue\"}}")
+                .getBytes(StandardCharsets.UTF_8);
+
+        CarListingEvent event = deserializer.deserialize(CAR_LISTING_TOPIC, payload);
+
+        assertEquals(EventType.UPDATE, event.getEventType());
+        assertEquals("Peugeot", event.getCarListing().getMake());
+        assertEquals(2015, event.getCarListing().getYear());
+        assertEquals(200, event.getCarListing().getMaxPrice());
+    }
+
+    @Test
+    public void testDeserializeNullPayload() {
+        assertNull(deserializer.deserialize(CAR_LISTING_TOPIC, null));
+    }
+
+    @Test
+    public void testDeserializeInvalidPayload() {
+        byte[] payload = "invalid message".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(CAR_LISTING_TOPIC, payload));
+    }
+
+    @Test
+    public void testDeserializeAvroEventSelectedByContentType() {
+        CarListingEvent original = new CarListingEvent("e1", EventType.UPDATE,
+                new CarListing("1", "Peugeot", "308", 2015, 100.0, 200.0, "blue"), 42L);
+        byte[] payload = new CarListingEventAvroCodec().encode(original);
+
+        CarListingEvent event = deserializer.deserialize(CAR_LISTING_TOPIC, avroHeaders(), payload);
+
+        assertEquals(original, event);
+    }
+
+    @Test
+    public void testDeserializeJsonWithoutContentType() {
+        byte[] payload = "{\"id\": \"e1\", \"eventType\": \"DELETE\", \"carListing\": {\"id\": \"1\"}}"
+                .getBytes(StandardCharsets.UTF_8);
+
+        CarListingEvent event = deserializer.deserialize(CAR_LISTING_TOPIC, new RecordHeaders(), payload);
+
+        assertEquals(EventType.DELETE, event.getEventType());
+        assertEquals("1", event.getCarListing().getId());
+    }
+
+    @Test
+    public void testDeserializeInvalidAvroPayload() {
+        byte[] payload = {(byte) 0x02, (byte) 0x7f};
+
+        assertThrows(SerializationException.class,
+                () -> deserializer.deserialize(CAR_LISTING_TOPIC, avroHeaders(), payload));
+    }
+
+    private static Headers avroHeaders() {
+        return new RecordHeaders().add(HEADER_CONTENT_TYPE, CONTENT_TYPE_AVRO.getBytes(StandardCharsets.UTF_8));
+    }
+}
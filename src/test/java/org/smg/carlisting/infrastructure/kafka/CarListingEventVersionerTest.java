@@ -0,0 +1,78 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CarListingEventVersionerTest {
+
+    private static final String CAR_LISTING_TOPIC = "car-listing-topic";
+
+    private final CarListingEventVersioner carListingEventVersioner = new CarListingEventVersioner(true);
+
+    @Test
+    public void testVersionIsTheOffsetOfTheRecord() {
+        CarListingEvent carListingEvent = event(null);
+
+        carListingEventVersioner.assignVersion(new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 42L, "1", carListingEvent));
+
+        assertEquals(42L, carListingEvent.getVersion());
+    }
+
+    @Test
+    public void testRetriedRecordKeepsItsOriginalOffset() {
+        CarListingEvent carListingEvent = event(null);
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>(CAR_LISTING_TOPIC + "-retry", 0, 3L, "1",
+                carListingEvent);
+        record.headers().add(KafkaHeaders.DLT_ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(42L).array());
+
+        carListingEventVersioner.assignVersion(record);
+
+        assertEquals(42L, carListingEvent.getVersion());
+    }
+
+    @Test
+    public void testMalformedOriginalOffsetFallsBackToTheRecordOffset() {
+        CarListingEvent carListingEvent = event(null);
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>(CAR_LISTING_TOPIC + "-retry", 0, 3L, "1",
+                carListingEvent);
+        record.headers().add(KafkaHeaders.DLT_ORIGINAL_OFFSET, new byte[]{1, 2, 3});
+
+        carListingEventVersioner.assignVersion(record);
+
+        assertEquals(3L, carListingEvent.getVersion());
+    }
+
+    @Test
+    public void testVersionOfTheProducerIsKept() {
+        CarListingEvent carListingEvent = event(7L);
+
+        carListingEventVersioner.assignVersion(new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 42L, "1", carListingEvent));
+
+        assertEquals(7L, carListingEvent.getVersion());
+    }
+
+    @Test
+    public void testOffsetVersionsAreDisabledByDefault() {
+        CarListingEvent carListingEvent = event(null);
+
+        new CarListingEventVersioner(false).assignVersion(new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 42L, "1",
+                carListingEvent));
+
+        assertNull(carListingEvent.getVersion());
+    }
+
+    private static CarListingEvent event(Long version) {
+        CarListing carListing = new CarListing();
+        carListing.setId("1");
+        return new CarListingEvent("1", EventType.UPDATE, carListing, version);
+    }
+}
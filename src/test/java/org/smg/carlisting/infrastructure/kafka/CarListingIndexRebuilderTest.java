@@ -0,0 +1,124 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smg.carlisting.application.CarListingService;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.BulkIndexFailure;
+import org.smg.carlisting.domain.repository.BulkIndexResult;
+import org.smg.carlisting.infrastructure.elasticsearch.CarListingIndexManager;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.smg.carlisting.common.Constants.CAR_LISTING_TOPIC;
+
+@ExtendWith(MockitoExtension.class)
+public class CarListingIndexRebuilderTest {
+
+    private static final String PREVIOUS_INDEX = "car_listings_v1";
+    private static final String REBUILT_INDEX = "car_listings_v1-1700000000000";
+    private static final TopicPartition PARTITION = new TopicPartition(CAR_LISTING_TOPIC, 0);
+
+    @Mock
+    private ConsumerFactory<String, CarListingEvent> consumerFactory;
+
+    @Mock
+    private CarListingService carListingService;
+
+    @Mock
+    private CarListingIndexManager carListingIndexManager;
+
+    @Mock
+    private CarListingListenerControl carListingListenerControl;
+
+    private MockConsumer<String, CarListingEvent> consumer;
+
+    private CarListingIndexRebuilder carListingIndexRebuilder;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.updatePartitions(CAR_LISTING_TOPIC, List.of(new PartitionInfo(CAR_LISTING_TOPIC, 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        consumer.updateEndOffsets(Map.of(PARTITION, 3L));
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(record(0, "1"));
+            consumer.addRecord(new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 1, "broken", null));
+            consumer.addRecord(record(2, "2"));
+        });
+        when(consumerFactory.createConsumer(anyString(), anyString(), isNull(), any(Properties.class))).thenReturn(consumer);
+        when(carListingIndexManager.createRebuildIndex()).thenReturn(REBUILT_INDEX);
+
+        carListingIndexRebuilder = new CarListingIndexRebuilder(consumerFactory, carListingService, carListingIndexManager,
+                carListingListenerControl, new CarListingEventVersioner(true), new SimpleMeterRegistry(), 100, Duration.ofSeconds(10), Duration.ZERO, false);
+    }
+
+    @Test
+    public void testRebuildReplaysTopicAndSwapsAlias() throws IOException {
+        when(carListingService.rebuildCarListings(anyList(), eq(REBUILT_INDEX))).thenReturn(new BulkIndexResult(2, List.of()));
+        when(carListingIndexManager.getAliasedIndices()).thenReturn(Set.of(PREVIOUS_INDEX));
+
+        assertEquals(REBUILT_INDEX, carListingIndexRebuilder.rebuild());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CarListingEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(carListingService).rebuildCarListings(events.capture(), eq(REBUILT_INDEX));
+        assertEquals(List.of("1", "2"), events.getValue().stream().map(event -> event.getCarListing().getId()).toList());
+
+        InOrder inOrder = inOrder(carListingIndexManager, carListingListenerControl, carListingService);
+        inOrder.verify(carListingIndexManager).restoreDynamicSettings(REBUILT_INDEX);
+        inOrder.verify(carListingListenerControl).pause(anyString());
+        inOrder.verify(carListingIndexManager).swapAlias(Set.of(PREVIOUS_INDEX), REBUILT_INDEX, false);
+        inOrder.verify(carListingService).invalidateSearchResults();
+        inOrder.verify(carListingListenerControl).resume(anyString());
+    }
+
+    @Test
+    public void testRebuildDropsIndexWhenWritesKeepFailing() throws IOException {
+        when(carListingService.rebuildCarListings(anyList(), eq(REBUILT_INDEX))).thenReturn(new BulkIndexResult(1,
+                List.of(new BulkIndexFailure("2", EventType.CREATE, 429, "es_rejected_execution_exception"))));
+
+        assertThrows(IllegalStateException.class, () -> carListingIndexRebuilder.rebuild());
+
+        verify(carListingIndexManager).deleteIndex(REBUILT_INDEX);
+        verify(carListingIndexManager, never()).swapAlias(any(), anyString(), anyBoolean());
+    }
+
+    private static ConsumerRecord<String, CarListingEvent> record(long offset, String carListingId) {
+        CarListing carListing = new CarListing();
+        carListing.setId(carListingId);
+        return new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, offset, carListingId,
+                new CarListingEvent(carListingId, EventType.CREATE, carListing));
+    }
+}
@@ -0,0 +1,90 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smg.carlisting.application.CarListingService;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CarListingParallelConsumerTest {
+
+    private static final String CAR_LISTING_TOPIC = "car-listing-topic";
+    private static final Duration NACK_SLEEP = Duration.ofMillis(10);
+
+    @Mock
+    private CarListingService carListingService;
+
+    @Mock
+    private CarListingDeadLetterPublisher carListingDeadLetterPublisher;
+
+    @Mock
+    private CarListingListenerControl carListingListenerControl;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    private KeyOrderedProcessingEngine engine;
+
+    private CarListingParallelConsumer carListingParallelConsumer;
+
+    @BeforeEach
+    public void setup() {
+        engine = new KeyOrderedProcessingEngine(carListingListenerControl, new SimpleMeterRegistry(), 10);
+        carListingParallelConsumer = new CarListingParallelConsumer(carListingService, engine,
+                carListingDeadLetterPublisher, NACK_SLEEP);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void testConsumeWrittenEventIsAcknowledged() {
+        CarListingEvent event = event();
+        when(carListingService.processCarListing(event)).thenReturn(true);
+
+        carListingParallelConsumer.consume(new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 0L, "1", event), acknowledgment);
+
+        verify(acknowledgment, timeout(2000)).acknowledge();
+    }
+
+    @Test
+    public void testConsumeEventWhoseProcessingThrowsIsDeadLetteredAndAcknowledged() {
+        CarListingEvent event = event();
+        ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>(CAR_LISTING_TOPIC, 0, 0L, "1", event);
+        NullPointerException failure = new NullPointerException("no event type");
+        when(carListingService.processCarListing(event)).thenThrow(failure);
+        when(carListingDeadLetterPublisher.deadLetter(eq(record), eq(event), eq(failure), anyString()))
+                .thenReturn(false, true);
+
+        carListingParallelConsumer.consume(record, acknowledgment);
+
+        verify(acknowledgment, timeout(2000)).acknowledge();
+        verify(carListingDeadLetterPublisher, timeout(2000).times(2)).deadLetter(eq(record), eq(event), any(),
+                anyString());
+    }
+
+    private static CarListingEvent event() {
+        return new CarListingEvent("e1", EventType.UPDATE,
+                new CarListing("1", "Peugeot", "308", 2015, 10000, 12000, "black"));
+    }
+}
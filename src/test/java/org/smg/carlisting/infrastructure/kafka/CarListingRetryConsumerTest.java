@@ -0,0 +1,81 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smg.carlisting.application.CarListingService;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CarListingRetryConsumerTest {
+
+    private static final String RETRY_TOPIC = "car-listing-topic-retry-0";
+    private static final Duration NACK_SLEEP = Duration.ofSeconds(1);
+    private static final CarListingEvent EVENT = new CarListingEvent("1", EventType.UPDATE,
+            new CarListing("1", "Peugeot", "308", 2015, 10000, 12000, "black"));
+
+    @Mock
+    private CarListingService carListingService;
+
+    @Mock
+    private CarListingDeadLetterPublisher carListingDeadLetterPublisher;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    private CarListingRetryConsumer carListingRetryConsumer;
+
+    private final ConsumerRecord<String, CarListingEvent> record = new ConsumerRecord<>(RETRY_TOPIC, 0, 0L, "1", EVENT);
+
+    @BeforeEach
+    public void setup() {
+        carListingRetryConsumer = new CarListingRetryConsumer(carListingService, carListingDeadLetterPublisher, NACK_SLEEP);
+    }
+
+    @Test
+    public void testRecordWaitsUntilDue() {
+        when(carListingDeadLetterPublisher.getRemainingDelay(record)).thenReturn(Duration.ofSeconds(3));
+
+        carListingRetryConsumer.consume(record, acknowledgment);
+
+        verify(acknowledgment).nack(Duration.ofSeconds(3));
+        verify(carListingService, never()).processCarListing(any(CarListingEvent.class));
+    }
+
+    @Test
+    public void testDueRecordIsWritten() {
+        when(carListingDeadLetterPublisher.getRemainingDelay(record)).thenReturn(Duration.ZERO);
+        when(carListingService.processCarListing(EVENT)).thenReturn(true);
+
+        carListingRetryConsumer.consume(record, acknowledgment);
+
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    public void testFailedRetryMovesToNextTier() {
+        when(carListingDeadLetterPublisher.getRemainingDelay(record)).thenReturn(Duration.ZERO);
+        when(carListingService.processCarListing(EVENT)).thenReturn(false);
+        when(carListingDeadLetterPublisher.retryLater(eq(record), eq(EVENT), anyString())).thenReturn(true);
+
+        carListingRetryConsumer.consume(record, acknowledgment);
+
+        verify(carListingDeadLetterPublisher).retryLater(eq(record), eq(EVENT), anyString());
+        verify(acknowledgment).acknowledge();
+    }
+}
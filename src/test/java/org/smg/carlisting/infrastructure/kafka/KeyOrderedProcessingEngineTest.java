@@ -0,0 +1,119 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class KeyOrderedProcessingEngineTest {
+
+    @Mock
+    private CarListingListenerControl carListingListenerControl;
+
+    private KeyOrderedProcessingEngine engine;
+
+    @BeforeEach
+    public void setup() {
+        engine = new KeyOrderedProcessingEngine(carListingListenerControl, new SimpleMeterRegistry(), 4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void testTasksOfSameKeyRunInOrder() throws Exception {
+        List<Integer> processed = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < 3; i++) {
+            int sequence = i;
+            last = engine.submit("1", () -> {
+                sleep(30 - sequence * 10);
+                processed.add(sequence);
+            });
+        }
+
+        last.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(0, 1, 2), processed);
+    }
+
+    @Test
+    public void testTasksOfDifferentKeysRunConcurrently() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Runnable task = () -> {
+            bothStarted.countDown();
+            try {
+                bothStarted.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        CompletableFuture<Void> first = engine.submit("1", task);
+        CompletableFuture<Void> second = engine.submit("2", task);
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+        assertEquals(0, bothStarted.getCount());
+    }
+
+    @Test
+    public void testPausesWhenBoundIsHitAndResumesWhenDrained() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[4];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = engine.submit(String.valueOf(i), () -> await(release));
+        }
+
+        verify(carListingListenerControl).pause(anyString());
+
+        release.countDown();
+        CompletableFuture.allOf(futures).get(5, TimeUnit.SECONDS);
+
+        verify(carListingListenerControl).resume(anyString());
+        assertEquals(0, engine.getInFlight());
+    }
+
+    @Test
+    public void testFailingTaskDoesNotBlockKey() throws Exception {
+        engine.submit("1", () -> {
+            throw new IllegalStateException("failed");
+        });
+        List<String> processed = new CopyOnWriteArrayList<>();
+
+        engine.submit("1", () -> processed.add("next")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("next"), processed);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
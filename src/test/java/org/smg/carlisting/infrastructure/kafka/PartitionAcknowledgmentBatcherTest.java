@@ -0,0 +1,96 @@
+package org.smg.carlisting.infrastructure.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PartitionAcknowledgmentBatcherTest {
+
+    private static final String CAR_LISTING_TOPIC = "car-listing-topic";
+
+    @Mock
+    private Clock clock;
+
+    @Mock
+    private Acknowledgment firstAcknowledgment;
+
+    @Mock
+    private Acknowledgment secondAcknowledgment;
+
+    @Test
+    public void testAcknowledgesLatestRecordWhenCountIsReached() {
+        PartitionAcknowledgmentBatcher batcher = new PartitionAcknowledgmentBatcher(2, Duration.ofSeconds(5), clock);
+
+        batcher.acknowledge(record(0, 0L), firstAcknowledgment);
+        batcher.acknowledge(record(0, 1L), secondAcknowledgment);
+
+        verify(firstAcknowledgment, never()).acknowledge();
+        verify(secondAcknowledgment).acknowledge();
+    }
+
+    @Test
+    public void testCountsPartitionsSeparately() {
+        PartitionAcknowledgmentBatcher batcher = new PartitionAcknowledgmentBatcher(2, Duration.ofSeconds(5), clock);
+
+        batcher.acknowledge(record(0, 0L), firstAcknowledgment);
+        batcher.acknowledge(record(1, 0L), secondAcknowledgment);
+
+        verify(firstAcknowledgment, never()).acknowledge();
+        verify(secondAcknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    public void testFlushExpiredAcknowledgesAfterInterval() {
+        PartitionAcknowledgmentBatcher batcher = new PartitionAcknowledgmentBatcher(100, Duration.ofSeconds(5), clock);
+        when(clock.millis()).thenReturn(0L, 4000L, 5000L);
+
+        batcher.acknowledge(record(0, 0L), firstAcknowledgment);
+        batcher.flushExpired();
+        verify(firstAcknowledgment, never()).acknowledge();
+
+        batcher.flushExpired();
+        verify(firstAcknowledgment).acknowledge();
+    }
+
+    @Test
+    public void testExpiredAcknowledgmentsAreCheckedFromTheConfiguredInterval() {
+        PartitionAcknowledgmentBatcher batcher = new PartitionAcknowledgmentBatcher(100, Duration.ofSeconds(5), clock);
+        ScheduledTaskRegistrar taskRegistrar = new ScheduledTaskRegistrar();
+
+        batcher.configureTasks(taskRegistrar);
+
+        assertEquals(1, taskRegistrar.getFixedDelayTaskList().size());
+        assertEquals(Duration.ofMillis(500), taskRegistrar.getFixedDelayTaskList().get(0).getIntervalDuration());
+    }
+
+    @Test
+    public void testRevokedPartitionsAreFlushed() {
+        PartitionAcknowledgmentBatcher batcher = new PartitionAcknowledgmentBatcher(100, Duration.ofSeconds(5), clock);
+
+        batcher.acknowledge(record(0, 0L), firstAcknowledgment);
+        batcher.acknowledge(record(1, 0L), secondAcknowledgment);
+        batcher.onPartitionsRevokedBeforeCommit(null, List.of(new TopicPartition(CAR_LISTING_TOPIC, 0)));
+
+        verify(firstAcknowledgment).acknowledge();
+        verify(secondAcknowledgment, never()).acknowledge();
+    }
+
+    private ConsumerRecord<String, String> record(int partition, long offset) {
+        return new ConsumerRecord<>(CAR_LISTING_TOPIC, partition, offset, "key", "value");
+    }
+}
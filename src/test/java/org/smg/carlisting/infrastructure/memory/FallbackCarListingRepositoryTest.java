@@ -0,0 +1,157 @@
+package org.smg.carlisting.infrastructure.memory;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smg.carlisting.application.CarListingEventCoalescer;
+import org.smg.carlisting.application.CarListingSearchCriteria;
+import org.smg.carlisting.application.CarListingService;
+import org.smg.carlisting.application.CarListingVersionTracker;
+import org.smg.carlisting.application.FacetCache;
+import org.smg.carlisting.application.SearchResultCache;
+import org.smg.carlisting.common.Constants;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.exception.InternalServerErrorException;
+import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.CarListingPage;
+import org.smg.carlisting.domain.repository.CarListingWriteBuffer;
+import org.smg.carlisting.infrastructure.elasticsearch.ElasticCarListingRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class FallbackCarListingRepositoryTest {
+
+    private static final CarListing PEUGEOT = new CarListing("1", "Peugeot", "308", 2015, 10000, 12000, "black");
+
+    @Mock
+    private ElasticCarListingRepository elasticCarListingRepository;
+
+    @Mock
+    private CarListingWriteBuffer carListingWriteBuffer;
+
+    private InMemoryCarListingRepository inMemoryCarListingRepository;
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private FallbackCarListingRepository fallbackCarListingRepository;
+
+    @BeforeEach
+    public void setup() {
+        inMemoryCarListingRepository = new InMemoryCarListingRepository(new SimpleMeterRegistry());
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        fallbackCarListingRepository = new FallbackCarListingRepository(elasticCarListingRepository,
+                inMemoryCarListingRepository, circuitBreakerRegistry, new SimpleMeterRegistry(), 1000);
+    }
+
+    @Test
+    public void testWritesReachBothAndReportElasticsearchResult() {
+        when(elasticCarListingRepository.createOrUpdateElasticsearchIndex(PEUGEOT, null)).thenReturn(false);
+
+        assertFalse(fallbackCarListingRepository.createOrUpdateElasticsearchIndex(PEUGEOT, null));
+        assertEquals(1, inMemoryCarListingRepository.size());
+    }
+
+    @Test
+    public void testSearchesLocalIndexWhileCircuitBreakerIsOpen() {
+        inMemoryCarListingRepository.createOrUpdateElasticsearchIndex(PEUGEOT, null);
+        circuitBreakerRegistry.circuitBreaker(Constants.ELASTICSEARCH_CIRCUIT_BREAKER).transitionToOpenState();
+
+        List<CarListing> carListings = fallbackCarListingRepository.searchCarListings(new CarListingSearchCriteria(),
+                Pageable.unpaged());
+
+        assertEquals(List.of(PEUGEOT), carListings);
+        verify(elasticCarListingRepository, never()).searchCarListings(any(), any());
+    }
+
+    @Test
+    public void testBufferedEventsAreSearchableWhileCircuitBreakerIsOpen() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CarListingService carListingService = new CarListingService(fallbackCarListingRepository,
+                new CarListingEventCoalescer(meterRegistry),
+                new SearchResultCache(100, DataSize.ofBytes(0), Duration.ofMinutes(1), Duration.ZERO, Duration.ZERO,
+                        DataSize.ofBytes(0), null, meterRegistry),
+                new FacetCache(100, Duration.ofMinutes(1), meterRegistry), new CarListingVersionTracker(100),
+                meterRegistry, Optional.of(carListingWriteBuffer));
+        CarListingEvent carListingEvent = new CarListingEvent();
+        carListingEvent.setEventType(EventType.CREATE);
+        carListingEvent.setCarListing(PEUGEOT);
+        circuitBreakerRegistry.circuitBreaker(Constants.ELASTICSEARCH_CIRCUIT_BREAKER).transitionToOpenState();
+        when(carListingWriteBuffer.isEmpty()).thenReturn(false);
+        when(carListingWriteBuffer.append(List.of(carListingEvent))).thenReturn(true);
+
+        assertTrue(carListingService.processCarListing(carListingEvent));
+
+        assertEquals(List.of(PEUGEOT), carListingService.searchCarListings(new CarListingSearchCriteria(),
+                Pageable.unpaged()));
+        verify(elasticCarListingRepository, never()).createOrUpdateElasticsearchIndex(any(), any());
+    }
+
+    @Test
+    public void testExportsLocalIndexWhileCircuitBreakerIsOpen() {
+        inMemoryCarListingRepository.createOrUpdateElasticsearchIndex(PEUGEOT, null);
+        circuitBreakerRegistry.circuitBreaker(Constants.ELASTICSEARCH_CIRCUIT_BREAKER).transitionToOpenState();
+        List<CarListing> exported = new ArrayList<>();
+
+        assertEquals(1, fallbackCarListingRepository.exportCarListings(new CarListingSearchCriteria(), exported::addAll));
+
+        assertEquals(List.of(PEUGEOT), exported);
+        verify(elasticCarListingRepository, never()).exportCarListings(any(), any());
+    }
+
+    @Test
+    public void testSearchesLocalIndexWhenElasticsearchFails() {
+        inMemoryCarListingRepository.createOrUpdateElasticsearchIndex(PEUGEOT, null);
+        when(elasticCarListingRepository.searchCarListings(any(), any()))
+                .thenThrow(new InternalServerErrorException("Circuit Breaker is open!"));
+
+        assertEquals(List.of(PEUGEOT), fallbackCarListingRepository.searchCarListings(new CarListingSearchCriteria(),
+                Pageable.unpaged()));
+    }
+
+    @Test
+    public void testAsyncSearchesLocalIndexWhenElasticsearchTimesOut() {
+        inMemoryCarListingRepository.createOrUpdateElasticsearchIndex(PEUGEOT, null);
+        when(elasticCarListingRepository.searchCarListingsAsync(any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new InternalServerErrorException("Search timed out")));
+
+        assertEquals(List.of(PEUGEOT), fallbackCarListingRepository.searchCarListingsAsync(new CarListingSearchCriteria(),
+                Pageable.unpaged()).join());
+    }
+
+    @Test
+    public void testBootstrapLoadsAllPages() {
+        CarListing golf = new CarListing("2", "Volkswagen", "Golf", 2012, 7000, 8000, "black");
+        when(elasticCarListingRepository.searchCarListingsAfter(any(), any(Sort.class), anyInt(), isNull()))
+                .thenReturn(new CarListingPage(List.of(PEUGEOT), List.of("1")));
+        when(elasticCarListingRepository.searchCarListingsAfter(any(), any(Sort.class), anyInt(), eq(List.of("1"))))
+                .thenReturn(new CarListingPage(List.of(golf), null));
+
+        fallbackCarListingRepository.bootstrap();
+
+        assertEquals(2, inMemoryCarListingRepository.size());
+    }
+}
@@ -0,0 +1,153 @@
+package org.smg.carlisting.infrastructure.memory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.smg.carlisting.application.CarListingSearchCriteria;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.CarListingFacets;
+import org.smg.carlisting.domain.repository.CarListingPage;
+import org.smg.carlisting.domain.repository.FacetBucket;
+import org.smg.carlisting.domain.repository.HistogramBucket;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class InMemoryCarListingRepositoryTest {
+
+    private InMemoryCarListingRepository repository;
+
+    @BeforeEach
+    public void setup() {
+        repository = new InMemoryCarListingRepository(new SimpleMeterRegistry());
+        repository.createOrUpdateElasticsearchIndex(new CarListing("1", "Peugeot", "308 GT", 2015, 10000, 12000, "black"), null);
+        repository.createOrUpdateElasticsearchIndex(new CarListing("2", "Peugeot", "208", 2019, 14000, 15000, "Blue"), null);
+        repository.createOrUpdateElasticsearchIndex(new CarListing("3", "Volkswagen", "Golf", 2012, 7000, 8000, "black"), null);
+    }
+
+    @Test
+    public void testTextCriteriaMatchOnSharedToken() {
+        CarListingSearchCriteria criteria = new CarListingSearchCriteria();
+        criteria.setModel("gt");
+
+        assertEquals(List.of("1"), ids(repository.searchCarListings(criteria, Pageable.unpaged())));
+
+        criteria = new CarListingSearchCriteria();
+        criteria.setColor("BLACK");
+        assertEquals(List.of("1", "3"), ids(repository.searchCarListings(criteria, Pageable.unpaged())));
+    }
+
+    @Test
+    public void testYearAndPriceRanges() {
+        CarListingSearchCriteria criteria = new CarListingSearchCriteria();
+        criteria.setMinYear(2013);
+        criteria.setMinPrice(11000.0);
+        criteria.setMaxPrice(14500.0);
+
+        assertEquals(List.of("1", "2"), ids(repository.searchCarListings(criteria, Pageable.unpaged())));
+
+        criteria.setYear(2019);
+        assertEquals(List.of("2"), ids(repository.searchCarListings(criteria, Pageable.unpaged())));
+    }
+
+    @Test
+    public void testFacetsCountMatchingRows() {
+        CarListingFacets facets = repository.searchCarListingFacets(new CarListingSearchCriteria());
+
+        assertEquals(3, facets.getTotal());
+        assertEquals(List.of(new FacetBucket("peugeot", 2), new FacetBucket("volkswagen", 1)), facets.getMakes());
+        assertEquals(List.of(new FacetBucket("black", 2), new FacetBucket("blue", 1)), facets.getColors());
+        assertEquals(List.of(new HistogramBucket(2012, 2013, 1), new HistogramBucket(2015, 2016, 1),
+                new HistogramBucket(2019, 2020, 1)), facets.getYears());
+        assertEquals(List.of(new HistogramBucket(5000, 10000, 1), new HistogramBucket(10000, 15000, 2)),
+                facets.getPrices());
+
+        CarListingSearchCriteria criteria = new CarListingSearchCriteria();
+        criteria.setColor("black");
+        facets = repository.searchCarListingFacets(criteria);
+        assertEquals(2, facets.getTotal());
+        assertEquals(List.of(new FacetBucket("308 gt", 1), new FacetBucket("golf", 1)), facets.getModels());
+    }
+
+    @Test
+    public void testExportWalksMatchingRowsInIdOrder() {
+        for (int i = 0; i < 2500; i++) {
+            repository.createOrUpdateElasticsearchIndex(new CarListing("export-" + i, "Skoda", "Octavia", 2020, 20000,
+                    21000, "grey"), null);
+        }
+        CarListingSearchCriteria criteria = new CarListingSearchCriteria();
+        criteria.setMake("skoda");
+        List<Integer> pageSizes = new ArrayList<>();
+        Set<String> exportedIds = new HashSet<>();
+
+        long exported = repository.exportCarListings(criteria, page -> {
+            pageSizes.add(page.size());
+            page.forEach(carListing -> exportedIds.add(carListing.getId()));
+        });
+
+        assertEquals(2500, exported);
+        assertEquals(List.of(1000, 1000, 500), pageSizes);
+        assertEquals(2500, exportedIds.size());
+    }
+
+    @Test
+    public void testSortAndPagination() {
+        Pageable secondPage = PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "year"));
+
+        assertEquals(List.of("3"), ids(repository.searchCarListings(new CarListingSearchCriteria(), secondPage)));
+    }
+
+    @Test
+    public void testUpdateDeleteAndRowReuse() {
+        repository.createOrUpdateElasticsearchIndex(new CarListing("1", "Peugeot", "308", 2016, 9000, 9500, "white"), null);
+        repository.deleteFromElasticsearchIndex("3", null);
+        repository.bulkUpdateElasticsearchIndex(List.of(
+                new CarListingEvent("e1", EventType.CREATE, new CarListing("4", "Skoda", "Octavia", 2020, 20000, 21000, "grey"))));
+
+        List<CarListing> carListings = repository.searchCarListings(new CarListingSearchCriteria(), Pageable.unpaged());
+
+        assertEquals(3, repository.size());
+        assertEquals(List.of("1", "2", "4"), ids(carListings));
+        assertEquals("white", carListings.get(0).getColor());
+    }
+
+    @Test
+    public void testSearchAfterWalksAllHits() {
+        Sort sort = Sort.by(Sort.Direction.DESC, "year").and(Sort.by("id"));
+
+        CarListingPage firstPage = repository.searchCarListingsAfter(new CarListingSearchCriteria(), sort, 2, null);
+        CarListingPage lastPage = repository.searchCarListingsAfter(new CarListingSearchCriteria(), sort, 2,
+                firstPage.getSearchAfter());
+
+        assertEquals(List.of("2", "1"), ids(firstPage.getCarListings()));
+        assertEquals(List.of("3"), ids(lastPage.getCarListings()));
+        assertNull(lastPage.getSearchAfter());
+    }
+
+    @Test
+    public void testBootstrapDoesNotOverwriteNewerWrites() {
+        repository.startBootstrap();
+        repository.deleteFromElasticsearchIndex("2", null);
+        repository.bootstrap(List.of(
+                new CarListing("2", "Peugeot", "208", 2019, 14000, 15000, "blue"),
+                new CarListing("5", "Audi", "A4", 2018, 25000, 26000, "silver")));
+        repository.finishBootstrap();
+
+        assertEquals(List.of("1", "3", "5"), ids(repository.searchCarListings(new CarListingSearchCriteria(),
+                PageRequest.of(0, 10, Sort.by("id")))));
+    }
+
+    private static List<String> ids(List<CarListing> carListings) {
+        return carListings.stream().map(CarListing::getId).toList();
+    }
+}
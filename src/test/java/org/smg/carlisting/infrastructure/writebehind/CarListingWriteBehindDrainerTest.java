@@ -0,0 +1,98 @@
+package org.smg.carlisting.infrastructure.writebehind;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smg.carlisting.application.CarListingService;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.BulkIndexFailure;
+import org.smg.carlisting.domain.repository.BulkIndexResult;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CarListingWriteBehindDrainerTest {
+
+    private static final CarListingEvent PEUGEOT = new CarListingEvent("1", EventType.CREATE,
+            new CarListing("1", "Peugeot", "308", 2015, 10000, 12000, "black"));
+    private static final CarListingEvent FIAT = new CarListingEvent("2", EventType.DELETE,
+            new CarListing("2", "Fiat", "Panda", 2018, 6000, 7000, "red"));
+
+    @TempDir
+    private Path directory;
+
+    @Mock
+    private CarListingService carListingService;
+
+    private SegmentLogCarListingWriteBuffer carListingWriteBuffer;
+
+    private CarListingWriteBehindDrainer carListingWriteBehindDrainer;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        carListingWriteBuffer = new SegmentLogCarListingWriteBuffer(directory.toString(), DataSize.ofMegabytes(1),
+                new SimpleMeterRegistry());
+        carListingWriteBehindDrainer = new CarListingWriteBehindDrainer(carListingWriteBuffer, carListingService,
+                CircuitBreakerRegistry.ofDefaults(), new SimpleMeterRegistry(), 1000);
+    }
+
+    @Test
+    public void testDrainWritesBufferedCarListingsInBulk() {
+        carListingWriteBuffer.append(List.of(PEUGEOT, FIAT));
+        when(carListingService.writeBufferedCarListings(List.of(PEUGEOT, FIAT)))
+                .thenReturn(new BulkIndexResult(2, List.of()));
+
+        carListingWriteBehindDrainer.drain();
+
+        assertTrue(carListingWriteBuffer.isEmpty());
+    }
+
+    @Test
+    public void testDrainKeepsRetryableFailures() {
+        carListingWriteBuffer.append(List.of(PEUGEOT, FIAT));
+        when(carListingService.writeBufferedCarListings(List.of(PEUGEOT, FIAT)))
+                .thenReturn(new BulkIndexResult(1, List.of(
+                        new BulkIndexFailure("2", EventType.DELETE, 503, "unavailable_shards_exception"))));
+
+        carListingWriteBehindDrainer.drain();
+
+        assertEquals(1, carListingWriteBuffer.size());
+        assertEquals(FIAT, carListingWriteBuffer.peek(1).get(0).getCarListingEvent());
+    }
+
+    @Test
+    public void testDrainDropsRejectedCarListings() {
+        carListingWriteBuffer.append(List.of(PEUGEOT));
+        when(carListingService.writeBufferedCarListings(List.of(PEUGEOT)))
+                .thenReturn(new BulkIndexResult(0, List.of(
+                        new BulkIndexFailure("1", EventType.CREATE, 400, "mapper_parsing_exception"))));
+
+        carListingWriteBehindDrainer.drain();
+
+        assertTrue(carListingWriteBuffer.isEmpty());
+    }
+
+    @Test
+    public void testDrainSkipsEmptyBuffer() {
+        carListingWriteBehindDrainer.drain();
+
+        verify(carListingService, never()).writeBufferedCarListings(any());
+    }
+}
@@ -0,0 +1,131 @@
+package org.smg.carlisting.infrastructure.writebehind;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.smg.carlisting.domain.event.CarListingEvent;
+import org.smg.carlisting.domain.event.EventType;
+import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.BufferedCarListingEvent;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SegmentLogCarListingWriteBufferTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testAppendKeepsLatestStatePerCarListing() throws IOException {
+        SegmentLogCarListingWriteBuffer buffer = open(DataSize.ofMegabytes(1));
+
+        buffer.append(List.of(event("1", EventType.CREATE, 10000), event("2", EventType.CREATE, 20000)));
+        buffer.append(List.of(event("1", EventType.UPDATE, 9000)));
+
+        List<BufferedCarListingEvent> buffered = buffer.peek(10);
+        assertEquals(2, buffered.size());
+        assertEquals("2", buffered.get(0).getCarListingEvent().getCarListing().getId());
+        assertEquals(EventType.UPDATE, buffered.get(1).getCarListingEvent().getEventType());
+        assertEquals(9000, buffered.get(1).getCarListingEvent().getCarListing().getMinPrice());
+    }
+
+    @Test
+    public void testBufferIsRecoveredAfterRestart() throws IOException {
+        SegmentLogCarListingWriteBuffer buffer = open(DataSize.ofMegabytes(1));
+        buffer.append(List.of(event("1", EventType.CREATE, 10000), event("2", EventType.DELETE, 0)));
+        buffer.remove(buffer.peek(1));
+
+        SegmentLogCarListingWriteBuffer recovered = open(DataSize.ofMegabytes(1));
+
+        List<BufferedCarListingEvent> buffered = recovered.peek(10);
+        assertEquals(1, buffered.size());
+        assertEquals("2", buffered.get(0).getCarListingEvent().getCarListing().getId());
+        assertEquals(EventType.DELETE, buffered.get(0).getCarListingEvent().getEventType());
+    }
+
+    @Test
+    public void testRecoveryStopsAtIncompleteRecord() throws IOException {
+        SegmentLogCarListingWriteBuffer buffer = open(DataSize.ofMegabytes(1));
+        buffer.append(List.of(event("1", EventType.CREATE, 10000)));
+        Path segment = segments().get(0);
+        try (SeekableByteChannel channel = Files.newByteChannel(segment, StandardOpenOption.WRITE)) {
+            // Length and checksum of a second record whose body was never written
+            channel.position(endOfRecords(segment));
+            channel.write(ByteBuffer.allocate(8).putInt(100).putInt(42).flip());
+        }
+
+        SegmentLogCarListingWriteBuffer recovered = open(DataSize.ofMegabytes(1));
+
+        assertEquals(1, recovered.size());
+    }
+
+    @Test
+    public void testDrainedStateIsKeptWhenReplacedMeanwhile() throws IOException {
+        SegmentLogCarListingWriteBuffer buffer = open(DataSize.ofMegabytes(1));
+        buffer.append(List.of(event("1", EventType.CREATE, 10000)));
+        List<BufferedCarListingEvent> peeked = buffer.peek(10);
+
+        buffer.append(List.of(event("1", EventType.UPDATE, 9000)));
+        buffer.remove(peeked);
+
+        assertEquals(1, buffer.size());
+        assertEquals(EventType.UPDATE, buffer.peek(1).get(0).getCarListingEvent().getEventType());
+    }
+
+    @Test
+    public void testSegmentsAreDeletedOnceDrained() throws IOException {
+        SegmentLogCarListingWriteBuffer buffer = open(DataSize.ofMegabytes(1));
+        buffer.append(List.of(event("1", EventType.CREATE, 10000), event("2", EventType.CREATE, 20000)));
+
+        buffer.remove(buffer.peek(10));
+
+        assertTrue(buffer.isEmpty());
+        assertTrue(segments().isEmpty());
+    }
+
+    @Test
+    public void testSupersededRecordsAreCompacted() throws IOException {
+        SegmentLogCarListingWriteBuffer buffer = open(DataSize.ofKilobytes(1));
+        for (int price = 0; price < 100; price++) {
+            buffer.append(List.of(event("1", EventType.UPDATE, price)));
+        }
+
+        assertEquals(1, segments().size());
+        assertEquals(99, open(DataSize.ofKilobytes(1)).peek(1).get(0).getCarListingEvent().getCarListing().getMinPrice());
+    }
+
+    private SegmentLogCarListingWriteBuffer open(DataSize segmentSize) throws IOException {
+        return new SegmentLogCarListingWriteBuffer(directory.toString(), segmentSize, new SimpleMeterRegistry());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static long endOfRecords(Path segment) throws IOException {
+        ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int length;
+        while ((length = records.getInt(records.position())) != 0) {
+            records.position(records.position() + Integer.BYTES + length);
+        }
+        return records.position();
+    }
+
+    private static CarListingEvent event(String id, EventType eventType, double minPrice) {
+        CarListing carListing = new CarListing(id, "Peugeot", "308", 2015, minPrice, minPrice + 2000, "black");
+        return new CarListingEvent(id, eventType, carListing);
+    }
+}
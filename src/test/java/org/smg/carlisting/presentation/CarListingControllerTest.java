@@ -1,33 +1,55 @@
 package org.smg.carlisting.presentation;
 
 import org.junit.jupiter.api.Test;
+import org.smg.carlisting.application.CarListingCursorPage;
 import org.smg.carlisting.application.CarListingSearchCriteria;
 import org.smg.carlisting.application.CarListingService;
+import org.smg.carlisting.domain.exception.InternalServerErrorException;
+import org.smg.carlisting.domain.exception.InvalidCursorException;
 import org.smg.carlisting.domain.model.CarListing;
+import org.smg.carlisting.domain.repository.CarListingFacets;
+import org.smg.carlisting.domain.repository.FacetBucket;
+import org.smg.carlisting.domain.repository.HistogramBucket;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(CarListingController.class)
 public class CarListingControllerTest {
 
     private static final String URL_SEARCH = "/api/car-listings/search";
+    private static final String URL_SEARCH_ASYNC = "/api/car-listings/search/async";
+    private static final String URL_SEARCH_CURSOR = "/api/car-listings/search/cursor";
+    private static final String URL_FACETS = "/api/car-listings/facets";
+    private static final String URL_EXPORT = "/api/car-listings/export";
 
     @Autowired
     private MockMvc mockMvc;
@@ -99,4 +121,114 @@ public class CarListingControllerTest {
 
         verify(carListingService, never()).searchCarListings(any(CarListingSearchCriteria.class), any(Pageable.class));
     }
+
+    @Test
+    public void testSearchCarListingsAsync() throws Exception {
+        when(carListingService.searchCarListingsAsync(any(CarListingSearchCriteria.class), any(Pageable.class)))
+                .thenReturn(CompletableFuture.completedFuture(
+                        List.of(new CarListing("1", "Peugeot", "308", 2015, 10000, 12000, "black"))));
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get(URL_SEARCH_ASYNC)
+                        .param("make", "Peugeot"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.valid", is(true)))
+                .andExpect(jsonPath("$.data[0].make", is("Peugeot")));
+    }
+
+    @Test
+    public void testSearchCarListingsAsyncFailure() throws Exception {
+        when(carListingService.searchCarListingsAsync(any(CarListingSearchCriteria.class), any(Pageable.class)))
+                .thenReturn(CompletableFuture.failedFuture(new InternalServerErrorException("Search timed out")));
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get(URL_SEARCH_ASYNC))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    public void testSearchCarListingsWithCursor() throws Exception {
+        when(carListingService.searchCarListings(any(CarListingSearchCriteria.class), any(Sort.class), eq(2), isNull()))
+                .thenReturn(new CarListingCursorPage(
+                        List.of(new CarListing("1", "Peugeot", "308", 2015, 10000, 12000, "black")), "next"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(URL_SEARCH_CURSOR)
+                        .param("make", "Peugeot")
+                        .param("size", "2")
+                        .param("sort", "year,desc"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.valid", is(true)))
+                .andExpect(jsonPath("$.data[0].id", is("1")))
+                .andExpect(jsonPath("$.nextCursor", is("next")));
+    }
+
+    @Test
+    public void testSearchCarListingsWithInvalidCursor() throws Exception {
+        when(carListingService.searchCarListings(any(CarListingSearchCriteria.class), any(Sort.class), anyInt(), eq("broken")))
+                .thenThrow(new InvalidCursorException("Invalid cursor: broken"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(URL_SEARCH_CURSOR)
+                        .param("cursor", "broken"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.valid", is(false)));
+    }
+
+    @Test
+    public void testGetCarListingFacets() throws Exception {
+        when(carListingService.getCarListingFacets(any(CarListingSearchCriteria.class)))
+                .thenReturn(new CarListingFacets(2, List.of(new FacetBucket("peugeot", 2)), List.of(),
+                        List.of(new FacetBucket("black", 1), new FacetBucket("blue", 1)),
+                        List.of(new HistogramBucket(2015, 2016, 2)), List.of(new HistogramBucket(5000, 10000, 2))));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(URL_FACETS)
+                        .param("make", "Peugeot"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.valid", is(true)))
+                .andExpect(jsonPath("$.data.total", is(2)))
+                .andExpect(jsonPath("$.data.makes[0].value", is("peugeot")))
+                .andExpect(jsonPath("$.data.colors[1].count", is(1)))
+                .andExpect(jsonPath("$.data.years[0].from", is(2015.0)))
+                .andExpect(jsonPath("$.data.prices[0].to", is(10000.0)));
+    }
+
+    @Test
+    public void testGetCarListingFacetsWithInvalidYear() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(URL_FACETS)
+                        .param("year", "3000"))
+                .andExpect(status().isBadRequest());
+
+        verify(carListingService, never()).getCarListingFacets(any(CarListingSearchCriteria.class));
+    }
+
+    @Test
+    public void testExportCarListingsWritesOneLinePerListing() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<List<CarListing>> pageConsumer = invocation.getArgument(1);
+            pageConsumer.accept(List.of(new CarListing("1", "Peugeot", "308", 2015, 10000, 12000, "black")));
+            pageConsumer.accept(List.of(new CarListing("2", "Peugeot", "307", 2015, 9000, 12000, "blue")));
+            return 2L;
+        }).when(carListingService).exportCarListings(any(CarListingSearchCriteria.class), any());
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get(URL_EXPORT)
+                        .param("make", "Peugeot"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":\"1\""));
+        assertTrue(lines[1].startsWith("{\"id\":\"2\""));
+    }
 }